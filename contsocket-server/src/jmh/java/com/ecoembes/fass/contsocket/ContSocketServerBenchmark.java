@@ -0,0 +1,107 @@
+package com.ecoembes.fass.contsocket;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Command handling of one connection, from request bytes to response bytes, without the socket. Each invocation
+ * replays a connection carrying {@value #COMMANDS} commands, so the per-connection buffers are amortized the way
+ * they are for a pooled client.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ContSocketServerBenchmark {
+
+    private static final int COMMANDS = 10_000;
+
+    private final OutputStream responses = OutputStream.nullOutputStream();
+    private byte[] getCapacityText;
+    private byte[] getCapacityTodayText;
+    private byte[] getCapacityForPlantText;
+    private byte[] notifyText;
+    private byte[] getCapacityBinary;
+    private byte[] getCapacityTodayBinary;
+
+    @Setup
+    public void setUp() {
+        String date = LocalDate.now().plusDays(365).toString();
+        getCapacityText = repeat("GET_CAPACITY " + date + "\n");
+        getCapacityTodayText = repeat("GET_CAPACITY\n");
+        getCapacityForPlantText = repeat("GET_CAPACITY " + date + " plant=CONTSO-03\n");
+        notifyText = repeat("NOTIFY 1 1 " + date + " plant=CONTSO-02\n");
+
+        getCapacityBinary = repeatBinaryGetCapacity((int) LocalDate.parse(date).toEpochDay());
+        getCapacityTodayBinary = repeatBinaryGetCapacity(BinaryProtocol.NO_DATE);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COMMANDS)
+    public void getCapacityText() throws IOException {
+        ContSocketServer.serve(new ByteArrayInputStream(getCapacityText), responses);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COMMANDS)
+    public void getCapacityTodayText() throws IOException {
+        ContSocketServer.serve(new ByteArrayInputStream(getCapacityTodayText), responses);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COMMANDS)
+    public void getCapacityForPlantText() throws IOException {
+        ContSocketServer.serve(new ByteArrayInputStream(getCapacityForPlantText), responses);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COMMANDS)
+    public void notifyText() throws IOException {
+        ContSocketServer.serve(new ByteArrayInputStream(notifyText), responses);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COMMANDS)
+    public void getCapacityBinary() throws IOException {
+        ContSocketServer.serve(new ByteArrayInputStream(getCapacityBinary), responses);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COMMANDS)
+    public void getCapacityTodayBinary() throws IOException {
+        ContSocketServer.serve(new ByteArrayInputStream(getCapacityTodayBinary), responses);
+    }
+
+    private static byte[] repeatBinaryGetCapacity(int epochDay) {
+        ByteBuffer frame = ByteBuffer.allocate(Integer.BYTES + 1 + Integer.BYTES + Short.BYTES);
+        frame.putInt(frame.capacity() - Integer.BYTES)
+                .put(BinaryProtocol.GET_CAPACITY)
+                .putInt(epochDay)
+                .putShort((short) 0); // no trace context
+        ByteArrayOutputStream binary = new ByteArrayOutputStream();
+        binary.write(BinaryProtocol.MAGIC);
+        binary.write('\n');
+        for (int i = 0; i < COMMANDS; i++) {
+            binary.writeBytes(frame.array());
+        }
+        return binary.toByteArray();
+    }
+
+    private static byte[] repeat(String command) {
+        return command.repeat(COMMANDS).getBytes(StandardCharsets.UTF_8);
+    }
+}
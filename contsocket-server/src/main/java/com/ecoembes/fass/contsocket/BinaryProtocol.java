@@ -0,0 +1,140 @@
+package com.ecoembes.fass.contsocket;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+/**
+ * Compact binary framing for the socket protocol. A client opts in by opening the connection with
+ * {@link #MAGIC} followed by a newline; the server answers with {@link #MAGIC} before its first frame.
+ * A server that only speaks text answers the preamble with an {@code ERROR} line, so clients can fall back.
+ *
+ * <p>Every frame is a 4-byte big-endian payload length followed by the payload. Requests start with an opcode,
+ * responses with a status. Dates are epoch days ({@link #NO_DATE} for today), capacities are fixed-point
+ * thousandths of a ton, and strings are a 2-byte length followed by UTF-8 bytes. Every request ends with the
+ * W3C trace context as a string, empty when the call is not traced. An opcode with {@link #PLANT_FLAG} set is
+ * followed by the plant ID as a string; without it the command addresses the server's default plant.
+ *
+ * <pre>
+ * GET_CAPACITY  epochDay                                  -> OK capacity(long)
+ * NOTIFY        numDumpsters totalContainers epochDay key -> OK
+ * NOTIFY_BATCH  epochDay count {key numDumpsters totalContainers}* -> OK applied(int)
+ * RESERVE       epochDay totalContainers expectedVersion(long, -1 for none)
+ *                                                         -> OK reservationId version(long) capacity(long)
+ *                                                          | CONFLICT version(long) capacity(long)
+ * RELEASE       reservationId                             -> OK | ERROR message
+ * </pre>
+ */
+final class BinaryProtocol {
+
+    static final int MAGIC = 0xB1;
+    static final int MAX_FRAME_BYTES = 64 * 1024;
+
+    static final byte GET_CAPACITY = 1;
+    static final byte NOTIFY = 2;
+    static final byte NOTIFY_BATCH = 3;
+    static final byte RESERVE = 4;
+    static final byte RELEASE = 5;
+
+    // Set on an opcode when the plant ID follows it
+    static final int PLANT_FLAG = 0x80;
+
+    static final byte OK = 0;
+    static final byte ERROR = 1;
+    static final byte CONFLICT = 2;
+
+    static final int NO_DATE = Integer.MIN_VALUE;
+    static final long NO_VERSION = -1;
+
+    private BinaryProtocol() {
+    }
+
+    static String getString(ByteBuffer buffer) {
+        int length = buffer.getShort() & 0xFFFF;
+        String value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+
+    /**
+     * Reads a plant ID and looks it up without decoding it, returning null if the plant is not hosted here.
+     */
+    static PlantRegistry.HostedPlant getPlant(ByteBuffer buffer, PlantRegistry plants) {
+        int length = buffer.getShort() & 0xFFFF;
+        int from = buffer.arrayOffset() + buffer.position();
+        buffer.position(buffer.position() + length);
+        return plants.find(buffer.array(), from, from + length);
+    }
+
+    static ByteBuffer putString(ByteBuffer buffer, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        return buffer.putShort((short) bytes.length).put(bytes);
+    }
+
+    /**
+     * Frames of one connection. Requests are decoded in place from one reusable buffer and responses are
+     * encoded straight into another, so serving a request allocates no buffers.
+     */
+    static final class Connection {
+
+        private final DataInputStream in;
+        private final OutputStream out;
+        private final ByteBuffer request = ByteBuffer.allocate(MAX_FRAME_BYTES);
+        private final ByteBuffer response = ByteBuffer.allocate(MAX_FRAME_BYTES);
+        private final DateCache dates = new DateCache();
+        private boolean acknowledged;
+
+        Connection(InputStream in, OutputStream out) {
+            this.in = new DataInputStream(in);
+            this.out = out;
+        }
+
+        /**
+         * Reads the next request frame, or returns null once the client closed the connection.
+         */
+        ByteBuffer readFrame() throws IOException {
+            int length;
+            try {
+                length = in.readInt();
+            } catch (EOFException e) {
+                return null;
+            }
+            if (length < 0 || length > MAX_FRAME_BYTES) {
+                throw new IOException("Invalid frame length: " + length);
+            }
+            in.readFully(request.array(), 0, length);
+            return request.clear().limit(length);
+        }
+
+        /**
+         * The date of an epoch day read from a frame, or today's for {@link #NO_DATE}, without allocating when the
+         * connection has seen it before.
+         */
+        LocalDate date(int epochDay) {
+            return epochDay == NO_DATE ? dates.today() : dates.date(epochDay);
+        }
+
+        /**
+         * Returns the response buffer positioned after the length prefix.
+         */
+        ByteBuffer startResponse(byte status) {
+            return response.clear().position(Integer.BYTES).put(status);
+        }
+
+        void writeFrame() throws IOException {
+            int end = response.position();
+            response.putInt(0, end - Integer.BYTES);
+            if (!acknowledged) {
+                out.write(MAGIC);
+                acknowledged = true;
+            }
+            out.write(response.array(), 0, end);
+            out.flush();
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.ecoembes.fass.contsocket;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Hands capacity changes of the hosted plants to {@code SUBSCRIBE} connections. Publishing only records the latest
+ * change per plant and date in each subscription and wakes its connection thread, so notifications never wait on a
+ * subscriber's socket, and a subscriber that falls behind skips straight to the newest capacity of each date. With
+ * no subscribers publishing returns right away without allocating.
+ */
+final class CapacityFeed {
+
+    private final Set<Subscription> subscriptions = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Subscribes to changes of the given plants, or of every plant when {@code plantIds} is null.
+     */
+    Subscription subscribe(Set<String> plantIds) {
+        Subscription subscription = new Subscription(plantIds);
+        subscriptions.add(subscription);
+        return subscription;
+    }
+
+    void publish(String plantId, LocalDate date, long version, long availableContainers) {
+        if (subscriptions.isEmpty()) {
+            return;
+        }
+        Change change = new Change(plantId, date, version, availableContainers);
+        for (Subscription subscription : subscriptions) {
+            subscription.offer(change);
+        }
+    }
+
+    final class Subscription implements AutoCloseable {
+
+        private final Set<String> plantIds;
+        // Latest undelivered change per plant and date
+        private final Map<Key, Change> pending = new ConcurrentHashMap<>();
+        private final Semaphore signal = new Semaphore(0);
+        private final AtomicBoolean signalled = new AtomicBoolean();
+
+        private Subscription(Set<String> plantIds) {
+            this.plantIds = plantIds;
+        }
+
+        /**
+         * Waits up to {@code timeoutMillis} for changes and returns them, or an empty list if there were none.
+         */
+        List<Change> await(long timeoutMillis) throws InterruptedException {
+            if (!signal.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                return List.of();
+            }
+            // Changes offered from here on signal again, so none is left behind until the next wait
+            signalled.set(false);
+            List<Change> changes = new ArrayList<>(pending.size());
+            for (Iterator<Key> keys = pending.keySet().iterator(); keys.hasNext(); ) {
+                Change change = pending.remove(keys.next());
+                if (change != null) {
+                    changes.add(change);
+                }
+            }
+            return changes;
+        }
+
+        @Override
+        public void close() {
+            subscriptions.remove(this);
+        }
+
+        private void offer(Change change) {
+            if (plantIds != null && !plantIds.contains(change.plantId())) {
+                return;
+            }
+            pending.merge(new Key(change.plantId(), change.date()), change,
+                    (queued, latest) -> latest.version() > queued.version() ? latest : queued);
+            if (signalled.compareAndSet(false, true)) {
+                signal.release();
+            }
+        }
+    }
+
+    record Change(String plantId, LocalDate date, long version, long availableContainers) {
+    }
+
+    private record Key(String plantId, LocalDate date) {
+    }
+}
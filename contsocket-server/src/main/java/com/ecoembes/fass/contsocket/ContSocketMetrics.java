@@ -0,0 +1,72 @@
+package com.ecoembes.fass.contsocket;
+
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.prometheusmetrics.PrometheusConfig;
+import io.micrometer.prometheusmetrics.PrometheusMeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Prometheus meters for the socket protocol and a small HTTP endpoint to scrape them.
+ * Latencies are exported as histograms (p50/p99/p999 via histogram_quantile).
+ * All meters are registered up front so recording a command never allocates.
+ */
+final class ContSocketMetrics {
+
+    private static final Logger log = LoggerFactory.getLogger(ContSocketMetrics.class);
+
+    static final PrometheusMeterRegistry REGISTRY = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+
+    static final Timer GET_CAPACITY = commandTimer("GET_CAPACITY");
+    static final Timer NOTIFY = commandTimer("NOTIFY");
+    static final Timer NOTIFY_BATCH = commandTimer("NOTIFY_BATCH");
+    static final Timer RESERVE = commandTimer("RESERVE");
+    static final Counter ERRORS = Counter.builder("contsocket.command.errors")
+            .description("Commands answered with ERROR")
+            .register(REGISTRY);
+
+    private static HttpServer scrapeServer;
+
+    private ContSocketMetrics() {
+    }
+
+    private static Timer commandTimer(String command) {
+        return Timer.builder("contsocket.commands")
+                .description("Time spent handling a protocol command")
+                .tag("command", command)
+                .publishPercentileHistogram()
+                .register(REGISTRY);
+    }
+
+    /**
+     * Serves the registry in Prometheus text format at {@code /metrics}.
+     */
+    static synchronized void startScrapeEndpoint(int port) {
+        if (scrapeServer != null) {
+            return;
+        }
+        try {
+            HttpServer server = HttpServer.create(new InetSocketAddress(port), 0);
+            server.createContext("/metrics", exchange -> {
+                byte[] body = REGISTRY.scrape().getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            });
+            server.start();
+            scrapeServer = server;
+            log.info("Metrics available at http://localhost:{}/metrics", port);
+        } catch (IOException e) {
+            log.warn("Could not start metrics endpoint on port {}", port, e);
+        }
+    }
+}
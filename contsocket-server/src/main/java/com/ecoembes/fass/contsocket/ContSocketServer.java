@@ -1,55 +1,127 @@
 package com.ecoembes.fass.contsocket;
 
-import java.io.BufferedReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.PrintWriter;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.time.DateTimeException;
+import java.time.Duration;
 import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
-import java.util.HashMap;
-import java.util.Map;
+import java.time.format.DateTimeParseException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 public class ContSocketServer {
 
-    private static final String PLANT_ID = "CONTSO-01";
-    private static final Double BASE_CAPACITY = 80.5; // tons
+    private static final Logger log = LoggerFactory.getLogger(ContSocketServer.class);
+
+    private static final String TRACE_FIELD = "traceparent=";
+    private static final String KEY_FIELD = "key=";
+    private static final String PLANT_FIELD = "plant=";
+
+    // Capacity changes of the hosted plants, streamed to SUBSCRIBE connections
+    private static final CapacityFeed feed = new CapacityFeed();
 
-    // Track assigned containers per date
-    private static final Map<LocalDate, Integer> assignedContainersByDate = new HashMap<>();
+    // Hosted plants, each with its own ledger of containers assigned and reserved per date
+    private static final PlantRegistry plants = PlantRegistry.load(
+            Duration.ofSeconds(Long.getLong("contsocket.reservation.ttl.seconds", 600)), feed);
+
+    // Idle capacity streams get a PING this often, which also detects subscribers that went away
+    private static final long SUBSCRIBE_HEARTBEAT_MILLIS =
+            TimeUnit.SECONDS.toMillis(Long.getLong("contsocket.subscribe.heartbeat.seconds", 15));
 
     public static void main(String[] args) throws IOException {
         int portNumber = 9090;
+        ContSocketMetrics.startScrapeEndpoint(Integer.getInteger("contsocket.metrics.port", 9091));
 
         try (ServerSocket serverSocket = new ServerSocket(portNumber)) {
-            System.out.println("ContSocketServer (" + PLANT_ID + ") listening on port " + portNumber);
-            System.out.println("Base capacity: " + BASE_CAPACITY + " tons");
+            log.info("ContSocketServer listening on port {}", portNumber);
+            for (PlantRegistry.HostedPlant plant : plants.all()) {
+                log.info("Hosting plant {} with base capacity {} tons", plant.id(), plant.capacityTons());
+            }
             while (true) {
                 new ContSocketThread(serverSocket.accept()).start();
             }
         } catch (IOException e) {
-            System.err.println("Could not listen on port " + portNumber);
+            log.error("Could not listen on port {}", portNumber, e);
             System.exit(-1);
         }
     }
 
-    private static synchronized double getAvailableCapacity(LocalDate date) {
-        LocalDate effectiveDate = date != null ? date : LocalDate.now();
-        int assignedContainers = assignedContainersByDate.getOrDefault(effectiveDate, 0);
-        // Assume 1000 containers = 1 ton (adjust ratio as needed)
-        double usedCapacity = assignedContainers / 1000.0;
-        double availableCapacity = BASE_CAPACITY - usedCapacity;
-        return Math.max(0.0, availableCapacity); // Never return negative capacity
+    private static boolean addIncomingDumpsters(PlantRegistry.HostedPlant plant, int totalContainers, LocalDate arrivalDate,
+                                                String idempotencyKey) {
+        CapacityLedger ledger = plant.ledger();
+        LocalDate date = arrivalDate != null ? arrivalDate : LocalDate.now();
+        // A key matching a pending reservation confirms it instead of counting the containers again
+        if (!ledger.apply(totalContainers, date, idempotencyKey)) {
+            log.debug("Ignoring duplicate notification {}", idempotencyKey);
+            return false;
+        }
+        if (log.isInfoEnabled()) {
+            log.info("Added {} containers to {} for {} (total assigned {}, available {} tons)",
+                    totalContainers, plant.id(), date, ledger.assignedContainers(date), ledger.available(date));
+        }
+        return true;
     }
 
-    private static synchronized void addIncomingDumpsters(int totalContainers, LocalDate arrivalDate) {
-        LocalDate date = arrivalDate != null ? arrivalDate : LocalDate.now();
-        int currentAssigned = assignedContainersByDate.getOrDefault(date, 0);
-        assignedContainersByDate.put(date, currentAssigned + totalContainers);
-        System.out.println("Added " + totalContainers + " containers for date " + date);
-        System.out.println("Total assigned for " + date + ": " + assignedContainersByDate.get(date));
-        System.out.println("Available capacity for " + date + ": " + getAvailableCapacity(date) + " tons");
+    /**
+     * Applies batch entries of the form {@code <key>:<numDumpsters>:<totalContainers>} for one date.
+     * All entries are parsed before any is applied. Returns how many entries were applied.
+     */
+    private static int addIncomingDumpsterBatch(PlantRegistry.HostedPlant plant, LocalDate arrivalDate,
+                                                TextProtocol.Connection line, int from, int to) {
+        int[] containers = new int[to - from];
+        String[] keys = new String[to - from];
+        for (int i = from; i < to; i++) {
+            int first = line.indexOf(i, ':', 0);
+            int second = first < 0 ? -1 : line.indexOf(i, ':', first + 1);
+            if (second < 0 || line.indexOf(i, ':', second + 1) >= 0) {
+                throw new NumberFormatException("Invalid batch entry: " + line.string(i));
+            }
+            keys[i - from] = line.string(i, 0, first);
+            containers[i - from] = line.parseInt(i, second + 1, line.length(i));
+        }
+        return addIncomingDumpsterBatch(plant, arrivalDate, keys, containers);
+    }
+
+    private static int addIncomingDumpsterBatch(PlantRegistry.HostedPlant plant, LocalDate arrivalDate, String[] keys, int[] containers) {
+        int applied = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (addIncomingDumpsters(plant, containers[i], arrivalDate, keys[i])) {
+                applied++;
+            }
+        }
+        return applied;
+    }
+
+    private static CapacityLedger.Outcome reserve(PlantRegistry.HostedPlant plant, LocalDate date, int totalContainers,
+                                                  Long expectedVersion) {
+        CapacityLedger.Outcome outcome = plant.ledger().reserve(date, totalContainers, expectedVersion);
+        if (outcome.reserved()) {
+            log.info("Reserved {} containers at {} for {} as {} (available {} tons)",
+                    totalContainers, plant.id(), date, outcome.reservationId(), outcome.available());
+        } else {
+            log.info("Reservation conflict: {} containers at {} for {} (version {}, available {} tons)",
+                    totalContainers, plant.id(), date, outcome.version(), outcome.available());
+        }
+        return outcome;
+    }
+
+    /**
+     * Serves the commands of one connection read from {@code in}, which must support mark and reset, until it ends,
+     * writing the responses to {@code out}.
+     */
+    static void serve(InputStream in, OutputStream out) throws IOException {
+        ContSocketThread.serve(in, out);
     }
 
     private static class ContSocketThread extends Thread {
@@ -62,59 +134,303 @@ public class ContSocketServer {
 
         public void run() {
             try (
-                    PrintWriter out = new PrintWriter(socket.getOutputStream(), true);
-                    BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+                    InputStream in = new BufferedInputStream(socket.getInputStream());
+                    OutputStream out = socket.getOutputStream();
             ) {
-                String inputLine;
-                while ((inputLine = in.readLine()) != null) {
-                    String[] tokens = inputLine.split(" ");
-                    if (tokens.length >= 1 && tokens[0].equals("GET_CAPACITY")) {
-                        // Each server manages one plant, no plantId needed
-                        // Optional date parameter: GET_CAPACITY [date]
+                serve(in, out);
+                socket.close();
+            } catch (IOException e) {
+                log.warn("Connection closed with error", e);
+            }
+        }
+
+        private static void serve(InputStream in, OutputStream out) throws IOException {
+            // Text commands start with an ASCII letter, so the binary preamble cannot be mistaken for one
+            in.mark(2);
+            if (in.read() == BinaryProtocol.MAGIC && in.read() == '\n') {
+                serveBinary(new BinaryProtocol.Connection(in, out));
+            } else {
+                in.reset();
+                serveText(new TextProtocol.Connection(in, out));
+            }
+        }
+
+        private static void serveText(TextProtocol.Connection connection) throws IOException {
+            while (connection.readLine()) {
+                long start = System.nanoTime();
+                // Optional trailing fields: <command ...> [plant=<plantId>] [key=<key>] [traceparent=<w3c context>]
+                int count = connection.count();
+                String traceParent = null;
+                String idempotencyKey = null;
+                PlantRegistry.HostedPlant plant = plants.defaultPlant();
+                while (count > 1) {
+                    int last = count - 1;
+                    if (connection.startsWith(last, TRACE_FIELD)) {
+                        traceParent = connection.string(last, TRACE_FIELD.length(), connection.length(last));
+                    } else if (connection.startsWith(last, KEY_FIELD)) {
+                        // Idempotency key on notifications
+                        idempotencyKey = connection.string(last, KEY_FIELD.length(), connection.length(last));
+                    } else if (connection.startsWith(last, PLANT_FIELD)) {
+                        // Commands without a plant ID address the default plant
+                        plant = connection.plant(last, PLANT_FIELD.length(), plants);
+                    } else {
+                        break;
+                    }
+                    count = last;
+                }
+                if (plant == null) {
+                    connection.startResponse().append("ERROR: Unknown plant").writeLine();
+                    ContSocketMetrics.ERRORS.increment();
+                } else if (count >= 1 && connection.is(0, "GET_CAPACITY")) {
+                    // Optional date parameter: GET_CAPACITY [date]
+                    LocalDate date = null;
+                    if (count > 1) {
+                        try {
+                            date = connection.date(1);
+                        } catch (DateTimeException e) {
+                            log.warn("Invalid date format: {}", connection.string(1));
+                        }
+                    }
+                    connection.startResponse().appendTons(plant.ledger().availableContainers(date != null ? date : connection.today())).writeLine();
+                    ContSocketMetrics.GET_CAPACITY.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                } else if (count >= 3 && connection.is(0, "NOTIFY")) {
+                    // Format: NOTIFY <numDumpsters> <totalContainers> <date> [key=<idempotency key>]
+                    try {
+                        int totalContainers = connection.parseInt(2);
                         LocalDate date = null;
-                        if (tokens.length > 1) {
+                        if (count > 3) {
                             try {
-                                date = LocalDate.parse(tokens[1], DateTimeFormatter.ISO_DATE);
-                            } catch (Exception e) {
-                                System.err.println("Invalid date format: " + tokens[1]);
+                                date = connection.date(3);
+                            } catch (DateTimeException e) {
+                                log.warn("Invalid date format: {}", connection.string(3));
+                                date = connection.today();
                             }
                         }
-                        double capacity = getAvailableCapacity(date);
-                        out.println(capacity);
-                    } else if (tokens.length >= 3 && tokens[0].equals("NOTIFY")) {
-                        // Format: NOTIFY <numDumpsters> <totalContainers> <date>
-                        // Each server manages one plant, no plantId needed
-                        try {
-                            String numDumpsters = tokens[1];
-                            int totalContainers = Integer.parseInt(tokens[2]);
-                            LocalDate date = null;
-                            if (tokens.length > 3) {
-                                try {
-                                    date = LocalDate.parse(tokens[3], DateTimeFormatter.ISO_DATE);
-                                } catch (Exception e) {
-                                    System.err.println("Invalid date format: " + tokens[3]);
-                                    date = LocalDate.now();
-                                }
-                            }
 
-                            System.out.println("Notification received");
-                            System.out.println("Incoming dumpsters: " + numDumpsters);
-                            System.out.println("Total containers: " + totalContainers);
-                            System.out.println("Expected arrival: " + (date != null ? date : "today"));
+                        if (log.isDebugEnabled()) {
+                            log.debug("Notification received: {} dumpsters, {} containers, arriving {}",
+                                    connection.string(1), totalContainers, date != null ? date : "today");
+                        }
 
-                            addIncomingDumpsters(totalContainers, date);
+                        // A redelivered notification is acknowledged but not applied again
+                        addIncomingDumpsters(plant, totalContainers, date, idempotencyKey);
 
-                            out.println("OK");
-                        } catch (NumberFormatException e) {
-                            out.println("ERROR: Invalid number format");
+                        connection.startResponse().append("OK").writeLine();
+                        ContSocketMetrics.NOTIFY.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                    } catch (NumberFormatException e) {
+                        connection.startResponse().append("ERROR: Invalid number format").writeLine();
+                        ContSocketMetrics.ERRORS.increment();
+                    }
+                } else if (count >= 3 && connection.is(0, "RESERVE")) {
+                    // Format: RESERVE <date> <totalContainers> [expectedVersion]
+                    try {
+                        LocalDate date = connection.date(1);
+                        int totalContainers = connection.parseInt(2);
+                        Long expectedVersion = count > 3 ? connection.parseLong(3) : null;
+                        if (totalContainers <= 0) {
+                            connection.startResponse().append("ERROR: Containers must be positive").writeLine();
+                            ContSocketMetrics.ERRORS.increment();
+                        } else {
+                            CapacityLedger.Outcome outcome = reserve(plant, date, totalContainers, expectedVersion);
+                            long capacity = Math.round(outcome.available() * 1000);
+                            if (outcome.reserved()) {
+                                connection.startResponse().append("RESERVED ").append(outcome.reservationId())
+                                        .append(' ').append(outcome.version()).append(' ').appendTons(capacity).writeLine();
+                            } else {
+                                connection.startResponse().append("CONFLICT ").append(outcome.version())
+                                        .append(' ').appendTons(capacity).writeLine();
+                            }
+                            ContSocketMetrics.RESERVE.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                        }
+                    } catch (NumberFormatException e) {
+                        connection.startResponse().append("ERROR: Invalid number format").writeLine();
+                        ContSocketMetrics.ERRORS.increment();
+                    } catch (DateTimeParseException e) {
+                        connection.startResponse().append("ERROR: Invalid date format").writeLine();
+                        ContSocketMetrics.ERRORS.increment();
+                    }
+                } else if (count == 2 && connection.is(0, "RELEASE")) {
+                    // Format: RELEASE <reservationId>
+                    connection.startResponse().append(plant.ledger().release(connection.string(1)) ? "OK" : "ERROR: Unknown reservation").writeLine();
+                } else if (count >= 1 && connection.is(0, "SUBSCRIBE")) {
+                    // Format: SUBSCRIBE [plantId ...] - without plant IDs every hosted plant is streamed
+                    Set<String> plantIds = count > 1 ? new HashSet<>() : null;
+                    boolean known = true;
+                    for (int i = 1; i < count && known; i++) {
+                        PlantRegistry.HostedPlant subscribed = connection.plant(i, 0, plants);
+                        known = subscribed != null;
+                        if (known) {
+                            plantIds.add(subscribed.id());
                         }
+                    }
+                    if (!known) {
+                        connection.startResponse().append("ERROR: Unknown plant").writeLine();
+                        ContSocketMetrics.ERRORS.increment();
                     } else {
-                        out.println("ERROR: Invalid command");
+                        // The connection only carries capacity changes from now on
+                        connection.startResponse().append("OK").writeLine();
+                        streamCapacityChanges(connection, plantIds);
+                        return;
+                    }
+                } else if (count >= 3 && connection.is(0, "NOTIFY_BATCH")) {
+                    // Format: NOTIFY_BATCH <date> <key>:<numDumpsters>:<totalContainers> ...
+                    try {
+                        LocalDate date = connection.date(1);
+                        int applied = addIncomingDumpsterBatch(plant, date, connection, 2, count);
+
+                        log.debug("Batch notification received: {} of {} entries applied, arriving {}",
+                                applied, count - 2, date);
+
+                        connection.startResponse().append("OK ").append(applied).writeLine();
+                        ContSocketMetrics.NOTIFY_BATCH.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                    } catch (NumberFormatException e) {
+                        connection.startResponse().append("ERROR: Invalid number format").writeLine();
+                        ContSocketMetrics.ERRORS.increment();
+                    } catch (DateTimeParseException e) {
+                        connection.startResponse().append("ERROR: Invalid date format").writeLine();
+                        ContSocketMetrics.ERRORS.increment();
+                    }
+                } else {
+                    connection.startResponse().append("ERROR: Invalid command").writeLine();
+                    ContSocketMetrics.ERRORS.increment();
+                }
+                if (traceParent != null) {
+                    long elapsed = System.nanoTime() - start;
+                    SpanFileExporter.export(traceParent, count >= 1 ? connection.string(0) : "",
+                            plant != null ? plant.id() : plants.defaultPlant().id(),
+                            System.currentTimeMillis() * 1000 - elapsed / 1000, elapsed);
+                }
+            }
+        }
+
+        /**
+         * Writes a {@code CAPACITY <plantId> <date> <tons> <version>} line for every change of the subscribed plants,
+         * and a {@code PING} whenever the stream was idle for a heartbeat interval, until the subscriber goes away.
+         */
+        private static void streamCapacityChanges(TextProtocol.Connection connection, Set<String> plantIds) {
+            log.info("Capacity stream opened for {}", plantIds != null ? plantIds : "all plants");
+            try (CapacityFeed.Subscription subscription = feed.subscribe(plantIds)) {
+                while (true) {
+                    List<CapacityFeed.Change> changes = subscription.await(SUBSCRIBE_HEARTBEAT_MILLIS);
+                    if (changes.isEmpty()) {
+                        connection.startResponse().append("PING").writeLine();
+                    }
+                    for (CapacityFeed.Change change : changes) {
+                        connection.startResponse().append("CAPACITY ").append(change.plantId())
+                                .append(' ').append(change.date().toString())
+                                .append(' ').appendTons(change.availableContainers())
+                                .append(' ').append(change.version()).writeLine();
                     }
                 }
-                socket.close();
             } catch (IOException e) {
-                e.printStackTrace();
+                log.info("Capacity stream closed: {}", e.getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private static void serveBinary(BinaryProtocol.Connection connection) throws IOException {
+            ByteBuffer request;
+            while ((request = connection.readFrame()) != null) {
+                long start = System.nanoTime();
+                byte opcode = request.get();
+                PlantRegistry.HostedPlant plant = plants.defaultPlant();
+                String command = "UNKNOWN";
+                try {
+                    // Opcodes with the plant flag are followed by the plant ID; others address the default plant
+                    if ((opcode & BinaryProtocol.PLANT_FLAG) != 0) {
+                        opcode &= ~BinaryProtocol.PLANT_FLAG;
+                        plant = BinaryProtocol.getPlant(request, plants);
+                    }
+                    if (plant == null) {
+                        BinaryProtocol.putString(connection.startResponse(BinaryProtocol.ERROR), "Unknown plant");
+                        ContSocketMetrics.ERRORS.increment();
+                    } else {
+                        switch (opcode) {
+                            case BinaryProtocol.GET_CAPACITY -> {
+                                command = "GET_CAPACITY";
+                                int epochDay = request.getInt();
+                                LocalDate date = connection.date(epochDay);
+                                connection.startResponse(BinaryProtocol.OK).putLong(plant.ledger().availableContainers(date));
+                                ContSocketMetrics.GET_CAPACITY.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                            }
+                            case BinaryProtocol.NOTIFY -> {
+                                command = "NOTIFY";
+                                int numDumpsters = request.getInt();
+                                int totalContainers = request.getInt();
+                                int epochDay = request.getInt();
+                                String key = BinaryProtocol.getString(request);
+                                LocalDate date = epochDay == BinaryProtocol.NO_DATE ? null : LocalDate.ofEpochDay(epochDay);
+                                log.debug("Notification received: {} dumpsters, {} containers, arriving {}",
+                                        numDumpsters, totalContainers, date != null ? date : "today");
+                                addIncomingDumpsters(plant, totalContainers, date, key.isEmpty() ? null : key);
+                                connection.startResponse(BinaryProtocol.OK);
+                                ContSocketMetrics.NOTIFY.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                            }
+                            case BinaryProtocol.NOTIFY_BATCH -> {
+                                command = "NOTIFY_BATCH";
+                                LocalDate date = LocalDate.ofEpochDay(request.getInt());
+                                int count = request.getShort() & 0xFFFF;
+                                String[] keys = new String[count];
+                                int[] containers = new int[count];
+                                for (int i = 0; i < count; i++) {
+                                    keys[i] = BinaryProtocol.getString(request);
+                                    request.getInt(); // numDumpsters
+                                    containers[i] = request.getInt();
+                                }
+                                int applied = addIncomingDumpsterBatch(plant, date, keys, containers);
+                                log.debug("Batch notification received: {} of {} entries applied, arriving {}", applied, count, date);
+                                connection.startResponse(BinaryProtocol.OK).putInt(applied);
+                                ContSocketMetrics.NOTIFY_BATCH.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                            }
+                            case BinaryProtocol.RESERVE -> {
+                                command = "RESERVE";
+                                LocalDate date = LocalDate.ofEpochDay(request.getInt());
+                                int totalContainers = request.getInt();
+                                long expectedVersion = request.getLong();
+                                if (totalContainers <= 0) {
+                                    BinaryProtocol.putString(connection.startResponse(BinaryProtocol.ERROR), "Containers must be positive");
+                                    ContSocketMetrics.ERRORS.increment();
+                                    break;
+                                }
+                                CapacityLedger.Outcome outcome = reserve(plant, date, totalContainers,
+                                        expectedVersion == BinaryProtocol.NO_VERSION ? null : expectedVersion);
+                                long capacity = Math.round(outcome.available() * 1000);
+                                if (outcome.reserved()) {
+                                    BinaryProtocol.putString(connection.startResponse(BinaryProtocol.OK), outcome.reservationId())
+                                            .putLong(outcome.version()).putLong(capacity);
+                                } else {
+                                    connection.startResponse(BinaryProtocol.CONFLICT).putLong(outcome.version()).putLong(capacity);
+                                }
+                                ContSocketMetrics.RESERVE.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                            }
+                            case BinaryProtocol.RELEASE -> {
+                                command = "RELEASE";
+                                if (plant.ledger().release(BinaryProtocol.getString(request))) {
+                                    connection.startResponse(BinaryProtocol.OK);
+                                } else {
+                                    BinaryProtocol.putString(connection.startResponse(BinaryProtocol.ERROR), "Unknown reservation");
+                                }
+                            }
+                            default -> {
+                                BinaryProtocol.putString(connection.startResponse(BinaryProtocol.ERROR), "Invalid command");
+                                ContSocketMetrics.ERRORS.increment();
+                            }
+                        }
+                    }
+                } catch (BufferUnderflowException | DateTimeException e) {
+                    BinaryProtocol.putString(connection.startResponse(BinaryProtocol.ERROR), "Malformed " + command + " frame");
+                    ContSocketMetrics.ERRORS.increment();
+                }
+                connection.writeFrame();
+                if (request.remaining() >= Short.BYTES) {
+                    String traceParent = BinaryProtocol.getString(request);
+                    if (!traceParent.isEmpty()) {
+                        long elapsed = System.nanoTime() - start;
+                        SpanFileExporter.export(traceParent, command, plant != null ? plant.id() : plants.defaultPlant().id(),
+                                System.currentTimeMillis() * 1000 - elapsed / 1000, elapsed);
+                    }
+                }
             }
         }
     }
@@ -0,0 +1,42 @@
+package com.ecoembes.fass.contsocket;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Arrays;
+
+/**
+ * Recently used dates of one connection by epoch day, so repeated queries for the same dates reuse one
+ * {@link LocalDate}. Today is kept until the next local midnight, so commands without a date only read the clock.
+ * Not thread-safe; each connection has its own.
+ */
+final class DateCache {
+
+    private static final int SIZE = 64; // power of two
+
+    private final LocalDate[] dates = new LocalDate[SIZE];
+    private final long[] keys = new long[SIZE];
+    private LocalDate today;
+    private long todayEndsAtMillis = Long.MIN_VALUE;
+
+    DateCache() {
+        Arrays.fill(keys, Long.MIN_VALUE);
+    }
+
+    LocalDate date(long epochDay) {
+        int slot = (int) epochDay & (SIZE - 1);
+        if (keys[slot] != epochDay) {
+            dates[slot] = LocalDate.ofEpochDay(epochDay);
+            keys[slot] = epochDay;
+        }
+        return dates[slot];
+    }
+
+    LocalDate today() {
+        if (System.currentTimeMillis() >= todayEndsAtMillis) {
+            ZoneId zone = ZoneId.systemDefault();
+            today = LocalDate.now(zone);
+            todayEndsAtMillis = today.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli();
+        }
+        return today;
+    }
+}
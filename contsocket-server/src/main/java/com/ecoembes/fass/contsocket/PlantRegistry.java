@@ -0,0 +1,121 @@
+package com.ecoembes.fass.contsocket;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Plants hosted by this server, each with its own capacity ledger so traffic for one plant never contends with
+ * another. Plants are read from a config file with one {@code <plantId>=<base capacity in tons>} line each; the
+ * first plant is the default for commands that do not name one. Plant IDs are looked up straight from request
+ * bytes through an open-addressing table, so selecting a plant does not allocate. Capacity changes of every plant
+ * are published to the {@link CapacityFeed} the registry was loaded with.
+ */
+final class PlantRegistry {
+
+    static final String DEFAULT_CONFIG = "/plants.conf";
+
+    private final List<HostedPlant> plants;
+    private final HostedPlant[] table;
+    private final byte[][] tableIds;
+
+    PlantRegistry(List<HostedPlant> plants) {
+        if (plants.isEmpty()) {
+            throw new IllegalArgumentException("At least one plant must be configured");
+        }
+        this.plants = Collections.unmodifiableList(new ArrayList<>(plants));
+        int size = Integer.highestOneBit(plants.size() * 4 - 1) << 1;
+        this.table = new HostedPlant[size];
+        this.tableIds = new byte[size][];
+        for (HostedPlant plant : plants) {
+            byte[] id = plant.id().getBytes(StandardCharsets.UTF_8);
+            int slot = hash(id, 0, id.length) & (size - 1);
+            while (table[slot] != null) {
+                if (table[slot].id().equals(plant.id())) {
+                    throw new IllegalArgumentException("Duplicate plant " + plant.id());
+                }
+                slot = (slot + 1) & (size - 1);
+            }
+            table[slot] = plant;
+            tableIds[slot] = id;
+        }
+    }
+
+    /**
+     * Loads the plants from {@code -Dcontsocket.plants.file}, or from the bundled {@value #DEFAULT_CONFIG}.
+     */
+    static PlantRegistry load(Duration reservationTtl, CapacityFeed feed) {
+        String file = System.getProperty("contsocket.plants.file");
+        try (InputStream in = file != null ? Files.newInputStream(Path.of(file)) : PlantRegistry.class.getResourceAsStream(DEFAULT_CONFIG)) {
+            if (in == null) {
+                throw new IllegalStateException("Missing plant config " + DEFAULT_CONFIG);
+            }
+            return parse(in, reservationTtl, feed);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read plant config " + file, e);
+        }
+    }
+
+    static PlantRegistry parse(InputStream in, Duration reservationTtl, CapacityFeed feed) throws IOException {
+        List<HostedPlant> plants = new ArrayList<>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            line = line.strip();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            int separator = line.indexOf('=');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("Invalid plant config line: " + line);
+            }
+            String id = line.substring(0, separator).strip();
+            double capacity = Double.parseDouble(line.substring(separator + 1).strip());
+            plants.add(new HostedPlant(id, capacity, new CapacityLedger(capacity, reservationTtl,
+                    (date, version, availableContainers) -> feed.publish(id, date, version, availableContainers))));
+        }
+        return new PlantRegistry(plants);
+    }
+
+    HostedPlant defaultPlant() {
+        return plants.get(0);
+    }
+
+    List<HostedPlant> all() {
+        return plants;
+    }
+
+    /**
+     * Returns the plant whose UTF-8 ID is {@code bytes[from, to)}, or null if it is not hosted here.
+     */
+    HostedPlant find(byte[] bytes, int from, int to) {
+        int mask = table.length - 1;
+        for (int slot = hash(bytes, from, to) & mask; table[slot] != null; slot = (slot + 1) & mask) {
+            if (Arrays.equals(tableIds[slot], 0, tableIds[slot].length, bytes, from, to)) {
+                return table[slot];
+            }
+        }
+        return null;
+    }
+
+    private static int hash(byte[] bytes, int from, int to) {
+        int hash = 0;
+        for (int i = from; i < to; i++) {
+            hash = 31 * hash + bytes[i];
+        }
+        return hash ^ (hash >>> 16);
+    }
+
+    record HostedPlant(String id, double capacityTons, CapacityLedger ledger) {
+    }
+}
@@ -0,0 +1,116 @@
+package com.ecoembes.fass.contsocket;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Pattern;
+
+/**
+ * Writes server spans for traced commands as JSON lines, in the same shape the Spring services export.
+ * A command is traced when the client appends {@code traceparent=00-<traceId>-<spanId>-<flags>}.
+ */
+final class SpanFileExporter {
+
+    private static final Logger log = LoggerFactory.getLogger(SpanFileExporter.class);
+
+    private static final Path FILE = Path.of(System.getProperty("contsocket.spans.file", "logs/spans-contsocket-server.jsonl"));
+    private static final BlockingQueue<String> QUEUE = new ArrayBlockingQueue<>(8192);
+    // Version 00 only: a later version may carry more fields, which this server would not understand
+    private static final Pattern TRACE_PARENT = Pattern.compile("00-(?!0{32})[0-9a-f]{32}-(?!0{16})[0-9a-f]{16}-[0-9a-f]{2}");
+
+    static {
+        Thread writer = new Thread(SpanFileExporter::drain, "span-file-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    private SpanFileExporter() {
+    }
+
+    /**
+     * Queues a span for the command; malformed trace contexts are ignored.
+     */
+    static void export(String traceParent, String name, String plantId, long startEpochMicros, long durationNanos) {
+        String line = spanLine(traceParent, String.format("%016x", ThreadLocalRandom.current().nextLong()), name, plantId,
+                startEpochMicros, durationNanos);
+        if (line != null) {
+            QUEUE.offer(line);
+        }
+    }
+
+    /**
+     * The JSON line of a span, or null unless the trace context is a version 00 {@code traceparent} in lower-case
+     * hex. The command name and plant ID come from the client and are escaped.
+     */
+    static String spanLine(String traceParent, String spanId, String name, String plantId, long startEpochMicros, long durationNanos) {
+        if (!TRACE_PARENT.matcher(traceParent).matches()) {
+            return null;
+        }
+        String traceId = traceParent.substring(3, 35);
+        String parentId = traceParent.substring(36, 52);
+        StringBuilder line = new StringBuilder(256);
+        line.append("{\"traceId\":\"").append(traceId).append("\",\"spanId\":\"").append(spanId)
+                .append("\",\"parentId\":\"").append(parentId)
+                .append("\",\"service\":\"contsocket-server\",\"name\":");
+        quote(line, name).append(",\"kind\":\"SERVER\",\"startMicros\":").append(startEpochMicros)
+                .append(",\"durationMicros\":").append(durationNanos / 1000).append(",\"tags\":{\"plant\":");
+        return quote(line, plantId).append("}}").toString();
+    }
+
+    private static StringBuilder quote(StringBuilder out, String value) {
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> out.append("\\\"");
+                case '\\' -> out.append("\\\\");
+                case '\n' -> out.append("\\n");
+                case '\r' -> out.append("\\r");
+                case '\t' -> out.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+                }
+            }
+        }
+        return out.append('"');
+    }
+
+    private static void drain() {
+        try {
+            while (true) {
+                String line = QUEUE.take();
+                try (BufferedWriter out = open()) {
+                    do {
+                        out.write(line);
+                        out.newLine();
+                    } while ((line = QUEUE.poll()) != null);
+                } catch (IOException e) {
+                    log.warn("Could not write spans to {}: {}", FILE, e.getMessage());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static BufferedWriter open() throws IOException {
+        Path parent = FILE.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        return Files.newBufferedWriter(FILE, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+}
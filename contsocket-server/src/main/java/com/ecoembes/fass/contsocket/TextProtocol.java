@@ -0,0 +1,363 @@
+package com.ecoembes.fass.contsocket;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+
+/**
+ * Allocation-free reader and writer for the line protocol. Lines are split into space-separated tokens in place
+ * over a reusable byte buffer; numbers and ISO dates are parsed straight from the bytes and responses are
+ * encoded into another reusable buffer, so commands that only carry numbers and dates allocate nothing.
+ * Tokens follow {@code String.split(" ")}: empty tokens between spaces are kept, trailing ones dropped.
+ */
+final class TextProtocol {
+
+    static final int MAX_LINE_BYTES = 64 * 1024;
+
+    private static final int DAYS_0000_TO_1970 = 719_528;
+    private static final long MAX_PLAIN_THOUSANDTHS = 10_000_000_000L; // Double.toString switches to E notation at 1e7
+
+    private TextProtocol() {
+    }
+
+    /**
+     * Parses a plain {@code YYYY-MM-DD} date into epoch days, or returns {@link Long#MIN_VALUE} if the bytes are
+     * not a valid date in that form.
+     */
+    static long epochDay(byte[] bytes, int from, int to) {
+        if (to - from != 10 || bytes[from + 4] != '-' || bytes[from + 7] != '-') {
+            return Long.MIN_VALUE;
+        }
+        int year = digits(bytes, from, from + 4);
+        int month = digits(bytes, from + 5, from + 7);
+        int day = digits(bytes, from + 8, from + 10);
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > lengthOfMonth(year, month)) {
+            return Long.MIN_VALUE;
+        }
+        // Same arithmetic as LocalDate.toEpochDay for non-negative years
+        long total = 365L * year + (year + 3) / 4 - (year + 99) / 100 + (year + 399) / 400;
+        total += (367 * month - 362) / 12 + day - 1;
+        if (month > 2) {
+            total -= isLeap(year) ? 1 : 2;
+        }
+        return total - DAYS_0000_TO_1970;
+    }
+
+    /**
+     * Parses a decimal number the way {@link Long#parseLong(String)} does for ASCII input.
+     */
+    static long parseLong(byte[] bytes, int from, int to) {
+        int i = from;
+        boolean negative = false;
+        if (i < to && (bytes[i] == '-' || bytes[i] == '+')) {
+            negative = bytes[i++] == '-';
+        }
+        if (i == to) {
+            throw numberFormat(bytes, from, to);
+        }
+        // Accumulate negatively so Long.MIN_VALUE parses without overflow
+        long limit = negative ? Long.MIN_VALUE : -Long.MAX_VALUE;
+        long result = 0;
+        for (; i < to; i++) {
+            int digit = bytes[i] - '0';
+            if (digit < 0 || digit > 9 || result < limit / 10 || result * 10 < limit + digit) {
+                throw numberFormat(bytes, from, to);
+            }
+            result = result * 10 - digit;
+        }
+        return negative ? result : -result;
+    }
+
+    static int parseInt(byte[] bytes, int from, int to) {
+        long value = parseLong(bytes, from, to);
+        if (value != (int) value) {
+            throw numberFormat(bytes, from, to);
+        }
+        return (int) value;
+    }
+
+    private static NumberFormatException numberFormat(byte[] bytes, int from, int to) {
+        return new NumberFormatException("For input string: \"" + new String(bytes, from, to - from, StandardCharsets.UTF_8) + "\"");
+    }
+
+    private static int digits(byte[] bytes, int from, int to) {
+        int value = 0;
+        for (int i = from; i < to; i++) {
+            int digit = bytes[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private static boolean isLeap(int year) {
+        return (year & 3) == 0 && (year % 100 != 0 || year % 400 == 0);
+    }
+
+    private static int lengthOfMonth(int year, int month) {
+        return switch (month) {
+            case 2 -> isLeap(year) ? 29 : 28;
+            case 4, 6, 9, 11 -> 30;
+            default -> 31;
+        };
+    }
+
+    /**
+     * Lines of one connection. The tokens of the current line stay valid until the next {@link #readLine()};
+     * the response is built with {@link #startResponse()} and the {@code append} methods, then sent with
+     * {@link #writeLine()}.
+     */
+    static final class Connection {
+
+        private final InputStream in;
+        private final OutputStream out;
+        private final byte[] input = new byte[MAX_LINE_BYTES];
+        private int lineStart;
+        private int inputEnd;
+
+        private int[] tokenStart = new int[16];
+        private int[] tokenEnd = new int[16];
+        private int count;
+
+        private byte[] response = new byte[256];
+        private int responseLength;
+
+        private final DateCache dates = new DateCache();
+
+        Connection(InputStream in, OutputStream out) {
+            this.in = in;
+            this.out = out;
+        }
+
+        /**
+         * Reads and tokenizes the next line, or returns false once the client closed the connection.
+         * Like {@link java.io.BufferedReader#readLine()}, a final line without a newline is still returned.
+         */
+        boolean readLine() throws IOException {
+            int scan = lineStart;
+            while (true) {
+                for (int i = scan; i < inputEnd; i++) {
+                    if (input[i] == '\n') {
+                        int end = i > lineStart && input[i - 1] == '\r' ? i - 1 : i;
+                        tokenize(lineStart, end);
+                        lineStart = i + 1;
+                        return true;
+                    }
+                }
+                if (lineStart > 0) {
+                    System.arraycopy(input, lineStart, input, 0, inputEnd - lineStart);
+                    inputEnd -= lineStart;
+                    lineStart = 0;
+                }
+                if (inputEnd == input.length) {
+                    throw new IOException("Line exceeds " + MAX_LINE_BYTES + " bytes");
+                }
+                scan = inputEnd;
+                int read = in.read(input, inputEnd, input.length - inputEnd);
+                if (read < 0) {
+                    if (inputEnd == 0) {
+                        return false;
+                    }
+                    tokenize(0, inputEnd);
+                    lineStart = inputEnd;
+                    return true;
+                }
+                inputEnd += read;
+            }
+        }
+
+        private void tokenize(int from, int to) {
+            count = 0;
+            int start = from;
+            for (int i = from; i <= to; i++) {
+                if (i == to || input[i] == ' ') {
+                    if (count == tokenStart.length) {
+                        tokenStart = Arrays.copyOf(tokenStart, count * 2);
+                        tokenEnd = Arrays.copyOf(tokenEnd, count * 2);
+                    }
+                    tokenStart[count] = start;
+                    tokenEnd[count++] = i;
+                    start = i + 1;
+                }
+            }
+            if (count > 1) {
+                while (count > 0 && tokenStart[count - 1] == tokenEnd[count - 1]) {
+                    count--;
+                }
+            }
+        }
+
+        int count() {
+            return count;
+        }
+
+        int length(int token) {
+            return tokenEnd[token] - tokenStart[token];
+        }
+
+        boolean is(int token, String literal) {
+            return length(token) == literal.length() && startsWith(token, literal);
+        }
+
+        boolean startsWith(int token, String prefix) {
+            if (length(token) < prefix.length()) {
+                return false;
+            }
+            int start = tokenStart[token];
+            for (int i = 0; i < prefix.length(); i++) {
+                if (input[start + i] != prefix.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Returns the offset of {@code ch} within the token at or after {@code from}, or -1.
+         */
+        int indexOf(int token, char ch, int from) {
+            for (int i = tokenStart[token] + from; i < tokenEnd[token]; i++) {
+                if (input[i] == ch) {
+                    return i - tokenStart[token];
+                }
+            }
+            return -1;
+        }
+
+        String string(int token) {
+            return string(token, 0, length(token));
+        }
+
+        String string(int token, int from, int to) {
+            return new String(input, tokenStart[token] + from, to - from, StandardCharsets.UTF_8);
+        }
+
+        int parseInt(int token) {
+            return parseInt(token, 0, length(token));
+        }
+
+        int parseInt(int token, int from, int to) {
+            return TextProtocol.parseInt(input, tokenStart[token] + from, tokenStart[token] + to);
+        }
+
+        long parseLong(int token) {
+            return TextProtocol.parseLong(input, tokenStart[token], tokenEnd[token]);
+        }
+
+        /**
+         * Looks up the hosted plant named by the token from offset {@code from}, or returns null if it is unknown.
+         */
+        PlantRegistry.HostedPlant plant(int token, int from, PlantRegistry plants) {
+            return plants.find(input, tokenStart[token] + from, tokenEnd[token]);
+        }
+
+        /**
+         * Parses the token as an ISO date. Plain {@code YYYY-MM-DD} dates are parsed in place; anything else
+         * goes through {@link DateTimeFormatter#ISO_DATE}, which also reports the parse error.
+         */
+        LocalDate date(int token) {
+            long epochDay = epochDay(input, tokenStart[token], tokenEnd[token]);
+            if (epochDay == Long.MIN_VALUE) {
+                return LocalDate.parse(string(token), DateTimeFormatter.ISO_DATE);
+            }
+            return dates.date(epochDay);
+        }
+
+        /**
+         * Today's date, without allocating.
+         */
+        LocalDate today() {
+            return dates.today();
+        }
+
+        Connection startResponse() {
+            responseLength = 0;
+            return this;
+        }
+
+        Connection append(char ch) {
+            ensureCapacity(1);
+            response[responseLength++] = (byte) ch;
+            return this;
+        }
+
+        Connection append(String value) {
+            for (int i = 0; i < value.length(); i++) {
+                if (value.charAt(i) >= 0x80) {
+                    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                    ensureCapacity(bytes.length);
+                    System.arraycopy(bytes, 0, response, responseLength, bytes.length);
+                    responseLength += bytes.length;
+                    return this;
+                }
+            }
+            ensureCapacity(value.length());
+            for (int i = 0; i < value.length(); i++) {
+                response[responseLength++] = (byte) value.charAt(i);
+            }
+            return this;
+        }
+
+        Connection append(long value) {
+            if (value == Long.MIN_VALUE) {
+                return append(Long.toString(value));
+            }
+            if (value < 0) {
+                append('-');
+                value = -value;
+            }
+            int digits = 1;
+            for (long rest = value / 10; rest > 0; rest /= 10) {
+                digits++;
+            }
+            ensureCapacity(digits);
+            for (int i = responseLength + digits - 1; i >= responseLength; i--) {
+                response[i] = (byte) ('0' + value % 10);
+                value /= 10;
+            }
+            responseLength += digits;
+            return this;
+        }
+
+        /**
+         * Appends thousandths of a ton as tons, formatted exactly like {@code Double.toString(thousandths / 1000.0)}
+         * for non-negative values.
+         */
+        Connection appendTons(long thousandths) {
+            if (thousandths < 0 || thousandths >= MAX_PLAIN_THOUSANDTHS) {
+                return append(Double.toString(thousandths / 1000.0));
+            }
+            append(thousandths / 1000).append('.');
+            int fraction = (int) (thousandths % 1000);
+            if (fraction == 0) {
+                return append('0');
+            }
+            append((char) ('0' + fraction / 100));
+            if (fraction % 100 != 0) {
+                append((char) ('0' + fraction / 10 % 10));
+                if (fraction % 10 != 0) {
+                    append((char) ('0' + fraction % 10));
+                }
+            }
+            return this;
+        }
+
+        void writeLine() throws IOException {
+            append('\n');
+            out.write(response, 0, responseLength);
+            out.flush();
+        }
+
+        private void ensureCapacity(int extra) {
+            if (responseLength + extra > response.length) {
+                response = Arrays.copyOf(response, Math.max(response.length * 2, responseLength + extra));
+            }
+        }
+    }
+}
@@ -3,11 +3,26 @@ package com.ecoembes.fass.contsocket;
 import org.junit.jupiter.api.*;
 
 import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.InputStreamReader;
 import java.io.PrintWriter;
 import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -21,6 +36,7 @@ class ContSocketServerComprehensiveTest {
 
     private static final String HOST = "localhost";
     private static final int PORT = 9090;
+    private static final int METRICS_PORT = 9091;
     private static final double BASE_CAPACITY = 80.5;
 
     private LocalDate today;
@@ -487,7 +503,499 @@ class ContSocketServerComprehensiveTest {
         assertTrue(capacityAfter < BASE_CAPACITY, "Capacity should have decreased");
     }
 
+    @Test
+    @Order(14)
+    @DisplayName("14. Metrics endpoint - exposes command latency in Prometheus format")
+    void test14_metricsEndpoint() throws Exception {
+        System.out.println("\n========== TEST 14: METRICS ENDPOINT ==========");
+
+        HttpClient client = HttpClient.newHttpClient();
+        HttpResponse<String> response = client.send(
+                HttpRequest.newBuilder(URI.create("http://" + HOST + ":" + METRICS_PORT + "/metrics")).build(),
+                HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(200, response.statusCode());
+        assertTrue(response.body().contains("contsocket_commands_seconds_count{command=\"GET_CAPACITY\"}"),
+                "GET_CAPACITY timer should be exported");
+        assertTrue(response.body().contains("contsocket_commands_seconds_bucket{command=\"NOTIFY\""),
+                "NOTIFY latency histogram should be exported");
+
+        System.out.println("✓ Metrics endpoint exports command timers");
+    }
+
+    @Test
+    @Order(15)
+    @DisplayName("15. Redelivered notification with same idempotency key - applied once")
+    void test15_duplicateNotificationAppliedOnce() throws Exception {
+        System.out.println("\n========== TEST 15: DUPLICATE NOTIFICATION ==========");
+
+        LocalDate testDate = today.plusDays(60);
+        String dateStr = testDate.format(DateTimeFormatter.ISO_DATE);
+        double capacityBefore = getCapacityForDate(testDate);
+
+        try (Socket socket = new Socket(HOST, PORT);
+             PrintWriter out = new PrintWriter(socket.getOutputStream(), true);
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()))) {
+
+            for (int i = 0; i < 2; i++) {
+                out.println("NOTIFY 1 3000 " + dateStr + " key=6f1c2a9e-0000-4000-8000-000000000015");
+                assertEquals("OK", in.readLine(), "Redelivery should still be acknowledged");
+            }
+        }
+
+        double capacityAfter = getCapacityForDate(testDate);
+        System.out.println("Before: " + capacityBefore + " tons, after two deliveries: " + capacityAfter + " tons");
+
+        assertEquals(3.0, capacityBefore - capacityAfter, 0.001,
+                "A redelivered notification must not reduce capacity twice");
+
+        System.out.println("✓ Duplicate notification ignored");
+    }
+
+    @Test
+    @Order(16)
+    @DisplayName("16. Batch notification - entries applied once each")
+    void test16_batchNotification() throws Exception {
+        System.out.println("\n========== TEST 16: BATCH NOTIFICATION ==========");
+
+        LocalDate testDate = today.plusDays(61);
+        String dateStr = testDate.format(DateTimeFormatter.ISO_DATE);
+        double capacityBefore = getCapacityForDate(testDate);
+
+        try (Socket socket = new Socket(HOST, PORT);
+             PrintWriter out = new PrintWriter(socket.getOutputStream(), true);
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()))) {
+
+            String batch = "NOTIFY_BATCH " + dateStr + " batch-key-1:1:1000 batch-key-2:2:2000";
+            out.println(batch);
+            assertEquals("OK 2", in.readLine(), "Both entries should be applied");
+            out.println(batch);
+            assertEquals("OK 0", in.readLine(), "Redelivered entries should be acknowledged but skipped");
+            out.println("NOTIFY_BATCH " + dateStr + " malformed");
+            assertTrue(in.readLine().startsWith("ERROR"), "Malformed entries should be rejected");
+        }
+
+        double capacityAfter = getCapacityForDate(testDate);
+        System.out.println("Before: " + capacityBefore + " tons, after two batch deliveries: " + capacityAfter + " tons");
+
+        assertEquals(3.0, capacityBefore - capacityAfter, 0.001,
+                "Each batch entry must reduce capacity exactly once");
+
+        System.out.println("✓ Batch notification applied once");
+    }
+
+    @Test
+    @Order(17)
+    @DisplayName("17. Reservation - reserved capacity is confirmed by its notification, stale versions conflict")
+    void test17_reservationProtocol() throws Exception {
+        System.out.println("\n========== TEST 17: RESERVATION PROTOCOL ==========");
+
+        LocalDate testDate = today.plusDays(62);
+        String dateStr = testDate.format(DateTimeFormatter.ISO_DATE);
+        double capacityBefore = getCapacityForDate(testDate);
+
+        try (Socket socket = new Socket(HOST, PORT);
+             PrintWriter out = new PrintWriter(socket.getOutputStream(), true);
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()))) {
+
+            out.println("RESERVE " + dateStr + " 4000 0");
+            String[] reserved = in.readLine().split(" ");
+            assertEquals("RESERVED", reserved[0]);
+            assertEquals("1", reserved[2], "A reservation bumps the version");
+            String reservationId = reserved[1];
+
+            out.println("RESERVE " + dateStr + " 1000 0");
+            assertTrue(in.readLine().startsWith("CONFLICT 1 "), "A stale version must conflict");
+
+            out.println("NOTIFY 1 4000 " + dateStr + " key=" + reservationId);
+            assertEquals("OK", in.readLine());
+
+            out.println("RELEASE " + reservationId);
+            assertTrue(in.readLine().startsWith("ERROR"), "A confirmed reservation cannot be released");
+
+            out.println("RESERVE " + dateStr + " 2000");
+            String secondId = in.readLine().split(" ")[1];
+            out.println("RELEASE " + secondId);
+            assertEquals("OK", in.readLine());
+
+            out.println("RESERVE " + dateStr + " 999999");
+            assertTrue(in.readLine().startsWith("CONFLICT"), "Containers that do not fit must conflict");
+        }
+
+        assertEquals(4.0, capacityBefore - getCapacityForDate(testDate), 0.001,
+                "Only the confirmed reservation holds capacity");
+
+        System.out.println("✓ Reserve, confirm, conflict and release behave as expected");
+    }
+
+    @Test
+    @Order(18)
+    @DisplayName("18. Concurrent planners racing on one date - never overbooked")
+    void test18_concurrentReservationsNeverOverbook() throws Exception {
+        System.out.println("\n========== TEST 18: CONCURRENT RESERVATIONS ==========");
+
+        LocalDate testDate = today.plusDays(63);
+        String dateStr = testDate.format(DateTimeFormatter.ISO_DATE);
+        int planners = 64; // 10 tons each, so only 8 fit into 80.5 tons
+
+        ExecutorService pool = Executors.newFixedThreadPool(planners);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<String>> responses = new ArrayList<>();
+        for (int i = 0; i < planners; i++) {
+            responses.add(pool.submit(() -> {
+                try (Socket socket = new Socket(HOST, PORT);
+                     PrintWriter out = new PrintWriter(socket.getOutputStream(), true);
+                     BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()))) {
+                    start.await();
+                    out.println("RESERVE " + dateStr + " 10000");
+                    return in.readLine();
+                }
+            }));
+        }
+        start.countDown();
+        int reserved = 0;
+        int conflicts = 0;
+        for (Future<String> response : responses) {
+            String line = response.get(30, TimeUnit.SECONDS);
+            if (line.startsWith("RESERVED")) {
+                reserved++;
+            } else if (line.startsWith("CONFLICT")) {
+                conflicts++;
+            }
+        }
+        pool.shutdown();
+
+        double capacityAfter = getCapacityForDate(testDate);
+        System.out.println("Reserved: " + reserved + ", conflicts: " + conflicts + ", capacity left: " + capacityAfter + " tons");
+
+        assertEquals(8, reserved, "Exactly as many planners as fit must succeed");
+        assertEquals(planners - 8, conflicts, "Every other planner must get a conflict");
+        assertEquals(0.5, capacityAfter, 0.001);
+
+        System.out.println("✓ No overbooking under contention");
+    }
+
+    @Test
+    @Order(19)
+    @DisplayName("19. Binary protocol - same commands over length-prefixed frames")
+    void test19_binaryProtocol() throws Exception {
+        System.out.println("\n========== TEST 19: BINARY PROTOCOL ==========");
+
+        LocalDate testDate = today.plusDays(64);
+        int epochDay = (int) testDate.toEpochDay();
+        double capacityBefore = getCapacityForDate(testDate);
+
+        try (Socket socket = new Socket(HOST, PORT);
+             DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+             DataInputStream in = new DataInputStream(socket.getInputStream())) {
+
+            out.write(new byte[]{(byte) BinaryProtocol.MAGIC, '\n'});
+
+            ByteBuffer response = binaryCall(out, in, ByteBuffer.allocate(64)
+                    .put(BinaryProtocol.GET_CAPACITY).putInt(epochDay).putShort((short) 0), true);
+            assertEquals(BinaryProtocol.OK, response.get());
+            assertEquals(Math.round(capacityBefore * 1000), response.getLong(), "Capacity is sent in thousandths of a ton");
+
+            ByteBuffer reserve = ByteBuffer.allocate(64).put(BinaryProtocol.RESERVE).putInt(epochDay).putInt(2000).putLong(BinaryProtocol.NO_VERSION);
+            response = binaryCall(out, in, reserve.putShort((short) 0), false);
+            assertEquals(BinaryProtocol.OK, response.get());
+            String reservationId = BinaryProtocol.getString(response);
+            assertEquals(1, response.getLong(), "A reservation bumps the version");
+            assertEquals(Math.round(capacityBefore * 1000) - 2000, response.getLong());
+
+            ByteBuffer notify = ByteBuffer.allocate(128).put(BinaryProtocol.NOTIFY).putInt(1).putInt(2000).putInt(epochDay);
+            response = binaryCall(out, in, BinaryProtocol.putString(notify, reservationId).putShort((short) 0), false);
+            assertEquals(BinaryProtocol.OK, response.get());
+
+            ByteBuffer batch = ByteBuffer.allocate(128).put(BinaryProtocol.NOTIFY_BATCH).putInt(epochDay).putShort((short) 2);
+            BinaryProtocol.putString(batch, "binary-key-1").putInt(1).putInt(500);
+            BinaryProtocol.putString(batch, "binary-key-2").putInt(1).putInt(500);
+            response = binaryCall(out, in, batch.putShort((short) 0), false);
+            assertEquals(BinaryProtocol.OK, response.get());
+            assertEquals(2, response.getInt());
+
+            ByteBuffer release = ByteBuffer.allocate(128).put(BinaryProtocol.RELEASE);
+            response = binaryCall(out, in, BinaryProtocol.putString(release, reservationId).putShort((short) 0), false);
+            assertEquals(BinaryProtocol.ERROR, response.get(), "A confirmed reservation cannot be released");
+
+            response = binaryCall(out, in, ByteBuffer.allocate(8).put(BinaryProtocol.RESERVE).putShort((short) 1), false);
+            assertEquals(BinaryProtocol.ERROR, response.get(), "A truncated frame is rejected without closing the connection");
+        }
+
+        assertEquals(3.0, capacityBefore - getCapacityForDate(testDate), 0.001,
+                "Binary and text commands share the same ledger");
+
+        System.out.println("✓ Binary framing works and interoperates with text clients");
+    }
+
+    @Test
+    @Order(20)
+    @DisplayName("20. Text parser - edge cases and no allocation per GET_CAPACITY")
+    void test20_textParser() throws Exception {
+        System.out.println("\n========== TEST 20: TEXT PARSER ==========");
+
+        LocalDate testDate = today.plusDays(70);
+        String dateStr = testDate.format(DateTimeFormatter.ISO_DATE);
+
+        try (Socket socket = new Socket(HOST, PORT);
+             PrintWriter out = new PrintWriter(socket.getOutputStream(), true);
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()))) {
+
+            // Capacities are formatted exactly like Double.toString
+            int[] containers = {1, 9, 90, 900, 1000, 79_500};
+            double expected = BASE_CAPACITY;
+            for (int n : containers) {
+                out.println("NOTIFY 1 " + n + " " + dateStr);
+                assertEquals("OK", in.readLine());
+                expected = Math.max(0.0, Math.round(expected * 1000 - n) / 1000.0);
+                out.println("GET_CAPACITY " + dateStr);
+                assertEquals(String.valueOf(expected), in.readLine());
+            }
+
+            out.print("GET_CAPACITY " + dateStr + "\r\n");
+            out.flush();
+            assertEquals(String.valueOf(expected), in.readLine(), "CRLF line endings are accepted");
+
+            out.println("GET_CAPACITY 2028-02-29");
+            assertEquals(String.valueOf(BASE_CAPACITY), in.readLine(), "Leap days parse");
+
+            out.println("RESERVE 2027-02-29 1");
+            assertEquals("ERROR: Invalid date format", in.readLine(), "Non-existent dates are rejected");
+
+            out.println("RESERVE " + dateStr + " 99999999999");
+            assertEquals("ERROR: Invalid number format", in.readLine(), "Overflowing numbers are rejected");
+
+            out.println("NOTIFY_BATCH " + dateStr + " bad-entry");
+            assertEquals("ERROR: Invalid number format", in.readLine());
+
+            out.println("GET_CAPACITY  " + dateStr);
+            assertFalse(in.readLine().startsWith("ERROR"), "An empty token is treated like String.split");
+
+            // Warm up, then measure what the connection thread allocates per request
+            com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) java.lang.management.ManagementFactory.getThreadMXBean();
+            for (int i = 0; i < 20_000; i++) {
+                out.println("GET_CAPACITY " + dateStr);
+                in.readLine();
+            }
+            List<Long> serverThreads = new ArrayList<>();
+            for (Thread thread : Thread.getAllStackTraces().keySet()) {
+                if (thread.getName().equals("ContSocketThread")) {
+                    serverThreads.add(thread.threadId());
+                }
+            }
+            long before = 0;
+            for (long id : serverThreads) {
+                before += threads.getThreadAllocatedBytes(id);
+            }
+            int requests = 10_000;
+            for (int i = 0; i < requests; i++) {
+                out.println("GET_CAPACITY " + dateStr);
+                in.readLine();
+            }
+            long after = 0;
+            for (long id : serverThreads) {
+                after += threads.getThreadAllocatedBytes(id);
+            }
+            double bytesPerRequest = (after - before) / (double) requests;
+            System.out.println("Server allocation per GET_CAPACITY: " + bytesPerRequest + " bytes");
+
+            assertTrue(bytesPerRequest < 8, "GET_CAPACITY should not allocate per request");
+        }
+
+        System.out.println("✓ Text commands are parsed in place without allocating");
+    }
+
+    @Test
+    @Order(21)
+    @DisplayName("21. Multiple plants - per-plant ledgers selected by plant ID")
+    void test21_multiplePlants() throws Exception {
+        System.out.println("\n========== TEST 21: MULTIPLE PLANTS ==========");
+
+        LocalDate testDate = today.plusDays(80);
+        String dateStr = testDate.format(DateTimeFormatter.ISO_DATE);
+
+        try (Socket socket = new Socket(HOST, PORT);
+             PrintWriter out = new PrintWriter(socket.getOutputStream(), true);
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()))) {
+
+            out.println("GET_CAPACITY " + dateStr + " plant=CONTSO-02");
+            assertEquals("60.0", in.readLine(), "Each plant has its configured base capacity");
+
+            out.println("NOTIFY 2 5000 " + dateStr + " plant=CONTSO-02 key=multi-plant-1");
+            assertEquals("OK", in.readLine());
+            out.println("GET_CAPACITY " + dateStr + " plant=CONTSO-02");
+            assertEquals("55.0", in.readLine());
+
+            out.println("GET_CAPACITY " + dateStr + " plant=CONTSO-01");
+            assertEquals(String.valueOf(BASE_CAPACITY), in.readLine(), "Other plants are not affected");
+            out.println("GET_CAPACITY " + dateStr);
+            assertEquals(String.valueOf(BASE_CAPACITY), in.readLine(), "Commands without a plant ID address the first plant");
+
+            out.println("RESERVE " + dateStr + " 1000 plant=CONTSO-03");
+            String reserved = in.readLine();
+            assertTrue(reserved.startsWith("RESERVED "), reserved);
+            out.println("RELEASE " + reserved.split(" ")[1] + " plant=CONTSO-02");
+            assertEquals("ERROR: Unknown reservation", in.readLine(), "Reservations belong to their plant");
+            out.println("RELEASE " + reserved.split(" ")[1] + " plant=CONTSO-03");
+            assertEquals("OK", in.readLine());
+
+            out.println("GET_CAPACITY " + dateStr + " plant=NOPE-01");
+            assertEquals("ERROR: Unknown plant", in.readLine());
+        }
+
+        try (Socket socket = new Socket(HOST, PORT);
+             DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+             DataInputStream in = new DataInputStream(socket.getInputStream())) {
+
+            out.write(new byte[]{(byte) BinaryProtocol.MAGIC, '\n'});
+
+            ByteBuffer request = ByteBuffer.allocate(64).put((byte) (BinaryProtocol.GET_CAPACITY | BinaryProtocol.PLANT_FLAG));
+            BinaryProtocol.putString(request, "CONTSO-02").putInt((int) testDate.toEpochDay()).putShort((short) 0);
+            ByteBuffer response = binaryCall(out, in, request, true);
+            assertEquals(BinaryProtocol.OK, response.get());
+            assertEquals(55_000, response.getLong(), "Binary requests select the plant after the opcode");
+
+            request = ByteBuffer.allocate(64).put((byte) (BinaryProtocol.GET_CAPACITY | BinaryProtocol.PLANT_FLAG));
+            BinaryProtocol.putString(request, "NOPE-01").putInt((int) testDate.toEpochDay()).putShort((short) 0);
+            assertEquals(BinaryProtocol.ERROR, binaryCall(out, in, request, false).get());
+        }
+
+        System.out.println("✓ One server hosts several isolated plants");
+    }
+
+    @Test
+    @Order(22)
+    @DisplayName("22. Subscribe - capacity changes are pushed to subscribers of the plant")
+    void test22_subscribe() throws Exception {
+        System.out.println("\n========== TEST 22: SUBSCRIBE ==========");
+
+        LocalDate testDate = today.plusDays(90);
+        String dateStr = testDate.format(DateTimeFormatter.ISO_DATE);
+
+        try (Socket subscriber = new Socket(HOST, PORT);
+             PrintWriter subscribeOut = new PrintWriter(subscriber.getOutputStream(), true);
+             BufferedReader stream = new BufferedReader(new InputStreamReader(subscriber.getInputStream()));
+             Socket socket = new Socket(HOST, PORT);
+             PrintWriter out = new PrintWriter(socket.getOutputStream(), true);
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()))) {
+
+            subscriber.setSoTimeout(5000);
+            subscribeOut.println("SUBSCRIBE CONTSO-02");
+            assertEquals("OK", stream.readLine());
+
+            out.println("NOTIFY 1 1000 " + dateStr + " plant=CONTSO-03");
+            assertEquals("OK", in.readLine());
+            out.println("NOTIFY 2 2000 " + dateStr + " plant=CONTSO-02");
+            assertEquals("OK", in.readLine());
+
+            String change = stream.readLine();
+            System.out.println("Stream: " + change);
+            assertEquals("CAPACITY CONTSO-02 " + dateStr + " 58.0 1", change,
+                    "Only changes of subscribed plants are pushed, with the capacity left and the version");
+
+            out.println("RESERVE " + dateStr + " 500 plant=CONTSO-02");
+            assertTrue(in.readLine().startsWith("RESERVED "));
+            assertEquals("CAPACITY CONTSO-02 " + dateStr + " 57.5 2", stream.readLine(), "Reservations are pushed too");
+        }
+
+        try (Socket socket = new Socket(HOST, PORT);
+             PrintWriter out = new PrintWriter(socket.getOutputStream(), true);
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()))) {
+
+            out.println("SUBSCRIBE CONTSO-02 NOPE-01");
+            assertEquals("ERROR: Unknown plant", in.readLine());
+        }
+
+        System.out.println("✓ Capacity changes are pushed without polling");
+    }
+
+    @Test
+    @Order(23)
+    @DisplayName("23. Trace context - the traceparent field is stripped before the command is parsed")
+    void test23_traceParentIsStripped() throws Exception {
+        System.out.println("\n========== TEST 23: TRACE CONTEXT ==========");
+
+        LocalDate testDate = today.plusDays(120);
+        String dateStr = testDate.format(DateTimeFormatter.ISO_DATE);
+        String traceParent = "traceparent=00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01";
+
+        try (Socket socket = new Socket(HOST, PORT);
+             PrintWriter out = new PrintWriter(socket.getOutputStream(), true);
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()))) {
+
+            out.println("GET_CAPACITY " + dateStr + " " + traceParent);
+            assertEquals(BASE_CAPACITY, Double.parseDouble(in.readLine()), 0.001, "The date is still read as the date");
+
+            out.println("NOTIFY 2 1500 " + dateStr + " key=trace-test-1 " + traceParent);
+            assertEquals("OK", in.readLine());
+
+            out.println("RESERVE " + dateStr + " 500 plant=CONTSO-01 " + traceParent);
+            String reserved = in.readLine();
+            assertTrue(reserved.startsWith("RESERVED "), "Plant and trace fields are both stripped: " + reserved);
+            out.println("RELEASE " + reserved.split(" ")[1] + " " + traceParent);
+            assertEquals("OK", in.readLine());
+
+            // A malformed context is stripped all the same, and no span is written for it
+            out.println("GET_CAPACITY " + dateStr + " traceparent=00-\"},{\"x\":\"-1-01");
+            assertEquals(BASE_CAPACITY - 1.5, Double.parseDouble(in.readLine()), 0.001);
+        }
+
+        System.out.println("✓ Traced commands are parsed like untraced ones");
+    }
+
+    @Test
+    @Order(24)
+    @DisplayName("24. Reservation - zero and negative container counts are rejected on both protocols")
+    void test24_reservationRejectsNonPositiveContainers() throws Exception {
+        System.out.println("\n========== TEST 24: INVALID RESERVATIONS ==========");
+
+        LocalDate testDate = today.plusDays(95);
+        String dateStr = testDate.format(DateTimeFormatter.ISO_DATE);
+        double capacityBefore = getCapacityForDate(testDate);
+
+        try (Socket socket = new Socket(HOST, PORT);
+             PrintWriter out = new PrintWriter(socket.getOutputStream(), true);
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()))) {
+
+            out.println("RESERVE " + dateStr + " -100000");
+            assertEquals("ERROR: Containers must be positive", in.readLine());
+            out.println("RESERVE " + dateStr + " 0");
+            assertEquals("ERROR: Containers must be positive", in.readLine());
+        }
+
+        try (Socket socket = new Socket(HOST, PORT);
+             DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+             DataInputStream in = new DataInputStream(socket.getInputStream())) {
+
+            out.write(new byte[]{(byte) BinaryProtocol.MAGIC, '\n'});
+            ByteBuffer reserve = ByteBuffer.allocate(64).put(BinaryProtocol.RESERVE)
+                    .putInt((int) testDate.toEpochDay()).putInt(-100_000).putLong(BinaryProtocol.NO_VERSION);
+            ByteBuffer response = binaryCall(out, in, reserve.putShort((short) 0), true);
+            assertEquals(BinaryProtocol.ERROR, response.get());
+            assertEquals("Containers must be positive", BinaryProtocol.getString(response));
+        }
+
+        assertThrows(IllegalArgumentException.class,
+                () -> new CapacityLedger(80.5, Duration.ofMinutes(1)).reserve(testDate, -1, null));
+        assertEquals(capacityBefore, getCapacityForDate(testDate), 0.001, "Rejected reservations must not add capacity");
+
+        System.out.println("✓ Only positive container counts can be reserved");
+    }
+
     // Helper methods
+    private ByteBuffer binaryCall(DataOutputStream out, DataInputStream in, ByteBuffer request, boolean firstResponse) throws Exception {
+        request.flip();
+        out.writeInt(request.remaining());
+        out.write(request.array(), 0, request.remaining());
+        out.flush();
+        if (firstResponse) {
+            assertEquals(BinaryProtocol.MAGIC, in.readUnsignedByte(), "Server acknowledges binary framing");
+        }
+        byte[] payload = new byte[in.readInt()];
+        in.readFully(payload);
+        return ByteBuffer.wrap(payload);
+    }
+
     private double getCapacityForDate(LocalDate date) throws Exception {
         try (Socket socket = new Socket(HOST, PORT);
              PrintWriter out = new PrintWriter(socket.getOutputStream(), true);
@@ -0,0 +1,45 @@
+package com.ecoembes.fass.contsocket;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpanFileExporterTest {
+
+    private static final String TRACE_PARENT = "00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01";
+
+    @Test
+    void spanLine_continuesTheClientTrace() {
+        String line = SpanFileExporter.spanLine(TRACE_PARENT, "1111222233334444", "GET_CAPACITY", "CONTSO-01", 1_000, 5_000);
+
+        assertEquals("{\"traceId\":\"4bf92f3577b34da6a3ce929d0e0e4736\",\"spanId\":\"1111222233334444\","
+                + "\"parentId\":\"00f067aa0ba902b7\",\"service\":\"contsocket-server\",\"name\":\"GET_CAPACITY\","
+                + "\"kind\":\"SERVER\",\"startMicros\":1000,\"durationMicros\":5,\"tags\":{\"plant\":\"CONTSO-01\"}}", line);
+    }
+
+    @Test
+    void spanLine_rejectsMalformedTraceContexts() {
+        for (String traceParent : new String[]{
+                "00-4bf92f3577b34da6a3ce929d0e0e473\"-00f067aa0ba902b7-01",
+                "00-4BF92F3577B34DA6A3CE929D0E0E4736-00f067aa0ba902b7-01",
+                "01-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01",
+                "00-00000000000000000000000000000000-00f067aa0ba902b7-01",
+                "00-4bf92f3577b34da6a3ce929d0e0e4736-0000000000000000-01",
+                "00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01-extra",
+                "00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7",
+                ""}) {
+            assertNull(SpanFileExporter.spanLine(traceParent, "1111222233334444", "GET_CAPACITY", "CONTSO-01", 0, 0),
+                    traceParent);
+        }
+    }
+
+    @Test
+    void spanLine_escapesClientSuppliedValues() {
+        String line = SpanFileExporter.spanLine(TRACE_PARENT, "1111222233334444", "X\",\"kind\":\"INJECTED", "A\\B\n\u0001", 0, 0);
+
+        assertTrue(line.contains("\"name\":\"X\\\",\\\"kind\\\":\\\"INJECTED\""), line);
+        assertTrue(line.contains("\"plant\":\"A\\\\B\\n\\u0001\""), line);
+        assertEquals(1, line.split("\"kind\":\"").length - 1, "Only the server's own kind field: " + line);
+        assertFalse(line.contains("\n"));
+    }
+}
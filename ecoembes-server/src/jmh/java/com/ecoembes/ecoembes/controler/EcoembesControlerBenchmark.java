@@ -0,0 +1,78 @@
+package com.ecoembes.ecoembes.controler;
+
+import com.ecoembes.ecoembes.domain.Dumpster;
+import com.ecoembes.ecoembes.domain.Employee;
+import com.ecoembes.ecoembes.domain.FillLevel;
+import com.ecoembes.ecoembes.domain.Usage;
+import com.ecoembes.ecoembes.dto.DumpsterStatusDTO;
+import com.ecoembes.ecoembes.dto.DumpsterUsageDTO;
+import com.ecoembes.ecoembes.service.DumpsterService;
+import com.ecoembes.ecoembes.statemanagement.SessionManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.ResponseEntity;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token check and entity-to-DTO mapping of the dumpster endpoints, with the services answering from memory so
+ * only the controller's own work is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class EcoembesControlerBenchmark {
+
+    private static final String TOKEN = "1760000000000";
+    private static final LocalDate START = LocalDate.of(2026, 1, 1);
+
+    @Param({"10", "1000"})
+    public int rows;
+
+    private EcoembesControler controler;
+
+    @Setup
+    public void setUp() {
+        List<Dumpster> dumpsters = new ArrayList<>();
+        List<Usage> usages = new ArrayList<>();
+        for (int i = 0; i < rows; i++) {
+            Dumpster dumpster = new Dumpster("D-" + i, "Deusto, Bilbao 48007", "48007", 5000.0);
+            dumpster.updateStatus(i % 3 == 0 ? FillLevel.ORANGE : FillLevel.GREEN, i * 10);
+            dumpsters.add(dumpster);
+            usages.add(new Usage(dumpster, START.plusDays(i % 365), dumpster.getFillLevel(), dumpster.getContainersNumber()));
+        }
+        DumpsterService dumpsterService = new DumpsterService(null, null, null, null) {
+            @Override
+            public List<Dumpster> getDumpsterStatus(String postalCode, LocalDate date) {
+                return dumpsters;
+            }
+
+            @Override
+            public List<Usage> queryDumpsterUsage(LocalDate startDate, LocalDate endDate) {
+                return usages;
+            }
+        };
+        SessionManager sessionManager = new SessionManager();
+        sessionManager.storeToken(TOKEN, new Employee("E001", "Admin User", "admin@ecoembes.com", "password123"));
+        controler = new EcoembesControler(null, dumpsterService, null, sessionManager);
+    }
+
+    @Benchmark
+    public ResponseEntity<List<DumpsterStatusDTO>> getDumpsterStatus() {
+        return controler.getDumpsterStatus(TOKEN, "48007", START);
+    }
+
+    @Benchmark
+    public ResponseEntity<List<DumpsterUsageDTO>> getDumpsterUsage() {
+        return controler.getDumpsterUsage(TOKEN, START, START.plusDays(365));
+    }
+}
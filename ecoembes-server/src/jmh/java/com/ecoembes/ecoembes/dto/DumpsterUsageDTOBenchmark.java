@@ -0,0 +1,68 @@
+package com.ecoembes.ecoembes.dto;
+
+import com.ecoembes.ecoembes.domain.FillLevel;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.databind.type.TypeFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON serialization of a usage query response, with the mapper configured like Spring Boot's (ISO dates).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DumpsterUsageDTOBenchmark {
+
+    @Param({"10", "1000"})
+    public int rows;
+
+    private ObjectMapper mapper;
+    private ObjectWriter listWriter;
+    private List<DumpsterUsageDTO> usages;
+
+    @Setup
+    public void setUp() {
+        mapper = JsonMapper.builder()
+                .findAndAddModules()
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+        listWriter = mapper.writerFor(TypeFactory.defaultInstance().constructCollectionType(List.class, DumpsterUsageDTO.class));
+        usages = new ArrayList<>();
+        LocalDate start = LocalDate.of(2026, 1, 1);
+        for (int i = 0; i < rows; i++) {
+            usages.add(new DumpsterUsageDTO("D-" + i, start.plusDays(i % 365), i % 3 == 0 ? FillLevel.ORANGE : FillLevel.GREEN, i * 10));
+        }
+    }
+
+    /**
+     * As Spring MVC writes a response body, resolving the serializer from the list's runtime type.
+     */
+    @Benchmark
+    public byte[] serialize() throws JsonProcessingException {
+        return mapper.writeValueAsBytes(usages);
+    }
+
+    /**
+     * With the serializer resolved once for the declared element type.
+     */
+    @Benchmark
+    public byte[] serializeWithTypedWriter() throws JsonProcessingException {
+        return listWriter.writeValueAsBytes(usages);
+    }
+}
@@ -0,0 +1,62 @@
+package com.ecoembes.ecoembes.service;
+
+import com.ecoembes.ecoembes.domain.GeoPoint;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Spreading dumpsters over plants around Bilbao, with enough room in total for about nine tenths of the containers
+ * so that capacity decides as much as distance.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class AssignmentOptimizerBenchmark {
+
+    @Param({"1000", "10000"})
+    public int dumpsters;
+
+    @Param({"200"})
+    public int plants;
+
+    private List<GeoPoint> dumpsterPositions;
+    private long[] load;
+    private List<GeoPoint> plantPositions;
+    private long[] capacity;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        dumpsterPositions = new ArrayList<>();
+        load = new long[dumpsters];
+        long total = 0;
+        for (int d = 0; d < dumpsters; d++) {
+            dumpsterPositions.add(new GeoPoint(43.263 + random.nextDouble(-0.05, 0.05), -2.935 + random.nextDouble(-0.07, 0.07)));
+            load[d] = random.nextInt(1, 1200);
+            total += load[d];
+        }
+        plantPositions = new ArrayList<>();
+        capacity = new long[plants];
+        for (int p = 0; p < plants; p++) {
+            plantPositions.add(new GeoPoint(43.263 + random.nextDouble(-0.15, 0.15), -2.935 + random.nextDouble(-0.2, 0.2)));
+            capacity[p] = total * 9 / 10 / plants;
+        }
+    }
+
+    @Benchmark
+    public int[] solve() {
+        return new AssignmentOptimizer(dumpsterPositions, load, plantPositions, capacity).solve(Duration.ofSeconds(10));
+    }
+}
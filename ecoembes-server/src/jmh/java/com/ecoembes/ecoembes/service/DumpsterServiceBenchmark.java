@@ -0,0 +1,28 @@
+package com.ecoembes.ecoembes.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Postal code extraction, run for every dumpster created, on addresses with and without a postal code.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class DumpsterServiceBenchmark {
+
+    @Param({"Deusto, Bilbao 48007", "Calle Gran Via 1, 3 izquierda, Bilbao"})
+    public String location;
+
+    @Benchmark
+    public String extractPostalCode() {
+        return DumpsterService.extractPostalCode(location);
+    }
+}
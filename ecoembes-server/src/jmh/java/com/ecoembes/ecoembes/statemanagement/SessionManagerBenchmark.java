@@ -0,0 +1,52 @@
+package com.ecoembes.ecoembes.statemanagement;
+
+import com.ecoembes.ecoembes.domain.Employee;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token validation, run on every authenticated request, with a given number of active sessions.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SessionManagerBenchmark {
+
+    @Param({"10", "100000"})
+    public int activeSessions;
+
+    private SessionManager sessionManager;
+    private String validToken;
+    private String unknownToken;
+
+    @Setup
+    public void setUp() {
+        sessionManager = new SessionManager();
+        Employee employee = new Employee("E001", "Admin User", "admin@ecoembes.com", "password123");
+        // Tokens are login timestamps in milliseconds
+        long timestamp = 1_760_000_000_000L;
+        for (int i = 0; i < activeSessions; i++) {
+            sessionManager.storeToken(String.valueOf(timestamp + i), employee);
+        }
+        validToken = String.valueOf(timestamp + activeSessions / 2);
+        unknownToken = String.valueOf(timestamp - 1);
+    }
+
+    @Benchmark
+    public boolean validateToken() {
+        return sessionManager.validateToken(validToken);
+    }
+
+    @Benchmark
+    public boolean validateUnknownToken() {
+        return sessionManager.validateToken(unknownToken);
+    }
+}
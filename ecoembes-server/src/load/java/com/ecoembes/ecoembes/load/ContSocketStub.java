@@ -0,0 +1,92 @@
+package com.ecoembes.ecoembes.load;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stand-in for a ContSocket server that answers the text commands Ecoembes sends: {@code GET_CAPACITY},
+ * {@code RESERVE}, {@code RELEASE}, {@code NOTIFY} and {@code NOTIFY_BATCH}, for any plant. Capacity never runs out.
+ * Anything else, including the binary preamble and {@code SUBSCRIBE}, gets an error line, so Ecoembes falls back to
+ * text and to polling.
+ */
+final class ContSocketStub implements AutoCloseable {
+
+    private static final String CAPACITY_TONS = "1000000.0";
+
+    private final ServerSocket serverSocket;
+    private final StubFaults faults;
+    private final ExecutorService connections = Executors.newVirtualThreadPerTaskExecutor();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong version = new AtomicLong();
+
+    private ContSocketStub(ServerSocket serverSocket, StubFaults faults) {
+        this.serverSocket = serverSocket;
+        this.faults = faults;
+    }
+
+    static ContSocketStub start(int port, StubFaults faults) throws IOException {
+        ContSocketStub stub = new ContSocketStub(new ServerSocket(port, 1024), faults);
+        Thread.ofPlatform().name("contsocket-stub-acceptor").daemon().start(stub::accept);
+        return stub;
+    }
+
+    private void accept() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                connections.execute(() -> serve(socket));
+            } catch (IOException e) {
+                // Closed
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             PrintWriter out = new PrintWriter(socket.getOutputStream(), true, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                requests.incrementAndGet();
+                if (faults.apply()) {
+                    out.println("ERROR: Injected fault");
+                    continue;
+                }
+                out.println(respond(line.split(" ")[0]));
+            }
+        } catch (IOException e) {
+            // Client went away
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private String respond(String command) {
+        return switch (command) {
+            case "GET_CAPACITY" -> CAPACITY_TONS;
+            case "RESERVE" -> "RESERVED " + UUID.randomUUID() + " " + version.incrementAndGet() + " " + CAPACITY_TONS;
+            case "RELEASE", "NOTIFY" -> "OK";
+            case "NOTIFY_BATCH" -> "OK 1";
+            default -> "ERROR: Invalid command";
+        };
+    }
+
+    long requests() {
+        return requests.get();
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        connections.shutdownNow();
+    }
+}
@@ -0,0 +1,89 @@
+package com.ecoembes.ecoembes.load;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The Ecoembes server under test, run from its boot jar in a JVM of its own so the load generator does not compete
+ * with it for heap or JIT. It runs in the report directory, where its log and span files end up.
+ */
+final class EcoembesProcess implements AutoCloseable {
+
+    private static final Duration STARTUP_TIMEOUT = Duration.ofMinutes(2);
+
+    private final Process process;
+    private final URI baseUri;
+
+    private EcoembesProcess(Process process, URI baseUri) {
+        this.process = process;
+        this.baseUri = baseUri;
+    }
+
+    /**
+     * Starts the server and waits until its health endpoint reports it up.
+     */
+    static EcoembesProcess start(LoadConfig config) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(config.serverJvmArgs());
+        command.add("-jar");
+        command.add(config.serverJar().toAbsolutePath().toString());
+        command.add("--server.port=" + config.serverPort());
+        command.addAll(config.serverArgs());
+
+        Path log = config.reportDir().resolve("ecoembes-server.log");
+        Process process = new ProcessBuilder(command)
+                .directory(config.reportDir().toFile())
+                .redirectErrorStream(true)
+                .redirectOutput(log.toFile())
+                .start();
+        EcoembesProcess server = new EcoembesProcess(process, URI.create("http://localhost:" + config.serverPort()));
+        try {
+            server.awaitHealthy(log);
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            server.close();
+            throw e;
+        }
+        return server;
+    }
+
+    private void awaitHealthy(Path log) throws IOException, InterruptedException {
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build();
+        HttpRequest health = HttpRequest.newBuilder(baseUri.resolve("/actuator/health")).timeout(Duration.ofSeconds(2)).build();
+        long deadline = System.nanoTime() + STARTUP_TIMEOUT.toNanos();
+        while (System.nanoTime() < deadline) {
+            if (!process.isAlive()) {
+                throw new IOException("Ecoembes server exited with status " + process.exitValue() + ", see " + log);
+            }
+            try {
+                if (client.send(health, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                    return;
+                }
+            } catch (IOException e) {
+                // Not listening yet
+            }
+            Thread.sleep(500);
+        }
+        throw new IOException("Ecoembes server was not healthy after " + STARTUP_TIMEOUT.toSeconds() + "s, see " + log);
+    }
+
+    URI baseUri() {
+        return baseUri;
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        process.destroy();
+        if (!process.waitFor(30, TimeUnit.SECONDS)) {
+            process.destroyForcibly().waitFor();
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.ecoembes.ecoembes.load;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Settings of a load run, read from {@code load.*} system properties (the {@code loadTest} task forwards
+ * {@code -Pload.*} project properties). Every setting has a default, so a bare {@code ./gradlew loadTest} runs the
+ * standard mix against stubs that answer in 20 ms.
+ */
+record LoadConfig(
+        double rate,
+        Duration warmup,
+        Duration duration,
+        Map<Scenario.Operation, Integer> mix,
+        int dumpsters,
+        long seed,
+        Path serverJar,
+        List<String> serverJvmArgs,
+        List<String> serverArgs,
+        int serverPort,
+        Path reportDir,
+        int plasSBPort,
+        StubFaults plasSBFaults,
+        int contSocketPort,
+        StubFaults contSocketFaults
+) {
+
+    static final String DEFAULT_MIX = "login:5,update:30,status:20,usage:10,capacity:25,assign:10";
+
+    // The stubs do not push capacity changes, so every capacity check reaches them; SQL logging would dominate
+    static final String DEFAULT_SERVER_ARGS = "--plants.capacity-stream.enabled=false --spring.jpa.show-sql=false";
+
+    static LoadConfig fromSystemProperties() {
+        return new LoadConfig(
+                Double.parseDouble(property("load.rate", "200")),
+                duration(property("load.warmup", "10s")),
+                duration(property("load.duration", "60s")),
+                mix(property("load.mix", DEFAULT_MIX)),
+                Integer.parseInt(property("load.dumpsters", "50")),
+                Long.parseLong(property("load.seed", "42")),
+                Path.of(required("load.server-jar")),
+                words(property("load.server-jvm-args", "-Xmx1g")),
+                words(property("load.server-args", DEFAULT_SERVER_ARGS)),
+                Integer.parseInt(property("load.server-port", "8081")),
+                Path.of(property("load.report-dir", "build/reports/load")),
+                Integer.parseInt(property("load.plassb.port", "8083")),
+                faults("load.plassb"),
+                Integer.parseInt(property("load.contsocket.port", "9090")),
+                faults("load.contsocket")
+        );
+    }
+
+    private static StubFaults faults(String prefix) {
+        return new StubFaults(
+                duration(property(prefix + ".latency", "20ms")),
+                duration(property(prefix + ".jitter", "10ms")),
+                Double.parseDouble(property(prefix + ".error-rate", "0")));
+    }
+
+    /**
+     * Parses {@code <operation>:<weight>} pairs, e.g. {@code update:30,assign:10}.
+     */
+    static Map<Scenario.Operation, Integer> mix(String value) {
+        Map<Scenario.Operation, Integer> mix = new EnumMap<>(Scenario.Operation.class);
+        for (String entry : value.split(",")) {
+            String[] parts = entry.strip().split(":");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Invalid mix entry '" + entry + "', expected <operation>:<weight>");
+            }
+            int weight = Integer.parseInt(parts[1].strip());
+            if (weight > 0) {
+                mix.put(Scenario.Operation.of(parts[0].strip()), weight);
+            }
+        }
+        if (mix.isEmpty()) {
+            throw new IllegalArgumentException("The mix needs at least one operation with a positive weight");
+        }
+        return mix;
+    }
+
+    /**
+     * Parses {@code 250ms}, {@code 30s} or {@code 5m}, or an ISO-8601 duration.
+     */
+    static Duration duration(String value) {
+        if (value.endsWith("ms")) {
+            return Duration.ofMillis(Long.parseLong(value.substring(0, value.length() - 2)));
+        }
+        if (value.endsWith("s")) {
+            return Duration.ofSeconds(Long.parseLong(value.substring(0, value.length() - 1)));
+        }
+        if (value.endsWith("m")) {
+            return Duration.ofMinutes(Long.parseLong(value.substring(0, value.length() - 1)));
+        }
+        return Duration.parse(value);
+    }
+
+    private static List<String> words(String value) {
+        return Arrays.stream(value.strip().split("\\s+")).filter(word -> !word.isEmpty()).toList();
+    }
+
+    private static String property(String name, String defaultValue) {
+        String value = System.getProperty(name);
+        return value != null && !value.isBlank() ? value.strip() : defaultValue;
+    }
+
+    private static String required(String name) {
+        String value = System.getProperty(name);
+        if (value == null || value.isBlank()) {
+            throw new IllegalArgumentException("Missing system property " + name);
+        }
+        return value;
+    }
+}
@@ -0,0 +1,56 @@
+package com.ecoembes.ecoembes.load;
+
+import java.net.http.HttpClient;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * End-to-end load test: starts a PlasSB and a ContSocket stub on the plants' ports, launches the Ecoembes server
+ * against them, prepares the {@link Scenario}, warms up, then drives the mix open-loop for the configured duration
+ * and writes a {@link LoadReport}. Run with {@code ./gradlew loadTest}; see {@link LoadConfig} for the settings.
+ */
+public final class LoadHarness {
+
+    private LoadHarness() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadConfig config = LoadConfig.fromSystemProperties();
+        Files.createDirectories(config.reportDir());
+
+        try (PlasSBStub plasSB = PlasSBStub.start(config.plasSBPort(), config.plasSBFaults());
+             ContSocketStub contSocket = ContSocketStub.start(config.contSocketPort(), config.contSocketFaults());
+             EcoembesProcess server = EcoembesProcess.start(config);
+             ExecutorService clientExecutor = Executors.newVirtualThreadPerTaskExecutor()) {
+
+            HttpClient client = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .connectTimeout(Duration.ofSeconds(2))
+                    .executor(clientExecutor)
+                    .build();
+            Scenario scenario = new Scenario(client, server.baseUri());
+            scenario.prepare(config.dumpsters());
+            OpenLoopDriver driver = new OpenLoopDriver(client, scenario, config.mix());
+
+            Random random = new Random(config.seed());
+            if (!config.warmup().isZero()) {
+                System.out.println("Warming up for " + config.warmup().toSeconds() + "s");
+                driver.run(config.rate(), config.warmup(), random);
+            }
+            System.out.println("Measuring for " + config.duration().toSeconds() + "s");
+            long plasSBBefore = plasSB.requests();
+            long contSocketBefore = contSocket.requests();
+            OpenLoopDriver.Result result = driver.run(config.rate(), config.duration(), random);
+
+            Map<String, Long> stubRequests = new LinkedHashMap<>();
+            stubRequests.put("PlasSB", plasSB.requests() - plasSBBefore);
+            stubRequests.put("ContSocket", contSocket.requests() - contSocketBefore);
+            new LoadReport(config, result, stubRequests).write();
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.ecoembes.ecoembes.load;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Throughput and latency percentiles of a measured run. Written as a table to the console and
+ * {@code summary.txt}, as {@code summary.json} for comparing runs, and as one HdrHistogram percentile distribution
+ * per operation ({@code <operation>.hgrm}) that can be plotted with the HdrHistogram plotter.
+ */
+final class LoadReport {
+
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+    private final LoadConfig config;
+    private final OpenLoopDriver.Result result;
+    private final Map<String, Long> stubRequests;
+
+    LoadReport(LoadConfig config, OpenLoopDriver.Result result, Map<String, Long> stubRequests) {
+        this.config = config;
+        this.result = result;
+        this.stubRequests = stubRequests;
+    }
+
+    void write() throws IOException {
+        String table = table();
+        System.out.print(table);
+        Files.writeString(config.reportDir().resolve("summary.txt"), table);
+
+        ObjectMapper mapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+        mapper.writeValue(config.reportDir().resolve("summary.json").toFile(), json());
+
+        for (Map.Entry<Scenario.Operation, Histogram> entry : result.latencies().entrySet()) {
+            writeDistribution(config.reportDir().resolve(entry.getKey().key() + ".hgrm"), entry.getValue());
+        }
+        writeDistribution(config.reportDir().resolve("all.hgrm"), result.total());
+    }
+
+    private String table() {
+        double seconds = result.elapsed().toNanos() / 1e9;
+        StringBuilder out = new StringBuilder();
+        out.append(String.format(Locale.ROOT, "Open-loop load: %.1f req/s offered for %ds (seed %d), measured over %.1fs%n",
+                config.rate(), config.duration().toSeconds(), config.seed(), seconds));
+        out.append("Plant stubs: PlasSB ").append(config.plasSBFaults()).append(", ContSocket ").append(config.contSocketFaults())
+                .append(System.lineSeparator());
+        out.append(String.format(Locale.ROOT, "%-10s %8s %7s %8s %9s %9s %9s %9s %9s%n",
+                "operation", "ok", "errors", "req/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms"));
+        for (Map.Entry<Scenario.Operation, Histogram> entry : result.latencies().entrySet()) {
+            row(out, entry.getKey().key(), entry.getValue(), result.errors().get(entry.getKey()), seconds);
+        }
+        row(out, "all", result.total(), result.totalErrors(), seconds);
+        stubRequests.forEach((stub, requests) -> out.append(stub).append(" stub served ").append(requests).append(" requests")
+                .append(System.lineSeparator()));
+        return out.toString();
+    }
+
+    private static void row(StringBuilder out, String name, Histogram histogram, long errors, double seconds) {
+        out.append(String.format(Locale.ROOT, "%-10s %8d %7d %8.1f", name, histogram.getTotalCount(), errors,
+                (histogram.getTotalCount() + errors) / seconds));
+        for (double percentile : PERCENTILES) {
+            out.append(String.format(Locale.ROOT, " %9.2f", histogram.getValueAtPercentile(percentile) / 1000.0));
+        }
+        out.append(String.format(Locale.ROOT, " %9.2f%n", histogram.getMaxValue() / 1000.0));
+    }
+
+    private Map<String, Object> json() {
+        Map<String, Object> run = new LinkedHashMap<>();
+        run.put("rate", config.rate());
+        run.put("durationSeconds", config.duration().toSeconds());
+        run.put("seed", config.seed());
+        run.put("elapsedSeconds", result.elapsed().toNanos() / 1e9);
+        run.put("plassb", config.plasSBFaults().toString());
+        run.put("contsocket", config.contSocketFaults().toString());
+        run.put("stubRequests", stubRequests);
+
+        Map<String, Object> operations = new LinkedHashMap<>();
+        result.latencies().forEach((operation, histogram) ->
+                operations.put(operation.key(), stats(histogram, result.errors().get(operation))));
+        operations.put("all", stats(result.total(), result.totalErrors()));
+        run.put("operations", operations);
+        return run;
+    }
+
+    private Map<String, Object> stats(Histogram histogram, long errors) {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("ok", histogram.getTotalCount());
+        stats.put("errors", errors);
+        stats.put("throughput", (histogram.getTotalCount() + errors) / (result.elapsed().toNanos() / 1e9));
+        for (double percentile : PERCENTILES) {
+            stats.put("p" + (percentile == (int) percentile ? String.valueOf((int) percentile) : String.valueOf(percentile)) + "Ms",
+                    histogram.getValueAtPercentile(percentile) / 1000.0);
+        }
+        stats.put("maxMs", histogram.getMaxValue() / 1000.0);
+        return stats;
+    }
+
+    private static void writeDistribution(Path file, Histogram histogram) throws IOException {
+        try (PrintStream out = new PrintStream(Files.newOutputStream(file))) {
+            // Values are in microseconds; scale them to milliseconds
+            histogram.outputPercentileDistribution(out, 1000.0);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.ecoembes.ecoembes.load;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Sends the mix at a fixed average rate with Poisson arrivals, whether or not earlier requests have completed, so a
+ * slow server builds a queue instead of slowing the load down. Each request runs on its own virtual thread and its
+ * latency is measured from the moment it was scheduled to be sent, so time spent waiting behind a stalled request
+ * counts against the server rather than disappearing (coordinated omission).
+ * <p>
+ * Arrival times, operations and request parameters all come from one seeded {@link Random}, so two runs with the
+ * same seed send the same requests in the same order.
+ */
+final class OpenLoopDriver {
+
+    // Latencies are recorded in microseconds, up to a minute, with three significant digits
+    private static final long HIGHEST_TRACKABLE_MICROS = Duration.ofMinutes(1).toNanos() / 1000;
+
+    private final HttpClient client;
+    private final Scenario scenario;
+    private final Scenario.Operation[] operations;
+    private final int[] cumulativeWeights;
+
+    OpenLoopDriver(HttpClient client, Scenario scenario, Map<Scenario.Operation, Integer> mix) {
+        this.client = client;
+        this.scenario = scenario;
+        this.operations = mix.keySet().toArray(Scenario.Operation[]::new);
+        this.cumulativeWeights = new int[operations.length];
+        int total = 0;
+        for (int i = 0; i < operations.length; i++) {
+            total += mix.get(operations[i]);
+            cumulativeWeights[i] = total;
+        }
+    }
+
+    /**
+     * Sends {@code rate} requests per second on average for {@code length}, then waits for the requests still in
+     * flight.
+     */
+    Result run(double rate, Duration length, Random random) {
+        Map<Scenario.Operation, Recorder> latencies = new EnumMap<>(Scenario.Operation.class);
+        Map<Scenario.Operation, LongAdder> errors = new EnumMap<>(Scenario.Operation.class);
+        for (Scenario.Operation operation : operations) {
+            latencies.put(operation, new Recorder(HIGHEST_TRACKABLE_MICROS, 3));
+            errors.put(operation, new LongAdder());
+        }
+
+        double meanIntervalNanos = 1_000_000_000.0 / rate;
+        long start = System.nanoTime();
+        long end = start + length.toNanos();
+        long scheduled = start;
+        try (ExecutorService inFlight = Executors.newVirtualThreadPerTaskExecutor()) {
+            while (true) {
+                // Exponentially distributed gaps give Poisson arrivals
+                scheduled += (long) (-Math.log(1 - random.nextDouble()) * meanIntervalNanos);
+                if (scheduled >= end) {
+                    break;
+                }
+                Scenario.Operation operation = next(random);
+                HttpRequest request = scenario.request(operation, random);
+                long intendedStart = scheduled;
+                for (long wait = intendedStart - System.nanoTime(); wait > 0; wait = intendedStart - System.nanoTime()) {
+                    LockSupport.parkNanos(wait);
+                }
+                inFlight.execute(() -> {
+                    boolean ok;
+                    try {
+                        ok = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() / 100 == 2;
+                    } catch (Exception e) {
+                        ok = false;
+                    }
+                    if (ok) {
+                        long micros = (System.nanoTime() - intendedStart) / 1000;
+                        latencies.get(operation).recordValue(Math.min(micros, HIGHEST_TRACKABLE_MICROS));
+                    } else {
+                        errors.get(operation).increment();
+                    }
+                });
+            }
+        }
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+        Map<Scenario.Operation, Histogram> histograms = new EnumMap<>(Scenario.Operation.class);
+        Map<Scenario.Operation, Long> errorCounts = new EnumMap<>(Scenario.Operation.class);
+        for (Scenario.Operation operation : operations) {
+            histograms.put(operation, latencies.get(operation).getIntervalHistogram());
+            errorCounts.put(operation, errors.get(operation).sum());
+        }
+        return new Result(elapsed, histograms, errorCounts);
+    }
+
+    private Scenario.Operation next(Random random) {
+        int pick = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; ; i++) {
+            if (pick < cumulativeWeights[i]) {
+                return operations[i];
+            }
+        }
+    }
+
+    /**
+     * Latencies of the successful requests of each operation, in microseconds, and the number that failed. The
+     * elapsed time includes draining the requests still in flight at the end.
+     */
+    record Result(Duration elapsed, Map<Scenario.Operation, Histogram> latencies, Map<Scenario.Operation, Long> errors) {
+
+        Histogram total() {
+            Histogram total = new Histogram(HIGHEST_TRACKABLE_MICROS, 3);
+            latencies.values().forEach(total::add);
+            return total;
+        }
+
+        long totalErrors() {
+            return errors.values().stream().mapToLong(Long::longValue).sum();
+        }
+    }
+}
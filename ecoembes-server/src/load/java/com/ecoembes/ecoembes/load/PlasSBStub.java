@@ -0,0 +1,100 @@
+package com.ecoembes.ecoembes.load;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stand-in for a PlasSB server that speaks just enough of its REST API for Ecoembes: capacity queries, reservations
+ * and notifications under {@code /api/plants/<plantId>/...}, for any plant ID. Capacity never runs out, so
+ * assignments are never refused. It has no capacity stream; Ecoembes gets a 404 and polls instead.
+ */
+final class PlasSBStub implements AutoCloseable {
+
+    private static final double CAPACITY_TONS = 1_000_000.0;
+
+    private final HttpServer server;
+    private final StubFaults faults;
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong version = new AtomicLong();
+
+    private PlasSBStub(HttpServer server, StubFaults faults) {
+        this.server = server;
+        this.faults = faults;
+    }
+
+    static PlasSBStub start(int port, StubFaults faults) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(port), 1024);
+        PlasSBStub stub = new PlasSBStub(server, faults);
+        server.createContext("/api/plants/", stub::handle);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.start();
+        return stub;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange; InputStream body = exchange.getRequestBody()) {
+            body.transferTo(OutputStream.nullOutputStream());
+            requests.incrementAndGet();
+            if (faults.apply()) {
+                respond(exchange, 500, "{\"error\":\"Injected fault\"}");
+                return;
+            }
+            route(exchange);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void route(HttpExchange exchange) throws IOException {
+        // /api/plants/<plantId>/<resource>[/<id>]
+        String[] path = exchange.getRequestURI().getPath().split("/");
+        String method = exchange.getRequestMethod();
+        if (path.length < 5 || "capacity".equals(path[3])) {
+            respond(exchange, 404, "");
+            return;
+        }
+        String plantId = path[3];
+        String resource = path[4];
+        if ("GET".equals(method) && "capacity".equals(resource)) {
+            respond(exchange, 200, "{\"id\":\"" + plantId + "\",\"capacity\":" + CAPACITY_TONS + ",\"version\":" + version.get() + "}");
+        } else if ("POST".equals(method) && "reservations".equals(resource)) {
+            respond(exchange, 201, "{\"reserved\":true,\"reservationId\":\"" + UUID.randomUUID() + "\",\"plantId\":\"" + plantId
+                    + "\",\"version\":" + version.incrementAndGet() + ",\"capacity\":" + CAPACITY_TONS + "}");
+        } else if ("DELETE".equals(method) && "reservations".equals(resource)) {
+            respond(exchange, 204, "");
+        } else if ("POST".equals(method) && "notify".equals(resource)) {
+            respond(exchange, 200, path.length > 5 ? "Batch received" : "Notification received");
+        } else {
+            respond(exchange, 404, "");
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        if (!body.isEmpty() && body.charAt(0) == '{') {
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+        }
+        exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+        if (bytes.length > 0) {
+            exchange.getResponseBody().write(bytes);
+        }
+    }
+
+    long requests() {
+        return requests.get();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
@@ -0,0 +1,167 @@
+package com.ecoembes.ecoembes.load;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * The requests of the load mix, shaped like the steps of {@code DemoWorkflowIT}: an operator logs in, updates
+ * dumpsters and queries them, an admin checks plant capacity and assigns dumpsters to the PlasSB and ContSocket
+ * plants. {@link #prepare} logs both in and creates the dumpsters the mix works on.
+ */
+final class Scenario {
+
+    static final List<String> PLANTS = List.of("PLASSB-01", "CONTSO-01");
+
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+    private static final List<String> POSTAL_CODES = List.of("48007", "48011", "48004", "48015");
+    private static final List<String> FILL_LEVELS = List.of("green", "orange", "red");
+
+    enum Operation {
+        LOGIN("login"),
+        UPDATE_STATUS("update"),
+        QUERY_STATUS("status"),
+        QUERY_USAGE("usage"),
+        CHECK_CAPACITY("capacity"),
+        ASSIGN("assign");
+
+        private final String key;
+
+        Operation(String key) {
+            this.key = key;
+        }
+
+        String key() {
+            return key;
+        }
+
+        static Operation of(String key) {
+            for (Operation operation : values()) {
+                if (operation.key.equals(key)) {
+                    return operation;
+                }
+            }
+            throw new IllegalArgumentException("Unknown operation '" + key + "'");
+        }
+    }
+
+    private final HttpClient client;
+    private final URI baseUri;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final List<String> dumpsterIds = new ArrayList<>();
+    private String employeeToken;
+    private String adminToken;
+
+    Scenario(HttpClient client, URI baseUri) {
+        this.client = client;
+        this.baseUri = baseUri;
+    }
+
+    /**
+     * Logs in the operator and the admin (steps 1 and 1b) and creates {@code dumpsters} dumpsters spread over a few
+     * postal codes (step 2).
+     */
+    void prepare(int dumpsters) throws IOException, InterruptedException {
+        employeeToken = login("employee@ecoembes.com", "pass");
+        adminToken = login("admin@ecoembes.com", "password123");
+        for (int i = 0; i < dumpsters; i++) {
+            String postalCode = POSTAL_CODES.get(i % POSTAL_CODES.size());
+            JsonNode dumpster = call(post("/dumpsters", employeeToken, Map.of(
+                    "location", "Bilbao, Load Street " + (i + 1) + ", " + postalCode,
+                    "initialCapacity", 7500.0)));
+            dumpsterIds.add(dumpster.get("dumpsterID").asText());
+        }
+    }
+
+    /**
+     * Builds the next request of the given operation, drawing its parameters from {@code random}.
+     */
+    HttpRequest request(Operation operation, Random random) {
+        LocalDate today = LocalDate.now();
+        return switch (operation) {
+            // Step 1
+            case LOGIN -> post("/login", null, Map.of("email", "employee@ecoembes.com", "password", "pass"));
+            // Step 3
+            case UPDATE_STATUS -> put("/dumpsters/" + pick(dumpsterIds, random), employeeToken, Map.of(
+                    "fillLevel", pick(FILL_LEVELS, random),
+                    "containersNumber", random.nextInt(5000)));
+            // Step 4a
+            case QUERY_STATUS -> get("/dumpsters/status?postalCode=" + pick(POSTAL_CODES, random) + "&date=" + today, employeeToken);
+            // Step 4b
+            case QUERY_USAGE -> get("/dumpsters/usage?startDate=" + today.minusDays(30) + "&endDate=" + today, employeeToken);
+            // Step 5b
+            case CHECK_CAPACITY -> get("/plants/capacity?date=" + today + "&plantId=" + pick(PLANTS, random), adminToken);
+            // Steps 6a and 6b
+            case ASSIGN -> post("/plants/assign", adminToken, Map.of(
+                    "plantID", pick(PLANTS, random),
+                    "dumpsterIDs", dumpsters(random, 1 + random.nextInt(2)),
+                    "date", today.plusDays(random.nextInt(2)).toString()));
+        };
+    }
+
+    private String login(String email, String password) throws IOException, InterruptedException {
+        return call(post("/login", null, Map.of("email", email, "password", password))).get("token").asText();
+    }
+
+    private JsonNode call(HttpRequest request) throws IOException, InterruptedException {
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() / 100 != 2) {
+            throw new IOException(request.method() + " " + request.uri() + " returned " + response.statusCode() + ": " + response.body());
+        }
+        return objectMapper.readTree(response.body());
+    }
+
+    private HttpRequest get(String path, String token) {
+        return builder(path, token).GET().build();
+    }
+
+    private HttpRequest post(String path, String token, Map<String, ?> body) {
+        return builder(path, token).POST(json(body)).build();
+    }
+
+    private HttpRequest put(String path, String token, Map<String, ?> body) {
+        return builder(path, token).PUT(json(body)).build();
+    }
+
+    private HttpRequest.Builder builder(String path, String token) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(baseUri.resolve("/api/v1" + path))
+                .timeout(REQUEST_TIMEOUT)
+                .header("Content-Type", "application/json");
+        return token != null ? builder.header("Authorization", token) : builder;
+    }
+
+    private HttpRequest.BodyPublisher json(Map<String, ?> body) {
+        try {
+            return HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body));
+        } catch (IOException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    /**
+     * Returns {@code count} distinct dumpsters, like the one or two dumpsters of each assignment in the workflow.
+     */
+    private List<String> dumpsters(Random random, int count) {
+        int first = random.nextInt(dumpsterIds.size());
+        List<String> ids = new ArrayList<>(count);
+        for (int i = 0; i < Math.min(count, dumpsterIds.size()); i++) {
+            ids.add(dumpsterIds.get((first + i) % dumpsterIds.size()));
+        }
+        return ids;
+    }
+
+    private static <T> T pick(List<T> values, Random random) {
+        return values.get(random.nextInt(values.size()));
+    }
+}
@@ -0,0 +1,35 @@
+package com.ecoembes.ecoembes.load;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Faults a plant stub injects into every request: a fixed latency plus a uniformly distributed jitter, and a
+ * share of requests that fail after the delay.
+ */
+record StubFaults(Duration latency, Duration jitter, double errorRate) {
+
+    StubFaults {
+        if (latency.isNegative() || jitter.isNegative() || errorRate < 0 || errorRate > 1) {
+            throw new IllegalArgumentException("Invalid stub faults: latency " + latency + ", jitter " + jitter
+                    + ", error rate " + errorRate);
+        }
+    }
+
+    /**
+     * Waits out the injected latency and returns true if this request should fail.
+     */
+    boolean apply() throws InterruptedException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long nanos = latency.toNanos() + (jitter.isZero() ? 0 : random.nextLong(jitter.toNanos() + 1));
+        if (nanos > 0) {
+            Thread.sleep(Duration.ofNanos(nanos));
+        }
+        return errorRate > 0 && random.nextDouble() < errorRate;
+    }
+
+    @Override
+    public String toString() {
+        return latency.toMillis() + " ms + 0-" + jitter.toMillis() + " ms, " + errorRate * 100 + "% errors";
+    }
+}
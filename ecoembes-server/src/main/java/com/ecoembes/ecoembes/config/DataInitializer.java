@@ -2,20 +2,32 @@ package com.ecoembes.ecoembes.config;
 
 import com.ecoembes.ecoembes.domain.Dumpster;
 import com.ecoembes.ecoembes.domain.Employee;
+import com.ecoembes.ecoembes.domain.FillLevel;
+import com.ecoembes.ecoembes.domain.GeoPoint;
 import com.ecoembes.ecoembes.domain.Plant;
 import com.ecoembes.ecoembes.domain.Usage;
 import com.ecoembes.ecoembes.repository.DumpsterRepository;
 import com.ecoembes.ecoembes.repository.EmployeeRepository;
 import com.ecoembes.ecoembes.repository.PlantRepository;
 import com.ecoembes.ecoembes.repository.UsageRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.boot.CommandLineRunner;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
 
 import java.time.LocalDate;
 
+/**
+ * Seeds the small demo data set into an empty database. The {@code perf} profile replaces it with
+ * {@link PerfDataGenerator}.
+ */
 @Component
+@Profile("!perf")
 public class DataInitializer implements CommandLineRunner {
 
+    private static final Logger log = LoggerFactory.getLogger(DataInitializer.class);
+
     private final EmployeeRepository employeeRepository;
     private final PlantRepository plantRepository;
     private final DumpsterRepository dumpsterRepository;
@@ -31,11 +43,16 @@ public class DataInitializer implements CommandLineRunner {
 
     @Override
     public void run(String... args) {
+        // A file-backed database (prod profile) keeps the data of earlier runs
+        if (employeeRepository.count() > 0) {
+            log.info("Database already contains data, skipping sample data");
+            return;
+        }
         initializeEmployees();
         initializePlants();
         initializeDumpsters();
         initializeUsageData();
-        System.out.println("=== Database initialized with sample data ===");
+        log.info("Database initialized with sample data");
     }
 
     private void initializeEmployees() {
@@ -45,51 +62,56 @@ public class DataInitializer implements CommandLineRunner {
         employeeRepository.save(admin);
         employeeRepository.save(employee);
 
-        System.out.println("Initialized 2 employees");
+        log.info("Initialized 2 employees");
     }
 
     private void initializePlants() {
         Plant plassb = new Plant("PLASSB-01", "PlasSB Ltd.", 85.0, "PLASTIC", "PlasSB");
         plassb.setHost("localhost");
         plassb.setPort(8083);
+        plassb.setPosition(new GeoPoint(43.2950, -2.9880));
         Plant contsocket = new Plant("CONTSO-01", "ContSocket Ltd.", 80.5, "GENERAL", "ContSocket");
         contsocket.setHost("localhost");
         contsocket.setPort(9090);
+        contsocket.setPosition(new GeoPoint(43.2300, -2.8900));
 
         plantRepository.save(plassb);
         plantRepository.save(contsocket);
 
-        System.out.println("Initialized 2 plants");
+        log.info("Initialized 2 plants");
     }
 
     private void initializeDumpsters() {
         Dumpster d1 = new Dumpster("D-123", "Deusto, Bilbao 48007", "48007", 5000.0);
-        d1.updateStatus("green", 10);
+        d1.updateStatus(FillLevel.GREEN, 10);
+        d1.setPosition(new GeoPoint(43.2714, -2.9466));
 
         Dumpster d2 = new Dumpster("D-456", "Indautxu, Bilbao 48011", "48011", 4500.0);
-        d2.updateStatus("orange", 400);
+        d2.updateStatus(FillLevel.ORANGE, 400);
+        d2.setPosition(new GeoPoint(43.2614, -2.9415));
 
         Dumpster d3 = new Dumpster("D-789", "Santutxu, Bilbao 48004", "48004", 6000.0);
-        d3.updateStatus("green", 5);
+        d3.updateStatus(FillLevel.GREEN, 5);
+        d3.setPosition(new GeoPoint(43.2533, -2.9180));
 
         dumpsterRepository.save(d1);
         dumpsterRepository.save(d2);
         dumpsterRepository.save(d3);
 
-        System.out.println("Initialized 3 dumpsters");
+        log.info("Initialized 3 dumpsters");
     }
 
     private void initializeUsageData() {
         Dumpster d1 = dumpsterRepository.findById("D-123").orElseThrow();
         Dumpster d2 = dumpsterRepository.findById("D-456").orElseThrow();
 
-        usageRepository.save(new Usage(d1, LocalDate.of(2025, 11, 6), "green", 10));
-        usageRepository.save(new Usage(d1, LocalDate.of(2025, 11, 7), "green", 20));
-        usageRepository.save(new Usage(d1, LocalDate.of(2025, 11, 8), "orange", 300));
+        usageRepository.save(new Usage(d1, LocalDate.of(2025, 11, 6), FillLevel.GREEN, 10));
+        usageRepository.save(new Usage(d1, LocalDate.of(2025, 11, 7), FillLevel.GREEN, 20));
+        usageRepository.save(new Usage(d1, LocalDate.of(2025, 11, 8), FillLevel.ORANGE, 300));
 
-        usageRepository.save(new Usage(d2, LocalDate.of(2025, 11, 6), "orange", 400));
-        usageRepository.save(new Usage(d2, LocalDate.of(2025, 11, 7), "red", 1000));
+        usageRepository.save(new Usage(d2, LocalDate.of(2025, 11, 6), FillLevel.ORANGE, 400));
+        usageRepository.save(new Usage(d2, LocalDate.of(2025, 11, 7), FillLevel.RED, 1000));
 
-        System.out.println("Initialized usage history with 5 records");
+        log.info("Initialized usage history with 5 records");
     }
 }
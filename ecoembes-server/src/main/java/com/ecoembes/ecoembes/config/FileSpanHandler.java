@@ -0,0 +1,135 @@
+package com.ecoembes.ecoembes.config;
+
+import brave.handler.MutableSpan;
+import brave.handler.SpanHandler;
+import brave.propagation.TraceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Span exporter that appends every finished span as one JSON line to a local file.
+ * Spans are queued and written by a background thread so request threads never touch the disk;
+ * when the queue is full new spans are dropped.
+ * <p>
+ * The services are separate builds with no shared module, so each has its own copy of this class; change them
+ * together. The ContSocket server has no Spring or Brave and writes the same line format itself.
+ */
+public class FileSpanHandler extends SpanHandler implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(FileSpanHandler.class);
+
+    private final Path file;
+    private final BlockingQueue<String> queue = new ArrayBlockingQueue<>(8192);
+    private final Thread writer;
+
+    public FileSpanHandler(Path file) {
+        this.file = file;
+        this.writer = new Thread(this::drain, "span-file-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    @Override
+    public boolean end(TraceContext context, MutableSpan span, Cause cause) {
+        if (cause == Cause.FINISHED) {
+            queue.offer(toJson(span));
+        }
+        return true;
+    }
+
+    @Override
+    public void destroy() {
+        writer.interrupt();
+    }
+
+    private void drain() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                String line = queue.take();
+                try (BufferedWriter out = open()) {
+                    do {
+                        out.write(line);
+                        out.newLine();
+                    } while ((line = queue.poll()) != null);
+                } catch (IOException e) {
+                    log.warn("Could not write spans to {}: {}", file, e.getMessage());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private BufferedWriter open() throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        return Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    static String toJson(MutableSpan span) {
+        StringBuilder json = new StringBuilder(256).append('{');
+        field(json, "traceId", span.traceId()).append(',');
+        field(json, "spanId", span.id()).append(',');
+        if (span.parentId() != null) {
+            field(json, "parentId", span.parentId()).append(',');
+        }
+        field(json, "service", span.localServiceName()).append(',');
+        field(json, "name", span.name()).append(',');
+        if (span.kind() != null) {
+            field(json, "kind", span.kind().name()).append(',');
+        }
+        json.append("\"startMicros\":").append(span.startTimestamp()).append(',');
+        json.append("\"durationMicros\":").append(span.finishTimestamp() - span.startTimestamp());
+        if (span.error() != null) {
+            json.append(',');
+            field(json, "error", String.valueOf(span.error().getMessage()));
+        }
+        json.append(",\"tags\":{");
+        int[] count = {0};
+        span.forEachTag((target, key, value) -> {
+            if (count[0]++ > 0) {
+                target.append(',');
+            }
+            field(target, key, value);
+        }, json);
+        return json.append("}}").toString();
+    }
+
+    private static StringBuilder field(StringBuilder json, String key, String value) {
+        json.append('"').append(key).append("\":");
+        if (value == null) {
+            return json.append("null");
+        }
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> json.append("\\\"");
+                case '\\' -> json.append("\\\\");
+                case '\n' -> json.append("\\n");
+                case '\r' -> json.append("\\r");
+                case '\t' -> json.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+                }
+            }
+        }
+        return json.append('"');
+    }
+}
@@ -0,0 +1,351 @@
+package com.ecoembes.ecoembes.config;
+
+import com.ecoembes.ecoembes.domain.FillLevel;
+import com.ecoembes.ecoembes.repository.UsagePartitions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Seeds a large synthetic fleet for performance work in place of {@link DataInitializer} when the {@code perf}
+ * profile is active. Keeps the two demo employees and the PLASSB-01 and CONTSO-01 plants, then adds operators,
+ * plants, dumpsters spread unevenly over postal codes, a daily usage history per dumpster and years of assignments.
+ * <p>
+ * Each dumpster fills at its own daily rate and is emptied once it is nearly full, so its usage history is a
+ * sawtooth and the fleet's fill levels are spread the way a real collection round leaves them. Everything is drawn
+ * from {@code perf.data.seed}, per dumpster, so the same settings always produce the same data. Rows bypass JPA and
+ * go in through batched JDBC inserts, with the usage history split across {@code perf.data.threads} connections and
+ * written straight into its monthly partitions. A database that already has data, such as the file database of an
+ * earlier run, is left as it is.
+ */
+@Component
+@Profile("perf")
+public class PerfDataGenerator implements CommandLineRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(PerfDataGenerator.class);
+
+    private static final int BATCH_SIZE = 5_000;
+    private static final double[] DUMPSTER_CAPACITIES = {3000.0, 4500.0, 5000.0, 6000.0, 7500.0};
+    // One container weighs about 5 kg, and a dumpster is emptied once it passes this share of its capacity
+    private static final double KG_PER_CONTAINER = 5.0;
+    private static final double COLLECTION_THRESHOLD = 0.85;
+    // Dumpsters are scattered over the city around this point, plants over the wider area
+    private static final double BILBAO_LATITUDE = 43.263;
+    private static final double BILBAO_LONGITUDE = -2.935;
+
+    private final DataSource dataSource;
+    private final UsagePartitions usagePartitions;
+    private final int employees;
+    private final int plants;
+    private final int postalCodes;
+    private final int dumpsters;
+    private final int usageDays;
+    private final int assignmentDays;
+    private final int assignmentsPerDay;
+    private final long seed;
+    private final int threads;
+
+    public PerfDataGenerator(DataSource dataSource, UsagePartitions usagePartitions,
+                             @Value("${perf.data.employees:50}") int employees,
+                             @Value("${perf.data.plants:200}") int plants,
+                             @Value("${perf.data.postal-codes:1000}") int postalCodes,
+                             @Value("${perf.data.dumpsters:100000}") int dumpsters,
+                             @Value("${perf.data.usage-days:30}") int usageDays,
+                             @Value("${perf.data.assignment-days:730}") int assignmentDays,
+                             @Value("${perf.data.assignments-per-day:200}") int assignmentsPerDay,
+                             @Value("${perf.data.seed:42}") long seed,
+                             @Value("${perf.data.threads:0}") int threads) {
+        this.dataSource = dataSource;
+        this.usagePartitions = usagePartitions;
+        this.employees = employees;
+        this.plants = Math.max(2, plants);
+        this.postalCodes = Math.max(1, postalCodes);
+        this.dumpsters = dumpsters;
+        this.usageDays = usageDays;
+        this.assignmentDays = assignmentDays;
+        this.assignmentsPerDay = assignmentsPerDay;
+        this.seed = seed;
+        this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+    }
+
+    @Override
+    public void run(String... args) throws Exception {
+        long start = System.nanoTime();
+        LocalDate today = LocalDate.now();
+        try (Connection connection = dataSource.getConnection()) {
+            if (hasEmployees(connection)) {
+                log.info("Database already contains data, skipping perf data");
+                return;
+            }
+            connection.setAutoCommit(false);
+            insertEmployees(connection);
+            insertPlants(connection);
+            insertDumpsters(connection, today);
+        }
+        long usageRows = insertUsageHistory(today);
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            insertAssignments(connection, today);
+        }
+        log.info("Perf data generated in {} ms: {} employees, {} plants, {} dumpsters over {} postal codes, {} usage rows, {} assignments",
+                (System.nanoTime() - start) / 1_000_000, employees + 2, plants, dumpsters, postalCodes, usageRows,
+                (long) assignmentDays * assignmentsPerDay);
+    }
+
+    private static boolean hasEmployees(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet rows = statement.executeQuery("SELECT COUNT(*) FROM employees")) {
+            return rows.next() && rows.getLong(1) > 0;
+        }
+    }
+
+    private void insertEmployees(Connection connection) throws SQLException {
+        try (Batch batch = new Batch(connection, "INSERT INTO employees (employee_id, name, email, password) VALUES (?, ?, ?, ?)")) {
+            batch.add("E001", "Admin User", "admin@ecoembes.com", "password123");
+            batch.add("E002", "Jane Doe", "employee@ecoembes.com", "pass");
+            for (int i = 1; i <= employees; i++) {
+                batch.add(employeeId(i), "Operator " + i, "operator" + i + "@ecoembes.com", "pass");
+            }
+        }
+    }
+
+    private void insertPlants(Connection connection) throws SQLException {
+        SplittableRandom random = new SplittableRandom(seed);
+        try (Batch batch = new Batch(connection, "INSERT INTO plants (plant_id, name, available_capacity, type, host, port, "
+                + "gateway_type, http2, latitude, longitude, total_containers_received) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, 0)")) {
+            for (int i = 0; i < plants; i++) {
+                // Even plants are served by PlasSB, odd ones by ContSocket; the first two are the demo plants
+                boolean plasSB = i % 2 == 0;
+                double capacity = i < 2 ? (plasSB ? 85.0 : 80.5) : 40.0 + random.nextInt(1600) / 10.0;
+                double latitude = i < 2 ? (plasSB ? 43.2950 : 43.2300) : BILBAO_LATITUDE + (random.nextDouble() - 0.5) * 0.3;
+                double longitude = i < 2 ? (plasSB ? -2.9880 : -2.8900) : BILBAO_LONGITUDE + (random.nextDouble() - 0.5) * 0.4;
+                batch.add(plantId(i), (plasSB ? "PlasSB" : "ContSocket") + " Ltd. " + (i / 2 + 1), capacity,
+                        plasSB ? "PLASTIC" : "GENERAL", "localhost", plasSB ? 8083 : 9090, plasSB ? "PlasSB" : "ContSocket", false,
+                        latitude, longitude);
+            }
+        }
+    }
+
+    private void insertDumpsters(Connection connection, LocalDate today) throws SQLException {
+        Timestamp createdAt = Timestamp.valueOf(today.minusDays(usageDays).atStartOfDay());
+        try (Batch batch = new Batch(connection, "INSERT INTO dumpsters (dumpster_id, location, postal_code, capacity, "
+                + "fill_level, containers_number, created_at, latitude, longitude) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)")) {
+            for (int i = 0; i < dumpsters; i++) {
+                Fill fill = new Fill(new SplittableRandom(seed ^ (i * 0x9E3779B97F4A7C15L)));
+                for (int day = 0; day < usageDays; day++) {
+                    fill.nextDay();
+                }
+                String postalCode = postalCode(fill.random);
+                batch.add(dumpsterId(i), "Street " + (fill.random.nextInt(200) + 1) + ", Bilbao " + postalCode, postalCode,
+                        fill.capacityKg, fill.level(), fill.containers, createdAt,
+                        BILBAO_LATITUDE + (fill.random.nextDouble() - 0.5) * 0.1,
+                        BILBAO_LONGITUDE + (fill.random.nextDouble() - 0.5) * 0.14);
+            }
+        }
+    }
+
+    /**
+     * Replays every dumpster's fill history day by day, each worker thread on its own slice of dumpsters and its own
+     * connection.
+     */
+    private long insertUsageHistory(LocalDate today) throws Exception {
+        if (usageDays == 0 || dumpsters == 0) {
+            return 0;
+        }
+        LocalDate first = today.minusDays(usageDays - 1);
+        for (YearMonth month = YearMonth.from(first); !month.isAfter(YearMonth.from(today)); month = month.plusMonths(1)) {
+            usagePartitions.ensure(month);
+        }
+        int slice = (dumpsters + threads - 1) / threads;
+        List<Future<Long>> slices = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(threads)) {
+            for (int from = 0; from < dumpsters; from += slice) {
+                int sliceStart = from;
+                int sliceEnd = Math.min(dumpsters, from + slice);
+                slices.add(executor.submit(() -> insertUsageHistory(first, sliceStart, sliceEnd)));
+            }
+        }
+        long rows = 0;
+        for (Future<Long> future : slices) {
+            rows += future.get();
+        }
+        return rows;
+    }
+
+    private long insertUsageHistory(LocalDate first, int from, int to) throws SQLException {
+        Fill[] fills = new Fill[to - from];
+        for (int i = from; i < to; i++) {
+            fills[i - from] = new Fill(new SplittableRandom(seed ^ (i * 0x9E3779B97F4A7C15L)));
+        }
+        long rows = 0;
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            // Day by day, so the rows of one monthly partition go in through one statement
+            Batch batch = null;
+            YearMonth month = null;
+            try {
+                for (int day = 0; day < usageDays; day++) {
+                    LocalDate date = first.plusDays(day);
+                    if (!YearMonth.from(date).equals(month)) {
+                        if (batch != null) {
+                            batch.close();
+                        }
+                        month = YearMonth.from(date);
+                        batch = new Batch(connection, "INSERT INTO " + UsagePartitions.table(month) + " (id, dumpster_id, date, "
+                                + "fill_level, containers_count, recorded_at) VALUES (NEXT VALUE FOR usage_history_seq, ?, ?, ?, ?, ?)");
+                    }
+                    for (int i = from; i < to; i++) {
+                        Fill fill = fills[i - from];
+                        fill.nextDay();
+                        batch.add(dumpsterId(i), Date.valueOf(date), fill.level(), fill.containers, Timestamp.valueOf(date.atTime(22, 0)));
+                        rows++;
+                    }
+                }
+            } finally {
+                if (batch != null) {
+                    batch.close();
+                }
+            }
+        }
+        return rows;
+    }
+
+    private void insertAssignments(Connection connection, LocalDate today) throws SQLException {
+        if (dumpsters == 0) {
+            return;
+        }
+        SplittableRandom random = new SplittableRandom(seed + 1);
+        long[] containersPerPlant = new long[plants];
+        try (Batch batch = new Batch(connection, "INSERT INTO assignments (plant_id, dumpster_id, employee_id, assignment_date, "
+                + "created_at, status, assigned_containers) VALUES (?, ?, ?, ?, ?, 'PENDING', ?)")) {
+            for (int day = assignmentDays - 1; day >= 0; day--) {
+                LocalDate date = today.minusDays(day);
+                for (int n = 0; n < assignmentsPerDay; n++) {
+                    int plant = random.nextInt(plants);
+                    int containers = 100 + random.nextInt(900);
+                    containersPerPlant[plant] += containers;
+                    batch.add(plantId(plant), dumpsterId(random.nextInt(dumpsters)),
+                            employees > 0 ? employeeId(1 + random.nextInt(employees)) : "E001", Date.valueOf(date),
+                            Timestamp.valueOf(date.atTime(6 + random.nextInt(12), random.nextInt(60))), containers);
+                }
+            }
+        }
+        try (Batch batch = new Batch(connection, "UPDATE plants SET total_containers_received = ? WHERE plant_id = ?")) {
+            for (int i = 0; i < plants; i++) {
+                batch.add(containersPerPlant[i], plantId(i));
+            }
+        }
+    }
+
+    /**
+     * Postal codes from 48001 up; lower codes (the city centre) get more dumpsters than the outskirts.
+     */
+    private String postalCode(SplittableRandom random) {
+        double u = random.nextDouble();
+        return String.valueOf(48001 + (int) (postalCodes * u * u));
+    }
+
+    private static String plantId(int index) {
+        return String.format("%s-%02d", index % 2 == 0 ? "PLASSB" : "CONTSO", index / 2 + 1);
+    }
+
+    private static String dumpsterId(int index) {
+        return String.format("D-P%07d", index);
+    }
+
+    private static String employeeId(int index) {
+        return String.format("E%04d", index + 2);
+    }
+
+    /**
+     * One dumpster's fill state. Busy dumpsters fill several times faster than quiet ones, and a dumpster past
+     * {@link #COLLECTION_THRESHOLD} is emptied overnight, leaving a little behind.
+     */
+    private static final class Fill {
+
+        final SplittableRandom random;
+        final double capacityKg;
+        final int fullContainers;
+        final double dailyRate;
+        int containers;
+
+        Fill(SplittableRandom random) {
+            this.random = random;
+            this.capacityKg = DUMPSTER_CAPACITIES[random.nextInt(DUMPSTER_CAPACITIES.length)];
+            this.fullContainers = (int) (capacityKg / KG_PER_CONTAINER);
+            // Log-normal share of the dumpster filled per day, median 8%
+            this.dailyRate = 0.08 * Math.exp(0.6 * random.nextGaussian());
+            this.containers = random.nextInt(fullContainers / 2);
+        }
+
+        void nextDay() {
+            if (containers > fullContainers * COLLECTION_THRESHOLD) {
+                containers = random.nextInt(Math.max(1, fullContainers / 50));
+            }
+            // Daily variation around the dumpster's own rate; weekends and holidays are not modelled
+            double added = fullContainers * dailyRate * (0.5 + random.nextDouble());
+            containers = Math.min(fullContainers, containers + (int) added);
+        }
+
+        byte level() {
+            double share = (double) containers / fullContainers;
+            return (share < 0.3 ? FillLevel.GREEN : share < 0.7 ? FillLevel.ORANGE : FillLevel.RED).code();
+        }
+    }
+
+    /**
+     * A prepared statement that sends its rows in batches of {@value #BATCH_SIZE} and commits when closed.
+     */
+    private static final class Batch implements AutoCloseable {
+
+        private final Connection connection;
+        private final PreparedStatement statement;
+        private int pending;
+
+        Batch(Connection connection, String sql) throws SQLException {
+            this.connection = connection;
+            this.statement = connection.prepareStatement(sql);
+        }
+
+        void add(Object... values) throws SQLException {
+            for (int i = 0; i < values.length; i++) {
+                statement.setObject(i + 1, values[i]);
+            }
+            statement.addBatch();
+            if (++pending == BATCH_SIZE) {
+                statement.executeBatch();
+                pending = 0;
+            }
+        }
+
+        @Override
+        public void close() throws SQLException {
+            try (statement) {
+                if (pending > 0) {
+                    statement.executeBatch();
+                }
+                connection.commit();
+            }
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.ecoembes.ecoembes.config;
+
+import com.ecoembes.ecoembes.domain.FillLevel;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.format.FormatterRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+    /**
+     * Reads fill levels in request parameters by their lower-case names, as the JSON bodies do, so an unknown one
+     * is a 400.
+     */
+    @Override
+    public void addFormatters(FormatterRegistry registry) {
+        registry.addConverter(String.class, FillLevel.class, FillLevel::of);
+    }
+}
@@ -14,6 +14,10 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.PositiveOrZero;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -91,6 +95,7 @@ public class EcoembesControler {
     @Operation(summary = "Create a new dumpster")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "201", description = "Dumpster created successfully", content = @Content(mediaType = "application/json", schema = @Schema(implementation = DumpsterStatusDTO.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid data, or only one of latitude and longitude"),
             @ApiResponse(responseCode = "401", description = "Invalid token")
     })
     @PostMapping("/dumpsters")
@@ -99,7 +104,12 @@ public class EcoembesControler {
             @Valid @RequestBody NewDumpsterDTO newDumpster
     ) {
         validate(token);
-        com.ecoembes.ecoembes.domain.Dumpster dumpster = dumpsterService.createNewDumpster(newDumpster.location(), newDumpster.initialCapacity());
+        if ((newDumpster.latitude() == null) != (newDumpster.longitude() == null)) {
+            return ResponseEntity.badRequest().build();
+        }
+        com.ecoembes.ecoembes.domain.GeoPoint position = newDumpster.latitude() == null ? null
+                : new com.ecoembes.ecoembes.domain.GeoPoint(newDumpster.latitude(), newDumpster.longitude());
+        com.ecoembes.ecoembes.domain.Dumpster dumpster = dumpsterService.createNewDumpster(newDumpster.location(), newDumpster.initialCapacity(), position);
         DumpsterStatusDTO dto = new DumpsterStatusDTO(
                 dumpster.getDumpsterId(),
                 dumpster.getLocation(),
@@ -160,6 +170,85 @@ public class EcoembesControler {
         return ResponseEntity.ok(statusList);
     }
 
+    @Operation(summary = "Find dumpsters at or above a fill level, for collection planning")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Dumpsters at the fill level or fuller, fullest first"),
+            @ApiResponse(responseCode = "400", description = "Unknown fill level"),
+            @ApiResponse(responseCode = "401", description = "Invalid token")
+    })
+    @GetMapping("/dumpsters/full")
+    public ResponseEntity<List<DumpsterStatusDTO>> getFullDumpsters(
+            @Parameter(description = "Session token received at login") @RequestHeader("Authorization") String token,
+            @Parameter(description = "Lowest fill level to return: green, orange or red") @RequestParam(defaultValue = "orange") com.ecoembes.ecoembes.domain.FillLevel minFillLevel,
+            @Parameter(description = "Postal codes to search; all of them if omitted") @RequestParam(required = false) List<String> postalCodes
+    ) {
+        validate(token);
+        List<com.ecoembes.ecoembes.domain.Dumpster> dumpsters = dumpsterService.getDumpstersToCollect(minFillLevel, postalCodes);
+        List<DumpsterStatusDTO> statusList = dumpsters.stream()
+                .map(d -> new DumpsterStatusDTO(
+                        d.getDumpsterId(),
+                        d.getLocation(),
+                        d.getFillLevel(),
+                        d.getContainersNumber()
+                ))
+                .collect(java.util.stream.Collectors.toList());
+        return ResponseEntity.ok(statusList);
+    }
+
+    @Operation(summary = "Find dumpsters within a radius of a point")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Dumpsters with a known position within the radius, nearest first"),
+            @ApiResponse(responseCode = "400", description = "Invalid position or radius"),
+            @ApiResponse(responseCode = "401", description = "Invalid token")
+    })
+    @GetMapping("/dumpsters/nearby")
+    public ResponseEntity<List<DumpsterLocationDTO>> getDumpstersNearby(
+            @Parameter(description = "Session token received at login") @RequestHeader("Authorization") String token,
+            @Parameter(description = "Latitude of the center, in degrees", required = true) @RequestParam @DecimalMin("-90") @DecimalMax("90") double latitude,
+            @Parameter(description = "Longitude of the center, in degrees", required = true) @RequestParam @DecimalMin("-180") @DecimalMax("180") double longitude,
+            @Parameter(description = "Radius in meters") @RequestParam(defaultValue = "500") @Positive double radiusMeters
+    ) {
+        validate(token);
+        com.ecoembes.ecoembes.domain.GeoPoint center = new com.ecoembes.ecoembes.domain.GeoPoint(latitude, longitude);
+        List<DumpsterLocationDTO> dumpsters = dumpsterService.getDumpstersNear(center, radiusMeters).stream()
+                .map(d -> toLocationDTO(d, center.distanceTo(d.getPosition())))
+                .collect(java.util.stream.Collectors.toList());
+        return ResponseEntity.ok(dumpsters);
+    }
+
+    @Operation(summary = "Find dumpsters inside a polygon")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Dumpsters with a known position inside the polygon"),
+            @ApiResponse(responseCode = "400", description = "Fewer than 3 vertices or an invalid position"),
+            @ApiResponse(responseCode = "401", description = "Invalid token")
+    })
+    @PostMapping("/dumpsters/within")
+    public ResponseEntity<List<DumpsterLocationDTO>> getDumpstersWithin(
+            @Parameter(description = "Session token received at login") @RequestHeader("Authorization") String token,
+            @Valid @RequestBody AreaQueryDTO area
+    ) {
+        validate(token);
+        List<com.ecoembes.ecoembes.domain.GeoPoint> polygon = area.polygon().stream()
+                .map(p -> new com.ecoembes.ecoembes.domain.GeoPoint(p.latitude(), p.longitude()))
+                .toList();
+        List<DumpsterLocationDTO> dumpsters = dumpsterService.getDumpstersWithin(polygon).stream()
+                .map(d -> toLocationDTO(d, null))
+                .collect(java.util.stream.Collectors.toList());
+        return ResponseEntity.ok(dumpsters);
+    }
+
+    private static DumpsterLocationDTO toLocationDTO(com.ecoembes.ecoembes.domain.Dumpster dumpster, Double distanceMeters) {
+        return new DumpsterLocationDTO(
+                dumpster.getDumpsterId(),
+                dumpster.getLocation(),
+                dumpster.getFillLevel(),
+                dumpster.getContainersNumber(),
+                dumpster.getLatitude(),
+                dumpster.getLongitude(),
+                distanceMeters
+        );
+    }
+
     @Operation(summary = "Query dumpster usage over a time period")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Successfully retrieved dumpster usage data"),
@@ -238,11 +327,66 @@ public class EcoembesControler {
         return ResponseEntity.ok(capacityList);
     }
 
+    @Operation(summary = "Find the closest recycling plant with enough capacity left")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "The closest plant with the capacity", content = @Content(mediaType = "application/json", schema = @Schema(implementation = NearestPlantDTO.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid position or capacity"),
+            @ApiResponse(responseCode = "401", description = "Invalid token"),
+            @ApiResponse(responseCode = "404", description = "No plant with a known position has the capacity")
+    })
+    @GetMapping("/plants/nearest")
+    public ResponseEntity<NearestPlantDTO> getNearestPlant(
+            @Parameter(description = "Session token received at login") @RequestHeader("Authorization") String token,
+            @Parameter(description = "Latitude, in degrees", required = true) @RequestParam @DecimalMin("-90") @DecimalMax("90") double latitude,
+            @Parameter(description = "Longitude, in degrees", required = true) @RequestParam @DecimalMin("-180") @DecimalMax("180") double longitude,
+            @Parameter(description = "Date the capacity is needed (YYYY-MM-DD); today if omitted") @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+            @Parameter(description = "Capacity needed, in tons") @RequestParam(defaultValue = "0") @PositiveOrZero double requiredTons,
+            @Parameter(description = "Optional plant type, e.g. PLASTIC") @RequestParam(required = false) String type
+    ) {
+        validate(token);
+        com.ecoembes.ecoembes.domain.GeoPoint position = new com.ecoembes.ecoembes.domain.GeoPoint(latitude, longitude);
+        return plantService.findNearestPlantWithCapacity(position, date, requiredTons, type)
+                .map(n -> ResponseEntity.ok(new NearestPlantDTO(
+                        n.plant().getPlantId(),
+                        n.plant().getName(),
+                        n.plant().getType(),
+                        n.capacityTons(),
+                        n.plant().getLatitude(),
+                        n.plant().getLongitude(),
+                        n.distanceMeters()
+                )))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    @Operation(summary = "Get circuit breaker state per recycling plant")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved breaker states"),
+            @ApiResponse(responseCode = "401", description = "Invalid token")
+    })
+    @GetMapping("/plants/breakers")
+    public ResponseEntity<List<PlantBreakerStatusDTO>> getPlantBreakerStatus(
+            @Parameter(description = "Session token received at login") @RequestHeader("Authorization") String token
+    ) {
+        validate(token);
+        List<PlantBreakerStatusDTO> statusList = plantService.getBreakerStatus().stream()
+                .map(s -> new PlantBreakerStatusDTO(
+                        s.plantId(),
+                        s.state(),
+                        s.failureRate(),
+                        s.bufferedCalls(),
+                        s.notPermittedCalls(),
+                        s.availableConcurrentCalls(),
+                        s.timeoutMillis()
+                ))
+                .collect(java.util.stream.Collectors.toList());
+        return ResponseEntity.ok(statusList);
+    }
 
     @Operation(summary = "Assign one or more dumpsters to a recycling plant")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Dumpsters assigned successfully", content = @Content(mediaType = "application/json", schema = @Schema(implementation = AssignmentResponseDTO.class))),
-            @ApiResponse(responseCode = "401", description = "Invalid token")
+            @ApiResponse(responseCode = "401", description = "Invalid token"),
+            @ApiResponse(responseCode = "409", description = "The plant has no capacity left for these containers on that date")
     })
     @PostMapping("/plants/assign")
     public ResponseEntity<AssignmentResponseDTO> assignDumpstersToPlant(
@@ -257,13 +401,42 @@ public class EcoembesControler {
                 assignment.date()
         );
 
-        // Convert domain to DTO
+        return ResponseEntity.ok(toResponseDTO(assignments));
+    }
+
+    @Operation(summary = "Spread dumpsters over the recycling plants automatically",
+            description = "Assigns each dumpster to a close plant with room for its containers on the date, as reported by the plants")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Dumpsters assigned; those no plant had room for are listed as unassigned", content = @Content(mediaType = "application/json", schema = @Schema(implementation = AssignmentPlanDTO.class))),
+            @ApiResponse(responseCode = "401", description = "Invalid token"),
+            @ApiResponse(responseCode = "409", description = "A plant refused its share; nothing was assigned")
+    })
+    @PostMapping("/plants/assign/optimized")
+    public ResponseEntity<AssignmentPlanDTO> assignDumpstersOptimized(
+            @Parameter(description = "Session token received at login") @RequestHeader("Authorization") String token,
+            @Valid @RequestBody OptimizeAssignmentDTO request
+    ) {
+        com.ecoembes.ecoembes.domain.Employee employee = validate(token);
+        PlantService.AssignmentPlan plan = plantService.assignOptimized(
+                employee.getEmployeeId(),
+                request.dumpsterIDs(),
+                request.date(),
+                request.type()
+        );
+
+        List<AssignmentResponseDTO> assignments = plan.assignmentsByPlant().values().stream()
+                .map(EcoembesControler::toResponseDTO)
+                .collect(java.util.stream.Collectors.toList());
+        return ResponseEntity.ok(new AssignmentPlanDTO(assignments, plan.unassignedDumpsterIds(), plan.totalDistanceMeters()));
+    }
+
+    private static AssignmentResponseDTO toResponseDTO(List<com.ecoembes.ecoembes.domain.Assignment> assignments) {
         com.ecoembes.ecoembes.domain.Assignment firstAssignment = assignments.get(0);
         List<String> dumpsterIds = assignments.stream()
                 .map(a -> a.getDumpster().getDumpsterId())
                 .collect(java.util.stream.Collectors.toList());
 
-        AssignmentResponseDTO response = new AssignmentResponseDTO(
+        return new AssignmentResponseDTO(
                 firstAssignment.getEmployee().getEmployeeId(),
                 firstAssignment.getEmployee().getName(),
                 firstAssignment.getPlant().getPlantId(),
@@ -271,7 +444,5 @@ public class EcoembesControler {
                 firstAssignment.getAssignmentDate().toString(),
                 firstAssignment.getStatus()
         );
-
-        return ResponseEntity.ok(response);
     }
 }
\ No newline at end of file
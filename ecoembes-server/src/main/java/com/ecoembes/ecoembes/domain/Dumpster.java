@@ -6,7 +6,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "dumpsters")
+@Table(name = "dumpsters", indexes = @Index(name = "idx_dumpsters_fill_level_postal_code", columnList = "fill_level, postal_code"))
 public class Dumpster {
 
     @Id
@@ -22,7 +22,7 @@ public class Dumpster {
     private Double capacity;
 
     @Column(nullable = false)
-    private String fillLevel;
+    private FillLevel fillLevel;
 
     @Column(nullable = false)
     private Integer containersNumber;
@@ -30,8 +30,10 @@ public class Dumpster {
     @Column(nullable = false)
     private LocalDateTime createdAt;
 
-    @OneToMany(mappedBy = "dumpster", cascade = CascadeType.ALL, orphanRemoval = true)
-    private List<Usage> usageHistory = new ArrayList<>();
+    /** WGS84 position, or null if it is not known. */
+    private Double latitude;
+
+    private Double longitude;
 
     @OneToMany(mappedBy = "dumpster", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<Assignment> assignments = new ArrayList<>();
@@ -43,12 +45,12 @@ public class Dumpster {
         this.location = location;
         this.postalCode = postalCode;
         this.capacity = capacity;
-        this.fillLevel = "green";
+        this.fillLevel = FillLevel.GREEN;
         this.containersNumber = 0;
         this.createdAt = LocalDateTime.now();
     }
 
-    public void updateStatus(String fillLevel, Integer containersNumber) {
+    public void updateStatus(FillLevel fillLevel, Integer containersNumber) {
         this.fillLevel = fillLevel;
         this.containersNumber = containersNumber;
     }
@@ -85,11 +87,11 @@ public class Dumpster {
         this.capacity = capacity;
     }
 
-    public String getFillLevel() {
+    public FillLevel getFillLevel() {
         return fillLevel;
     }
 
-    public void setFillLevel(String fillLevel) {
+    public void setFillLevel(FillLevel fillLevel) {
         this.fillLevel = fillLevel;
     }
 
@@ -109,12 +111,32 @@ public class Dumpster {
         this.createdAt = createdAt;
     }
 
-    public List<Usage> getUsageHistory() {
-        return usageHistory;
+    public Double getLatitude() {
+        return latitude;
+    }
+
+    public void setLatitude(Double latitude) {
+        this.latitude = latitude;
+    }
+
+    public Double getLongitude() {
+        return longitude;
+    }
+
+    public void setLongitude(Double longitude) {
+        this.longitude = longitude;
+    }
+
+    /**
+     * The position, or null if it is not known.
+     */
+    public GeoPoint getPosition() {
+        return latitude == null || longitude == null ? null : new GeoPoint(latitude, longitude);
     }
 
-    public void setUsageHistory(List<Usage> usageHistory) {
-        this.usageHistory = usageHistory;
+    public void setPosition(GeoPoint position) {
+        this.latitude = position == null ? null : position.latitude();
+        this.longitude = position == null ? null : position.longitude();
     }
 
     public List<Assignment> getAssignments() {
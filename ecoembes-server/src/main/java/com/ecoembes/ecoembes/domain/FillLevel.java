@@ -0,0 +1,73 @@
+package com.ecoembes.ecoembes.domain;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
+
+import java.util.EnumSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * How full a dumpster is. Stored as its one-byte {@link #code()} and exchanged as its lower-case name, the
+ * {@code "green"}, {@code "orange"} and {@code "red"} of the API.
+ */
+public enum FillLevel {
+
+    GREEN(0),
+    ORANGE(1),
+    RED(2);
+
+    private static final FillLevel[] BY_CODE = values();
+
+    private final byte code;
+    private final String label;
+
+    FillLevel(int code) {
+        this.code = (byte) code;
+        this.label = name().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * The value stored in the database. Codes are fixed, so constants can be added but never reordered.
+     */
+    public byte code() {
+        return code;
+    }
+
+    @JsonValue
+    public String label() {
+        return label;
+    }
+
+    /**
+     * This fill level and the fuller ones.
+     */
+    public Set<FillLevel> andAbove() {
+        return EnumSet.range(this, RED);
+    }
+
+    public static FillLevel ofCode(byte code) {
+        if (code < 0 || code >= BY_CODE.length) {
+            throw new IllegalArgumentException("Unknown fill level code " + code);
+        }
+        return BY_CODE[code];
+    }
+
+    /**
+     * Parses a fill level name in any case.
+     */
+    @JsonCreator
+    public static FillLevel of(String label) {
+        for (FillLevel level : BY_CODE) {
+            if (level.label.equalsIgnoreCase(label)) {
+                return level;
+            }
+        }
+        throw new IllegalArgumentException("Unknown fill level '" + label + "', expected green, orange or red");
+    }
+
+    @Override
+    public String toString() {
+        return label;
+    }
+}
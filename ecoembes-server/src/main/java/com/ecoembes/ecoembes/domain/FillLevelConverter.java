@@ -0,0 +1,21 @@
+package com.ecoembes.ecoembes.domain;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+/**
+ * Stores a {@link FillLevel} as its one-byte code.
+ */
+@Converter(autoApply = true)
+public class FillLevelConverter implements AttributeConverter<FillLevel, Byte> {
+
+    @Override
+    public Byte convertToDatabaseColumn(FillLevel level) {
+        return level == null ? null : level.code();
+    }
+
+    @Override
+    public FillLevel convertToEntityAttribute(Byte code) {
+        return code == null ? null : FillLevel.ofCode(code);
+    }
+}
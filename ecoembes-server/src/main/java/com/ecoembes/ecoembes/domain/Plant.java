@@ -29,9 +29,18 @@ public class Plant {
     @Column(nullable = true)
     private String gatewayType;
 
+    /** Whether the plant's HTTP gateway should negotiate HTTP/2 instead of pooled HTTP/1.1 keep-alive. */
+    @Column(nullable = false)
+    private boolean http2;
+
     @Column(nullable = false)
     private int totalContainersReceived;
 
+    /** WGS84 position, or null if it is not known. */
+    private Double latitude;
+
+    private Double longitude;
+
     @OneToMany(mappedBy = "plant", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<Assignment> assignments = new ArrayList<>();
 
@@ -78,6 +87,34 @@ public class Plant {
         this.type = type;
     }
 
+    public Double getLatitude() {
+        return latitude;
+    }
+
+    public void setLatitude(Double latitude) {
+        this.latitude = latitude;
+    }
+
+    public Double getLongitude() {
+        return longitude;
+    }
+
+    public void setLongitude(Double longitude) {
+        this.longitude = longitude;
+    }
+
+    /**
+     * The position, or null if it is not known.
+     */
+    public GeoPoint getPosition() {
+        return latitude == null || longitude == null ? null : new GeoPoint(latitude, longitude);
+    }
+
+    public void setPosition(GeoPoint position) {
+        this.latitude = position == null ? null : position.latitude();
+        this.longitude = position == null ? null : position.longitude();
+    }
+
     public List<Assignment> getAssignments() {
         return assignments;
     }
@@ -110,6 +147,14 @@ public class Plant {
         this.gatewayType = gatewayType;
     }
 
+    public boolean isHttp2() {
+        return http2;
+    }
+
+    public void setHttp2(boolean http2) {
+        this.http2 = http2;
+    }
+
     public int getTotalContainersReceived() {
         return totalContainersReceived;
     }
@@ -0,0 +1,149 @@
+package com.ecoembes.ecoembes.domain;
+
+import jakarta.persistence.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Outbox row for a plant notification. Written in the same transaction as the assignments it announces
+ * and delivered afterwards by the dispatcher; the idempotency key lets plants drop redeliveries.
+ */
+@Entity
+@Table(name = "plant_notification_outbox",
+        indexes = @Index(name = "idx_outbox_status_next_attempt", columnList = "status, next_attempt_at"))
+public class PlantNotification {
+
+    public static final String PENDING = "PENDING";
+    public static final String SENT = "SENT";
+    public static final String FAILED = "FAILED";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, unique = true, length = 36)
+    private String idempotencyKey;
+
+    @Column(nullable = false)
+    private String plantId;
+
+    // Unbounded: an optimized assignment can send thousands of dumpsters to one plant
+    @Lob
+    @Column(nullable = false)
+    private String dumpsterIds;
+
+    @Column(nullable = false)
+    private int totalContainers;
+
+    @Column(nullable = false)
+    private LocalDate arrivalDate;
+
+    @Column(nullable = false)
+    private String status;
+
+    @Column(nullable = false)
+    private int attempts;
+
+    @Column(nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(nullable = true)
+    private LocalDateTime sentAt;
+
+    @Column(nullable = true, length = 500)
+    private String lastError;
+
+    protected PlantNotification() {}
+
+    public PlantNotification(String plantId, List<String> dumpsterIds, int totalContainers, LocalDate arrivalDate) {
+        this(UUID.randomUUID().toString(), plantId, dumpsterIds, totalContainers, arrivalDate);
+    }
+
+    /**
+     * Creates a notification with a given key, e.g. the ID of the capacity reservation it confirms.
+     */
+    public PlantNotification(String idempotencyKey, String plantId, List<String> dumpsterIds, int totalContainers, LocalDate arrivalDate) {
+        this.idempotencyKey = idempotencyKey;
+        this.plantId = plantId;
+        this.dumpsterIds = String.join(",", dumpsterIds);
+        this.totalContainers = totalContainers;
+        this.arrivalDate = arrivalDate;
+        this.status = PENDING;
+        this.attempts = 0;
+        this.createdAt = LocalDateTime.now();
+        this.nextAttemptAt = this.createdAt;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getIdempotencyKey() {
+        return idempotencyKey;
+    }
+
+    public String getPlantId() {
+        return plantId;
+    }
+
+    public List<String> getDumpsterIds() {
+        return dumpsterIds.isEmpty() ? List.of() : List.of(dumpsterIds.split(","));
+    }
+
+    public int getTotalContainers() {
+        return totalContainers;
+    }
+
+    public LocalDate getArrivalDate() {
+        return arrivalDate;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public LocalDateTime getNextAttemptAt() {
+        return nextAttemptAt;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public LocalDateTime getSentAt() {
+        return sentAt;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public void markSent(LocalDateTime now) {
+        this.attempts++;
+        this.status = SENT;
+        this.sentAt = now;
+        this.lastError = null;
+    }
+
+    /**
+     * Records a failed attempt, scheduling the next one or giving up once the attempts are used up.
+     */
+    public void markFailed(String error, LocalDateTime retryAt, int maxAttempts) {
+        this.attempts++;
+        this.lastError = error != null && error.length() > 500 ? error.substring(0, 500) : error;
+        if (attempts >= maxAttempts) {
+            this.status = FAILED;
+        } else {
+            this.nextAttemptAt = retryAt;
+        }
+    }
+}
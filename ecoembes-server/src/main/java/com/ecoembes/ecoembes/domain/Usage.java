@@ -1,36 +1,22 @@
 package com.ecoembes.ecoembes.domain;
 
-import jakarta.persistence.*;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 
-@Entity
-@Table(name = "usage_history")
+/**
+ * A reading of a dumpster's fill level. Not a JPA entity: readings are stored in monthly partitions by
+ * {@link com.ecoembes.ecoembes.repository.UsageRepository}.
+ */
 public class Usage {
 
-    @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
-
-    @ManyToOne(fetch = FetchType.EAGER)
-    @JoinColumn(name = "dumpster_id", nullable = false)
     private Dumpster dumpster;
-
-    @Column(nullable = false)
     private LocalDate date;
-
-    @Column(nullable = false)
-    private String fillLevel;
-
-    @Column(nullable = false)
+    private FillLevel fillLevel;
     private Integer containersCount;
-
-    @Column(nullable = false)
     private LocalDateTime recordedAt;
 
-    protected Usage() {}
-
-    public Usage(Dumpster dumpster, LocalDate date, String fillLevel, Integer containersCount) {
+    public Usage(Dumpster dumpster, LocalDate date, FillLevel fillLevel, Integer containersCount) {
         this.dumpster = dumpster;
         this.date = date;
         this.fillLevel = fillLevel;
@@ -62,11 +48,11 @@ public class Usage {
         this.date = date;
     }
 
-    public String getFillLevel() {
+    public FillLevel getFillLevel() {
         return fillLevel;
     }
 
-    public void setFillLevel(String fillLevel) {
+    public void setFillLevel(FillLevel fillLevel) {
         this.fillLevel = fillLevel;
     }
 
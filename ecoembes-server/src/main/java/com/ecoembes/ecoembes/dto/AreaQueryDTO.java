@@ -0,0 +1,16 @@
+package com.ecoembes.ecoembes.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+/**
+ * DTO for an area given as the vertices of a polygon, in order.
+ */
+public record AreaQueryDTO(
+        @NotNull(message = "Polygon is required")
+        @Size(min = 3, message = "A polygon needs at least 3 vertices")
+        List<@Valid @NotNull GeoPointDTO> polygon
+) {}
@@ -0,0 +1,12 @@
+package com.ecoembes.ecoembes.dto;
+
+import java.util.List;
+
+/**
+ * DTO for returning the assignments an automatic spread made, one per plant.
+ */
+public record AssignmentPlanDTO(
+        List<AssignmentResponseDTO> assignments,
+        List<String> unassignedDumpsterIDs,
+        double totalDistanceMeters
+) {}
@@ -0,0 +1,16 @@
+package com.ecoembes.ecoembes.dto;
+
+import com.ecoembes.ecoembes.domain.FillLevel;
+
+/**
+ * DTO for returning a dumpster found by position.
+ */
+public record DumpsterLocationDTO(
+        String dumpsterID,
+        String location,
+        FillLevel fillLevel,
+        int containersNumber,
+        double latitude,
+        double longitude,
+        Double distanceMeters // only for queries around a point
+) {}
@@ -1,11 +1,13 @@
 package com.ecoembes.ecoembes.dto;
 
+import com.ecoembes.ecoembes.domain.FillLevel;
+
 /**
  * DTO for returning the status of a dumpster.
  */
 public record DumpsterStatusDTO(
         String dumpsterID,
         String location,
-        String fillLevel, // e.g., "green", "orange", "red"
+        FillLevel fillLevel, // serialized as "green", "orange" or "red"
         int containersNumber
 ) {}
\ No newline at end of file
@@ -1,5 +1,7 @@
 package com.ecoembes.ecoembes.dto;
 
+import com.ecoembes.ecoembes.domain.FillLevel;
+
 import java.time.LocalDate;
 
 /**
@@ -8,6 +10,6 @@ import java.time.LocalDate;
 public record DumpsterUsageDTO(
         String dumpsterID,
         LocalDate date,
-        String fillLevel,
+        FillLevel fillLevel,
         int containersCount
 ) {}
\ No newline at end of file
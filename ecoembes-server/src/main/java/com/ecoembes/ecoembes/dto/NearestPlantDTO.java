@@ -0,0 +1,14 @@
+package com.ecoembes.ecoembes.dto;
+
+/**
+ * DTO for returning the closest recycling plant with room left.
+ */
+public record NearestPlantDTO(
+        String plantID,
+        String plantName,
+        String type,
+        Double availableCapacityTons,
+        double latitude,
+        double longitude,
+        double distanceMeters
+) {}
@@ -1,15 +1,26 @@
 package com.ecoembes.ecoembes.dto;
 
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotEmpty;
 
 /**
- * DTO for creating a new dumpster.
+ * DTO for creating a new dumpster. The position is optional, but a dumpster without one is not found by the
+ * position queries.
  */
 public record NewDumpsterDTO(
         @NotEmpty(message = "Location cannot be empty")
         String location,
 
         @Min(value = 1, message = "Initial capacity must be at least 1")
-        Double initialCapacity
-) {}
\ No newline at end of file
+        Double initialCapacity,
+
+        @DecimalMin(value = "-90", message = "Latitude must be between -90 and 90")
+        @DecimalMax(value = "90", message = "Latitude must be between -90 and 90")
+        Double latitude,
+
+        @DecimalMin(value = "-180", message = "Longitude must be between -180 and 180")
+        @DecimalMax(value = "180", message = "Longitude must be between -180 and 180")
+        Double longitude
+) {}
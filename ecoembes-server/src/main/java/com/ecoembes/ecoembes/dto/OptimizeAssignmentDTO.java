@@ -0,0 +1,20 @@
+package com.ecoembes.ecoembes.dto;
+
+import jakarta.validation.constraints.FutureOrPresent;
+import jakarta.validation.constraints.NotEmpty;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * DTO for spreading dumpsters over the plants automatically.
+ */
+public record OptimizeAssignmentDTO(
+        @NotEmpty(message = "At least one dumpster ID must be provided")
+        List<String> dumpsterIDs,
+
+        @FutureOrPresent(message = "Assignment date must be today or in the future")
+        LocalDate date,
+
+        // Only plants of this type, e.g. PLASTIC; any plant if omitted
+        String type
+) {}
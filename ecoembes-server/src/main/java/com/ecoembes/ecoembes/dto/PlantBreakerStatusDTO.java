@@ -0,0 +1,14 @@
+package com.ecoembes.ecoembes.dto;
+
+/**
+ * DTO for returning the circuit breaker state of a recycling plant.
+ */
+public record PlantBreakerStatusDTO(
+        String plantID,
+        String state,
+        float failureRatePercent,
+        int bufferedCalls,
+        long notPermittedCalls,
+        int availableConcurrentCalls,
+        long timeoutMillis
+) {}
@@ -0,0 +1,15 @@
+package com.ecoembes.ecoembes.dto;
+
+import java.time.LocalDate;
+
+/**
+ * DTO for a plant's answer to a reservation, with its ledger version and remaining capacity
+ */
+public record RemoteReservationDTO(
+        boolean reserved,
+        String reservationId,
+        String plantId,
+        LocalDate arrivalDate,
+        long version,
+        double capacity
+) {}
@@ -0,0 +1,12 @@
+package com.ecoembes.ecoembes.dto;
+
+import java.time.LocalDate;
+
+/**
+ * DTO for reserving plant capacity ahead of a notification
+ */
+public record ReservationRequestDTO(
+        LocalDate arrivalDate,
+        Integer totalContainers,
+        Long expectedVersion
+) {}
@@ -1,12 +1,16 @@
 package com.ecoembes.ecoembes.dto;
 
+import com.ecoembes.ecoembes.domain.FillLevel;
 import jakarta.validation.constraints.Min;
-import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 
+/**
+ * New status of a dumpster. The fill level is one of "green", "orange" or "red"; anything else is rejected
+ * while the request body is read.
+ */
 public record UpdateDumpsterDTO(
-        @NotBlank(message = "Fill level cannot be empty")
-        String fillLevel,
+        @NotNull(message = "Fill level cannot be empty")
+        FillLevel fillLevel,
 
         @NotNull(message = "Containers number is required")
         @Min(value = 0, message = "Containers number cannot be negative")
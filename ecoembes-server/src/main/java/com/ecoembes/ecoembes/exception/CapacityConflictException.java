@@ -0,0 +1,10 @@
+package com.ecoembes.ecoembes.exception;
+
+/**
+ * Thrown when a plant refuses a capacity reservation because the containers no longer fit.
+ */
+public class CapacityConflictException extends RuntimeException {
+    public CapacityConflictException(String message) {
+        super(message);
+    }
+}
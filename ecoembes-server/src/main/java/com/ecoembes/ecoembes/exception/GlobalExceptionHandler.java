@@ -27,4 +27,20 @@ public class GlobalExceptionHandler {
     public ResponseEntity<String> handleInvalidTokenException(InvalidTokenException ex) {
         return new ResponseEntity<>(ex.getMessage(), HttpStatus.UNAUTHORIZED);
     }
+
+    /**
+     * Handles CapacityConflictException and returns a 409 Conflict response.
+     */
+    @ExceptionHandler(CapacityConflictException.class)
+    public ResponseEntity<String> handleCapacityConflictException(CapacityConflictException ex) {
+        return new ResponseEntity<>(ex.getMessage(), HttpStatus.CONFLICT);
+    }
+
+    /**
+     * Handles PlantUnavailableException and returns a 503 Service Unavailable response.
+     */
+    @ExceptionHandler(PlantUnavailableException.class)
+    public ResponseEntity<String> handlePlantUnavailableException(PlantUnavailableException ex) {
+        return new ResponseEntity<>(ex.getMessage(), HttpStatus.SERVICE_UNAVAILABLE);
+    }
 }
\ No newline at end of file
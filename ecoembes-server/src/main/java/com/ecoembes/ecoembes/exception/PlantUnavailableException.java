@@ -0,0 +1,11 @@
+package com.ecoembes.ecoembes.exception;
+
+/**
+ * Thrown when a plant cannot be reached to reserve capacity, so an assignment cannot be made safely and should be
+ * retried later.
+ */
+public class PlantUnavailableException extends RuntimeException {
+    public PlantUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -1,13 +1,38 @@
 package com.ecoembes.ecoembes.repository;
 
 import com.ecoembes.ecoembes.domain.Dumpster;
+import com.ecoembes.ecoembes.domain.FillLevel;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface DumpsterRepository extends JpaRepository<Dumpster, String> {
     List<Dumpster> findByPostalCode(String postalCode);
+
+    /**
+     * ID, latitude and longitude of every dumpster whose position is known.
+     */
+    @Query("SELECT d.dumpsterId, d.latitude, d.longitude FROM Dumpster d WHERE d.latitude IS NOT NULL AND d.longitude IS NOT NULL")
+    List<Object[]> findAllPositions();
+
+    /**
+     * Dumpsters at one of the given fill levels, fullest first. Served by the (fill_level, postal_code) index.
+     */
+    @Query("SELECT d FROM Dumpster d WHERE d.fillLevel IN :fillLevels ORDER BY d.fillLevel DESC, d.containersNumber DESC")
+    List<Dumpster> findByFillLevelIn(@Param("fillLevels") Collection<FillLevel> fillLevels);
+
+    /**
+     * Dumpsters at one of the given fill levels in one of the given postal codes, fullest first. Served by the
+     * (fill_level, postal_code) index.
+     */
+    @Query("SELECT d FROM Dumpster d WHERE d.fillLevel IN :fillLevels AND d.postalCode IN :postalCodes "
+            + "ORDER BY d.fillLevel DESC, d.containersNumber DESC")
+    List<Dumpster> findByFillLevelInAndPostalCodeIn(@Param("fillLevels") Collection<FillLevel> fillLevels,
+                                                    @Param("postalCodes") Collection<String> postalCodes);
 }
 
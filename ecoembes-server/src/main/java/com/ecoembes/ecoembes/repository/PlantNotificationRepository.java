@@ -0,0 +1,23 @@
+package com.ecoembes.ecoembes.repository;
+
+import com.ecoembes.ecoembes.domain.PlantNotification;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface PlantNotificationRepository extends JpaRepository<PlantNotification, Long> {
+    List<PlantNotification> findByStatusAndNextAttemptAtLessThanEqualOrderByIdAsc(String status, LocalDateTime now, Limit limit);
+
+    @Transactional
+    @Modifying
+    @Query("delete from PlantNotification n where n.status = :status and n.sentAt < :cutoff")
+    int deleteByStatusAndSentAtBefore(@Param("status") String status, @Param("cutoff") LocalDateTime cutoff);
+}
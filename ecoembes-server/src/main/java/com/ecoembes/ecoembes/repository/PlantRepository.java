@@ -2,9 +2,18 @@ package com.ecoembes.ecoembes.repository;
 
 import com.ecoembes.ecoembes.domain.Plant;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 @Repository
 public interface PlantRepository extends JpaRepository<Plant, String> {
-}
 
+    /**
+     * Adds to the plant's total in the database itself, so concurrent assignments to the same plant each count.
+     */
+    @Modifying
+    @Query("update Plant p set p.totalContainersReceived = p.totalContainersReceived + :containers where p.plantId = :plantId")
+    int addContainersReceived(@Param("plantId") String plantId, @Param("containers") int containers);
+}
@@ -0,0 +1,252 @@
+package com.ecoembes.ecoembes.repository;
+
+import com.ecoembes.ecoembes.domain.Usage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.BadSqlGrammarException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.Period;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Cold usage history. Months that ended more than {@code usage.archive.after} ago are moved out of their
+ * {@link UsagePartitions partition} into a {@link UsageArchiveFile columnar file} in {@code usage.archive.dir}, which
+ * takes a fraction of the space and is read through a memory mapping. Archived months past
+ * {@code usage.history.retention} are deleted, like the partitions.
+ * <p>
+ * A month is archived by detaching its partition, writing the file from the detached table and only then dropping
+ * the table. Until it is dropped the detached table is read instead of the file, so the month never goes missing,
+ * and one left over by a crash is archived on the next run. A reading written to a month after it was archived lands
+ * in a new partition and is merged into the file the next time.
+ */
+@Component
+public class UsageArchive implements SmartInitializingSingleton {
+
+    private static final Logger log = LoggerFactory.getLogger(UsageArchive.class);
+
+    private static final Pattern FILE_NAME = Pattern.compile("usage_(\\d{6})\\.col");
+    private static final DateTimeFormatter SUFFIX = DateTimeFormatter.ofPattern("yyyyMM");
+    private static final Comparator<UsageRow> ORDER = Comparator.comparing(UsageRow::date).thenComparingLong(UsageRow::id);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final UsagePartitions partitions;
+    private final UsageRepository usageRepository;
+    private final Path directory;
+    private final Period after;
+    private final Period retention;
+    private final boolean recreate;
+    private final NavigableMap<YearMonth, UsageArchiveFile> files = new ConcurrentSkipListMap<>();
+    private final NavigableSet<YearMonth> detached = new ConcurrentSkipListSet<>();
+
+    public UsageArchive(JdbcTemplate jdbcTemplate, UsagePartitions partitions, UsageRepository usageRepository,
+                        @Value("${usage.archive.dir:${ecoembes.data-dir:./data}/usage-archive}") Path directory,
+                        @Value("${usage.archive.after:3m}") Period after,
+                        @Value("${usage.history.retention:3y}") Period retention,
+                        @Value("${spring.jpa.hibernate.ddl-auto:none}") String ddlAuto) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.partitions = partitions;
+        this.usageRepository = usageRepository;
+        this.directory = directory;
+        this.after = after;
+        this.retention = retention;
+        // The database starts empty, so an archive from an earlier run would hold readings of dumpsters that are gone
+        this.recreate = ddlAuto.startsWith("create");
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        try {
+            Files.createDirectories(directory);
+            try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+                for (Path entry : entries) {
+                    Matcher matcher = FILE_NAME.matcher(entry.getFileName().toString());
+                    if (recreate || !matcher.matches()) {
+                        // Column and temporary files of a write that did not finish, or an archive of an earlier run
+                        Files.deleteIfExists(entry);
+                        continue;
+                    }
+                    files.put(YearMonth.parse(matcher.group(1), SUFFIX), UsageArchiveFile.open(entry));
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not open the usage archive in " + directory, e);
+        }
+        if (!recreate) {
+            detached.addAll(partitions.detached());
+        }
+        log.info("Usage archive in {} holds {} months", directory, files.size());
+    }
+
+    /**
+     * Archives the months that ended more than {@code usage.archive.after} ago and deletes those past the retention.
+     */
+    @Scheduled(cron = "${usage.archive.cron:0 15 0 * * *}")
+    public void archive() {
+        archive(LocalDate.now());
+    }
+
+    synchronized void archive(LocalDate today) {
+        YearMonth firstKept = YearMonth.from(today.minus(retention));
+        YearMonth firstLive = YearMonth.from(today.minus(after));
+        for (YearMonth month : partitions.all()) {
+            if (month.isBefore(firstLive) && !month.isBefore(firstKept) && partitions.detach(month)) {
+                detached.add(month);
+            }
+        }
+        for (YearMonth month : List.copyOf(detached)) {
+            if (month.isBefore(firstKept)) {
+                detached.remove(month);
+                partitions.dropDetached(month);
+            } else {
+                archive(month);
+            }
+        }
+        for (YearMonth month : List.copyOf(files.headMap(firstKept, false).keySet())) {
+            files.remove(month);
+            try {
+                Files.deleteIfExists(file(month));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not delete the usage archive of " + month, e);
+            }
+            log.info("Deleted the usage archive of {}, older than the {} retention", month, retention);
+        }
+    }
+
+    /**
+     * Archived readings dated between {@code startDate} and {@code endDate}, newest first.
+     */
+    public List<Usage> findByDateBetween(LocalDate startDate, LocalDate endDate) {
+        if (startDate.isAfter(endDate)) {
+            return List.of();
+        }
+        YearMonth first = YearMonth.from(startDate);
+        YearMonth last = YearMonth.from(endDate);
+        NavigableSet<YearMonth> months = new TreeSet<>(files.subMap(first, true, last, true).keySet());
+        months.addAll(detached.subSet(first, true, last, true));
+
+        List<UsageRow> rows = new ArrayList<>();
+        for (YearMonth month : months.descendingSet()) {
+            List<UsageRow> monthRows = readFile(month, startDate, endDate);
+            if (detached.contains(month)) {
+                try {
+                    monthRows = merge(monthRows, jdbcTemplate.query("SELECT " + UsageRepository.COLUMNS + " FROM "
+                                    + UsagePartitions.detachedTable(month) + " WHERE date BETWEEN ? AND ? ORDER BY date, id",
+                            UsageRow::map, Date.valueOf(startDate), Date.valueOf(endDate)));
+                } catch (BadSqlGrammarException e) {
+                    // Archived and dropped meanwhile; the file now has the rows
+                    monthRows = readFile(month, startDate, endDate);
+                }
+            }
+            rows.addAll(monthRows.reversed());
+        }
+        return usageRepository.resolve(rows);
+    }
+
+    /**
+     * The archived months, oldest first.
+     */
+    public List<YearMonth> months() {
+        return List.copyOf(files.keySet());
+    }
+
+    private List<UsageRow> readFile(YearMonth month, LocalDate startDate, LocalDate endDate) {
+        UsageArchiveFile file = files.get(month);
+        return file == null ? List.of() : file.read(startDate, endDate);
+    }
+
+    /**
+     * Writes the detached partition of a month, together with what the month's file already holds, into a new file
+     * and drops the partition.
+     */
+    private void archive(YearMonth month) {
+        Path target = file(month);
+        UsageArchiveFile previous = files.get(month);
+        List<UsageRow> earlier = previous == null ? List.of() : previous.read(month.atDay(1), month.atEndOfMonth());
+        long bytes;
+        long rows;
+        try (UsageArchiveFile.Writer writer = new UsageArchiveFile.Writer(target, month)) {
+            int[] next = {0};
+            jdbcTemplate.query("SELECT " + UsageRepository.COLUMNS + " FROM " + UsagePartitions.detachedTable(month)
+                    + " ORDER BY date, id", rs -> {
+                UsageRow row = UsageRow.map(rs, 0);
+                while (next[0] < earlier.size() && ORDER.compare(earlier.get(next[0]), row) < 0) {
+                    add(writer, earlier.get(next[0]++));
+                }
+                if (next[0] < earlier.size() && earlier.get(next[0]).id() == row.id()) {
+                    next[0]++;
+                }
+                add(writer, row);
+            });
+            for (int i = next[0]; i < earlier.size(); i++) {
+                add(writer, earlier.get(i));
+            }
+            rows = writer.rowCount();
+            bytes = writer.finish();
+            files.put(month, UsageArchiveFile.open(target));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not archive the usage history of " + month, e);
+        }
+        detached.remove(month);
+        partitions.dropDetached(month);
+        log.info("Archived {} usage rows of {} into {} bytes ({} bytes per row)", rows, month, bytes,
+                rows == 0 ? 0 : String.format("%.1f", (double) bytes / rows));
+    }
+
+    private static void add(UsageArchiveFile.Writer writer, UsageRow row) {
+        try {
+            writer.add(row);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Merges two lists in date and ID order, keeping one of any row that is in both.
+     */
+    private static List<UsageRow> merge(List<UsageRow> a, List<UsageRow> b) {
+        if (a.isEmpty() || b.isEmpty()) {
+            return a.isEmpty() ? b : a;
+        }
+        List<UsageRow> merged = new ArrayList<>(a.size() + b.size());
+        int i = 0;
+        int j = 0;
+        while (i < a.size() && j < b.size()) {
+            int order = ORDER.compare(a.get(i), b.get(j));
+            if (order == 0) {
+                j++;
+            }
+            merged.add(order <= 0 ? a.get(i++) : b.get(j++));
+        }
+        merged.addAll(a.subList(i, a.size()));
+        merged.addAll(b.subList(j, b.size()));
+        return Collections.unmodifiableList(merged);
+    }
+
+    private Path file(YearMonth month) {
+        return directory.resolve("usage_" + SUFFIX.format(month) + ".col");
+    }
+}
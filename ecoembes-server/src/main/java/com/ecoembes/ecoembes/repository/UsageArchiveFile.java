@@ -0,0 +1,364 @@
+package com.ecoembes.ecoembes.repository;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import com.ecoembes.ecoembes.domain.FillLevel;
+
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One month of usage history in a columnar file, read through a memory mapping. Rows are sorted by date and ID and
+ * each column is stored on its own:
+ * <ul>
+ *   <li>dumpster IDs and fill level names as dictionaries, with each row holding a varint index into them</li>
+ *   <li>dates as runs of (days since the previous run, rows in the run)</li>
+ *   <li>row IDs and recording times, in microseconds, as zig-zag varint deltas from the previous row</li>
+ *   <li>container counts as zig-zag varints</li>
+ * </ul>
+ * The header holds a magic number, the format version, the month, the row count and the byte length of each column.
+ * A date range is found from the date runs alone; the other columns are decoded only up to its last row.
+ */
+final class UsageArchiveFile {
+
+    private static final int MAGIC = 0x45435541;
+    private static final byte VERSION = 1;
+
+    private static final int DUMPSTERS = 0;
+    private static final int FILL_LEVELS = 1;
+    private static final int DATES = 2;
+    private static final int IDS = 3;
+    private static final int DUMPSTER_REFS = 4;
+    private static final int FILL_LEVEL_REFS = 5;
+    private static final int CONTAINERS = 6;
+    private static final int RECORDED_AT = 7;
+    private static final int COLUMNS = 8;
+
+    private static final int HEADER_BYTES = Integer.BYTES + 1 + Integer.BYTES + Long.BYTES + COLUMNS * Long.BYTES;
+
+    private final YearMonth month;
+    private final long size;
+    private final long rowCount;
+    private final String[] dumpsters;
+    private final FillLevel[] fillLevels;
+    private final ByteBuffer[] columns = new ByteBuffer[COLUMNS];
+
+    private UsageArchiveFile(YearMonth month, long size, long rowCount, String[] dumpsters, FillLevel[] fillLevels,
+                             ByteBuffer[] columns) {
+        this.month = month;
+        this.size = size;
+        this.rowCount = rowCount;
+        this.dumpsters = dumpsters;
+        this.fillLevels = fillLevels;
+        System.arraycopy(columns, 0, this.columns, 0, COLUMNS);
+    }
+
+    /**
+     * Maps an archive file. The mapping stays valid after the file is replaced or deleted.
+     */
+    static UsageArchiveFile open(Path file) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.limit() < HEADER_BYTES || buffer.getInt() != MAGIC) {
+            throw new IOException(file + " is not a usage archive");
+        }
+        byte version = buffer.get();
+        if (version != VERSION) {
+            throw new IOException(file + " has unsupported archive version " + version);
+        }
+        int yyyymm = buffer.getInt();
+        long rowCount = buffer.getLong();
+        ByteBuffer[] columns = new ByteBuffer[COLUMNS];
+        int offset = HEADER_BYTES;
+        for (int i = 0; i < COLUMNS; i++) {
+            int length = Math.toIntExact(buffer.getLong(Integer.BYTES + 1 + Integer.BYTES + Long.BYTES + i * Long.BYTES));
+            columns[i] = buffer.slice(offset, length);
+            offset += length;
+        }
+        if (offset != buffer.limit()) {
+            throw new IOException(file + " is truncated or has trailing bytes");
+        }
+        return new UsageArchiveFile(YearMonth.of(yyyymm / 100, yyyymm % 100), buffer.limit(), rowCount,
+                dictionary(columns[DUMPSTERS]),
+                Arrays.stream(dictionary(columns[FILL_LEVELS])).map(FillLevel::of).toArray(FillLevel[]::new), columns);
+    }
+
+    YearMonth month() {
+        return month;
+    }
+
+    long size() {
+        return size;
+    }
+
+    long rowCount() {
+        return rowCount;
+    }
+
+    /**
+     * The rows dated between {@code startDate} and {@code endDate}, oldest first.
+     */
+    List<UsageRow> read(LocalDate startDate, LocalDate endDate) {
+        LocalDate from = startDate.isBefore(month.atDay(1)) ? month.atDay(1) : startDate;
+        LocalDate to = endDate.isAfter(month.atEndOfMonth()) ? month.atEndOfMonth() : endDate;
+        if (from.isAfter(to)) {
+            return List.of();
+        }
+
+        // The date runs tell which rows fall in the range before any other column is touched
+        ByteBuffer dates = columns[DATES].duplicate();
+        List<LocalDate> runDates = new ArrayList<>();
+        List<Long> runEnds = new ArrayList<>();
+        long first = -1;
+        long row = 0;
+        LocalDate date = month.atDay(1);
+        while (dates.hasRemaining()) {
+            date = date.plusDays(readVarint(dates));
+            long count = readVarint(dates);
+            if (date.isAfter(to)) {
+                break;
+            }
+            if (!date.isBefore(from)) {
+                if (first < 0) {
+                    first = row;
+                }
+                runDates.add(date);
+                runEnds.add(row + count);
+            }
+            row += count;
+        }
+        if (first < 0) {
+            return List.of();
+        }
+        long last = runEnds.get(runEnds.size() - 1);
+
+        ByteBuffer ids = columns[IDS].duplicate();
+        ByteBuffer dumpsterRefs = columns[DUMPSTER_REFS].duplicate();
+        ByteBuffer fillLevelRefs = columns[FILL_LEVEL_REFS].duplicate();
+        ByteBuffer containers = columns[CONTAINERS].duplicate();
+        ByteBuffer recordedAt = columns[RECORDED_AT].duplicate();
+        long id = 0;
+        long micros = epochMicros(month.atDay(1).atStartOfDay());
+        List<UsageRow> rows = new ArrayList<>(Math.toIntExact(last - first));
+        int run = 0;
+        for (long i = 0; i < last; i++) {
+            id += readZigZag(ids);
+            micros += readZigZag(recordedAt);
+            int dumpster = (int) readVarint(dumpsterRefs);
+            int fillLevel = (int) readVarint(fillLevelRefs);
+            int containersCount = (int) readZigZag(containers);
+            if (i < first) {
+                continue;
+            }
+            while (i >= runEnds.get(run)) {
+                run++;
+            }
+            rows.add(new UsageRow(id, dumpsters[dumpster], runDates.get(run), fillLevels[fillLevel], containersCount,
+                    fromEpochMicros(micros)));
+        }
+        return rows;
+    }
+
+    /**
+     * Collects rows, which must come in date and ID order, into column files next to {@code target}, then joins them
+     * behind a header and moves the result over {@code target} in one step.
+     */
+    static final class Writer implements AutoCloseable {
+
+        private final Path target;
+        private final YearMonth month;
+        private final Path[] columnFiles = new Path[COLUMNS];
+        private final DataOutputStream[] out = new DataOutputStream[COLUMNS];
+        private final Map<String, Integer> dumpsterIndex = new HashMap<>();
+        private final Map<String, Integer> fillLevelIndex = new HashMap<>();
+
+        private long rowCount;
+        private long lastId;
+        private long lastMicros;
+        private LocalDate runDate;
+        private long runCount;
+        private LocalDate previousRunDate;
+
+        Writer(Path target, YearMonth month) throws IOException {
+            this.target = target;
+            this.month = month;
+            this.lastMicros = epochMicros(month.atDay(1).atStartOfDay());
+            this.previousRunDate = month.atDay(1);
+            try {
+                for (int i = 0; i < COLUMNS; i++) {
+                    columnFiles[i] = Files.createTempFile(target.getParent(), target.getFileName() + ".", ".col" + i);
+                    out[i] = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(columnFiles[i]), 64 * 1024));
+                }
+            } catch (IOException e) {
+                close();
+                throw e;
+            }
+        }
+
+        void add(UsageRow row) throws IOException {
+            if (!YearMonth.from(row.date()).equals(month)) {
+                throw new IllegalArgumentException("Row " + row.id() + " dated " + row.date() + " is not in " + month);
+            }
+            if (runDate != null && row.date().isBefore(runDate)) {
+                throw new IllegalArgumentException("Row " + row.id() + " dated " + row.date() + " comes after " + runDate);
+            }
+            if (!row.date().equals(runDate)) {
+                endRun();
+                runDate = row.date();
+            }
+            runCount++;
+            writeZigZag(out[IDS], row.id() - lastId);
+            lastId = row.id();
+            long micros = epochMicros(row.recordedAt());
+            writeZigZag(out[RECORDED_AT], micros - lastMicros);
+            lastMicros = micros;
+            writeVarint(out[DUMPSTER_REFS], index(dumpsterIndex, out[DUMPSTERS], row.dumpsterId()));
+            writeVarint(out[FILL_LEVEL_REFS], index(fillLevelIndex, out[FILL_LEVELS], row.fillLevel().label()));
+            writeZigZag(out[CONTAINERS], row.containersCount());
+            rowCount++;
+        }
+
+        long rowCount() {
+            return rowCount;
+        }
+
+        /**
+         * Writes the file and returns its size in bytes.
+         */
+        long finish() throws IOException {
+            endRun();
+            long[] lengths = new long[COLUMNS];
+            for (int i = 0; i < COLUMNS; i++) {
+                out[i].close();
+                out[i] = null;
+                lengths[i] = Files.size(columnFiles[i]);
+            }
+            Path joined = Files.createTempFile(target.getParent(), target.getFileName() + ".", ".tmp");
+            try {
+                try (FileChannel channel = FileChannel.open(joined, StandardOpenOption.WRITE)) {
+                    ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES)
+                            .putInt(MAGIC).put(VERSION).putInt(month.getYear() * 100 + month.getMonthValue()).putLong(rowCount);
+                    for (long length : lengths) {
+                        header.putLong(length);
+                    }
+                    channel.write(header.flip());
+                    for (Path column : columnFiles) {
+                        try (FileChannel in = FileChannel.open(column, StandardOpenOption.READ)) {
+                            long position = 0;
+                            while (position < in.size()) {
+                                position += in.transferTo(position, in.size() - position, channel);
+                            }
+                        }
+                    }
+                    channel.force(true);
+                }
+                Files.move(joined, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                Files.deleteIfExists(joined);
+            }
+            return Files.size(target);
+        }
+
+        @Override
+        public void close() throws IOException {
+            for (int i = 0; i < COLUMNS; i++) {
+                if (out[i] != null) {
+                    out[i].close();
+                }
+                if (columnFiles[i] != null) {
+                    Files.deleteIfExists(columnFiles[i]);
+                }
+            }
+        }
+
+        private void endRun() throws IOException {
+            if (runCount == 0) {
+                return;
+            }
+            writeVarint(out[DATES], ChronoUnit.DAYS.between(previousRunDate, runDate));
+            writeVarint(out[DATES], runCount);
+            previousRunDate = runDate;
+            runCount = 0;
+        }
+
+        private static int index(Map<String, Integer> index, DataOutputStream dictionary, String value) throws IOException {
+            Integer existing = index.get(value);
+            if (existing != null) {
+                return existing;
+            }
+            byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+            writeVarint(dictionary, utf8.length);
+            dictionary.write(utf8);
+            index.put(value, index.size());
+            return index.size() - 1;
+        }
+    }
+
+    private static String[] dictionary(ByteBuffer column) {
+        ByteBuffer buffer = column.duplicate();
+        List<String> values = new ArrayList<>();
+        while (buffer.hasRemaining()) {
+            byte[] utf8 = new byte[(int) readVarint(buffer)];
+            buffer.get(utf8);
+            values.add(new String(utf8, StandardCharsets.UTF_8));
+        }
+        return values.toArray(String[]::new);
+    }
+
+    private static long epochMicros(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC) * 1_000_000 + time.getNano() / 1_000;
+    }
+
+    private static LocalDateTime fromEpochMicros(long micros) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000), (int) Math.floorMod(micros, 1_000_000) * 1_000,
+                ZoneOffset.UTC);
+    }
+
+    static void writeVarint(OutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    static void writeZigZag(OutputStream out, long value) throws IOException {
+        writeVarint(out, (value << 1) ^ (value >> 63));
+    }
+
+    static long readVarint(ByteBuffer buffer) {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+    }
+
+    static long readZigZag(ByteBuffer buffer) {
+        long value = readVarint(buffer);
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
@@ -0,0 +1,344 @@
+package com.ecoembes.ecoembes.repository;
+
+import com.ecoembes.ecoembes.domain.FillLevel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.Period;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Monthly partitions of the usage history. Readings are stored in one table per calendar month,
+ * {@code usage_history_yyyymm}, so a date range only reads the months it overlaps and expired history is removed by
+ * dropping whole tables instead of deleting rows. Row IDs come from one shared sequence, so they stay unique across
+ * partitions.
+ * <p>
+ * The current and next month are created at startup and by the daily maintenance, which also drops every month that
+ * ended more than {@code usage.history.retention} ago. Other months are created on their first write. A single
+ * {@code usage_history} table from before partitioning is moved into partitions at startup. Closed months are
+ * detached from here by the {@link UsageArchive}.
+ * <p>
+ * Partitions are created on their own connection, since DDL would commit the caller's transaction, and have no
+ * foreign key to {@code dumpsters}, which would lock that table while one is created.
+ */
+@Component
+public class UsagePartitions implements SmartInitializingSingleton {
+
+    private static final Logger log = LoggerFactory.getLogger(UsagePartitions.class);
+
+    static final String SEQUENCE = "usage_history_seq";
+    private static final String UNPARTITIONED_TABLE = "USAGE_HISTORY";
+    private static final Pattern PARTITION_NAME = Pattern.compile("USAGE_HISTORY_(\\d{6})");
+    private static final Pattern DETACHED_NAME = Pattern.compile("USAGE_HISTORY_(\\d{6})_DETACHED");
+    private static final DateTimeFormatter SUFFIX = DateTimeFormatter.ofPattern("yyyyMM");
+
+    private final DataSource dataSource;
+    private final Period retention;
+    private final boolean recreate;
+    private final NavigableSet<YearMonth> months = new ConcurrentSkipListSet<>();
+
+    public UsagePartitions(DataSource dataSource,
+                           @Value("${usage.history.retention:3y}") Period retention,
+                           @Value("${spring.jpa.hibernate.ddl-auto:none}") String ddlAuto) {
+        this.dataSource = dataSource;
+        this.retention = retention;
+        // The entity tables are recreated on every start, so the partitions are too
+        this.recreate = ddlAuto.startsWith("create");
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            if (recreate) {
+                for (YearMonth month : existing(connection)) {
+                    statement.execute("DROP TABLE IF EXISTS " + table(month));
+                }
+                for (YearMonth month : existing(connection, DETACHED_NAME)) {
+                    statement.execute("DROP TABLE IF EXISTS " + detachedTable(month));
+                }
+                statement.execute("DROP SEQUENCE IF EXISTS " + SEQUENCE);
+            }
+            statement.execute("CREATE SEQUENCE IF NOT EXISTS " + SEQUENCE);
+            months.addAll(existing(connection));
+            convertTextFillLevels(connection);
+            partitionUnpartitionedTable(connection);
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not prepare the usage history partitions", e);
+        }
+        maintain(LocalDate.now());
+    }
+
+    /**
+     * Creates the partitions for this month and the next, and drops those past the retention.
+     */
+    @Scheduled(cron = "${usage.history.maintenance-cron:0 5 0 * * *}")
+    public void maintain() {
+        maintain(LocalDate.now());
+    }
+
+    void maintain(LocalDate today) {
+        YearMonth current = YearMonth.from(today);
+        ensure(current);
+        ensure(current.plusMonths(1));
+        // Only whole months are dropped; the month the cutoff falls in is kept until it has fully expired
+        YearMonth firstKept = YearMonth.from(today.minus(retention));
+        for (YearMonth month : List.copyOf(months.headSet(firstKept, false))) {
+            drop(month);
+        }
+    }
+
+    /**
+     * Creates the partition for the given month unless it already exists.
+     */
+    public void ensure(YearMonth month) {
+        if (months.contains(month)) {
+            return;
+        }
+        synchronized (this) {
+            if (months.contains(month)) {
+                return;
+            }
+            String table = table(month);
+            try (Connection connection = dataSource.getConnection();
+                 Statement statement = connection.createStatement()) {
+                statement.execute("CREATE TABLE IF NOT EXISTS " + table + " ("
+                        + "id BIGINT NOT NULL, "
+                        + "dumpster_id VARCHAR(255) NOT NULL, "
+                        + "date DATE NOT NULL, "
+                        + "fill_level TINYINT NOT NULL, "
+                        + "containers_count INTEGER NOT NULL, "
+                        + "recorded_at TIMESTAMP(6) NOT NULL, "
+                        + "PRIMARY KEY (id), "
+                        + "CHECK (date BETWEEN DATE '" + month.atDay(1) + "' AND DATE '" + month.atEndOfMonth() + "'))");
+                statement.execute("CREATE INDEX IF NOT EXISTS " + table + "_date ON " + table + " (date)");
+                statement.execute("CREATE INDEX IF NOT EXISTS " + table + "_dumpster ON " + table + " (dumpster_id, date)");
+            } catch (SQLException e) {
+                throw new IllegalStateException("Could not create usage history partition " + table, e);
+            }
+            months.add(month);
+            log.info("Created usage history partition {}", table);
+        }
+    }
+
+    /**
+     * Forgets the known partitions and reads them from the database again, for when a partition was dropped by
+     * someone else.
+     */
+    synchronized void refresh() {
+        try (Connection connection = dataSource.getConnection()) {
+            List<YearMonth> found = existing(connection);
+            months.retainAll(found);
+            months.addAll(found);
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not list the usage history partitions", e);
+        }
+    }
+
+    /**
+     * The existing partitions that hold dates between {@code startDate} and {@code endDate}, oldest first.
+     */
+    public List<YearMonth> covering(LocalDate startDate, LocalDate endDate) {
+        if (startDate.isAfter(endDate)) {
+            return List.of();
+        }
+        return List.copyOf(months.subSet(YearMonth.from(startDate), true, YearMonth.from(endDate), true));
+    }
+
+    /**
+     * All existing partitions, oldest first.
+     */
+    public List<YearMonth> all() {
+        return List.copyOf(months);
+    }
+
+    public static String table(YearMonth month) {
+        return "usage_history_" + SUFFIX.format(month);
+    }
+
+    static String detachedTable(YearMonth month) {
+        return table(month) + "_detached";
+    }
+
+    /**
+     * Takes a month's partition out of the live history by renaming it, together with its indexes, so that it can be
+     * read and dropped at leisure. A later write to the month creates a new partition. Returns false if the month
+     * has no partition.
+     */
+    synchronized boolean detach(YearMonth month) {
+        if (!months.contains(month)) {
+            return false;
+        }
+        String table = table(month);
+        String detached = detachedTable(month);
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute("ALTER TABLE " + table + " RENAME TO " + detached);
+            statement.execute("ALTER INDEX IF EXISTS " + table + "_date RENAME TO " + detached + "_date");
+            statement.execute("ALTER INDEX IF EXISTS " + table + "_dumpster RENAME TO " + detached + "_dumpster");
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not detach usage history partition " + table, e);
+        }
+        months.remove(month);
+        log.info("Detached usage history partition {}", table);
+        return true;
+    }
+
+    /**
+     * The months whose partition was detached and not dropped yet, oldest first.
+     */
+    List<YearMonth> detached() {
+        try (Connection connection = dataSource.getConnection()) {
+            List<YearMonth> found = existing(connection, DETACHED_NAME);
+            found.sort(null);
+            return found;
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not list the detached usage history partitions", e);
+        }
+    }
+
+    void dropDetached(YearMonth month) {
+        String table = detachedTable(month);
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS " + table);
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not drop detached usage history partition " + table, e);
+        }
+    }
+
+    private synchronized void drop(YearMonth month) {
+        String table = table(month);
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS " + table);
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not drop usage history partition " + table, e);
+        }
+        months.remove(month);
+        log.info("Dropped usage history partition {}, older than the {} retention", table, retention);
+    }
+
+    private static List<YearMonth> existing(Connection connection) throws SQLException {
+        return existing(connection, PARTITION_NAME);
+    }
+
+    private static List<YearMonth> existing(Connection connection, Pattern name) throws SQLException {
+        List<YearMonth> found = new ArrayList<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet rows = statement.executeQuery("SELECT TABLE_NAME FROM INFORMATION_SCHEMA.TABLES "
+                     + "WHERE TABLE_SCHEMA = SCHEMA() AND TABLE_NAME LIKE 'USAGE\\_HISTORY\\_%'")) {
+            while (rows.next()) {
+                Matcher matcher = name.matcher(rows.getString(1));
+                if (matcher.matches()) {
+                    found.add(YearMonth.parse(matcher.group(1), SUFFIX));
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Turns the fill level column of partitions written before fill levels were stored as codes from text into
+     * {@link FillLevel#code() codes}.
+     */
+    private static void convertTextFillLevels(Connection connection) throws SQLException {
+        List<String> tables = new ArrayList<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet rows = statement.executeQuery("SELECT TABLE_NAME FROM INFORMATION_SCHEMA.COLUMNS "
+                     + "WHERE TABLE_SCHEMA = SCHEMA() AND TABLE_NAME LIKE 'USAGE\\_HISTORY\\_%' "
+                     + "AND COLUMN_NAME = 'FILL_LEVEL' AND DATA_TYPE = 'CHARACTER VARYING'")) {
+            while (rows.next()) {
+                tables.add(rows.getString(1));
+            }
+        }
+        try (Statement statement = connection.createStatement()) {
+            for (String table : tables) {
+                statement.execute("UPDATE " + table + " SET fill_level = " + fillLevelCode("fill_level"));
+                statement.execute("ALTER TABLE " + table + " ALTER COLUMN fill_level TINYINT NOT NULL");
+                log.info("Converted the fill levels of {} to codes", table);
+            }
+        }
+    }
+
+    /**
+     * SQL that turns a text fill level into its code. Text that names no fill level counts as green, as the
+     * {@code V2} migration does for dumpsters.
+     */
+    private static String fillLevelCode(String column) {
+        StringBuilder sql = new StringBuilder("CASE LOWER(TRIM(").append(column).append("))");
+        for (FillLevel level : FillLevel.values()) {
+            sql.append(" WHEN '").append(level.label()).append("' THEN ").append(level.code());
+        }
+        return sql.append(" ELSE ").append(FillLevel.GREEN.code()).append(" END").toString();
+    }
+
+    /**
+     * Moves the rows of the single {@code usage_history} table, such as the one the baseline migration creates, into
+     * monthly partitions and drops it.
+     */
+    private void partitionUnpartitionedTable(Connection connection) throws SQLException {
+        List<YearMonth> legacyMonths = new ArrayList<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet tables = statement.executeQuery("SELECT COUNT(*) FROM INFORMATION_SCHEMA.TABLES "
+                     + "WHERE TABLE_SCHEMA = SCHEMA() AND TABLE_NAME = '" + UNPARTITIONED_TABLE + "'")) {
+            if (!tables.next() || tables.getLong(1) == 0) {
+                return;
+            }
+        }
+        try (Statement statement = connection.createStatement();
+             ResultSet rows = statement.executeQuery("SELECT DISTINCT EXTRACT(YEAR FROM date), EXTRACT(MONTH FROM date) "
+                     + "FROM usage_history")) {
+            while (rows.next()) {
+                legacyMonths.add(YearMonth.of(rows.getInt(1), rows.getInt(2)));
+            }
+        }
+        legacyMonths.forEach(this::ensure);
+
+        long moved = 0;
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try {
+            for (YearMonth month : legacyMonths) {
+                try (PreparedStatement insert = connection.prepareStatement("INSERT INTO " + table(month)
+                        + " (id, dumpster_id, date, fill_level, containers_count, recorded_at) "
+                        + "SELECT NEXT VALUE FOR " + SEQUENCE + ", dumpster_id, date, " + fillLevelCode("fill_level")
+                        + ", containers_count, recorded_at "
+                        + "FROM usage_history WHERE date BETWEEN ? AND ?")) {
+                    insert.setDate(1, Date.valueOf(month.atDay(1)));
+                    insert.setDate(2, Date.valueOf(month.atEndOfMonth()));
+                    moved += insert.executeUpdate();
+                }
+            }
+            connection.commit();
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE usage_history");
+        }
+        log.info("Moved {} usage rows from usage_history into {} monthly partitions", moved, legacyMonths.size());
+    }
+}
@@ -1,20 +1,131 @@
 package com.ecoembes.ecoembes.repository;
 
+import com.ecoembes.ecoembes.domain.Dumpster;
 import com.ecoembes.ecoembes.domain.Usage;
-import org.springframework.data.jpa.repository.JpaRepository;
-import org.springframework.data.jpa.repository.Query;
-import org.springframework.data.repository.query.Param;
+import org.springframework.jdbc.BadSqlGrammarException;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
 
+import java.sql.Date;
+import java.sql.Timestamp;
 import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
+/**
+ * Usage history, stored in the monthly tables of {@link UsagePartitions}. A reading is written to the partition of
+ * its date, and a date range query only reads the partitions the range overlaps.
+ */
 @Repository
-public interface UsageRepository extends JpaRepository<Usage, Long> {
+public class UsageRepository {
 
-    @Query("SELECT u FROM Usage u WHERE u.date BETWEEN :startDate AND :endDate ORDER BY u.date DESC")
-    List<Usage> findByDateBetween(@Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate);
+    static final String COLUMNS = "id, dumpster_id, date, fill_level, containers_count, recorded_at";
 
-    List<Usage> findByDumpsterDumpsterId(String dumpsterId);
-}
+    private final JdbcTemplate jdbcTemplate;
+    private final UsagePartitions partitions;
+    private final DumpsterRepository dumpsterRepository;
+
+    public UsageRepository(JdbcTemplate jdbcTemplate, UsagePartitions partitions, DumpsterRepository dumpsterRepository) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.partitions = partitions;
+        this.dumpsterRepository = dumpsterRepository;
+    }
+
+    public Usage save(Usage usage) {
+        YearMonth month = YearMonth.from(usage.getDate());
+        partitions.ensure(month);
+        Long id = jdbcTemplate.queryForObject("SELECT NEXT VALUE FOR " + UsagePartitions.SEQUENCE, Long.class);
+        Object[] values = {id, usage.getDumpster().getDumpsterId(), Date.valueOf(usage.getDate()), usage.getFillLevel().code(),
+                usage.getContainersCount(), Timestamp.valueOf(usage.getRecordedAt())};
+        String insert = "INSERT INTO %s (" + COLUMNS + ") VALUES (?, ?, ?, ?, ?, ?)";
+        try {
+            jdbcTemplate.update(insert.formatted(UsagePartitions.table(month)), values);
+        } catch (BadSqlGrammarException e) {
+            // The partition was dropped behind our back; create it again
+            partitions.refresh();
+            partitions.ensure(month);
+            jdbcTemplate.update(insert.formatted(UsagePartitions.table(month)), values);
+        }
+        usage.setId(id);
+        return usage;
+    }
+
+    /**
+     * Readings dated between {@code startDate} and {@code endDate}, newest first.
+     */
+    public List<Usage> findByDateBetween(LocalDate startDate, LocalDate endDate) {
+        return find(() -> partitions.covering(startDate, endDate), "date BETWEEN ? AND ?",
+                Date.valueOf(startDate), Date.valueOf(endDate));
+    }
+
+    /**
+     * All readings of a dumpster, newest first.
+     */
+    public List<Usage> findByDumpsterDumpsterId(String dumpsterId) {
+        return find(partitions::all, "dumpster_id = ?", dumpsterId);
+    }
 
+    private List<Usage> find(Supplier<List<YearMonth>> months, String condition, Object... args) {
+        List<UsageRow> rows;
+        try {
+            rows = query(months.get(), condition, args);
+        } catch (BadSqlGrammarException e) {
+            partitions.refresh();
+            rows = query(months.get(), condition, args);
+        }
+        return resolve(rows);
+    }
+
+    /**
+     * Turns stored rows into readings, loading their dumpsters in one query. Rows of dumpsters that no longer exist
+     * are left out.
+     */
+    List<Usage> resolve(List<UsageRow> rows) {
+        if (rows.isEmpty()) {
+            return List.of();
+        }
+        Set<String> dumpsterIds = rows.stream().map(UsageRow::dumpsterId).collect(Collectors.toSet());
+        Map<String, Dumpster> dumpsters = dumpsterRepository.findAllById(dumpsterIds).stream()
+                .collect(Collectors.toMap(Dumpster::getDumpsterId, Function.identity()));
+
+        List<Usage> usages = new ArrayList<>(rows.size());
+        for (UsageRow row : rows) {
+            Dumpster dumpster = dumpsters.get(row.dumpsterId());
+            if (dumpster == null) {
+                continue;
+            }
+            Usage usage = new Usage(dumpster, row.date(), row.fillLevel(), row.containersCount());
+            usage.setId(row.id());
+            usage.setRecordedAt(row.recordedAt());
+            usages.add(usage);
+        }
+        return usages;
+    }
+
+    /**
+     * One {@code UNION ALL} branch per partition, so months outside the range are never read.
+     */
+    private List<UsageRow> query(List<YearMonth> months, String condition, Object... args) {
+        if (months.isEmpty()) {
+            return List.of();
+        }
+        StringBuilder sql = new StringBuilder();
+        Object[] allArgs = new Object[months.size() * args.length];
+        for (int i = 0; i < months.size(); i++) {
+            if (i > 0) {
+                sql.append(" UNION ALL ");
+            }
+            sql.append("SELECT ").append(COLUMNS).append(" FROM ").append(UsagePartitions.table(months.get(i)))
+                    .append(" WHERE ").append(condition);
+            System.arraycopy(args, 0, allArgs, i * args.length, args.length);
+        }
+        sql.append(" ORDER BY date DESC, id DESC");
+        return jdbcTemplate.query(sql.toString(), UsageRow::map, allArgs);
+    }
+}
@@ -0,0 +1,20 @@
+package com.ecoembes.ecoembes.repository;
+
+import com.ecoembes.ecoembes.domain.FillLevel;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * A stored usage reading, with its dumpster as an ID. Read from {@link UsageRepository#COLUMNS}.
+ */
+record UsageRow(long id, String dumpsterId, LocalDate date, FillLevel fillLevel, int containersCount,
+                LocalDateTime recordedAt) {
+
+    static UsageRow map(ResultSet rs, int rowNum) throws SQLException {
+        return new UsageRow(rs.getLong(1), rs.getString(2), rs.getDate(3).toLocalDate(), FillLevel.ofCode(rs.getByte(4)), rs.getInt(5),
+                rs.getTimestamp(6).toLocalDateTime());
+    }
+}
@@ -0,0 +1,313 @@
+package com.ecoembes.ecoembes.service;
+
+import com.ecoembes.ecoembes.domain.GeoPoint;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Spreads dumpsters over plants so that the dumpsters are as close to their plants as possible, without giving a
+ * plant more containers than it has room for.
+ * <p>
+ * A greedy pass places the dumpsters in order of regret, how much further their second closest plant is than their
+ * closest, each at the closest of its {@value #CANDIDATES} closest plants that has room, or else at the closest plant
+ * with room anywhere. Local search then moves dumpsters to closer plants with room and swaps pairs of dumpsters
+ * between plants while that shortens the total distance, until a pass gains less than a thousandth of the total or
+ * the time budget runs out.
+ * A dumpster that fits nowhere is left unassigned.
+ * <p>
+ * Distances are chord lengths through the earth, which rank plants like distances along the surface and differ from
+ * them by less than a metre at city scale. Dumpsters without a known position go wherever room is left once the
+ * others are placed; every plant must have one.
+ */
+final class AssignmentOptimizer {
+
+    static final int UNASSIGNED = -1;
+
+    private static final int CANDIDATES = 8;
+    private static final int MAX_PASSES = 20;
+    // Local search stops once a pass shortens the total by less than this share of it
+    private static final double MIN_PASS_GAIN = 1e-3;
+    private static final double EARTH_RADIUS_METERS = 6_371_008.8;
+    // Changes that shorten the total by less than this are rounding noise, and would let swaps go back and forth
+    private static final double MIN_GAIN_METERS = 1e-3;
+
+    private final int plants;
+    private final long[] load;
+    private final long[] remaining;
+    // Positions as points on the unit sphere; NaN for dumpsters without a position
+    private final double[] dumpsterX, dumpsterY, dumpsterZ;
+    private final double[] plantX, plantY, plantZ;
+    private final int[][] candidates;
+    private final int[] plantOf;
+    // The dumpsters at each plant, and the index of each dumpster in its plant's array
+    private final int[][] members;
+    private final int[] memberCount;
+    private final int[] slot;
+
+    AssignmentOptimizer(List<GeoPoint> dumpsterPositions, long[] load, List<GeoPoint> plantPositions, long[] capacity) {
+        int dumpsters = dumpsterPositions.size();
+        this.plants = plantPositions.size();
+        this.load = load.clone();
+        this.remaining = capacity.clone();
+        this.dumpsterX = new double[dumpsters];
+        this.dumpsterY = new double[dumpsters];
+        this.dumpsterZ = new double[dumpsters];
+        for (int d = 0; d < dumpsters; d++) {
+            toUnitVector(dumpsterPositions.get(d), d, dumpsterX, dumpsterY, dumpsterZ);
+        }
+        this.plantX = new double[plants];
+        this.plantY = new double[plants];
+        this.plantZ = new double[plants];
+        for (int p = 0; p < plants; p++) {
+            toUnitVector(plantPositions.get(p), p, plantX, plantY, plantZ);
+        }
+        this.candidates = new int[dumpsters][];
+        this.plantOf = new int[dumpsters];
+        Arrays.fill(plantOf, UNASSIGNED);
+        this.members = new int[plants][];
+        Arrays.fill(members, new int[0]);
+        this.memberCount = new int[plants];
+        this.slot = new int[dumpsters];
+    }
+
+    /**
+     * Returns the index of the plant of each dumpster, or {@link #UNASSIGNED}.
+     */
+    int[] solve(Duration budget) {
+        long deadline = System.nanoTime() + budget.toNanos();
+        if (plants > 0) {
+            greedy();
+            for (int pass = 0; pass < MAX_PASSES && System.nanoTime() < deadline; pass++) {
+                double total = totalDistance();
+                int unassigned = unassigned();
+                double gain = improve(deadline);
+                if (gain < total * MIN_PASS_GAIN && unassigned() == unassigned) {
+                    break;
+                }
+            }
+        }
+        return plantOf.clone();
+    }
+
+    /**
+     * Distance from the dumpster to the plant in metres, or NaN if the dumpster has no position.
+     */
+    double distance(int dumpster, int plant) {
+        double x = dumpsterX[dumpster] - plantX[plant];
+        double y = dumpsterY[dumpster] - plantY[plant];
+        double z = dumpsterZ[dumpster] - plantZ[plant];
+        return Math.sqrt(x * x + y * y + z * z) * EARTH_RADIUS_METERS;
+    }
+
+    private void greedy() {
+        int dumpsters = plantOf.length;
+        double[] regret = new double[dumpsters];
+        for (int d = 0; d < dumpsters; d++) {
+            if (located(d)) {
+                candidates[d] = closestPlants(d);
+                regret[d] = candidates[d].length > 1
+                        ? distance(d, candidates[d][1]) - distance(d, candidates[d][0]) : Double.MAX_VALUE;
+            }
+        }
+        int[] order = IntStream.range(0, dumpsters)
+                .filter(this::located)
+                .boxed()
+                .sorted((a, b) -> Double.compare(regret[b], regret[a]))
+                .mapToInt(Integer::intValue)
+                .toArray();
+        for (int d : order) {
+            int plant = closestWithRoom(d, candidates[d]);
+            if (plant == UNASSIGNED) {
+                plant = closestWithRoom(d);
+            }
+            if (plant != UNASSIGNED) {
+                assign(d, plant);
+            }
+        }
+        for (int d = 0; d < dumpsters; d++) {
+            if (!located(d)) {
+                int roomiest = 0;
+                for (int p = 1; p < plants; p++) {
+                    if (remaining[p] > remaining[roomiest]) {
+                        roomiest = p;
+                    }
+                }
+                if (remaining[roomiest] >= load[d]) {
+                    assign(d, roomiest);
+                }
+            }
+        }
+    }
+
+    /**
+     * One pass of moves and swaps over every dumpster with a position, which also places those left unassigned where
+     * room has been freed. Returns how much shorter the total got.
+     */
+    private double improve(long deadline) {
+        double gain = 0;
+        for (int d = 0; d < plantOf.length; d++) {
+            if ((d & 0xFF) == 0 && System.nanoTime() >= deadline) {
+                break;
+            }
+            if (!located(d)) {
+                continue;
+            }
+            int from = plantOf[d];
+            if (from == UNASSIGNED) {
+                // Room may have been freed where it was short
+                int plant = closestWithRoom(d, candidates[d]);
+                if (plant != UNASSIGNED) {
+                    assign(d, plant);
+                }
+                continue;
+            }
+            gain += moveCloser(d, from);
+        }
+        return gain;
+    }
+
+    /**
+     * Moves the dumpster to a closer candidate plant with room, or swaps it with a dumpster there when the swap
+     * shortens the total. Returns by how much the total got shorter.
+     */
+    private double moveCloser(int d, int from) {
+        double current = distance(d, from);
+        for (int to : candidates[d]) {
+            if (to == from) {
+                // Candidates are closest first, so no later one is closer
+                return 0;
+            }
+            double gain = current - distance(d, to);
+            if (gain < MIN_GAIN_METERS) {
+                continue;
+            }
+            if (remaining[to] >= load[d]) {
+                unassign(d);
+                assign(d, to);
+                return gain;
+            }
+            int[] there = members[to];
+            for (int i = 0; i < memberCount[to]; i++) {
+                int other = there[i];
+                if (!located(other)
+                        || remaining[to] + load[other] < load[d]
+                        || remaining[from] + load[d] < load[other]) {
+                    continue;
+                }
+                double swapGain = gain + distance(other, to) - distance(other, from);
+                if (swapGain >= MIN_GAIN_METERS) {
+                    unassign(d);
+                    unassign(other);
+                    assign(d, to);
+                    assign(other, from);
+                    return swapGain;
+                }
+            }
+        }
+        return 0;
+    }
+
+    private double totalDistance() {
+        double total = 0;
+        for (int d = 0; d < plantOf.length; d++) {
+            if (located(d) && plantOf[d] != UNASSIGNED) {
+                total += distance(d, plantOf[d]);
+            }
+        }
+        return total;
+    }
+
+    private int unassigned() {
+        int count = 0;
+        for (int plant : plantOf) {
+            if (plant == UNASSIGNED) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private int[] closestPlants(int d) {
+        int size = Math.min(CANDIDATES, plants);
+        int[] closest = new int[size];
+        double[] distances = new double[size];
+        int count = 0;
+        for (int p = 0; p < plants; p++) {
+            double distance = distance(d, p);
+            if (count == size && distance >= distances[size - 1]) {
+                continue;
+            }
+            int i = count < size ? count++ : size - 1;
+            while (i > 0 && distances[i - 1] > distance) {
+                closest[i] = closest[i - 1];
+                distances[i] = distances[i - 1];
+                i--;
+            }
+            closest[i] = p;
+            distances[i] = distance;
+        }
+        return closest;
+    }
+
+    private int closestWithRoom(int d, int[] plantsByDistance) {
+        for (int p : plantsByDistance) {
+            if (remaining[p] >= load[d]) {
+                return p;
+            }
+        }
+        return UNASSIGNED;
+    }
+
+    private int closestWithRoom(int d) {
+        int closest = UNASSIGNED;
+        double closestDistance = Double.MAX_VALUE;
+        for (int p = 0; p < plants; p++) {
+            if (remaining[p] >= load[d]) {
+                double distance = distance(d, p);
+                if (distance < closestDistance) {
+                    closest = p;
+                    closestDistance = distance;
+                }
+            }
+        }
+        return closest;
+    }
+
+    private void assign(int d, int plant) {
+        plantOf[d] = plant;
+        remaining[plant] -= load[d];
+        if (memberCount[plant] == members[plant].length) {
+            members[plant] = Arrays.copyOf(members[plant], Math.max(8, memberCount[plant] * 2));
+        }
+        slot[d] = memberCount[plant];
+        members[plant][memberCount[plant]++] = d;
+    }
+
+    private void unassign(int d) {
+        int plant = plantOf[d];
+        plantOf[d] = UNASSIGNED;
+        remaining[plant] += load[d];
+        int last = members[plant][--memberCount[plant]];
+        members[plant][slot[d]] = last;
+        slot[last] = slot[d];
+    }
+
+    private boolean located(int d) {
+        return !Double.isNaN(dumpsterX[d]);
+    }
+
+    private static void toUnitVector(GeoPoint position, int i, double[] x, double[] y, double[] z) {
+        if (position == null) {
+            x[i] = y[i] = z[i] = Double.NaN;
+            return;
+        }
+        double latitude = Math.toRadians(position.latitude());
+        double longitude = Math.toRadians(position.longitude());
+        x[i] = Math.cos(latitude) * Math.cos(longitude);
+        y[i] = Math.cos(latitude) * Math.sin(longitude);
+        z[i] = Math.sin(latitude);
+    }
+}
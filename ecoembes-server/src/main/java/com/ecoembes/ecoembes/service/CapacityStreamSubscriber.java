@@ -0,0 +1,121 @@
+package com.ecoembes.ecoembes.service;
+
+import com.ecoembes.ecoembes.domain.Plant;
+import com.ecoembes.ecoembes.repository.PlantRepository;
+import com.ecoembes.ecoembes.service.remote.CapacityChange;
+import com.ecoembes.ecoembes.service.remote.CapacityListener;
+import com.ecoembes.ecoembes.service.remote.PlantCapacityView;
+import com.ecoembes.ecoembes.service.remote.ServiceGateway;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps the {@link PlantCapacityView} current from the plants' capacity streams, so capacity queries are answered
+ * locally instead of polling the plants. Plants are grouped by server and each server gets one stream, read on its
+ * own thread straight through the unguarded gateway, since a stream is meant to stay open far longer than any call
+ * timeout. A stream that drops takes its plants out of the view, so their queries poll the plant again until the
+ * stream is reconnected.
+ */
+@Component
+public class CapacityStreamSubscriber implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(CapacityStreamSubscriber.class);
+
+    private final PlantRepository plantRepository;
+    private final Map<String, ServiceGateway> gateways;
+    private final PlantCapacityView capacityView;
+    private final boolean enabled;
+    private final long reconnectDelayMillis;
+    private final List<Thread> streams = new ArrayList<>();
+    private volatile boolean running;
+
+    public CapacityStreamSubscriber(PlantRepository plantRepository,
+                                    Map<String, ServiceGateway> gateways,
+                                    PlantCapacityView capacityView,
+                                    @Value("${plants.capacity-stream.enabled:false}") boolean enabled,
+                                    @Value("${plants.capacity-stream.reconnect-delay:5s}") Duration reconnectDelay) {
+        this.plantRepository = plantRepository;
+        this.gateways = gateways;
+        this.capacityView = capacityView;
+        this.enabled = enabled;
+        this.reconnectDelayMillis = reconnectDelay.toMillis();
+    }
+
+    /**
+     * Opens one stream per plant server once the plants are loaded.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        if (!enabled || running) {
+            return;
+        }
+        running = true;
+        Map<String, List<Plant>> plantsByServer = new LinkedHashMap<>();
+        for (Plant plant : plantRepository.findAll()) {
+            if (plant.getHost() != null && gateways.containsKey(plant.getGatewayType())) {
+                plantsByServer.computeIfAbsent(plant.getGatewayType() + " " + plant.getHost() + ":" + plant.getPort(),
+                        server -> new ArrayList<>()).add(plant);
+            }
+        }
+        plantsByServer.forEach((server, plants) -> {
+            Thread thread = new Thread(() -> stream(server, plants), "capacity-stream " + server);
+            thread.setDaemon(true);
+            thread.start();
+            streams.add(thread);
+        });
+    }
+
+    private void stream(String server, List<Plant> plants) {
+        ServiceGateway gateway = gateways.get(plants.get(0).getGatewayType());
+        List<String> plantIds = plants.stream().map(Plant::getPlantId).toList();
+        boolean reported = false;
+        while (running) {
+            try {
+                gateway.streamCapacityChanges(plants, new CapacityListener() {
+                    @Override
+                    public void connected() {
+                        capacityView.connected(plantIds);
+                        log.info("Capacity stream from {} up for {}", server, plantIds);
+                    }
+
+                    @Override
+                    public void changed(CapacityChange change) {
+                        capacityView.changed(change);
+                    }
+                });
+                reported = false;
+            } catch (Exception e) {
+                // Report an unreachable server once, not on every reconnect attempt
+                if (!reported && running) {
+                    log.warn("Capacity stream from {} down, polling {} until it reconnects: {}", server, plantIds, e.toString());
+                }
+                reported = true;
+            } finally {
+                capacityView.disconnected(plantIds);
+            }
+            try {
+                Thread.sleep(reconnectDelayMillis);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    @Override
+    public synchronized void destroy() {
+        running = false;
+        streams.forEach(Thread::interrupt);
+        streams.clear();
+    }
+}
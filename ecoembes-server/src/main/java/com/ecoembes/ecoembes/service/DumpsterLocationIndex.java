@@ -0,0 +1,190 @@
+package com.ecoembes.ecoembes.service;
+
+import com.ecoembes.ecoembes.domain.GeoPoint;
+import com.ecoembes.ecoembes.repository.DumpsterRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * In-memory grid of dumpster positions. The map is cut into cells of {@value #CELL_DEGREES} degrees, about a
+ * kilometre, and an area query only looks at the dumpsters in the cells it overlaps. Loaded from the database once
+ * the application is ready and kept up to date by {@link DumpsterService} as dumpsters are created.
+ * <p>
+ * Polygons are tested on the plane of latitude and longitude, which is accurate at city scale but not for areas
+ * that cross the antimeridian.
+ */
+@Component
+public class DumpsterLocationIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(DumpsterLocationIndex.class);
+
+    static final double CELL_DEGREES = 0.01;
+    private static final double METERS_PER_DEGREE = 111_320;
+
+    private final DumpsterRepository dumpsterRepository;
+    private final Map<Long, Entry[]> cells = new ConcurrentHashMap<>();
+    private final Map<String, Entry> byId = new ConcurrentHashMap<>();
+
+    public DumpsterLocationIndex(DumpsterRepository dumpsterRepository) {
+        this.dumpsterRepository = dumpsterRepository;
+    }
+
+    /**
+     * A dumpster found by a query, with its distance from the query point where there is one.
+     */
+    public record Hit(String dumpsterId, GeoPoint position, double distanceMeters) {
+    }
+
+    private record Entry(String dumpsterId, GeoPoint position, long cell) {
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        long start = System.nanoTime();
+        List<Object[]> rows = dumpsterRepository.findAllPositions();
+        for (Object[] row : rows) {
+            put((String) row[0], new GeoPoint((Double) row[1], (Double) row[2]));
+        }
+        log.info("Indexed the positions of {} dumpsters in {} cells in {} ms", byId.size(), cells.size(),
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Adds a dumpster, or moves it if it is already indexed. A null position removes it.
+     */
+    public synchronized void put(String dumpsterId, GeoPoint position) {
+        Entry previous = position == null ? byId.remove(dumpsterId) : byId.put(dumpsterId, entry(dumpsterId, position));
+        if (previous != null) {
+            cells.computeIfPresent(previous.cell(), (cell, entries) -> {
+                Entry[] remaining = Arrays.stream(entries).filter(e -> !e.dumpsterId().equals(dumpsterId)).toArray(Entry[]::new);
+                return remaining.length == 0 ? null : remaining;
+            });
+        }
+        if (position != null) {
+            Entry entry = byId.get(dumpsterId);
+            cells.merge(entry.cell(), new Entry[]{entry}, (entries, added) -> {
+                Entry[] grown = Arrays.copyOf(entries, entries.length + 1);
+                grown[entries.length] = added[0];
+                return grown;
+            });
+        }
+    }
+
+    public int size() {
+        return byId.size();
+    }
+
+    /**
+     * Dumpsters within {@code radiusMeters} of {@code center}, nearest first.
+     */
+    public List<Hit> withinRadius(GeoPoint center, double radiusMeters) {
+        double latSpan = radiusMeters / METERS_PER_DEGREE;
+        double lonSpan = radiusMeters / (METERS_PER_DEGREE * Math.max(Math.cos(Math.toRadians(center.latitude())), 1e-6));
+        List<Hit> hits = new ArrayList<>();
+        scan(center.latitude() - latSpan, center.latitude() + latSpan,
+                center.longitude() - lonSpan, center.longitude() + lonSpan, entry -> {
+                    double distance = center.distanceTo(entry.position());
+                    if (distance <= radiusMeters) {
+                        hits.add(new Hit(entry.dumpsterId(), entry.position(), distance));
+                    }
+                });
+        hits.sort(Comparator.comparingDouble(Hit::distanceMeters));
+        return hits;
+    }
+
+    /**
+     * Dumpsters inside the polygon with the given vertices, in no particular order.
+     */
+    public List<Hit> withinPolygon(List<GeoPoint> polygon) {
+        if (polygon.size() < 3) {
+            throw new IllegalArgumentException("A polygon needs at least 3 vertices, got " + polygon.size());
+        }
+        double minLat = Double.MAX_VALUE, maxLat = -Double.MAX_VALUE, minLon = Double.MAX_VALUE, maxLon = -Double.MAX_VALUE;
+        for (GeoPoint vertex : polygon) {
+            minLat = Math.min(minLat, vertex.latitude());
+            maxLat = Math.max(maxLat, vertex.latitude());
+            minLon = Math.min(minLon, vertex.longitude());
+            maxLon = Math.max(maxLon, vertex.longitude());
+        }
+        List<Hit> hits = new ArrayList<>();
+        scan(minLat, maxLat, minLon, maxLon, entry -> {
+            if (contains(polygon, entry.position())) {
+                hits.add(new Hit(entry.dumpsterId(), entry.position(), 0));
+            }
+        });
+        return hits;
+    }
+
+    /**
+     * Visits the dumpsters in the cells that overlap the box. A box covering more cells than are occupied walks the
+     * occupied cells instead.
+     */
+    private void scan(double minLat, double maxLat, double minLon, double maxLon, Consumer<Entry> visitor) {
+        long fromRow = row(Math.max(minLat, -90));
+        long toRow = row(Math.min(maxLat, 90));
+        long fromColumn = column(Math.max(minLon, -180));
+        long toColumn = column(Math.min(maxLon, 180));
+        if ((toRow - fromRow + 1) * (toColumn - fromColumn + 1) > cells.size()) {
+            for (Map.Entry<Long, Entry[]> cell : cells.entrySet()) {
+                long row = cell.getKey() >> 32;
+                long column = (int) (long) cell.getKey();
+                if (row >= fromRow && row <= toRow && column >= fromColumn && column <= toColumn) {
+                    Arrays.stream(cell.getValue()).forEach(visitor);
+                }
+            }
+            return;
+        }
+        for (long row = fromRow; row <= toRow; row++) {
+            for (long column = fromColumn; column <= toColumn; column++) {
+                Entry[] entries = cells.get(key(row, column));
+                if (entries != null) {
+                    Arrays.stream(entries).forEach(visitor);
+                }
+            }
+        }
+    }
+
+    /**
+     * Even-odd ray casting along the parallel of the point.
+     */
+    static boolean contains(List<GeoPoint> polygon, GeoPoint point) {
+        boolean inside = false;
+        for (int i = 0, j = polygon.size() - 1; i < polygon.size(); j = i++) {
+            GeoPoint a = polygon.get(i);
+            GeoPoint b = polygon.get(j);
+            if ((a.latitude() > point.latitude()) != (b.latitude() > point.latitude())
+                    && point.longitude() < (b.longitude() - a.longitude()) * (point.latitude() - a.latitude())
+                    / (b.latitude() - a.latitude()) + a.longitude()) {
+                inside = !inside;
+            }
+        }
+        return inside;
+    }
+
+    private static Entry entry(String dumpsterId, GeoPoint position) {
+        return new Entry(dumpsterId, position, key(row(position.latitude()), column(position.longitude())));
+    }
+
+    private static long row(double latitude) {
+        return (long) Math.floor(latitude / CELL_DEGREES);
+    }
+
+    private static long column(double longitude) {
+        return (long) Math.floor(longitude / CELL_DEGREES);
+    }
+
+    private static long key(long row, long column) {
+        return (row << 32) | (column & 0xFFFFFFFFL);
+    }
+}
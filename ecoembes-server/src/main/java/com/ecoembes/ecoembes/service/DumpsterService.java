@@ -1,15 +1,26 @@
 package com.ecoembes.ecoembes.service;
 
 import com.ecoembes.ecoembes.domain.Dumpster;
+import com.ecoembes.ecoembes.domain.FillLevel;
+import com.ecoembes.ecoembes.domain.GeoPoint;
 import com.ecoembes.ecoembes.domain.Usage;
 import com.ecoembes.ecoembes.repository.DumpsterRepository;
+import com.ecoembes.ecoembes.repository.UsageArchive;
 import com.ecoembes.ecoembes.repository.UsageRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * Handles dumpster-related operations.
@@ -18,12 +29,22 @@ import java.util.UUID;
 @Service
 public class DumpsterService {
 
+    private static final Logger log = LoggerFactory.getLogger(DumpsterService.class);
+
+    private static final Comparator<Usage> NEWEST_FIRST = Comparator.comparing(Usage::getDate)
+            .thenComparing(Usage::getId).reversed();
+
     private final DumpsterRepository dumpsterRepository;
     private final UsageRepository usageRepository;
+    private final UsageArchive usageArchive;
+    private final DumpsterLocationIndex locationIndex;
 
-    public DumpsterService(DumpsterRepository dumpsterRepository, UsageRepository usageRepository) {
+    public DumpsterService(DumpsterRepository dumpsterRepository, UsageRepository usageRepository,
+                           UsageArchive usageArchive, DumpsterLocationIndex locationIndex) {
         this.dumpsterRepository = dumpsterRepository;
         this.usageRepository = usageRepository;
+        this.usageArchive = usageArchive;
+        this.locationIndex = locationIndex;
     }
 
     /**
@@ -31,13 +52,26 @@ public class DumpsterService {
      */
     @Transactional
     public Dumpster createNewDumpster(String location, Double capacity) {
+        return createNewDumpster(location, capacity, null);
+    }
+
+    /**
+     * Creates a new dumpster with generated ID at a known position, or an unknown one if {@code position} is null.
+     */
+    @Transactional
+    public Dumpster createNewDumpster(String location, Double capacity, GeoPoint position) {
         String newId = "D-" + UUID.randomUUID().toString().substring(0, 8);
         String postalCode = extractPostalCode(location);
 
         Dumpster dumpster = new Dumpster(newId, location, postalCode, capacity);
+        dumpster.setPosition(position);
         dumpster = dumpsterRepository.save(dumpster);
+        if (position != null) {
+            // Indexed before commit; if the transaction rolls back the ID finds no dumpster and is skipped
+            locationIndex.put(newId, position);
+        }
 
-        System.out.println("Created dumpster: " + newId + " at " + location + " with capacity " + capacity);
+        log.info("Created dumpster {} at {} with capacity {}", newId, location, capacity);
 
         return dumpster;
     }
@@ -48,10 +82,6 @@ public class DumpsterService {
      */
     @Transactional(readOnly = true)
     public List<Dumpster> getDumpsterStatus(String postalCode, LocalDate date) {
-        System.out.println("=== GET DUMPSTER STATUS ===");
-        System.out.println("Postal code filter: " + postalCode);
-        System.out.println("Date filter: " + date);
-
         List<Dumpster> dumpsters;
         if (postalCode != null && !postalCode.isEmpty()) {
             dumpsters = dumpsterRepository.findByPostalCode(postalCode);
@@ -59,21 +89,76 @@ public class DumpsterService {
             dumpsters = dumpsterRepository.findAll();
         }
 
-        System.out.println("Returning " + dumpsters.size() + " dumpsters");
+        log.debug("Returning {} dumpsters for postal code {} on {}", dumpsters.size(), postalCode, date);
         return dumpsters;
     }
 
     /**
-     * Queries usage history for dumpsters within a date range.
+     * Dumpsters at {@code minFillLevel} or fuller, fullest first, for building collection lists. Limited to the
+     * given postal codes unless there are none.
      */
     @Transactional(readOnly = true)
-    public List<Usage> queryDumpsterUsage(LocalDate startDate, LocalDate endDate) {
-        System.out.println("=== QUERY DUMPSTER USAGE ===");
-        System.out.println("Date range: " + startDate + " to " + endDate);
+    public List<Dumpster> getDumpstersToCollect(FillLevel minFillLevel, Collection<String> postalCodes) {
+        List<Dumpster> dumpsters;
+        if (postalCodes == null || postalCodes.isEmpty()) {
+            dumpsters = dumpsterRepository.findByFillLevelIn(minFillLevel.andAbove());
+        } else {
+            dumpsters = dumpsterRepository.findByFillLevelInAndPostalCodeIn(minFillLevel.andAbove(), postalCodes);
+        }
+
+        log.debug("Found {} dumpsters at {} or above in {}", dumpsters.size(), minFillLevel,
+                postalCodes == null || postalCodes.isEmpty() ? "all postal codes" : postalCodes.size() + " postal codes");
+        return dumpsters;
+    }
+
+    /**
+     * Dumpsters within {@code radiusMeters} of {@code center}, nearest first.
+     */
+    @Transactional(readOnly = true)
+    public List<Dumpster> getDumpstersNear(GeoPoint center, double radiusMeters) {
+        return load(locationIndex.withinRadius(center, radiusMeters));
+    }
+
+    /**
+     * Dumpsters inside the polygon with the given vertices.
+     */
+    @Transactional(readOnly = true)
+    public List<Dumpster> getDumpstersWithin(List<GeoPoint> polygon) {
+        return load(locationIndex.withinPolygon(polygon));
+    }
 
-        List<Usage> usages = usageRepository.findByDateBetween(startDate, endDate);
+    /**
+     * Loads the dumpsters of index hits, in the order of the hits.
+     */
+    private List<Dumpster> load(List<DumpsterLocationIndex.Hit> hits) {
+        if (hits.isEmpty()) {
+            return List.of();
+        }
+        Map<String, Dumpster> dumpsters = dumpsterRepository.findAllById(hits.stream().map(DumpsterLocationIndex.Hit::dumpsterId).toList())
+                .stream().collect(Collectors.toMap(Dumpster::getDumpsterId, Function.identity()));
+        List<Dumpster> ordered = new ArrayList<>(dumpsters.size());
+        for (DumpsterLocationIndex.Hit hit : hits) {
+            Dumpster dumpster = dumpsters.get(hit.dumpsterId());
+            if (dumpster != null) {
+                ordered.add(dumpster);
+            }
+        }
+        log.debug("Found {} dumpsters by position", ordered.size());
+        return ordered;
+    }
 
-        System.out.println("Found " + usages.size() + " usage records in date range");
+    /**
+     * Queries usage history for dumpsters within a date range, newest first.
+     * Recent months come from the database and older ones from the usage archive.
+     */
+    @Transactional(readOnly = true)
+    public List<Usage> queryDumpsterUsage(LocalDate startDate, LocalDate endDate) {
+        // Live history first: a month archived in between is then found in the archive, and a reading seen in both
+        // is kept once
+        List<Usage> live = usageRepository.findByDateBetween(startDate, endDate);
+        List<Usage> usages = merge(live, usageArchive.findByDateBetween(startDate, endDate));
+
+        log.debug("Found {} usage records between {} and {}", usages.size(), startDate, endDate);
         return usages;
     }
 
@@ -81,7 +166,7 @@ public class DumpsterService {
      * Updates dumpster status (for testing/simulation purposes)
      */
     @Transactional
-    public Dumpster updateDumpsterStatus(String dumpsterId, String fillLevel, Integer containersNumber) {
+    public Dumpster updateDumpsterStatus(String dumpsterId, FillLevel fillLevel, Integer containersNumber) {
         Dumpster dumpster = dumpsterRepository.findById(dumpsterId)
                 .orElseThrow(() -> new RuntimeException("Dumpster not found: " + dumpsterId));
 
@@ -91,12 +176,37 @@ public class DumpsterService {
         Usage usage = new Usage(dumpster, LocalDate.now(), fillLevel, containersNumber);
         usageRepository.save(usage);
 
-        System.out.println("Updated dumpster " + dumpsterId + ": " + fillLevel + ", " + containersNumber + " containers");
+        log.debug("Updated dumpster {}: {}, {} containers", dumpsterId, fillLevel, containersNumber);
 
         return dumpster;
     }
 
-    private String extractPostalCode(String location) {
+    /**
+     * Merges two lists of readings that are each newest first, keeping one of any reading that is in both.
+     */
+    static List<Usage> merge(List<Usage> a, List<Usage> b) {
+        if (a.isEmpty() || b.isEmpty()) {
+            return a.isEmpty() ? b : a;
+        }
+        List<Usage> merged = new ArrayList<>(a.size() + b.size());
+        int i = 0;
+        int j = 0;
+        while (i < a.size() && j < b.size()) {
+            int order = NEWEST_FIRST.compare(a.get(i), b.get(j));
+            if (order == 0) {
+                j++;
+            }
+            merged.add(order <= 0 ? a.get(i++) : b.get(j++));
+        }
+        merged.addAll(a.subList(i, a.size()));
+        merged.addAll(b.subList(j, b.size()));
+        return merged;
+    }
+
+    /**
+     * Returns the first five-digit word of the location, or {@code 00000} if there is none.
+     */
+    static String extractPostalCode(String location) {
         if (location != null && location.matches(".*\\b\\d{5}\\b.*")) {
             String[] parts = location.split("\\s+");
             for (String part : parts) {
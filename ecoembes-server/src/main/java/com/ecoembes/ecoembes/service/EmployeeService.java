@@ -4,6 +4,8 @@ import com.ecoembes.ecoembes.domain.Employee;
 import com.ecoembes.ecoembes.exception.LoginException;
 import com.ecoembes.ecoembes.repository.EmployeeRepository;
 import com.ecoembes.ecoembes.statemanagement.SessionManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
 import java.time.Instant;
@@ -14,6 +16,8 @@ import java.time.Instant;
 @Service
 public class EmployeeService {
 
+    private static final Logger log = LoggerFactory.getLogger(EmployeeService.class);
+
     private final SessionManager sessionManager;
     private final EmployeeRepository employeeRepository;
 
@@ -27,17 +31,15 @@ public class EmployeeService {
      * Session token creation is handled by controller.
      */
     public Employee login(String email, String password) {
-        System.out.println("Attempting login for email: " + email);
-
         Employee employee = employeeRepository.findByEmail(email)
                 .orElseThrow(() -> new LoginException("Invalid email or password."));
 
         if (!employee.getPassword().equals(password)) {
-            System.out.println("Login failed for email: " + email);
+            log.info("Login failed for {}", email);
             throw new LoginException("Invalid email or password.");
         }
 
-        System.out.println("Login successful for " + employee.getName());
+        log.info("Login successful for {}", employee.getEmail());
         return employee;
     }
 
@@ -49,7 +51,7 @@ public class EmployeeService {
         String token = String.valueOf(timestamp);
 
         sessionManager.storeToken(token, employee);
-        System.out.println("Token created: " + token + " for employee: " + employee.getEmail());
+        log.debug("Session token created for {}", employee.getEmail());
         return token;
     }
 
@@ -58,6 +60,6 @@ public class EmployeeService {
      */
     public void logout(String token) {
         sessionManager.removeToken(token);
-        System.out.println("Logout successful for token: " + token);
+        log.debug("Session closed");
     }
 }
\ No newline at end of file
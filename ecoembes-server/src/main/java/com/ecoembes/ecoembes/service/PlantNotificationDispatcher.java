@@ -0,0 +1,205 @@
+package com.ecoembes.ecoembes.service;
+
+import com.ecoembes.ecoembes.domain.Plant;
+import com.ecoembes.ecoembes.domain.PlantNotification;
+import com.ecoembes.ecoembes.repository.PlantNotificationRepository;
+import com.ecoembes.ecoembes.repository.PlantRepository;
+import com.ecoembes.ecoembes.service.remote.BatchedNotification;
+import com.ecoembes.ecoembes.service.remote.ServiceGateway;
+import com.ecoembes.ecoembes.service.remote.ServiceGatewayFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Delivers queued plant notifications from the outbox.
+ * Runs on a single background thread, woken after each assignment commit and on a fixed poll interval.
+ * A wake-up waits a short coalescing window so notifications queued close together go out as one message
+ * per (plant, arrival date). Due rows are claimed in batches, failures are retried with jittered exponential
+ * backoff, and rows that keep failing are parked as FAILED. No database transaction is held while a plant is called.
+ */
+@Component
+public class PlantNotificationDispatcher implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(PlantNotificationDispatcher.class);
+
+    private final PlantNotificationRepository notificationRepository;
+    private final PlantRepository plantRepository;
+    private final ServiceGatewayFactory serviceGatewayFactory;
+    private final int batchSize;
+    private final long baseBackoffMillis;
+    private final long maxBackoffMillis;
+    private final int maxAttempts;
+    private final Duration retention;
+    private final long coalesceWindowMillis;
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "outbox-dispatcher");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean drainQueued = new AtomicBoolean();
+
+    public PlantNotificationDispatcher(PlantNotificationRepository notificationRepository,
+                                       PlantRepository plantRepository,
+                                       ServiceGatewayFactory serviceGatewayFactory,
+                                       @Value("${plants.outbox.batch-size:100}") int batchSize,
+                                       @Value("${plants.outbox.base-backoff:1s}") Duration baseBackoff,
+                                       @Value("${plants.outbox.max-backoff:5m}") Duration maxBackoff,
+                                       @Value("${plants.outbox.max-attempts:10}") int maxAttempts,
+                                       @Value("${plants.outbox.retention:1d}") Duration retention,
+                                       @Value("${plants.outbox.coalesce-window:200ms}") Duration coalesceWindow) {
+        this.notificationRepository = notificationRepository;
+        this.plantRepository = plantRepository;
+        this.serviceGatewayFactory = serviceGatewayFactory;
+        this.batchSize = batchSize;
+        this.baseBackoffMillis = baseBackoff.toMillis();
+        this.maxBackoffMillis = maxBackoff.toMillis();
+        this.maxAttempts = maxAttempts;
+        this.retention = retention;
+        this.coalesceWindowMillis = coalesceWindow.toMillis();
+    }
+
+    /**
+     * Wakes the dispatcher once the current transaction commits, so freshly queued rows are visible to it.
+     */
+    public void wakeUpAfterCommit() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    wakeUp();
+                }
+            });
+        } else {
+            wakeUp();
+        }
+    }
+
+    /**
+     * Queues a drain of the outbox after the coalescing window, unless one is already waiting to run.
+     */
+    @Scheduled(fixedDelayString = "${plants.outbox.poll-interval-ms:1000}")
+    public void wakeUp() {
+        if (drainQueued.compareAndSet(false, true)) {
+            executor.schedule(this::drain, coalesceWindowMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${plants.outbox.purge-interval-ms:3600000}")
+    public void purgeSent() {
+        int purged = notificationRepository.deleteByStatusAndSentAtBefore(PlantNotification.SENT, LocalDateTime.now().minus(retention));
+        if (purged > 0) {
+            log.debug("Purged {} delivered notifications from the outbox", purged);
+        }
+    }
+
+    private void drain() {
+        drainQueued.set(false);
+        try {
+            while (dispatchBatch() == batchSize) {
+                // A full batch means more rows may be due
+            }
+        } catch (Exception e) {
+            log.warn("Outbox dispatch failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Delivers one batch of due notifications and returns how many were attempted.
+     * Notifications for the same plant and arrival date are sent together as one message.
+     */
+    int dispatchBatch() {
+        List<PlantNotification> due = notificationRepository.findByStatusAndNextAttemptAtLessThanEqualOrderByIdAsc(
+                PlantNotification.PENDING, LocalDateTime.now(), Limit.of(batchSize));
+        if (due.isEmpty()) {
+            return 0;
+        }
+
+        Map<String, Plant> plants = new HashMap<>();
+        Map<DeliveryGroup, List<PlantNotification>> groups = new LinkedHashMap<>();
+        for (PlantNotification notification : due) {
+            groups.computeIfAbsent(new DeliveryGroup(notification.getPlantId(), notification.getArrivalDate()),
+                    group -> new ArrayList<>()).add(notification);
+        }
+        groups.forEach((group, notifications) -> {
+            Plant plant = plants.computeIfAbsent(group.plantId(), id -> plantRepository.findById(id).orElse(null));
+            deliver(plant, group, notifications);
+        });
+        notificationRepository.saveAll(due);
+        return due.size();
+    }
+
+    private void deliver(Plant plant, DeliveryGroup group, List<PlantNotification> notifications) {
+        LocalDateTime now = LocalDateTime.now();
+        if (plant == null) {
+            notifications.forEach(n -> n.markFailed("Plant not found: " + group.plantId(), now, 0));
+            log.warn("Dropping {} notifications for unknown plant {}", notifications.size(), group.plantId());
+            return;
+        }
+        try {
+            ServiceGateway serviceGateway = serviceGatewayFactory.getServiceGateway(plant.getGatewayType());
+            if (notifications.size() == 1) {
+                PlantNotification notification = notifications.get(0);
+                serviceGateway.notifyIncomingDumpsters(
+                        plant,
+                        notification.getDumpsterIds(),
+                        notification.getTotalContainers(),
+                        notification.getArrivalDate(),
+                        notification.getIdempotencyKey());
+            } else {
+                serviceGateway.notifyIncomingDumpsterBatch(plant, group.arrivalDate(), notifications.stream()
+                        .map(n -> new BatchedNotification(n.getIdempotencyKey(), n.getDumpsterIds(), n.getTotalContainers()))
+                        .toList());
+            }
+            notifications.forEach(n -> n.markSent(now));
+            log.debug("Plant {} notified of {} notifications for {}", plant.getPlantId(), notifications.size(), group.arrivalDate());
+        } catch (Exception e) {
+            for (PlantNotification notification : notifications) {
+                notification.markFailed(e.getMessage(), now.plusNanos(backoffMillis(notification.getAttempts() + 1) * 1_000_000L), maxAttempts);
+                if (PlantNotification.FAILED.equals(notification.getStatus())) {
+                    log.error("Giving up on notification {} for plant {} after {} attempts: {}",
+                            notification.getIdempotencyKey(), plant.getPlantId(), notification.getAttempts(), e.getMessage());
+                }
+            }
+            log.warn("Failed to notify plant {} of {} notifications for {}: {}", plant.getPlantId(), notifications.size(),
+                    group.arrivalDate(), e.getMessage());
+        }
+    }
+
+    /**
+     * Exponential backoff with equal jitter: half the delay is fixed, the other half random.
+     */
+    private long backoffMillis(int attempt) {
+        long delay = Math.min(maxBackoffMillis, baseBackoffMillis << Math.min(attempt - 1, 30));
+        return delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+    }
+
+    private record DeliveryGroup(String plantId, LocalDate arrivalDate) {
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+}
@@ -3,50 +3,100 @@ package com.ecoembes.ecoembes.service;
 import com.ecoembes.ecoembes.domain.Assignment;
 import com.ecoembes.ecoembes.domain.Dumpster;
 import com.ecoembes.ecoembes.domain.Employee;
+import com.ecoembes.ecoembes.domain.GeoPoint;
 import com.ecoembes.ecoembes.domain.Plant;
+import com.ecoembes.ecoembes.domain.PlantNotification;
+import com.ecoembes.ecoembes.exception.CapacityConflictException;
+import com.ecoembes.ecoembes.exception.PlantUnavailableException;
 import com.ecoembes.ecoembes.repository.AssignmentRepository;
 import com.ecoembes.ecoembes.repository.DumpsterRepository;
 import com.ecoembes.ecoembes.repository.EmployeeRepository;
+import com.ecoembes.ecoembes.repository.PlantNotificationRepository;
 import com.ecoembes.ecoembes.repository.PlantRepository;
+import com.ecoembes.ecoembes.service.remote.CapacityReservation;
+import com.ecoembes.ecoembes.service.remote.PlantResilience;
 import com.ecoembes.ecoembes.service.remote.ServiceGateway;
 import com.ecoembes.ecoembes.service.remote.ServiceGatewayFactory;
+import io.micrometer.context.ContextExecutorService;
+import io.micrometer.context.ContextSnapshotFactory;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.Duration;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 public class PlantService {
 
+    private static final Logger log = LoggerFactory.getLogger(PlantService.class);
+
+    // The plants count a thousand containers to the ton
+    private static final double CONTAINERS_PER_TON = 1000;
+    private static final Duration OPTIMIZER_BUDGET = Duration.ofMillis(500);
+
     private final PlantRepository plantRepository;
     private final DumpsterRepository dumpsterRepository;
     private final EmployeeRepository employeeRepository;
     private final AssignmentRepository assignmentRepository;
     private final ServiceGatewayFactory serviceGatewayFactory;
+    private final PlantNotificationRepository plantNotificationRepository;
+    private final PlantNotificationDispatcher notificationDispatcher;
+    private final TransactionTemplate transactionTemplate;
+    // Carry the caller's trace context onto the threads that call the plants
+    private final ExecutorService plantCallExecutor = ContextExecutorService.wrap(Executors.newVirtualThreadPerTaskExecutor(),
+            ContextSnapshotFactory.builder().build()::captureAll);
 
     public PlantService(PlantRepository plantRepository, DumpsterRepository dumpsterRepository,
                         EmployeeRepository employeeRepository, AssignmentRepository assignmentRepository,
-                        ServiceGatewayFactory serviceGatewayFactory) {
+                        ServiceGatewayFactory serviceGatewayFactory, PlantNotificationRepository plantNotificationRepository,
+                        PlantNotificationDispatcher notificationDispatcher, PlatformTransactionManager transactionManager) {
         this.plantRepository = plantRepository;
         this.dumpsterRepository = dumpsterRepository;
         this.employeeRepository = employeeRepository;
         this.assignmentRepository = assignmentRepository;
         this.serviceGatewayFactory = serviceGatewayFactory;
+        this.plantNotificationRepository = plantNotificationRepository;
+        this.notificationDispatcher = notificationDispatcher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Stops taking plant calls and waits for the ones in flight, so none is cut off halfway through a reservation.
+     */
+    @PreDestroy
+    public void shutdown() {
+        plantCallExecutor.close();
     }
 
     @Transactional(readOnly = true)
     public List<Plant> getAllPlants() {
-        System.out.println("Fetching all plants");
         return plantRepository.findAll();
     }
 
     @Transactional(readOnly = true)
     public List<Plant> getPlantCapacityByDate(LocalDate date, String plantId) {
         LocalDate effectiveDate = date != null ? date : LocalDate.now();
-        System.out.println("Fetching plant capacity for date: " + effectiveDate + (plantId != null ? " and plantId: " + plantId : ""));
+        log.debug("Fetching plant capacity for {} (plant filter: {})", effectiveDate, plantId);
 
         if (plantId != null && !plantId.isEmpty()) {
             Plant plant = plantRepository.findById(plantId)
@@ -73,10 +123,163 @@ public class PlantService {
         return null;
     }
 
-    @Transactional
+    /**
+     * A plant with room left on a date, and how far it is.
+     */
+    public record NearestPlant(Plant plant, double capacityTons, double distanceMeters) {
+    }
+
+    /**
+     * The closest plant to {@code position} that has at least {@code requiredTons} free on {@code date}, of the given
+     * type unless it is null. Plants are asked for their capacity nearest first until one has room; a plant that
+     * cannot be reached counts with the capacity last stored for it. Plants without a known position are skipped.
+     */
+    @Transactional(readOnly = true)
+    public Optional<NearestPlant> findNearestPlantWithCapacity(GeoPoint position, LocalDate date, double requiredTons, String type) {
+        LocalDate effectiveDate = date != null ? date : LocalDate.now();
+        List<Plant> candidates = plantRepository.findAll().stream()
+                .filter(plant -> plant.getPosition() != null)
+                .filter(plant -> type == null || type.equalsIgnoreCase(plant.getType()))
+                .sorted(Comparator.comparingDouble(plant -> position.distanceTo(plant.getPosition())))
+                .toList();
+        for (Plant plant : candidates) {
+            double capacity = liveCapacity(plant, effectiveDate);
+            if (capacity >= requiredTons) {
+                return Optional.of(new NearestPlant(plant, capacity, position.distanceTo(plant.getPosition())));
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Capacity left at the plant on the date, in tons, or the capacity last stored for it if it cannot be reached.
+     */
+    private double liveCapacity(Plant plant, LocalDate date) {
+        try {
+            Double remote = serviceGatewayFactory.getServiceGateway(plant.getGatewayType()).getPlantCapacity(plant, date);
+            return remote != null ? remote : plant.getAvailableCapacity();
+        } catch (Exception e) {
+            log.debug("Capacity of {} unavailable, using the stored value: {}", plant.getPlantId(), e.getMessage());
+            return plant.getAvailableCapacity();
+        }
+    }
+
+    /**
+     * The outcome of {@link #assignOptimized}: the assignments made at each plant, the dumpsters no plant had room
+     * for, and the total distance from the assigned dumpsters with a known position to their plants.
+     */
+    public record AssignmentPlan(Map<String, List<Assignment>> assignmentsByPlant, List<String> unassignedDumpsterIds,
+                                 double totalDistanceMeters) {
+    }
+
+    /**
+     * Spreads the dumpsters over the plants with a known position, of the given type unless it is null, keeping
+     * each close to its plant within the capacity the plants report for the date (see {@link AssignmentOptimizer}).
+     * The plants are asked for their capacity and then for a reservation all at once, with no transaction open;
+     * the assignments are then written in one transaction. A plant that refuses its containers fails the whole plan
+     * and the other reservations are released. Dumpsters that fit nowhere are left out and reported.
+     */
+    public AssignmentPlan assignOptimized(String employeeId, List<String> dumpsterIds, LocalDate assignmentDate, String type) {
+        Employee employee = employeeRepository.findById(employeeId)
+                .orElseThrow(() -> new RuntimeException("Employee not found: " + employeeId));
+        LocalDate effectiveDate = assignmentDate != null ? assignmentDate : LocalDate.now();
+        List<String> ids = dumpsterIds.stream().distinct().toList();
+        Map<String, Dumpster> found = dumpsterRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Dumpster::getDumpsterId, Function.identity()));
+        List<Dumpster> dumpsters = ids.stream()
+                .map(id -> Optional.ofNullable(found.get(id))
+                        .orElseThrow(() -> new RuntimeException("Dumpster not found: " + id)))
+                .toList();
+        List<Plant> plants = plantRepository.findAll().stream()
+                .filter(plant -> plant.getPosition() != null)
+                .filter(plant -> type == null || type.equalsIgnoreCase(plant.getType()))
+                .toList();
+
+        long[] capacity = concurrently(plants, plant -> liveCapacity(plant, effectiveDate), unused -> {}).stream()
+                .mapToLong(tons -> Math.max(0, (long) Math.floor(tons * CONTAINERS_PER_TON)))
+                .toArray();
+        long[] load = dumpsters.stream().mapToLong(Dumpster::getContainersNumber).toArray();
+        long start = System.nanoTime();
+        int[] plantOf = new AssignmentOptimizer(dumpsters.stream().map(Dumpster::getPosition).toList(), load,
+                plants.stream().map(Plant::getPosition).toList(), capacity).solve(OPTIMIZER_BUDGET);
+        log.info("Spread {} dumpsters over {} plants in {} ms", dumpsters.size(), plants.size(),
+                (System.nanoTime() - start) / 1_000_000);
+
+        Map<Plant, List<Dumpster>> shares = new LinkedHashMap<>();
+        List<String> unassigned = new ArrayList<>();
+        double totalDistance = 0;
+        for (int d = 0; d < dumpsters.size(); d++) {
+            Dumpster dumpster = dumpsters.get(d);
+            if (plantOf[d] == AssignmentOptimizer.UNASSIGNED) {
+                unassigned.add(dumpster.getDumpsterId());
+                continue;
+            }
+            Plant plant = plants.get(plantOf[d]);
+            shares.computeIfAbsent(plant, p -> new ArrayList<>()).add(dumpster);
+            if (dumpster.getPosition() != null) {
+                totalDistance += dumpster.getPosition().distanceTo(plant.getPosition());
+            }
+        }
+
+        List<Batch> batches = shares.entrySet().stream().map(share -> new Batch(share.getKey(), share.getValue())).toList();
+        List<Reservation> reservations = concurrently(batches, batch -> reserveCapacity(batch, effectiveDate),
+                this::releaseReservation);
+        Map<String, List<Assignment>> assignments = recordAssignments(employee, effectiveDate, reservations);
+        if (!unassigned.isEmpty()) {
+            log.warn("No plant has room for {} of the {} dumpsters on {}", unassigned.size(), dumpsters.size(), effectiveDate);
+        }
+        return new AssignmentPlan(assignments, unassigned, totalDistance);
+    }
+
+    /**
+     * Makes the call for every item at once, each on its own thread, and returns the results in order. If a call
+     * throws, the first failure is thrown once every call has finished, and the results of the others are undone.
+     */
+    private <T, R> List<R> concurrently(List<T> items, Function<T, R> call, Consumer<R> undo) {
+        List<Future<R>> futures = items.stream()
+                .map(item -> plantCallExecutor.submit(() -> call.apply(item)))
+                .toList();
+        List<R> results = new ArrayList<>();
+        RuntimeException failure = null;
+        for (Future<R> future : futures) {
+            try {
+                results.add(future.get());
+            } catch (ExecutionException e) {
+                if (failure == null) {
+                    failure = e.getCause() instanceof RuntimeException cause ? cause : new RuntimeException(e.getCause());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failure = new IllegalStateException("Interrupted while waiting for the plants", e);
+                break;
+            }
+        }
+        if (failure != null) {
+            results.forEach(undo);
+            throw failure;
+        }
+        return results;
+    }
+
+    /**
+     * Returns the circuit breaker status of every plant, including plants that have not been called yet.
+     */
+    @Transactional(readOnly = true)
+    public List<PlantResilience.BreakerStatus> getBreakerStatus() {
+        return plantRepository.findAll().stream()
+                .map(plant -> serviceGatewayFactory.getBreakerStatus(plant.getPlantId()))
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    /**
+     * Assigns the dumpsters to the plant. The containers are reserved at the plant before anything is written and
+     * with no transaction open, so the database is not held while the plant answers; the assignments, the plant's
+     * total and the outbox row are then written in one short transaction, and the reservation is released if that
+     * fails.
+     */
     public List<Assignment> assignDumpsters(String employeeId, String plantId, List<String> dumpsterIds, LocalDate assignmentDate) {
-        System.out.println("--- DUMPSTER ASSIGNMENT ---");
-        System.out.println("Employee '" + employeeId + "' assigning " + dumpsterIds.size() + " dumpsters to plant '" + plantId + "'.");
+        log.info("Employee {} assigning {} dumpsters to plant {}", employeeId, dumpsterIds.size(), plantId);
 
         Employee employee = employeeRepository.findById(employeeId)
                 .orElseThrow(() -> new RuntimeException("Employee not found: " + employeeId));
@@ -85,43 +288,116 @@ public class PlantService {
                 .orElseThrow(() -> new RuntimeException("Plant not found: " + plantId));
 
         LocalDate effectiveDate = assignmentDate != null ? assignmentDate : LocalDate.now();
-        System.out.println("Assignment date: " + effectiveDate);
-
-        List<Assignment> assignments = new ArrayList<>();
-        int totalContainers = 0;
 
+        List<Dumpster> dumpsters = new ArrayList<>();
         for (String dumpsterId : dumpsterIds) {
-            Dumpster dumpster = dumpsterRepository.findById(dumpsterId)
-                    .orElseThrow(() -> new RuntimeException("Dumpster not found: " + dumpsterId));
+            dumpsters.add(dumpsterRepository.findById(dumpsterId)
+                    .orElseThrow(() -> new RuntimeException("Dumpster not found: " + dumpsterId)));
+        }
+        Batch batch = new Batch(plant, dumpsters);
 
-            int containersAtAssignment = dumpster.getContainersNumber();
-            Assignment assignment = new Assignment(plant, dumpster, employee, effectiveDate, containersAtAssignment);
-            assignment = assignmentRepository.save(assignment);
-            assignments.add(assignment);
-            totalContainers += containersAtAssignment;
+        // Hold the capacity at the plant before writing; a refusal means nothing is written
+        Reservation reservation = reserveCapacity(batch, effectiveDate);
 
-            System.out.println("Assigned dumpster " + dumpsterId + " with " + containersAtAssignment + " containers");
-        }
+        return recordAssignments(employee, effectiveDate, List.of(reservation)).get(plantId);
+    }
 
-        plant.addContainers(totalContainers);
-        plantRepository.save(plant);
+    /**
+     * The dumpsters going to one plant, and how many containers they hold in total.
+     */
+    private record Batch(Plant plant, List<Dumpster> dumpsters, int totalContainers) {
+
+        Batch(Plant plant, List<Dumpster> dumpsters) {
+            this(plant, dumpsters, dumpsters.stream().mapToInt(Dumpster::getContainersNumber).sum());
+        }
+    }
 
-        System.out.println("Total containers added to plant: " + totalContainers);
-        System.out.println("Plant total containers received: " + plant.getTotalContainersReceived());
-        System.out.println("Assignment recorded in database.");
+    /**
+     * A batch and the key its notification must carry: the reservation ID if the plant holds the containers,
+     * otherwise a fresh key for a batch with no containers to hold.
+     */
+    private record Reservation(Batch batch, String notificationKey, boolean held) {
+    }
 
-        // Notify the plant of incoming dumpsters
+    /**
+     * Reserves the batch's containers at its plant. A refusal is thrown as {@link CapacityConflictException}. If the
+     * plant cannot be reached, or its circuit breaker is open, the assignment fails with
+     * {@link PlantUnavailableException} rather than going ahead without capacity held for it. A batch with no
+     * containers has nothing to hold and is not sent to the plant.
+     */
+    private Reservation reserveCapacity(Batch batch, LocalDate date) {
+        Plant plant = batch.plant();
+        if (batch.totalContainers() == 0) {
+            return new Reservation(batch, UUID.randomUUID().toString(), false);
+        }
+        ServiceGateway serviceGateway = serviceGatewayFactory.getServiceGateway(plant.getGatewayType());
         try {
-            ServiceGateway serviceGateway = serviceGatewayFactory.getServiceGateway(plant.getGatewayType());
-            serviceGateway.notifyIncomingDumpsters(plant, dumpsterIds, totalContainers, effectiveDate);
-            System.out.println("Plant notified successfully of incoming dumpsters for date: " + effectiveDate);
+            CapacityReservation reservation = serviceGateway.reserveCapacity(plant, date, batch.totalContainers());
+            return new Reservation(batch, reservation.reservationId(), true);
+        } catch (CapacityConflictException e) {
+            log.info("Plant {} refused {} containers for {}: {}", plant.getPlantId(), batch.totalContainers(), date, e.getMessage());
+            throw e;
         } catch (Exception e) {
-            System.err.println("Failed to notify plant: " + e.getMessage());
-            // Continue execution - notification failure should not break assignment
+            log.warn("Could not reserve capacity at plant {}: {}", plant.getPlantId(), e.getMessage());
+            throw new PlantUnavailableException("Plant " + plant.getPlantId() + " is unavailable, try again later", e);
         }
+    }
 
-        System.out.println("---------------------------");
+    /**
+     * Writes the assignments of every reserved batch, each plant's new total and each plant's notification in one
+     * transaction, and returns the assignments by plant. If the transaction fails the reservations are released.
+     */
+    private Map<String, List<Assignment>> recordAssignments(Employee employee, LocalDate date, List<Reservation> reservations) {
+        try {
+            return transactionTemplate.execute(status -> {
+                Map<String, List<Assignment>> assignments = new LinkedHashMap<>();
+                for (Reservation reservation : reservations) {
+                    assignments.put(reservation.batch().plant().getPlantId(), recordBatch(employee, date, reservation));
+                }
+                notificationDispatcher.wakeUpAfterCommit();
+                return assignments;
+            });
+        } catch (RuntimeException e) {
+            reservations.forEach(this::releaseReservation);
+            throw e;
+        }
+    }
+
+    private List<Assignment> recordBatch(Employee employee, LocalDate date, Reservation reservation) {
+        Batch batch = reservation.batch();
+        Plant plant = batch.plant();
+        String plantId = plant.getPlantId();
+
+        List<Assignment> assignments = new ArrayList<>();
+        List<String> dumpsterIds = new ArrayList<>();
+        for (Dumpster dumpster : batch.dumpsters()) {
+            assignments.add(assignmentRepository.save(
+                    new Assignment(plant, dumpster, employee, date, dumpster.getContainersNumber())));
+            dumpsterIds.add(dumpster.getDumpsterId());
+            log.debug("Assigned dumpster {} with {} containers", dumpster.getDumpsterId(), dumpster.getContainersNumber());
+        }
+
+        plantRepository.addContainersReceived(plantId, batch.totalContainers());
 
+        log.info("Assignment recorded: {} containers to plant {} for {}", batch.totalContainers(), plantId, date);
+
+        // The notification is delivered after commit by the dispatcher and confirms the reservation,
+        // since it carries the reservation ID as its idempotency key
+        plantNotificationRepository.save(new PlantNotification(reservation.notificationKey(), plantId, dumpsterIds,
+                batch.totalContainers(), date));
         return assignments;
     }
+
+    private void releaseReservation(Reservation reservation) {
+        if (!reservation.held()) {
+            return;
+        }
+        Plant plant = reservation.batch().plant();
+        try {
+            serviceGatewayFactory.getServiceGateway(plant.getGatewayType()).releaseReservation(plant, reservation.notificationKey());
+        } catch (Exception e) {
+            log.warn("Could not release reservation {} at plant {}, it will expire: {}", reservation.notificationKey(),
+                    plant.getPlantId(), e.getMessage());
+        }
+    }
 }
@@ -0,0 +1,46 @@
+package com.ecoembes.ecoembes.service.remote;
+
+/**
+ * Per-plant call timeout that follows observed latency, in the style of TCP's retransmission timer
+ * (RFC 6298): smoothed latency plus four times its mean deviation, doubled after each timeout and
+ * always kept between a floor and a ceiling. Starts at the ceiling until the first answer arrives.
+ */
+final class AdaptiveTimeout {
+
+    private final long minNanos;
+    private final long maxNanos;
+
+    private double smoothedNanos = -1;
+    private double deviationNanos;
+    private volatile long currentNanos;
+
+    AdaptiveTimeout(long minNanos, long maxNanos) {
+        this.minNanos = minNanos;
+        this.maxNanos = maxNanos;
+        this.currentNanos = maxNanos;
+    }
+
+    long nanos() {
+        return currentNanos;
+    }
+
+    synchronized void onSuccess(long elapsedNanos) {
+        if (smoothedNanos < 0) {
+            smoothedNanos = elapsedNanos;
+            deviationNanos = elapsedNanos / 2.0;
+        } else {
+            double error = elapsedNanos - smoothedNanos;
+            smoothedNanos += error / 8;
+            deviationNanos += (Math.abs(error) - deviationNanos) / 4;
+        }
+        currentNanos = clamp((long) (smoothedNanos + 4 * deviationNanos));
+    }
+
+    synchronized void onTimeout() {
+        currentNanos = clamp(currentNanos * 2);
+    }
+
+    private long clamp(long nanos) {
+        return Math.max(minNanos, Math.min(maxNanos, nanos));
+    }
+}
@@ -0,0 +1,12 @@
+package com.ecoembes.ecoembes.service.remote;
+
+import java.util.List;
+
+/**
+ * One notification inside a batch sent to a plant. All notifications of a batch share the plant and arrival date.
+ */
+public record BatchedNotification(
+        String idempotencyKey,
+        List<String> dumpsterIds,
+        int totalContainers
+) {}
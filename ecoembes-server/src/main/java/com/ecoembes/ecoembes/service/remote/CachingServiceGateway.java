@@ -0,0 +1,70 @@
+package com.ecoembes.ecoembes.service.remote;
+
+import com.ecoembes.ecoembes.domain.Plant;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Decorator that answers capacity queries from the {@link PlantCapacityView} while the plant's capacity stream is up,
+ * and otherwise polls the plant, recording the answer in the view. Reservations and notifications always go to the
+ * plant, which remains the authority on capacity: a reservation based on a stale capacity is rejected there.
+ */
+public class CachingServiceGateway implements ServiceGateway {
+
+    private final ServiceGateway delegate;
+    private final PlantCapacityView view;
+
+    public CachingServiceGateway(ServiceGateway delegate, PlantCapacityView view) {
+        this.delegate = delegate;
+        this.view = view;
+    }
+
+    @Override
+    public Double getPlantCapacity(Plant plant, LocalDate date) throws Exception {
+        if (date == null) {
+            return delegate.getPlantCapacity(plant, null);
+        }
+        Double cached = view.get(plant.getPlantId(), date);
+        if (cached != null) {
+            return cached;
+        }
+        long connection = view.connection(plant.getPlantId());
+        Double capacity = delegate.getPlantCapacity(plant, date);
+        if (capacity != null) {
+            view.polled(plant.getPlantId(), date, capacity, connection);
+        }
+        return capacity;
+    }
+
+    @Override
+    public CapacityReservation reserveCapacity(Plant plant, LocalDate arrivalDate, int totalContainers) throws Exception {
+        return delegate.reserveCapacity(plant, arrivalDate, totalContainers);
+    }
+
+    @Override
+    public void releaseReservation(Plant plant, String reservationId) throws Exception {
+        delegate.releaseReservation(plant, reservationId);
+    }
+
+    @Override
+    public void notifyIncomingDumpsters(Plant plant, List<String> dumpsterIds, Integer totalContainers, LocalDate arrivalDate) throws Exception {
+        delegate.notifyIncomingDumpsters(plant, dumpsterIds, totalContainers, arrivalDate);
+    }
+
+    @Override
+    public void notifyIncomingDumpsters(Plant plant, List<String> dumpsterIds, Integer totalContainers, LocalDate arrivalDate,
+                                        String idempotencyKey) throws Exception {
+        delegate.notifyIncomingDumpsters(plant, dumpsterIds, totalContainers, arrivalDate, idempotencyKey);
+    }
+
+    @Override
+    public void notifyIncomingDumpsterBatch(Plant plant, LocalDate arrivalDate, List<BatchedNotification> notifications) throws Exception {
+        delegate.notifyIncomingDumpsterBatch(plant, arrivalDate, notifications);
+    }
+
+    @Override
+    public void streamCapacityChanges(List<Plant> plants, CapacityListener listener) throws Exception {
+        delegate.streamCapacityChanges(plants, listener);
+    }
+}
@@ -0,0 +1,10 @@
+package com.ecoembes.ecoembes.service.remote;
+
+import java.time.LocalDate;
+
+/**
+ * Capacity a plant pushed after a change on its ledger for a date. {@code version} is the ledger version it was read
+ * at, so a change older than one already seen can be dropped.
+ */
+public record CapacityChange(String plantId, LocalDate date, double capacity, long version) {
+}
@@ -0,0 +1,14 @@
+package com.ecoembes.ecoembes.service.remote;
+
+/**
+ * Receives a plant server's capacity stream, see {@link ServiceGateway#streamCapacityChanges}.
+ */
+public interface CapacityListener {
+
+    /**
+     * The stream is up; every change from here on is delivered.
+     */
+    void connected();
+
+    void changed(CapacityChange change);
+}
@@ -0,0 +1,8 @@
+package com.ecoembes.ecoembes.service.remote;
+
+/**
+ * Capacity held at a plant until the notification carrying {@code reservationId} as its idempotency key confirms it.
+ * {@code version} is the plant's ledger version for the date after the reservation.
+ */
+public record CapacityReservation(String reservationId, long version) {
+}
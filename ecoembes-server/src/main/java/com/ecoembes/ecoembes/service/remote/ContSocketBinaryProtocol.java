@@ -0,0 +1,115 @@
+package com.ecoembes.ecoembes.service.remote;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Client side of the ContSocket binary framing: a {@code 0xB1 '\n'} preamble, then frames made of a 4-byte
+ * payload length and the payload. Dates are epoch days, capacities thousandths of a ton, strings a 2-byte length
+ * plus UTF-8 bytes, and every request ends with the trace context. Requests name their plant right after the
+ * opcode, since one server may host several plants. See the ContSocket server's README for the layout of each
+ * command.
+ */
+final class ContSocketBinaryProtocol {
+
+    static final int MAGIC = 0xB1;
+    static final int MAX_FRAME_BYTES = 64 * 1024;
+
+    static final byte GET_CAPACITY = 1;
+    static final byte NOTIFY = 2;
+    static final byte NOTIFY_BATCH = 3;
+    static final byte RESERVE = 4;
+    static final byte RELEASE = 5;
+
+    // Set on an opcode when the plant ID follows it
+    static final int PLANT_FLAG = 0x80;
+
+    static final byte OK = 0;
+    static final byte ERROR = 1;
+    static final byte CONFLICT = 2;
+
+    static final int NO_DATE = Integer.MIN_VALUE;
+    static final long NO_VERSION = -1;
+
+    // Preamble, length prefix and opcode precede the payload; the trailing trace context is at most 55 bytes
+    private static final int HEADER_BYTES = 2 + Integer.BYTES + 1;
+    private static final int TRACE_BYTES = Short.BYTES + 64;
+
+    private ContSocketBinaryProtocol() {
+    }
+
+    /**
+     * Starts a request for a plant in a buffer sized for the preamble, the opcode, the plant ID, {@code payloadBytes}
+     * and the trace context, so the whole request goes out in a single write.
+     */
+    static ByteBuffer request(byte opcode, String plantId, int payloadBytes) {
+        byte[] plant = utf8(plantId);
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + Short.BYTES + plant.length + payloadBytes + TRACE_BYTES)
+                .put((byte) MAGIC).put((byte) '\n')
+                .position(HEADER_BYTES - 1)
+                .put((byte) (opcode | PLANT_FLAG));
+        return putString(buffer, plant);
+    }
+
+    static byte[] utf8(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    static ByteBuffer putString(ByteBuffer buffer, byte[] utf8) {
+        return buffer.putShort((short) utf8.length).put(utf8);
+    }
+
+    static String getString(ByteBuffer buffer) {
+        int length = buffer.getShort() & 0xFFFF;
+        String value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+
+    /**
+     * Sends the request and returns the response payload, starting with its status byte.
+     * Throws {@link UnsupportedException} if the server did not acknowledge binary framing.
+     */
+    static ByteBuffer exchange(Socket socket, ByteBuffer request) throws IOException {
+        request.putInt(2, request.position() - 2 - Integer.BYTES);
+        OutputStream out = socket.getOutputStream();
+        out.write(request.array(), 0, request.position());
+        out.flush();
+
+        DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        if (in.read() != MAGIC) {
+            throw new UnsupportedException();
+        }
+        int length = in.readInt();
+        if (length < 1 || length > MAX_FRAME_BYTES) {
+            throw new IOException("Invalid frame length: " + length);
+        }
+        byte[] payload = new byte[length];
+        in.readFully(payload);
+        return ByteBuffer.wrap(payload);
+    }
+
+    /**
+     * Throws if the response carries {@link #ERROR}; otherwise returns it unchanged.
+     */
+    static ByteBuffer expectOk(ByteBuffer response, String command) throws Exception {
+        if (response.get(0) == ERROR) {
+            throw new Exception("Error in " + command + ": " + getString(response.position(1)));
+        }
+        return response;
+    }
+
+    /**
+     * The plant answered the binary preamble in text, so it only speaks the text protocol.
+     */
+    static final class UnsupportedException extends IOException {
+        UnsupportedException() {
+            super("Plant does not support binary framing");
+        }
+    }
+}
@@ -1,63 +1,376 @@
 package com.ecoembes.ecoembes.service.remote;
 
 import com.ecoembes.ecoembes.domain.Plant;
+import com.ecoembes.ecoembes.exception.CapacityConflictException;
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.TraceContext;
+import io.micrometer.tracing.Tracer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.io.BufferedReader;
 import java.io.InputStreamReader;
 import java.io.PrintWriter;
 import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Service("ContSocket")
 public class ContSocketServiceGateway implements ServiceGateway {
 
+    private static final Logger log = LoggerFactory.getLogger(ContSocketServiceGateway.class);
+
     private SocketFactory socketFactory;
+    private final Tracer tracer;
+    private final boolean binary;
+    private final Set<String> textOnlyPlants = ConcurrentHashMap.newKeySet();
+    private final Duration streamReadTimeout;
 
     public ContSocketServiceGateway() {
-        this.socketFactory = new DefaultSocketFactory();
+        this(new DefaultSocketFactory(), Tracer.NOOP);
     }
 
     public ContSocketServiceGateway(SocketFactory socketFactory) {
+        this(socketFactory, Tracer.NOOP);
+    }
+
+    /**
+     * With {@code plants.contsocket.binary} set, calls use the compact binary framing; plants that do not
+     * support it are remembered and served over the text protocol.
+     */
+    @Autowired
+    public ContSocketServiceGateway(Tracer tracer, @Value("${plants.contsocket.binary:false}") boolean binary,
+                                    @Value("${plants.capacity-stream.read-timeout:45s}") Duration streamReadTimeout) {
+        this(new DefaultSocketFactory(), tracer, binary, streamReadTimeout);
+    }
+
+    public ContSocketServiceGateway(SocketFactory socketFactory, Tracer tracer) {
+        this(socketFactory, tracer, false);
+    }
+
+    public ContSocketServiceGateway(SocketFactory socketFactory, Tracer tracer, boolean binary) {
+        this(socketFactory, tracer, binary, Duration.ofSeconds(45));
+    }
+
+    public ContSocketServiceGateway(SocketFactory socketFactory, Tracer tracer, boolean binary, Duration streamReadTimeout) {
         this.socketFactory = socketFactory;
+        this.tracer = tracer;
+        this.binary = binary;
+        this.streamReadTimeout = streamReadTimeout;
     }
 
     @Override
     public Double getPlantCapacity(Plant plant, LocalDate date) throws Exception {
-        // Plant ID is used only to select correct gateway via factory
-        // Each plant server manages only one plant, so no ID in socket command
+        if (useBinary(plant)) {
+            try {
+                ByteBuffer request = ContSocketBinaryProtocol.request(ContSocketBinaryProtocol.GET_CAPACITY, plant.getPlantId(), Integer.BYTES)
+                        .putInt(date != null ? (int) date.toEpochDay() : ContSocketBinaryProtocol.NO_DATE);
+                ByteBuffer response = ContSocketBinaryProtocol.expectOk(binaryCall(plant, "GET_CAPACITY", request), "GET_CAPACITY");
+                return response.getLong(1) / 1000.0;
+            } catch (ContSocketBinaryProtocol.UnsupportedException e) {
+                fallBackToText(plant);
+            }
+        }
+        Span span = startSpan("GET_CAPACITY", plant);
         try (
+            Tracer.SpanInScope ignored = tracer.withSpan(span);
             Socket socket = socketFactory.createSocket(plant.getHost(), plant.getPort());
             PrintWriter out = new PrintWriter(socket.getOutputStream(), true);
             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
         ) {
             String formattedDate = date != null ? date.format(DateTimeFormatter.ISO_DATE) : "";
-            out.println("GET_CAPACITY" + (formattedDate.isEmpty() ? "" : " " + formattedDate));
+            out.println("GET_CAPACITY" + (formattedDate.isEmpty() ? "" : " " + formattedDate) + plantField(plant) + traceField(span));
             String response = in.readLine();
             if (response != null && !response.startsWith("ERROR")) {
                 return Double.parseDouble(response);
             }
+        } catch (Exception e) {
+            span.error(e);
+            throw e;
+        } finally {
+            span.end();
         }
         return null;
     }
 
+    @Override
+    public CapacityReservation reserveCapacity(Plant plant, LocalDate arrivalDate, int totalContainers) throws Exception {
+        if (useBinary(plant)) {
+            try {
+                ByteBuffer request = ContSocketBinaryProtocol.request(ContSocketBinaryProtocol.RESERVE, plant.getPlantId(), 2 * Integer.BYTES + Long.BYTES)
+                        .putInt((int) arrivalDate.toEpochDay())
+                        .putInt(totalContainers)
+                        .putLong(ContSocketBinaryProtocol.NO_VERSION);
+                ByteBuffer response = ContSocketBinaryProtocol.expectOk(binaryCall(plant, "RESERVE", request), "RESERVE");
+                if (response.get() == ContSocketBinaryProtocol.CONFLICT) {
+                    response.getLong(); // version
+                    throw new CapacityConflictException("Plant " + plant.getPlantId() + " cannot take " + totalContainers
+                            + " containers on " + arrivalDate + " (" + response.getLong() / 1000.0 + " tons left)");
+                }
+                return new CapacityReservation(ContSocketBinaryProtocol.getString(response), response.getLong());
+            } catch (ContSocketBinaryProtocol.UnsupportedException e) {
+                fallBackToText(plant);
+            }
+        }
+        Span span = startSpan("RESERVE", plant);
+        try (
+            Tracer.SpanInScope ignored = tracer.withSpan(span);
+            Socket socket = socketFactory.createSocket(plant.getHost(), plant.getPort());
+            PrintWriter out = new PrintWriter(socket.getOutputStream(), true);
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+        ) {
+            // Format: RESERVE <date> <totalContainers> plant=<plantId>
+            // Response: RESERVED <reservationId> <version> <capacity> | CONFLICT <version> <capacity>
+            out.println("RESERVE " + arrivalDate.format(DateTimeFormatter.ISO_DATE) + " " + totalContainers + plantField(plant) + traceField(span));
+            String response = in.readLine();
+            if (response != null && response.startsWith("RESERVED ")) {
+                String[] tokens = response.split(" ");
+                return new CapacityReservation(tokens[1], Long.parseLong(tokens[2]));
+            }
+            if (response != null && response.startsWith("CONFLICT ")) {
+                String[] tokens = response.split(" ");
+                throw new CapacityConflictException("Plant " + plant.getPlantId() + " cannot take " + totalContainers
+                        + " containers on " + arrivalDate + (tokens.length > 2 ? " (" + tokens[2] + " tons left)" : ""));
+            }
+            throw new Exception("Error reserving capacity: " + response);
+        } catch (Exception e) {
+            span.error(e);
+            throw e;
+        } finally {
+            span.end();
+        }
+    }
+
+    @Override
+    public void releaseReservation(Plant plant, String reservationId) throws Exception {
+        if (useBinary(plant)) {
+            try {
+                byte[] id = ContSocketBinaryProtocol.utf8(reservationId);
+                ByteBuffer request = ContSocketBinaryProtocol.request(ContSocketBinaryProtocol.RELEASE, plant.getPlantId(), Short.BYTES + id.length);
+                // An unknown reservation was already confirmed or expired, so the status is not checked
+                binaryCall(plant, "RELEASE", ContSocketBinaryProtocol.putString(request, id));
+                return;
+            } catch (ContSocketBinaryProtocol.UnsupportedException e) {
+                fallBackToText(plant);
+            }
+        }
+        Span span = startSpan("RELEASE", plant);
+        try (
+            Tracer.SpanInScope ignored = tracer.withSpan(span);
+            Socket socket = socketFactory.createSocket(plant.getHost(), plant.getPort());
+            PrintWriter out = new PrintWriter(socket.getOutputStream(), true);
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+        ) {
+            // An unknown reservation was already confirmed or expired, so the answer is only read to finish the exchange
+            out.println("RELEASE " + reservationId + plantField(plant) + traceField(span));
+            in.readLine();
+        } catch (Exception e) {
+            span.error(e);
+            throw e;
+        } finally {
+            span.end();
+        }
+    }
+
     @Override
     public void notifyIncomingDumpsters(Plant plant, java.util.List<String> dumpsterIds, Integer totalContainers, LocalDate arrivalDate) throws Exception {
-        // Plant ID is used only to select correct gateway via factory
-        // Each plant server manages only one plant, so no ID in socket command
+        notifyIncomingDumpsters(plant, dumpsterIds, totalContainers, arrivalDate, null);
+    }
+
+    @Override
+    public void notifyIncomingDumpsters(Plant plant, java.util.List<String> dumpsterIds, Integer totalContainers, LocalDate arrivalDate,
+                                        String idempotencyKey) throws Exception {
+        if (useBinary(plant)) {
+            try {
+                byte[] key = ContSocketBinaryProtocol.utf8(idempotencyKey != null ? idempotencyKey : "");
+                ByteBuffer request = ContSocketBinaryProtocol.request(ContSocketBinaryProtocol.NOTIFY, plant.getPlantId(), 3 * Integer.BYTES + Short.BYTES + key.length)
+                        .putInt(dumpsterIds.size())
+                        .putInt(totalContainers)
+                        .putInt(arrivalDate != null ? (int) arrivalDate.toEpochDay() : ContSocketBinaryProtocol.NO_DATE);
+                ContSocketBinaryProtocol.expectOk(binaryCall(plant, "NOTIFY", ContSocketBinaryProtocol.putString(request, key)), "NOTIFY");
+                return;
+            } catch (ContSocketBinaryProtocol.UnsupportedException e) {
+                fallBackToText(plant);
+            }
+        }
+        Span span = startSpan("NOTIFY", plant);
         try (
+            Tracer.SpanInScope ignored = tracer.withSpan(span);
             Socket socket = socketFactory.createSocket(plant.getHost(), plant.getPort());
             PrintWriter out = new PrintWriter(socket.getOutputStream(), true);
             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
         ) {
             String formattedDate = arrivalDate != null ? arrivalDate.format(DateTimeFormatter.ISO_DATE) : "";
-            // Format: NOTIFY <numDumpsters> <totalContainers> <date>
-            out.println("NOTIFY " + dumpsterIds.size() + " " + totalContainers + " " + formattedDate);
+            // Format: NOTIFY <numDumpsters> <totalContainers> <date> plant=<plantId> [key=<idempotency key>] [traceparent=<context>]
+            String keyField = idempotencyKey != null ? " key=" + idempotencyKey : "";
+            out.println("NOTIFY " + dumpsterIds.size() + " " + totalContainers + " " + formattedDate + plantField(plant) + keyField
+                    + traceField(span));
             String response = in.readLine();
             if (response != null && response.startsWith("ERROR")) {
                 throw new Exception("Error notifying plant: " + response);
             }
+        } catch (Exception e) {
+            span.error(e);
+            throw e;
+        } finally {
+            span.end();
+        }
+    }
+
+    @Override
+    public void notifyIncomingDumpsterBatch(Plant plant, LocalDate arrivalDate, java.util.List<BatchedNotification> notifications) throws Exception {
+        if (useBinary(plant)) {
+            try {
+                byte[][] keys = new byte[notifications.size()][];
+                int payloadBytes = Integer.BYTES + Short.BYTES;
+                for (int i = 0; i < keys.length; i++) {
+                    keys[i] = ContSocketBinaryProtocol.utf8(notifications.get(i).idempotencyKey());
+                    payloadBytes += Short.BYTES + keys[i].length + 2 * Integer.BYTES;
+                }
+                ByteBuffer request = ContSocketBinaryProtocol.request(ContSocketBinaryProtocol.NOTIFY_BATCH, plant.getPlantId(), payloadBytes)
+                        .putInt((int) arrivalDate.toEpochDay())
+                        .putShort((short) keys.length);
+                for (int i = 0; i < keys.length; i++) {
+                    ContSocketBinaryProtocol.putString(request, keys[i])
+                            .putInt(notifications.get(i).dumpsterIds().size())
+                            .putInt(notifications.get(i).totalContainers());
+                }
+                ContSocketBinaryProtocol.expectOk(binaryCall(plant, "NOTIFY_BATCH", request), "NOTIFY_BATCH");
+                return;
+            } catch (ContSocketBinaryProtocol.UnsupportedException e) {
+                fallBackToText(plant);
+            }
+        }
+        Span span = startSpan("NOTIFY_BATCH", plant);
+        try (
+            Tracer.SpanInScope ignored = tracer.withSpan(span);
+            Socket socket = socketFactory.createSocket(plant.getHost(), plant.getPort());
+            PrintWriter out = new PrintWriter(socket.getOutputStream(), true);
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+        ) {
+            // Format: NOTIFY_BATCH <date> <key>:<numDumpsters>:<totalContainers> ... plant=<plantId> [traceparent=<context>]
+            StringBuilder command = new StringBuilder("NOTIFY_BATCH ").append(arrivalDate.format(DateTimeFormatter.ISO_DATE));
+            for (BatchedNotification notification : notifications) {
+                command.append(' ').append(notification.idempotencyKey())
+                        .append(':').append(notification.dumpsterIds().size())
+                        .append(':').append(notification.totalContainers());
+            }
+            out.println(command.append(plantField(plant)).append(traceField(span)));
+            String response = in.readLine();
+            if (response == null || response.startsWith("ERROR")) {
+                throw new Exception("Error notifying plant: " + response);
+            }
+        } catch (Exception e) {
+            span.error(e);
+            throw e;
+        } finally {
+            span.end();
+        }
+    }
+
+    /**
+     * Subscribes with {@code SUBSCRIBE <plantId> ...} and reads the {@code CAPACITY <plantId> <date> <tons> <version>}
+     * lines that follow. The plants must all be hosted by the same server; its {@code PING} lines only keep the read
+     * timeout from firing.
+     */
+    @Override
+    public void streamCapacityChanges(java.util.List<Plant> plants, CapacityListener listener) throws Exception {
+        Plant server = plants.get(0);
+        try (
+            Socket socket = socketFactory.createSocket(server.getHost(), server.getPort());
+            PrintWriter out = new PrintWriter(socket.getOutputStream(), true);
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+        ) {
+            socket.setSoTimeout((int) streamReadTimeout.toMillis());
+            StringBuilder command = new StringBuilder("SUBSCRIBE");
+            for (Plant plant : plants) {
+                command.append(' ').append(plant.getPlantId());
+            }
+            out.println(command);
+            String response = in.readLine();
+            if (!"OK".equals(response)) {
+                throw new Exception("Error subscribing to capacity changes: " + response);
+            }
+            listener.connected();
+            String line;
+            while ((line = in.readLine()) != null && !Thread.currentThread().isInterrupted()) {
+                if (line.startsWith("CAPACITY ")) {
+                    String[] tokens = line.split(" ");
+                    listener.changed(new CapacityChange(tokens[1], LocalDate.parse(tokens[2]),
+                            Double.parseDouble(tokens[3]), Long.parseLong(tokens[4])));
+                }
+            }
+        }
+    }
+
+    private boolean useBinary(Plant plant) {
+        return binary && !textOnlyPlants.contains(plant.getPlantId());
+    }
+
+    private void fallBackToText(Plant plant) {
+        if (textOnlyPlants.add(plant.getPlantId())) {
+            log.info("Plant {} does not support binary framing, using the text protocol", plant.getPlantId());
+        }
+    }
+
+    /**
+     * Sends one binary request on a fresh connection, appending the trace context, and returns the response payload.
+     */
+    private ByteBuffer binaryCall(Plant plant, String command, ByteBuffer request) throws Exception {
+        Span span = startSpan(command, plant);
+        try (
+            Tracer.SpanInScope ignored = tracer.withSpan(span);
+            Socket socket = socketFactory.createSocket(plant.getHost(), plant.getPort());
+        ) {
+            ContSocketBinaryProtocol.putString(request, ContSocketBinaryProtocol.utf8(traceParent(span)));
+            return ContSocketBinaryProtocol.exchange(socket, request);
+        } catch (Exception e) {
+            span.error(e);
+            throw e;
+        } finally {
+            span.end();
+        }
+    }
+
+    private Span startSpan(String command, Plant plant) {
+        return tracer.spanBuilder()
+                .name("contsocket " + command)
+                .kind(Span.Kind.CLIENT)
+                .remoteServiceName("contsocket-server")
+                .tag("plant", plant.getPlantId())
+                .start();
+    }
+
+    /**
+     * Trailing token naming the plant, since one ContSocket server may host several plants.
+     */
+    private static String plantField(Plant plant) {
+        return " plant=" + plant.getPlantId();
+    }
+
+    /**
+     * Optional trailing token carrying the W3C trace context, empty when tracing is off.
+     */
+    private static String traceField(Span span) {
+        String traceParent = traceParent(span);
+        return traceParent.isEmpty() ? "" : " traceparent=" + traceParent;
+    }
+
+    private static String traceParent(Span span) {
+        TraceContext context = span.context();
+        if (context == null || context.traceId() == null || context.traceId().isEmpty()) {
+            return "";
         }
+        String flags = Boolean.TRUE.equals(context.sampled()) ? "01" : "00";
+        // W3C trace IDs are 128-bit; a 64-bit ID is sent left-padded with zeros
+        String traceId = context.traceId().length() == 16 ? "0000000000000000" + context.traceId() : context.traceId();
+        return "00-" + traceId + "-" + context.spanId() + "-" + flags;
     }
 }
@@ -0,0 +1,179 @@
+package com.ecoembes.ecoembes.service.remote;
+
+import com.ecoembes.ecoembes.domain.Plant;
+import com.ecoembes.ecoembes.exception.CapacityConflictException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decorator that records latency and failures of every remote plant call.
+ * Meters are created once per plant and reused, so a call only reads the clock twice.
+ */
+public class MeteredServiceGateway implements ServiceGateway {
+
+    static final String REQUESTS = "ecoembes.gateway.requests";
+    static final String FAILURES = "ecoembes.gateway.failures";
+
+    private final ServiceGateway delegate;
+    private final String gatewayType;
+    private final MeterRegistry registry;
+    private final Map<String, PlantMeters> metersByPlant = new ConcurrentHashMap<>();
+
+    public MeteredServiceGateway(ServiceGateway delegate, String gatewayType, MeterRegistry registry) {
+        this.delegate = delegate;
+        this.gatewayType = gatewayType;
+        this.registry = registry;
+    }
+
+    @Override
+    public Double getPlantCapacity(Plant plant, LocalDate date) throws Exception {
+        PlantMeters meters = metersFor(plant);
+        long start = System.nanoTime();
+        try {
+            Double capacity = delegate.getPlantCapacity(plant, date);
+            meters.capacitySuccess.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return capacity;
+        } catch (Exception e) {
+            meters.capacityFailure.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            meters.capacityFailures.increment();
+            throw e;
+        }
+    }
+
+    @Override
+    public CapacityReservation reserveCapacity(Plant plant, LocalDate arrivalDate, int totalContainers) throws Exception {
+        PlantMeters meters = metersFor(plant);
+        long start = System.nanoTime();
+        try {
+            CapacityReservation reservation = delegate.reserveCapacity(plant, arrivalDate, totalContainers);
+            meters.reserveSuccess.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return reservation;
+        } catch (CapacityConflictException e) {
+            meters.reserveConflict.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            throw e;
+        } catch (Exception e) {
+            meters.reserveFailure.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            meters.reserveFailures.increment();
+            throw e;
+        }
+    }
+
+    @Override
+    public void releaseReservation(Plant plant, String reservationId) throws Exception {
+        PlantMeters meters = metersFor(plant);
+        time(() -> delegate.releaseReservation(plant, reservationId), meters.releaseSuccess, meters.releaseFailure,
+                meters.releaseFailures);
+    }
+
+    @Override
+    public void notifyIncomingDumpsters(Plant plant, List<String> dumpsterIds, Integer totalContainers, LocalDate arrivalDate) throws Exception {
+        timeNotify(plant, () -> delegate.notifyIncomingDumpsters(plant, dumpsterIds, totalContainers, arrivalDate));
+    }
+
+    @Override
+    public void notifyIncomingDumpsters(Plant plant, List<String> dumpsterIds, Integer totalContainers, LocalDate arrivalDate,
+                                        String idempotencyKey) throws Exception {
+        timeNotify(plant, () -> delegate.notifyIncomingDumpsters(plant, dumpsterIds, totalContainers, arrivalDate, idempotencyKey));
+    }
+
+    @Override
+    public void notifyIncomingDumpsterBatch(Plant plant, LocalDate arrivalDate, List<BatchedNotification> notifications) throws Exception {
+        timeNotify(plant, () -> delegate.notifyIncomingDumpsterBatch(plant, arrivalDate, notifications));
+    }
+
+    // Not timed: a stream stays open until it ends or fails, so its duration says nothing about the plant
+    @Override
+    public void streamCapacityChanges(List<Plant> plants, CapacityListener listener) throws Exception {
+        delegate.streamCapacityChanges(plants, listener);
+    }
+
+    private void timeNotify(Plant plant, PlantCall call) throws Exception {
+        PlantMeters meters = metersFor(plant);
+        time(call, meters.notifySuccess, meters.notifyFailure, meters.notifyFailures);
+    }
+
+    private static void time(PlantCall call, Timer success, Timer failure, Counter failures) throws Exception {
+        long start = System.nanoTime();
+        try {
+            call.run();
+            success.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        } catch (Exception e) {
+            failure.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            failures.increment();
+            throw e;
+        }
+    }
+
+    @FunctionalInterface
+    private interface PlantCall {
+        void run() throws Exception;
+    }
+
+    private PlantMeters metersFor(Plant plant) {
+        PlantMeters meters = metersByPlant.get(plant.getPlantId());
+        if (meters == null) {
+            meters = metersByPlant.computeIfAbsent(plant.getPlantId(), plantId -> new PlantMeters(plantId));
+        }
+        return meters;
+    }
+
+    private final class PlantMeters {
+        private final Timer capacitySuccess;
+        private final Timer capacityFailure;
+        private final Timer notifySuccess;
+        private final Timer notifyFailure;
+        private final Timer reserveSuccess;
+        private final Timer reserveConflict;
+        private final Timer reserveFailure;
+        private final Timer releaseSuccess;
+        private final Timer releaseFailure;
+        private final Counter capacityFailures;
+        private final Counter notifyFailures;
+        private final Counter reserveFailures;
+        private final Counter releaseFailures;
+
+        private PlantMeters(String plantId) {
+            capacitySuccess = timer(plantId, "capacity", "success");
+            capacityFailure = timer(plantId, "capacity", "failure");
+            notifySuccess = timer(plantId, "notify", "success");
+            notifyFailure = timer(plantId, "notify", "failure");
+            reserveSuccess = timer(plantId, "reserve", "success");
+            reserveConflict = timer(plantId, "reserve", "conflict");
+            reserveFailure = timer(plantId, "reserve", "failure");
+            releaseSuccess = timer(plantId, "release", "success");
+            releaseFailure = timer(plantId, "release", "failure");
+            capacityFailures = counter(plantId, "capacity");
+            notifyFailures = counter(plantId, "notify");
+            reserveFailures = counter(plantId, "reserve");
+            releaseFailures = counter(plantId, "release");
+        }
+
+        private Timer timer(String plantId, String operation, String outcome) {
+            return Timer.builder(REQUESTS)
+                    .description("Latency of calls to remote recycling plants")
+                    .tag("gateway", gatewayType)
+                    .tag("plant", plantId)
+                    .tag("operation", operation)
+                    .tag("outcome", outcome)
+                    .publishPercentiles(0.5, 0.99, 0.999)
+                    .publishPercentileHistogram()
+                    .register(registry);
+        }
+
+        private Counter counter(String plantId, String operation) {
+            return Counter.builder(FAILURES)
+                    .description("Failed calls to remote recycling plants")
+                    .tag("gateway", gatewayType)
+                    .tag("plant", plantId)
+                    .tag("operation", operation)
+                    .register(registry);
+        }
+    }
+}
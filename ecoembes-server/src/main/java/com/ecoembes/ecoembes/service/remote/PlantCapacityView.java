@@ -0,0 +1,96 @@
+package com.ecoembes.ecoembes.service.remote;
+
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local copy of plant capacities, kept current by the plants' capacity streams. Capacities are only served for
+ * plants whose stream is up: they come from pushed changes, or from a poll made while the stream was already up,
+ * which any later change supersedes. When a stream drops, its plants' capacities are discarded, so callers poll the
+ * plant again until it reconnects.
+ */
+@Component
+public class PlantCapacityView {
+
+    // Polled capacities rank below every pushed change
+    private static final long POLLED = -1;
+
+    private final Map<Key, Entry> capacities = new ConcurrentHashMap<>();
+    // Plants whose stream is up, with the connection they are served from
+    private final Map<String, Long> liveConnections = new ConcurrentHashMap<>();
+    private final AtomicLong nextConnection = new AtomicLong();
+
+    /**
+     * Returns the plant's capacity for the date, or null if it is unknown or the plant's stream is down.
+     */
+    public Double get(String plantId, LocalDate date) {
+        if (!liveConnections.containsKey(plantId)) {
+            return null;
+        }
+        Entry entry = capacities.get(new Key(plantId, date));
+        return entry != null ? entry.capacity() : null;
+    }
+
+    public boolean isLive(String plantId) {
+        return liveConnections.containsKey(plantId);
+    }
+
+    /**
+     * Identifies the plant's current stream connection, to be passed to {@link #polled} with the result of a poll
+     * started now. Returns -1 if the plant's stream is down.
+     */
+    public long connection(String plantId) {
+        return liveConnections.getOrDefault(plantId, -1L);
+    }
+
+    /**
+     * Records a polled capacity unless the plant's stream reconnected or went down since the poll started, since
+     * a change pushed meanwhile may be missing from it, or a pushed change already replaced it.
+     */
+    public void polled(String plantId, LocalDate date, double capacity, long connection) {
+        if (connection >= 0 && liveConnections.getOrDefault(plantId, -1L) == connection) {
+            capacities.putIfAbsent(new Key(plantId, date), new Entry(capacity, POLLED));
+        }
+    }
+
+    /**
+     * Applies a pushed change unless a newer one for the same plant and date was already applied.
+     */
+    public void changed(CapacityChange change) {
+        if (liveConnections.containsKey(change.plantId())) {
+            capacities.merge(new Key(change.plantId(), change.date()), new Entry(change.capacity(), change.version()),
+                    (current, latest) -> latest.version() > current.version() ? latest : current);
+        }
+    }
+
+    /**
+     * Starts serving the plants from a new stream connection. Anything known from before is dropped, since changes
+     * may have been missed while the stream was down.
+     */
+    public void connected(Collection<String> plantIds) {
+        long connection = nextConnection.getAndIncrement();
+        for (String plantId : plantIds) {
+            liveConnections.remove(plantId);
+            capacities.keySet().removeIf(key -> key.plantId().equals(plantId));
+            liveConnections.put(plantId, connection);
+        }
+    }
+
+    public void disconnected(Collection<String> plantIds) {
+        for (String plantId : plantIds) {
+            liveConnections.remove(plantId);
+            capacities.keySet().removeIf(key -> key.plantId().equals(plantId));
+        }
+    }
+
+    private record Key(String plantId, LocalDate date) {
+    }
+
+    private record Entry(double capacity, long version) {
+    }
+}
@@ -0,0 +1,198 @@
+package com.ecoembes.ecoembes.service.remote;
+
+import com.ecoembes.ecoembes.exception.CapacityConflictException;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.micrometer.tagged.TaggedBulkheadMetrics;
+import io.github.resilience4j.micrometer.tagged.TaggedCircuitBreakerMetrics;
+import io.micrometer.context.ContextExecutorService;
+import io.micrometer.context.ContextSnapshotFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Per-plant failure isolation for remote plant calls.
+ * Each plant gets its own circuit breaker, a concurrency bulkhead and an {@link AdaptiveTimeout}.
+ * Calls run on virtual threads so the caller only ever waits for the plant's current timeout.
+ */
+@Component
+public class PlantResilience implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(PlantResilience.class);
+
+    private final CircuitBreakerRegistry breakers;
+    private final BulkheadRegistry bulkheads;
+    private final long minTimeoutNanos;
+    private final long maxTimeoutNanos;
+    private final Map<String, PlantGuard> guards = new ConcurrentHashMap<>();
+    private final ExecutorService executor;
+
+    public PlantResilience(CircuitBreakerConfig breakerConfig, BulkheadConfig bulkheadConfig,
+                           Duration minTimeout, Duration maxTimeout) {
+        this.breakers = CircuitBreakerRegistry.of(breakerConfig);
+        this.bulkheads = BulkheadRegistry.of(bulkheadConfig);
+        this.minTimeoutNanos = minTimeout.toNanos();
+        this.maxTimeoutNanos = maxTimeout.toNanos();
+        // Carry the caller's trace context onto the call thread so plant spans keep their parent
+        this.executor = ContextExecutorService.wrap(Executors.newVirtualThreadPerTaskExecutor(),
+                ContextSnapshotFactory.builder().build()::captureAll);
+    }
+
+    @Autowired
+    public PlantResilience(@Value("${plants.resilience.failure-rate-threshold:50}") float failureRateThreshold,
+                           @Value("${plants.resilience.sliding-window-size:20}") int slidingWindowSize,
+                           @Value("${plants.resilience.minimum-number-of-calls:5}") int minimumNumberOfCalls,
+                           @Value("${plants.resilience.wait-duration-in-open-state:10s}") Duration waitInOpenState,
+                           @Value("${plants.resilience.max-concurrent-calls:10}") int maxConcurrentCalls,
+                           @Value("${plants.resilience.timeout.min:300ms}") Duration minTimeout,
+                           @Value("${plants.resilience.timeout.max:5s}") Duration maxTimeout,
+                           MeterRegistry meterRegistry) {
+        this(CircuitBreakerConfig.custom()
+                        .failureRateThreshold(failureRateThreshold)
+                        .slidingWindowSize(slidingWindowSize)
+                        .minimumNumberOfCalls(minimumNumberOfCalls)
+                        .waitDurationInOpenState(waitInOpenState)
+                        .permittedNumberOfCallsInHalfOpenState(2)
+                        // A refused reservation is a healthy answer, not a plant failure
+                        .ignoreExceptions(CapacityConflictException.class)
+                        .build(),
+                BulkheadConfig.custom()
+                        .maxConcurrentCalls(maxConcurrentCalls)
+                        .maxWaitDuration(Duration.ZERO)
+                        .build(),
+                minTimeout, maxTimeout);
+        TaggedCircuitBreakerMetrics.ofCircuitBreakerRegistry(breakers).bindTo(meterRegistry);
+        TaggedBulkheadMetrics.ofBulkheadRegistry(bulkheads).bindTo(meterRegistry);
+    }
+
+    /**
+     * Runs a call against the given plant. Fails fast with {@code CallNotPermittedException} while the
+     * plant's breaker is open, with {@link BulkheadFullException} when too many calls are already in
+     * flight, and with {@link TimeoutException} when the plant does not answer in time.
+     */
+    public <T> T call(String plantId, Callable<T> call) throws Exception {
+        PlantGuard guard = guardFor(plantId);
+        CircuitBreaker breaker = guard.breaker;
+        breaker.acquirePermission();
+        if (!guard.bulkhead.tryAcquirePermission()) {
+            breaker.releasePermission();
+            throw BulkheadFullException.createBulkheadFullException(guard.bulkhead);
+        }
+
+        long start = System.nanoTime();
+        Future<T> future;
+        try {
+            // The permit is held until the remote call really ends, even if the caller stopped waiting
+            future = executor.submit(() -> {
+                try {
+                    return call.call();
+                } finally {
+                    guard.bulkhead.onComplete();
+                }
+            });
+        } catch (RuntimeException e) {
+            guard.bulkhead.onComplete();
+            breaker.releasePermission();
+            throw e;
+        }
+
+        long timeoutNanos = guard.timeout.nanos();
+        try {
+            T result = future.get(timeoutNanos, TimeUnit.NANOSECONDS);
+            long elapsed = System.nanoTime() - start;
+            guard.timeout.onSuccess(elapsed);
+            breaker.onSuccess(elapsed, TimeUnit.NANOSECONDS);
+            return result;
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            guard.timeout.onTimeout();
+            TimeoutException timeout = new TimeoutException("Plant " + plantId + " did not answer within "
+                    + TimeUnit.NANOSECONDS.toMillis(timeoutNanos) + " ms");
+            breaker.onError(System.nanoTime() - start, TimeUnit.NANOSECONDS, timeout);
+            log.debug("{}", timeout.getMessage());
+            throw timeout;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            breaker.onError(System.nanoTime() - start, TimeUnit.NANOSECONDS, cause);
+            if (cause instanceof Exception exception) {
+                throw exception;
+            }
+            throw e;
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            breaker.releasePermission();
+            Thread.currentThread().interrupt();
+            throw e;
+        }
+    }
+
+    /**
+     * Current breaker state, bulkhead headroom and timeout for one plant.
+     */
+    public BreakerStatus status(String plantId) {
+        PlantGuard guard = guardFor(plantId);
+        CircuitBreaker.Metrics metrics = guard.breaker.getMetrics();
+        return new BreakerStatus(
+                plantId,
+                guard.breaker.getState().name(),
+                metrics.getFailureRate(),
+                metrics.getNumberOfBufferedCalls(),
+                metrics.getNumberOfNotPermittedCalls(),
+                guard.bulkhead.getMetrics().getAvailableConcurrentCalls(),
+                TimeUnit.NANOSECONDS.toMillis(guard.timeout.nanos())
+        );
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    private PlantGuard guardFor(String plantId) {
+        PlantGuard guard = guards.get(plantId);
+        if (guard == null) {
+            guard = guards.computeIfAbsent(plantId, id -> new PlantGuard(
+                    breakers.circuitBreaker(id),
+                    bulkheads.bulkhead(id),
+                    new AdaptiveTimeout(minTimeoutNanos, maxTimeoutNanos)));
+        }
+        return guard;
+    }
+
+    private record PlantGuard(CircuitBreaker breaker, Bulkhead bulkhead, AdaptiveTimeout timeout) {
+    }
+
+    /**
+     * Snapshot of one plant's protection state. A failure rate of -1 means too few calls have been recorded yet.
+     */
+    public record BreakerStatus(
+            String plantId,
+            String state,
+            float failureRate,
+            int bufferedCalls,
+            long notPermittedCalls,
+            int availableConcurrentCalls,
+            long timeoutMillis
+    ) {}
+}
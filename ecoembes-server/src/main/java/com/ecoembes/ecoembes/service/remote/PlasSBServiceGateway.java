@@ -1,37 +1,135 @@
 package com.ecoembes.ecoembes.service.remote;
 
 import com.ecoembes.ecoembes.domain.Plant;
+import com.ecoembes.ecoembes.dto.DumpsterBatchNotificationDTO;
+import com.ecoembes.ecoembes.dto.DumpsterNotificationDTO;
 import com.ecoembes.ecoembes.dto.RemotePlantCapacityDTO;
+import com.ecoembes.ecoembes.dto.RemoteReservationDTO;
+import com.ecoembes.ecoembes.dto.ReservationRequestDTO;
+import com.ecoembes.ecoembes.exception.CapacityConflictException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestTemplate;
+import org.springframework.web.util.UriUtils;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Service("PlasSB")
-public class PlasSBServiceGateway implements ServiceGateway {
+public class PlasSBServiceGateway implements ServiceGateway, DisposableBean {
+
+    static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+
+    private static final ObjectMapper STREAM_MAPPER = JsonMapper.builder()
+            .findAndAddModules()
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+            .build();
 
     private final RestTemplate restTemplate;
+    private final RestTemplate http2RestTemplate;
+    private final RestTemplate streamRestTemplate;
+    private final CloseableHttpClient pooledClient;
+    private final Map<String, PlantEndpoints> endpoints = new ConcurrentHashMap<>();
 
     public PlasSBServiceGateway() {
-        this.restTemplate = new RestTemplate();
+        this(new RestTemplate());
     }
 
     public PlasSBServiceGateway(RestTemplate restTemplate) {
         this.restTemplate = restTemplate;
+        this.http2RestTemplate = restTemplate;
+        this.streamRestTemplate = restTemplate;
+        this.pooledClient = null;
+    }
+
+    /**
+     * Builds the clients from the Boot-managed builder so requests carry the W3C trace context.
+     * HTTP/1.1 plants share a keep-alive connection pool; plants flagged for HTTP/2 go through the JDK client,
+     * which multiplexes requests over a single connection per plant. Capacity streams take a connection from the
+     * same pool, with a read timeout longer than the plant's heartbeat interval.
+     */
+    @Autowired
+    public PlasSBServiceGateway(RestTemplateBuilder restTemplateBuilder,
+                                @Value("${plants.http.max-connections:200}") int maxConnections,
+                                @Value("${plants.http.max-connections-per-route:50}") int maxConnectionsPerRoute,
+                                @Value("${plants.http.connect-timeout:2s}") Duration connectTimeout,
+                                @Value("${plants.http.read-timeout:5s}") Duration readTimeout,
+                                @Value("${plants.capacity-stream.read-timeout:45s}") Duration streamReadTimeout) {
+        PoolingHttpClientConnectionManager connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(maxConnections)
+                .setMaxConnPerRoute(maxConnectionsPerRoute)
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.of(connectTimeout))
+                        .setSocketTimeout(Timeout.of(readTimeout))
+                        .setValidateAfterInactivity(TimeValue.ofSeconds(2))
+                        .build())
+                .build();
+        this.pooledClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setResponseTimeout(Timeout.of(readTimeout))
+                        .build())
+                .evictIdleConnections(TimeValue.ofSeconds(30))
+                .build();
+        this.restTemplate = restTemplateBuilder
+                .requestFactory(() -> new HttpComponentsClientHttpRequestFactory(pooledClient))
+                .build();
+        this.streamRestTemplate = restTemplateBuilder
+                .requestFactory(() -> {
+                    HttpComponentsClientHttpRequestFactory factory = new HttpComponentsClientHttpRequestFactory(pooledClient);
+                    factory.setReadTimeout(streamReadTimeout);
+                    return factory;
+                })
+                .build();
+
+        HttpClient http2Client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(connectTimeout)
+                .build();
+        this.http2RestTemplate = restTemplateBuilder
+                .requestFactory(() -> {
+                    JdkClientHttpRequestFactory factory = new JdkClientHttpRequestFactory(http2Client);
+                    factory.setReadTimeout(readTimeout);
+                    return factory;
+                })
+                .build();
     }
 
     @Override
     public Double getPlantCapacity(Plant plant, LocalDate date) throws Exception {
-        // Plant ID is used only to select correct gateway via factory
-        // Each plant server manages only one plant, so no ID in URL path
-        String formattedDate = date != null ? date.format(DateTimeFormatter.ISO_DATE) : "";
-        String url = "http://" + plant.getHost() + ":" + plant.getPort()
-                + "/api/plants/capacity";
-        if (!formattedDate.isEmpty()) {
-            url += "?date=" + formattedDate;
-        }
-        RemotePlantCapacityDTO response = restTemplate.getForObject(url, RemotePlantCapacityDTO.class);
+        RemotePlantCapacityDTO response = restTemplateFor(plant)
+                .getForObject(endpointsFor(plant).capacity(date), RemotePlantCapacityDTO.class);
         if (response != null) {
             return response.getCapacity();
         }
@@ -39,20 +137,151 @@ public class PlasSBServiceGateway implements ServiceGateway {
     }
 
     @Override
-    public void notifyIncomingDumpsters(Plant plant, java.util.List<String> dumpsterIds, Integer totalContainers, LocalDate arrivalDate) throws Exception {
-        // Plant ID is used only to select correct gateway via factory
-        // Each plant server manages only one plant, so no ID in URL path
-        String url = "http://" + plant.getHost() + ":" + plant.getPort()
-                + "/api/plants/notify";
+    public CapacityReservation reserveCapacity(Plant plant, LocalDate arrivalDate, int totalContainers) throws Exception {
+        try {
+            RemoteReservationDTO response = restTemplateFor(plant).postForObject(endpointsFor(plant).reservations(),
+                    new ReservationRequestDTO(arrivalDate, totalContainers, null), RemoteReservationDTO.class);
+            return new CapacityReservation(response.reservationId(), response.version());
+        } catch (HttpClientErrorException.Conflict e) {
+            RemoteReservationDTO conflict = e.getResponseBodyAs(RemoteReservationDTO.class);
+            throw new CapacityConflictException("Plant " + plant.getPlantId() + " cannot take " + totalContainers
+                    + " containers on " + arrivalDate + (conflict != null ? " (" + conflict.capacity() + " tons left)" : ""));
+        }
+    }
+
+    @Override
+    public void releaseReservation(Plant plant, String reservationId) throws Exception {
+        try {
+            restTemplateFor(plant).delete(endpointsFor(plant).reservation(reservationId));
+        } catch (HttpClientErrorException.NotFound e) {
+            // Already confirmed or expired
+        }
+    }
+
+    @Override
+    public void notifyIncomingDumpsters(Plant plant, List<String> dumpsterIds, Integer totalContainers, LocalDate arrivalDate) throws Exception {
+        notifyIncomingDumpsters(plant, dumpsterIds, totalContainers, arrivalDate, null);
+    }
 
-        com.ecoembes.ecoembes.dto.DumpsterNotificationDTO notification =
-            new com.ecoembes.ecoembes.dto.DumpsterNotificationDTO(
+    @Override
+    public void notifyIncomingDumpsters(Plant plant, List<String> dumpsterIds, Integer totalContainers, LocalDate arrivalDate,
+                                        String idempotencyKey) throws Exception {
+        DumpsterNotificationDTO notification = new DumpsterNotificationDTO(
                 plant.getPlantId(),
                 dumpsterIds,
                 totalContainers,
                 arrivalDate
-            );
+        );
+
+        HttpHeaders headers = new HttpHeaders();
+        if (idempotencyKey != null) {
+            headers.set(IDEMPOTENCY_KEY_HEADER, idempotencyKey);
+        }
+        restTemplateFor(plant).postForObject(endpointsFor(plant).notification(), new HttpEntity<>(notification, headers), String.class);
+    }
 
-        restTemplate.postForObject(url, notification, String.class);
+    @Override
+    public void notifyIncomingDumpsterBatch(Plant plant, LocalDate arrivalDate, List<BatchedNotification> notifications) throws Exception {
+        DumpsterBatchNotificationDTO batch = new DumpsterBatchNotificationDTO(
+                plant.getPlantId(),
+                arrivalDate,
+                notifications.stream()
+                        .map(n -> new DumpsterBatchNotificationDTO.Entry(n.idempotencyKey(), n.dumpsterIds(), n.totalContainers()))
+                        .toList()
+        );
+
+        restTemplateFor(plant).postForObject(endpointsFor(plant).batchNotification(), batch, String.class);
+    }
+
+    /**
+     * Reads the server's {@code /api/plants/capacity/stream} of server-sent events for the given plants, which must
+     * all be hosted by the same server. Heartbeat comments only keep the read timeout from firing.
+     */
+    @Override
+    public void streamCapacityChanges(List<Plant> plants, CapacityListener listener) throws Exception {
+        Plant server = plants.get(0);
+        StringBuilder uri = new StringBuilder("http://").append(server.getHost()).append(':').append(server.getPort())
+                .append("/api/plants/capacity/stream?ids=");
+        for (int i = 0; i < plants.size(); i++) {
+            uri.append(i > 0 ? "," : "").append(UriUtils.encodeQueryParam(plants.get(i).getPlantId(), StandardCharsets.UTF_8));
+        }
+        streamRestTemplate.execute(URI.create(uri.toString()), HttpMethod.GET,
+                request -> request.getHeaders().setAccept(List.of(MediaType.TEXT_EVENT_STREAM)),
+                response -> {
+                    readEvents(new BufferedReader(new InputStreamReader(response.getBody(), StandardCharsets.UTF_8)), listener);
+                    return null;
+                });
+    }
+
+    private static void readEvents(BufferedReader in, CapacityListener listener) throws IOException {
+        listener.connected();
+        String event = null;
+        StringBuilder data = new StringBuilder();
+        String line;
+        while ((line = in.readLine()) != null && !Thread.currentThread().isInterrupted()) {
+            if (line.isEmpty()) {
+                // A blank line ends the event
+                if ("capacity".equals(event) && !data.isEmpty()) {
+                    listener.changed(STREAM_MAPPER.readValue(data.toString(), CapacityChange.class));
+                }
+                event = null;
+                data.setLength(0);
+            } else if (line.startsWith("event:")) {
+                event = line.substring(6).strip();
+            } else if (line.startsWith("data:")) {
+                data.append(line.substring(5).strip());
+            }
+        }
+    }
+
+    @Override
+    public void destroy() throws IOException {
+        if (pooledClient != null) {
+            pooledClient.close();
+        }
+    }
+
+    private RestTemplate restTemplateFor(Plant plant) {
+        return plant.isHttp2() ? http2RestTemplate : restTemplate;
+    }
+
+    /**
+     * Returns the plant's pre-built URIs, rebuilding them only if its address changed.
+     */
+    private PlantEndpoints endpointsFor(Plant plant) {
+        PlantEndpoints current = endpoints.get(plant.getPlantId());
+        if (current == null || !current.matches(plant)) {
+            current = PlantEndpoints.of(plant);
+            endpoints.put(plant.getPlantId(), current);
+        }
+        return current;
+    }
+
+    /**
+     * URIs for one plant. Capacity URIs only need the ISO date appended, so no template is expanded per call.
+     */
+    private record PlantEndpoints(String host, int port, URI capacityBase, String capacityPrefix, URI notification,
+                                  URI batchNotification, URI reservations) {
+
+        static PlantEndpoints of(Plant plant) {
+            // One PlasSB server may host many plants, so every endpoint is scoped to the plant ID
+            String base = "http://" + plant.getHost() + ":" + plant.getPort() + "/api/plants/"
+                    + UriUtils.encodePathSegment(plant.getPlantId(), StandardCharsets.UTF_8);
+            return new PlantEndpoints(plant.getHost(), plant.getPort(),
+                    URI.create(base + "/capacity"), base + "/capacity?date=", URI.create(base + "/notify"),
+                    URI.create(base + "/notify/batch"), URI.create(base + "/reservations"));
+        }
+
+        URI reservation(String reservationId) {
+            return URI.create(reservations + "/" + reservationId);
+        }
+
+        boolean matches(Plant plant) {
+            return port == plant.getPort() && host.equals(plant.getHost());
+        }
+
+        URI capacity(LocalDate date) {
+            return date != null ? URI.create(capacityPrefix + date.format(DateTimeFormatter.ISO_DATE)) : capacityBase;
+        }
     }
 }
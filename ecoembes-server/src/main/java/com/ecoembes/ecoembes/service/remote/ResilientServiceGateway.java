@@ -0,0 +1,70 @@
+package com.ecoembes.ecoembes.service.remote;
+
+import com.ecoembes.ecoembes.domain.Plant;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Decorator that routes every remote plant call through the plant's breaker, bulkhead and timeout,
+ * so an unreachable plant fails fast instead of holding request threads.
+ */
+public class ResilientServiceGateway implements ServiceGateway {
+
+    private final ServiceGateway delegate;
+    private final PlantResilience resilience;
+
+    public ResilientServiceGateway(ServiceGateway delegate, PlantResilience resilience) {
+        this.delegate = delegate;
+        this.resilience = resilience;
+    }
+
+    @Override
+    public Double getPlantCapacity(Plant plant, LocalDate date) throws Exception {
+        return resilience.call(plant.getPlantId(), () -> delegate.getPlantCapacity(plant, date));
+    }
+
+    @Override
+    public CapacityReservation reserveCapacity(Plant plant, LocalDate arrivalDate, int totalContainers) throws Exception {
+        return resilience.call(plant.getPlantId(), () -> delegate.reserveCapacity(plant, arrivalDate, totalContainers));
+    }
+
+    @Override
+    public void releaseReservation(Plant plant, String reservationId) throws Exception {
+        resilience.call(plant.getPlantId(), () -> {
+            delegate.releaseReservation(plant, reservationId);
+            return null;
+        });
+    }
+
+    @Override
+    public void notifyIncomingDumpsters(Plant plant, List<String> dumpsterIds, Integer totalContainers, LocalDate arrivalDate) throws Exception {
+        resilience.call(plant.getPlantId(), () -> {
+            delegate.notifyIncomingDumpsters(plant, dumpsterIds, totalContainers, arrivalDate);
+            return null;
+        });
+    }
+
+    @Override
+    public void notifyIncomingDumpsters(Plant plant, List<String> dumpsterIds, Integer totalContainers, LocalDate arrivalDate,
+                                        String idempotencyKey) throws Exception {
+        resilience.call(plant.getPlantId(), () -> {
+            delegate.notifyIncomingDumpsters(plant, dumpsterIds, totalContainers, arrivalDate, idempotencyKey);
+            return null;
+        });
+    }
+
+    @Override
+    public void notifyIncomingDumpsterBatch(Plant plant, LocalDate arrivalDate, List<BatchedNotification> notifications) throws Exception {
+        resilience.call(plant.getPlantId(), () -> {
+            delegate.notifyIncomingDumpsterBatch(plant, arrivalDate, notifications);
+            return null;
+        });
+    }
+
+    // Not guarded: a stream is meant to stay open far longer than any call timeout
+    @Override
+    public void streamCapacityChanges(List<Plant> plants, CapacityListener listener) throws Exception {
+        delegate.streamCapacityChanges(plants, listener);
+    }
+}
@@ -8,4 +8,41 @@ public interface ServiceGateway {
     Double getPlantCapacity(Plant plant, LocalDate date) throws Exception;
 
     void notifyIncomingDumpsters(Plant plant, List<String> dumpsterIds, Integer totalContainers, LocalDate arrivalDate) throws Exception;
+
+    /**
+     * Reserves capacity for the containers on the plant's ledger for the date.
+     * Throws {@link com.ecoembes.ecoembes.exception.CapacityConflictException} if the plant cannot take them.
+     * The reservation is confirmed by the notification sent with its ID as idempotency key.
+     */
+    CapacityReservation reserveCapacity(Plant plant, LocalDate arrivalDate, int totalContainers) throws Exception;
+
+    /**
+     * Gives back an unconfirmed reservation. Unknown or already confirmed reservations are ignored.
+     */
+    void releaseReservation(Plant plant, String reservationId) throws Exception;
+
+    /**
+     * Notifies the plant, tagging the notification with a key the plant uses to ignore redeliveries.
+     */
+    default void notifyIncomingDumpsters(Plant plant, List<String> dumpsterIds, Integer totalContainers, LocalDate arrivalDate,
+                                         String idempotencyKey) throws Exception {
+        notifyIncomingDumpsters(plant, dumpsterIds, totalContainers, arrivalDate);
+    }
+
+    /**
+     * Notifies the plant of several notifications arriving on the same date in one message.
+     * Either the whole batch is accepted or the call fails; plants skip entries whose key they already applied.
+     */
+    default void notifyIncomingDumpsterBatch(Plant plant, LocalDate arrivalDate, List<BatchedNotification> notifications) throws Exception {
+        for (BatchedNotification notification : notifications) {
+            notifyIncomingDumpsters(plant, notification.dumpsterIds(), notification.totalContainers(), arrivalDate,
+                    notification.idempotencyKey());
+        }
+    }
+
+    /**
+     * Subscribes to the capacity changes of plants hosted by one server and delivers them to the listener until the
+     * stream ends, which returns normally, or fails, which throws. Blocks the calling thread meanwhile.
+     */
+    void streamCapacityChanges(List<Plant> plants, CapacityListener listener) throws Exception;
 }
@@ -1,16 +1,45 @@
 package com.ecoembes.ecoembes.service.remote;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.util.HashMap;
 import java.util.Map;
 
 @Component
 public class ServiceGatewayFactory {
 
     private final Map<String, ServiceGateway> gateways;
+    private final PlantResilience resilience;
 
     public ServiceGatewayFactory(Map<String, ServiceGateway> gateways) {
         this.gateways = gateways;
+        this.resilience = null;
+    }
+
+    /**
+     * Wraps every gateway so plant calls are guarded per plant, then timed and failures counted per plant.
+     * Fast failures from an open breaker or a full bulkhead are therefore visible in the gateway metrics too.
+     */
+    public ServiceGatewayFactory(Map<String, ServiceGateway> gateways, MeterRegistry meterRegistry, PlantResilience resilience) {
+        this(gateways, meterRegistry, resilience, null);
+    }
+
+    /**
+     * As above, and answers capacity queries from the capacity view while a plant's capacity stream is up, so those
+     * queries reach neither the plant nor the gateway metrics.
+     */
+    @Autowired
+    public ServiceGatewayFactory(Map<String, ServiceGateway> gateways, MeterRegistry meterRegistry, PlantResilience resilience,
+                                 PlantCapacityView capacityView) {
+        Map<String, ServiceGateway> decorated = new HashMap<>();
+        gateways.forEach((type, gateway) -> {
+            ServiceGateway guarded = new MeteredServiceGateway(new ResilientServiceGateway(gateway, resilience), type, meterRegistry);
+            decorated.put(type, capacityView != null ? new CachingServiceGateway(guarded, capacityView) : guarded);
+        });
+        this.gateways = decorated;
+        this.resilience = resilience;
     }
 
     public ServiceGateway getServiceGateway(String gatewayType) {
@@ -20,4 +49,11 @@ public class ServiceGatewayFactory {
         }
         return serviceGateway;
     }
+
+    /**
+     * Returns the breaker status of a plant, or null when gateways are not guarded.
+     */
+    public PlantResilience.BreakerStatus getBreakerStatus(String plantId) {
+        return resilience != null ? resilience.status(plantId) : null;
+    }
 }
@@ -1,6 +1,8 @@
 package com.ecoembes.ecoembes.statemanagement;
 
 import com.ecoembes.ecoembes.domain.Employee;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
 import java.util.Map;
@@ -14,13 +16,15 @@ import java.util.concurrent.ConcurrentHashMap;
 @Component
 public class SessionManager {
 
+    private static final Logger log = LoggerFactory.getLogger(SessionManager.class);
+
     private final Map<String, Employee> activeSessions = new ConcurrentHashMap<>();
 
     /**
      * Saves a new session token with employee info.
      */
     public void storeToken(String token, Employee employee) {
-        System.out.println("Storing token for employee: " + employee.getEmail());
+        log.debug("Storing session for {}", employee.getEmail());
         activeSessions.put(token, employee);
     }
 
@@ -28,7 +32,6 @@ public class SessionManager {
      * Removes a session token (logout).
      */
     public void removeToken(String token) {
-        System.out.println("Removing token: " + token);
         activeSessions.remove(token);
     }
 
@@ -36,9 +39,7 @@ public class SessionManager {
      * Checks if a token is valid (exists in active sessions).
      */
     public boolean validateToken(String token) {
-        boolean isValid = activeSessions.containsKey(token);
-        System.out.println("Validating token " + token + ": " + isValid);
-        return isValid;
+        return activeSessions.containsKey(token);
     }
 
     /**
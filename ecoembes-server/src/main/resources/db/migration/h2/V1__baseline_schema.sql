@@ -0,0 +1,78 @@
+-- Schema of the entities as of the first migration; later changes go in new V<n>__*.sql files.
+-- Hibernate validates the entities against it on startup (spring.jpa.hibernate.ddl-auto=validate).
+
+CREATE TABLE employees (
+    employee_id VARCHAR(255) NOT NULL,
+    name        VARCHAR(255) NOT NULL,
+    email       VARCHAR(255) NOT NULL UNIQUE,
+    password    VARCHAR(255) NOT NULL,
+    PRIMARY KEY (employee_id)
+);
+
+CREATE TABLE plants (
+    plant_id                  VARCHAR(255) NOT NULL,
+    name                      VARCHAR(255) NOT NULL,
+    available_capacity        FLOAT(53)    NOT NULL,
+    type                      VARCHAR(255) NOT NULL,
+    host                      VARCHAR(255),
+    port                      INTEGER,
+    gateway_type              VARCHAR(255),
+    http2                     BOOLEAN      NOT NULL,
+    total_containers_received INTEGER      NOT NULL,
+    PRIMARY KEY (plant_id)
+);
+
+CREATE TABLE dumpsters (
+    dumpster_id       VARCHAR(255) NOT NULL,
+    location          VARCHAR(255) NOT NULL,
+    postal_code       VARCHAR(255) NOT NULL,
+    capacity          FLOAT(53)    NOT NULL,
+    fill_level        VARCHAR(255) NOT NULL,
+    containers_number INTEGER      NOT NULL,
+    created_at        TIMESTAMP(6) NOT NULL,
+    PRIMARY KEY (dumpster_id)
+);
+
+CREATE TABLE usage_history (
+    id               BIGINT GENERATED BY DEFAULT AS IDENTITY,
+    dumpster_id      VARCHAR(255) NOT NULL,
+    date             DATE         NOT NULL,
+    fill_level       VARCHAR(255) NOT NULL,
+    containers_count INTEGER      NOT NULL,
+    recorded_at      TIMESTAMP(6) NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT fk_usage_history_dumpster FOREIGN KEY (dumpster_id) REFERENCES dumpsters
+);
+
+CREATE TABLE assignments (
+    id                  BIGINT GENERATED BY DEFAULT AS IDENTITY,
+    plant_id            VARCHAR(255) NOT NULL,
+    dumpster_id         VARCHAR(255) NOT NULL,
+    employee_id         VARCHAR(255) NOT NULL,
+    assignment_date     DATE         NOT NULL,
+    created_at          TIMESTAMP(6) NOT NULL,
+    status              VARCHAR(255) NOT NULL,
+    assigned_containers INTEGER      NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT fk_assignments_plant FOREIGN KEY (plant_id) REFERENCES plants,
+    CONSTRAINT fk_assignments_dumpster FOREIGN KEY (dumpster_id) REFERENCES dumpsters,
+    CONSTRAINT fk_assignments_employee FOREIGN KEY (employee_id) REFERENCES employees
+);
+
+CREATE TABLE plant_notification_outbox (
+    id               BIGINT        GENERATED BY DEFAULT AS IDENTITY,
+    idempotency_key  VARCHAR(36)   NOT NULL UNIQUE,
+    plant_id         VARCHAR(255)  NOT NULL,
+    dumpster_ids     VARCHAR(4000) NOT NULL,
+    total_containers INTEGER       NOT NULL,
+    arrival_date     DATE          NOT NULL,
+    status           VARCHAR(255)  NOT NULL,
+    attempts         INTEGER       NOT NULL,
+    next_attempt_at  TIMESTAMP(6)  NOT NULL,
+    created_at       TIMESTAMP(6)  NOT NULL,
+    sent_at          TIMESTAMP(6),
+    last_error       VARCHAR(500),
+    PRIMARY KEY (id)
+);
+
+CREATE INDEX idx_outbox_status_next_attempt ON plant_notification_outbox (status, next_attempt_at);
@@ -0,0 +1,13 @@
+-- Fill levels are stored as one-byte codes (green 0, orange 1, red 2) instead of text, and indexed.
+-- Text that names no fill level becomes green. The usage history partitions are converted by the application.
+
+UPDATE dumpsters SET fill_level = CASE LOWER(TRIM(fill_level))
+    WHEN 'green' THEN 0
+    WHEN 'orange' THEN 1
+    WHEN 'red' THEN 2
+    ELSE 0
+END;
+
+ALTER TABLE dumpsters ALTER COLUMN fill_level TINYINT NOT NULL;
+
+CREATE INDEX idx_dumpsters_fill_level ON dumpsters (fill_level);
@@ -0,0 +1,6 @@
+-- Collection planning looks dumpsters up by fill level and postal code together; the composite index also serves
+-- lookups by fill level alone, so it replaces the single-column one.
+
+DROP INDEX idx_dumpsters_fill_level;
+
+CREATE INDEX idx_dumpsters_fill_level_postal_code ON dumpsters (fill_level, postal_code);
@@ -0,0 +1,7 @@
+-- WGS84 positions of dumpsters and plants, for the position queries. Null where not known.
+
+ALTER TABLE dumpsters ADD COLUMN latitude FLOAT(53);
+ALTER TABLE dumpsters ADD COLUMN longitude FLOAT(53);
+
+ALTER TABLE plants ADD COLUMN latitude FLOAT(53);
+ALTER TABLE plants ADD COLUMN longitude FLOAT(53);
@@ -0,0 +1,3 @@
+-- The comma-separated dumpster IDs of a notification outgrew VARCHAR(4000) at about 360 dumpsters.
+
+ALTER TABLE plant_notification_outbox ALTER COLUMN dumpster_ids SET DATA TYPE CLOB;
@@ -1,12 +1,17 @@
 package com.ecoembes.ecoembes.controler;
 
+import com.ecoembes.ecoembes.integration.PlantStubs;
+import com.ecoembes.ecoembes.service.remote.ContSocketServiceGateway;
+import com.ecoembes.ecoembes.service.remote.PlasSBServiceGateway;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
 
 import java.time.LocalDate;
@@ -28,6 +33,18 @@ class EcoembesControlerIT {
     @Autowired
     private ObjectMapper objectMapper;
 
+    // No plant servers run in tests
+    @MockitoBean(name = "PlasSB")
+    private PlasSBServiceGateway plasSBGateway;
+
+    @MockitoBean(name = "ContSocket")
+    private ContSocketServiceGateway contSocketGateway;
+
+    @BeforeEach
+    void stubPlants() throws Exception {
+        PlantStubs.holdEveryReservation(plasSBGateway, contSocketGateway);
+    }
+
     private String loginAndGetToken(String email, String password) throws Exception {
         String payload = "{" +
                 "\"email\":\"" + email + "\"," +
@@ -121,6 +138,202 @@ class EcoembesControlerIT {
                 .andExpect(jsonPath("$.containersNumber", is(500)));
     }
 
+    @Test
+    void dumpster_update_rejects_unknown_fill_level() throws Exception {
+        String token = loginAndGetToken("admin@ecoembes.com", "password123");
+
+        mockMvc.perform(put("/api/v1/dumpsters/D-456")
+                        .header("Authorization", token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"fillLevel\":\"purple\",\"containersNumber\":5}"))
+                .andExpect(status().isBadRequest());
+
+        mockMvc.perform(put("/api/v1/dumpsters/D-456")
+                        .header("Authorization", token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"fillLevel\":\"ORANGE\",\"containersNumber\":5}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.fillLevel", is("orange")));
+    }
+
+    @Test
+    void full_dumpsters_filtered_by_fill_level_and_postal_code() throws Exception {
+        String token = loginAndGetToken("admin@ecoembes.com", "password123");
+
+        String createResponse = mockMvc.perform(post("/api/v1/dumpsters")
+                        .header("Authorization", token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"location\":\"Planning Street 2, 48998\",\"initialCapacity\":100}"))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        String id = objectMapper.readTree(createResponse).get("dumpsterID").asText();
+
+        mockMvc.perform(get("/api/v1/dumpsters/full")
+                        .header("Authorization", token)
+                        .param("minFillLevel", "orange")
+                        .param("postalCodes", "48998"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(0)));
+
+        mockMvc.perform(put("/api/v1/dumpsters/" + id)
+                        .header("Authorization", token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"fillLevel\":\"red\",\"containersNumber\":90}"))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/v1/dumpsters/full")
+                        .header("Authorization", token)
+                        .param("minFillLevel", "orange")
+                        .param("postalCodes", "48997", "48998"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].dumpsterID", is(id)))
+                .andExpect(jsonPath("$[0].fillLevel", is("red")));
+
+        mockMvc.perform(get("/api/v1/dumpsters/full")
+                        .header("Authorization", token)
+                        .param("minFillLevel", "red"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].fillLevel", everyItem(is("red"))))
+                .andExpect(jsonPath("$[*].dumpsterID", hasItem(id)));
+
+        mockMvc.perform(get("/api/v1/dumpsters/full")
+                        .header("Authorization", token)
+                        .param("minFillLevel", "purple"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void dumpsters_found_by_radius_and_polygon() throws Exception {
+        String token = loginAndGetToken("admin@ecoembes.com", "password123");
+
+        String createResponse = mockMvc.perform(post("/api/v1/dumpsters")
+                        .header("Authorization", token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"location\":\"Gran Via 1, 48001\",\"initialCapacity\":100,"
+                                + "\"latitude\":43.2630,\"longitude\":-2.9350}"))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        String id = objectMapper.readTree(createResponse).get("dumpsterID").asText();
+
+        mockMvc.perform(get("/api/v1/dumpsters/nearby")
+                        .header("Authorization", token)
+                        .param("latitude", "43.2631")
+                        .param("longitude", "-2.9351")
+                        .param("radiusMeters", "100"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].dumpsterID", is(id)))
+                .andExpect(jsonPath("$[0].latitude", closeTo(43.2630, 1e-9)))
+                .andExpect(jsonPath("$[0].distanceMeters", lessThan(100.0)));
+
+        // D-456 in Indautxu is about 600 m away, D-123 in Deusto about 1.4 km
+        mockMvc.perform(get("/api/v1/dumpsters/nearby")
+                        .header("Authorization", token)
+                        .param("latitude", "43.2630")
+                        .param("longitude", "-2.9350")
+                        .param("radiusMeters", "1000"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].dumpsterID", is(id)))
+                .andExpect(jsonPath("$[*].dumpsterID", hasItem("D-456")))
+                .andExpect(jsonPath("$[*].dumpsterID", not(hasItem("D-123"))));
+
+        mockMvc.perform(post("/api/v1/dumpsters/within")
+                        .header("Authorization", token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"polygon\":[{\"latitude\":43.26,\"longitude\":-2.95},"
+                                + "{\"latitude\":43.28,\"longitude\":-2.95},{\"latitude\":43.28,\"longitude\":-2.94}]}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].dumpsterID", hasItem("D-123")))
+                .andExpect(jsonPath("$[*].dumpsterID", not(hasItem("D-789"))));
+
+        mockMvc.perform(post("/api/v1/dumpsters/within")
+                        .header("Authorization", token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"polygon\":[{\"latitude\":43.26,\"longitude\":-2.95}]}"))
+                .andExpect(status().isBadRequest());
+
+        mockMvc.perform(get("/api/v1/dumpsters/nearby")
+                        .header("Authorization", token)
+                        .param("latitude", "91")
+                        .param("longitude", "0"))
+                .andExpect(status().isBadRequest());
+
+        mockMvc.perform(post("/api/v1/dumpsters")
+                        .header("Authorization", token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"location\":\"Gran Via 2, 48001\",\"initialCapacity\":100,\"latitude\":43.2630}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void nearest_plant_with_capacity() throws Exception {
+        String token = loginAndGetToken("admin@ecoembes.com", "password123");
+
+        mockMvc.perform(get("/api/v1/plants/nearest")
+                        .header("Authorization", token)
+                        .param("latitude", "43.2714")
+                        .param("longitude", "-2.9466"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.plantID", is("PLASSB-01")))
+                .andExpect(jsonPath("$.distanceMeters", greaterThan(0.0)));
+
+        mockMvc.perform(get("/api/v1/plants/nearest")
+                        .header("Authorization", token)
+                        .param("latitude", "43.2714")
+                        .param("longitude", "-2.9466")
+                        .param("type", "GENERAL"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.plantID", is("CONTSO-01")));
+
+        mockMvc.perform(get("/api/v1/plants/nearest")
+                        .header("Authorization", token)
+                        .param("latitude", "43.2714")
+                        .param("longitude", "-2.9466")
+                        .param("requiredTons", "100000"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void optimized_assignment_spreads_dumpsters_over_closest_plants() throws Exception {
+        String token = loginAndGetToken("admin@ecoembes.com", "password123");
+
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("dumpsterIDs", List.of("D-123", "D-789"));
+        payload.put("date", LocalDate.now().toString());
+
+        // Deusto is closest to PLASSB-01, Santutxu to CONTSO-01
+        mockMvc.perform(post("/api/v1/plants/assign/optimized")
+                        .header("Authorization", token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(payload)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.assignments", hasSize(2)))
+                .andExpect(jsonPath("$.assignments[?(@.plantId == 'PLASSB-01')].dumpsterIds[*]", contains("D-123")))
+                .andExpect(jsonPath("$.assignments[?(@.plantId == 'CONTSO-01')].dumpsterIds[*]", contains("D-789")))
+                .andExpect(jsonPath("$.unassignedDumpsterIDs", hasSize(0)))
+                .andExpect(jsonPath("$.totalDistanceMeters", greaterThan(0.0)));
+
+        payload.put("type", "PLASTIC");
+        mockMvc.perform(post("/api/v1/plants/assign/optimized")
+                        .header("Authorization", token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(payload)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.assignments", hasSize(1)))
+                .andExpect(jsonPath("$.assignments[0].plantId", is("PLASSB-01")))
+                .andExpect(jsonPath("$.assignments[0].dumpsterIds", containsInAnyOrder("D-123", "D-789")));
+
+        payload.put("type", "GLASS");
+        mockMvc.perform(post("/api/v1/plants/assign/optimized")
+                        .header("Authorization", token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(payload)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.assignments", hasSize(0)))
+                .andExpect(jsonPath("$.unassignedDumpsterIDs", containsInAnyOrder("D-123", "D-789")));
+    }
+
     @Test
     void plants_capacity_and_assign_ok() throws Exception {
         String token = loginAndGetToken("admin@ecoembes.com", "password123");
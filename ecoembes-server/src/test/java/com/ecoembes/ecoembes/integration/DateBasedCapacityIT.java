@@ -1,5 +1,7 @@
 package com.ecoembes.ecoembes.integration;
 
+import com.ecoembes.ecoembes.service.remote.ContSocketServiceGateway;
+import com.ecoembes.ecoembes.service.remote.PlasSBServiceGateway;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.*;
@@ -7,6 +9,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 
@@ -39,6 +42,18 @@ class DateBasedCapacityIT {
     @Autowired
     private ObjectMapper objectMapper;
 
+    // No plant servers run in tests
+    @MockitoBean(name = "PlasSB")
+    private PlasSBServiceGateway plasSBGateway;
+
+    @MockitoBean(name = "ContSocket")
+    private ContSocketServiceGateway contSocketGateway;
+
+    @BeforeEach
+    void stubPlants() throws Exception {
+        PlantStubs.holdEveryReservation(plasSBGateway, contSocketGateway);
+    }
+
     private String adminToken;
     private LocalDate today;
     private LocalDate tomorrow;
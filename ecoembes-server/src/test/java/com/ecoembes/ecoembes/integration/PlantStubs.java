@@ -0,0 +1,30 @@
+package com.ecoembes.ecoembes.integration;
+
+import com.ecoembes.ecoembes.domain.Plant;
+import com.ecoembes.ecoembes.service.remote.CapacityReservation;
+import com.ecoembes.ecoembes.service.remote.ServiceGateway;
+
+import java.util.UUID;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.when;
+
+/**
+ * Stands in for the plant servers, which do not run in tests: every reservation is held, and every plant reports
+ * the capacity stored for it.
+ */
+public final class PlantStubs {
+
+    private PlantStubs() {
+    }
+
+    public static void holdEveryReservation(ServiceGateway... gateways) throws Exception {
+        for (ServiceGateway gateway : gateways) {
+            when(gateway.reserveCapacity(any(), any(), anyInt()))
+                    .thenAnswer(invocation -> new CapacityReservation(UUID.randomUUID().toString(), 1));
+            when(gateway.getPlantCapacity(any(), any()))
+                    .thenAnswer(invocation -> invocation.<Plant>getArgument(0).getAvailableCapacity());
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.ecoembes.ecoembes.integration;
+
+import com.ecoembes.ecoembes.domain.PlantNotification;
+import com.ecoembes.ecoembes.repository.PlantNotificationRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Starts the server with the prod profile on a file database in a temporary directory. Starting at all means the
+ * Flyway migrations built a schema the entities validate against.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("prod")
+class ProdProfileIT {
+
+    @TempDir
+    static Path dataDir;
+
+    @DynamicPropertySource
+    static void dataDir(DynamicPropertyRegistry registry) {
+        registry.add("ecoembes.data-dir", () -> dataDir.toString());
+    }
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlantNotificationRepository plantNotificationRepository;
+
+    @Test
+    @DisplayName("Schema is created by the Flyway migrations in a database file")
+    void schemaIsMigratedIntoFile() {
+        Integer applied = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM \"flyway_schema_history\" WHERE \"success\" = TRUE", Integer.class);
+
+        assertTrue(applied != null && applied >= 1, "At least the baseline migration should be applied");
+        assertTrue(Files.exists(dataDir.resolve("ecoembes.mv.db")), "Database should be stored in the data directory");
+    }
+
+    @Test
+    @DisplayName("Sample data is seeded into the empty database")
+    void sampleDataIsSeeded() throws Exception {
+        mockMvc.perform(post("/api/v1/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"email\":\"admin@ecoembes.com\",\"password\":\"password123\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.token").exists());
+    }
+
+    @Test
+    @DisplayName("A notification keeps the IDs of thousands of dumpsters")
+    void largeNotificationsAreStored() {
+        List<String> dumpsterIds = IntStream.range(0, 5000).mapToObj(i -> String.format("D-%08x", i)).toList();
+
+        PlantNotification saved = plantNotificationRepository.save(
+                new PlantNotification("PLASSB-01", dumpsterIds, 5000, LocalDate.now().plusDays(1)));
+
+        assertEquals(dumpsterIds, plantNotificationRepository.findById(saved.getId()).orElseThrow().getDumpsterIds());
+    }
+}
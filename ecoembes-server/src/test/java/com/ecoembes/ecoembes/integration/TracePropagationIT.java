@@ -0,0 +1,115 @@
+package com.ecoembes.ecoembes.integration;
+
+import com.ecoembes.ecoembes.domain.Plant;
+import com.ecoembes.ecoembes.service.remote.CapacityChange;
+import com.ecoembes.ecoembes.service.remote.CapacityListener;
+import com.ecoembes.ecoembes.service.remote.PlasSBServiceGateway;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.Tracer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Calls a stub PlasSB plant through the Boot-wired gateway and checks that the request carries the W3C trace
+ * context of the calling span. Tracing is off in tests unless observability is auto-configured.
+ */
+@SpringBootTest
+@AutoConfigureObservability
+class TracePropagationIT {
+
+    @Autowired
+    private PlasSBServiceGateway gateway;
+
+    @Autowired
+    private Tracer tracer;
+
+    private HttpServer plant;
+    private final AtomicReference<String> traceParent = new AtomicReference<>();
+
+    @BeforeEach
+    void startPlant() throws Exception {
+        plant = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        plant.createContext("/api/plants/PLASSB-T/capacity", exchange -> {
+            traceParent.set(exchange.getRequestHeaders().getFirst("traceparent"));
+            byte[] body = "{\"id\":\"PLASSB-T\",\"capacity\":42.0}".getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        plant.createContext("/api/plants/capacity/stream", exchange -> {
+            traceParent.set(exchange.getRequestHeaders().getFirst("traceparent"));
+            byte[] body = ("event: capacity\ndata: {\"plantId\":\"PLASSB-T\",\"date\":\"2025-11-05\",\"capacity\":41.5,\"version\":3}\n\n")
+                    .getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "text/event-stream");
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        plant.start();
+    }
+
+    @AfterEach
+    void stopPlant() {
+        plant.stop(0);
+    }
+
+    @Test
+    void plantRequestsCarryTheTraceContext() throws Exception {
+        Plant target = new Plant("PLASSB-T", "PlasSB Test", 85.0, "PLASTIC", "PlasSB");
+        target.setHost("localhost");
+        target.setPort(plant.getAddress().getPort());
+
+        Span parent = tracer.nextSpan().name("assign").start();
+        try (Tracer.SpanInScope ignored = tracer.withSpan(parent)) {
+            assertEquals(42.0, gateway.getPlantCapacity(target, LocalDate.of(2025, 11, 5)));
+        } finally {
+            parent.end();
+        }
+
+        assertNotNull(traceParent.get(), "No traceparent header on the plant request");
+        assertTrue(traceParent.get().matches("00-" + parent.context().traceId() + "-[0-9a-f]{16}-01"), traceParent.get());
+    }
+
+    @Test
+    void capacityStreamCarriesTheTraceContext() throws Exception {
+        Plant target = new Plant("PLASSB-T", "PlasSB Test", 85.0, "PLASTIC", "PlasSB");
+        target.setHost("localhost");
+        target.setPort(plant.getAddress().getPort());
+        List<CapacityChange> changes = new ArrayList<>();
+
+        Span parent = tracer.nextSpan().name("capacity-stream").start();
+        try (Tracer.SpanInScope ignored = tracer.withSpan(parent)) {
+            gateway.streamCapacityChanges(List.of(target), new CapacityListener() {
+                @Override
+                public void connected() {
+                }
+
+                @Override
+                public void changed(CapacityChange change) {
+                    changes.add(change);
+                }
+            });
+        } finally {
+            parent.end();
+        }
+
+        assertEquals(List.of(new CapacityChange("PLASSB-T", LocalDate.of(2025, 11, 5), 41.5, 3)), changes);
+        assertNotNull(traceParent.get(), "No traceparent header on the capacity stream request");
+        assertTrue(traceParent.get().matches("00-" + parent.context().traceId() + "-[0-9a-f]{16}-01"), traceParent.get());
+    }
+}
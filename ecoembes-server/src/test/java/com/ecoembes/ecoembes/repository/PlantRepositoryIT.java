@@ -0,0 +1,58 @@
+package com.ecoembes.ecoembes.repository;
+
+import com.ecoembes.ecoembes.domain.Plant;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class PlantRepositoryIT {
+
+    @Autowired
+    private PlantRepository plantRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    @DisplayName("Concurrent additions to a plant's total all count")
+    void concurrentAdditionsAllCount() throws Exception {
+        String plantId = "PLANT-TOTAL-" + System.nanoTime() % 100_000;
+        plantRepository.save(new Plant(plantId, "Total Test", 80.0, "PLASTIC", "PlasSB"));
+
+        int writers = 8;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(writers);
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for (int i = 0; i < writers; i++) {
+                results.add(pool.submit(() -> {
+                    start.await();
+                    for (int n = 0; n < 25; n++) {
+                        transactionTemplate.executeWithoutResult(status -> plantRepository.addContainersReceived(plantId, 10));
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> result : results) {
+                result.get();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertEquals(writers * 25 * 10, plantRepository.findById(plantId).orElseThrow().getTotalContainersReceived());
+    }
+}
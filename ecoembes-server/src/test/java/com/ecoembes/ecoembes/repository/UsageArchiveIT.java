@@ -0,0 +1,126 @@
+package com.ecoembes.ecoembes.repository;
+
+import com.ecoembes.ecoembes.domain.Dumpster;
+import com.ecoembes.ecoembes.domain.FillLevel;
+import com.ecoembes.ecoembes.domain.Usage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.Period;
+import java.time.YearMonth;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class UsageArchiveIT {
+
+    @Autowired
+    private UsageRepository usageRepository;
+
+    @Autowired
+    private UsagePartitions usagePartitions;
+
+    @Autowired
+    private DumpsterRepository dumpsterRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @TempDir
+    private Path directory;
+
+    private UsageArchive usageArchive;
+    private Dumpster dumpster;
+
+    @BeforeEach
+    void setUp() {
+        // Archives only months far older than the sample data, which the other tests read from the application's archive
+        usageArchive = archive(Period.ofYears(3));
+        dumpster = dumpsterRepository.save(new Dumpster("D-ARCH-" + System.nanoTime() % 100_000, "Archive Street 48099", "48099", 1000.0));
+    }
+
+    @Test
+    @DisplayName("Closed months move into archive files and read back as they were stored")
+    void archivesClosedMonths() {
+        LocalDate today = LocalDate.now();
+        YearMonth month = YearMonth.from(today).minusMonths(20);
+        usageRepository.save(new Usage(dumpster, month.atDay(3), FillLevel.GREEN, 12));
+        usageRepository.save(new Usage(dumpster, month.atDay(3), FillLevel.ORANGE, 340));
+        usageRepository.save(new Usage(dumpster, month.atEndOfMonth(), FillLevel.RED, 980));
+        List<Usage> live = usageRepository.findByDumpsterDumpsterId(dumpster.getDumpsterId());
+
+        usageArchive.archive(today);
+
+        assertFalse(usagePartitions.all().contains(month));
+        assertTrue(usageArchive.months().contains(month));
+        assertTrue(Files.exists(directory.resolve(fileOf(month))));
+        assertTrue(usagePartitions.all().contains(YearMonth.from(today)));
+
+        List<Usage> usages = ofDumpster(usageArchive.findByDateBetween(month.atDay(1), month.atEndOfMonth()));
+        assertEquals(live.stream().map(Usage::getId).toList(), usages.stream().map(Usage::getId).toList());
+        assertEquals(List.of(FillLevel.RED, FillLevel.ORANGE, FillLevel.GREEN), usages.stream().map(Usage::getFillLevel).toList());
+        assertEquals(List.of(980, 340, 12), usages.stream().map(Usage::getContainersCount).toList());
+        assertEquals(live.stream().map(Usage::getRecordedAt).toList(), usages.stream().map(Usage::getRecordedAt).toList());
+
+        assertEquals(1, ofDumpster(usageArchive.findByDateBetween(month.atEndOfMonth(), month.atEndOfMonth().plusMonths(1))).size());
+    }
+
+    @Test
+    @DisplayName("A reading written after its month was archived is merged into the archive on the next run")
+    void mergesLateReadings() {
+        LocalDate today = LocalDate.now();
+        YearMonth month = YearMonth.from(today).minusMonths(22);
+        usageRepository.save(new Usage(dumpster, month.atDay(10), FillLevel.GREEN, 1));
+        usageArchive.archive(today);
+
+        Usage late = usageRepository.save(new Usage(dumpster, month.atDay(5), FillLevel.ORANGE, 2));
+        assertTrue(usagePartitions.all().contains(month));
+        usageArchive.archive(today);
+
+        assertFalse(usagePartitions.all().contains(month));
+        List<Usage> usages = ofDumpster(usageArchive.findByDateBetween(month.atDay(1), month.atEndOfMonth()));
+        assertEquals(List.of(month.atDay(10), month.atDay(5)), usages.stream().map(Usage::getDate).toList());
+        assertEquals(late.getId(), usages.get(1).getId());
+    }
+
+    @Test
+    @DisplayName("Archived months older than the retention are deleted")
+    void deletesExpiredMonths() {
+        LocalDate today = LocalDate.now();
+        YearMonth month = YearMonth.from(today).minusMonths(30);
+        usageRepository.save(new Usage(dumpster, month.atDay(1), FillLevel.GREEN, 1));
+        usageArchive.archive(today);
+        assertTrue(usageArchive.months().contains(month));
+
+        UsageArchive shorterRetention = archive(Period.ofYears(2));
+        shorterRetention.archive(today);
+
+        assertFalse(shorterRetention.months().contains(month));
+        assertFalse(Files.exists(directory.resolve(fileOf(month))));
+        assertTrue(shorterRetention.findByDateBetween(month.atDay(1), month.atEndOfMonth()).isEmpty());
+    }
+
+    private UsageArchive archive(Period retention) {
+        UsageArchive archive = new UsageArchive(jdbcTemplate, usagePartitions, usageRepository, directory,
+                Period.ofMonths(18), retention, "none");
+        archive.afterSingletonsInstantiated();
+        return archive;
+    }
+
+    private static String fileOf(YearMonth month) {
+        return "usage_%d%02d.col".formatted(month.getYear(), month.getMonthValue());
+    }
+
+    private List<Usage> ofDumpster(List<Usage> usages) {
+        return usages.stream().filter(u -> u.getDumpster().getDumpsterId().equals(dumpster.getDumpsterId())).toList();
+    }
+}
@@ -0,0 +1,88 @@
+package com.ecoembes.ecoembes.repository;
+
+import com.ecoembes.ecoembes.domain.Dumpster;
+import com.ecoembes.ecoembes.domain.FillLevel;
+import com.ecoembes.ecoembes.domain.Usage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class UsageRepositoryIT {
+
+    @Autowired
+    private UsageRepository usageRepository;
+
+    @Autowired
+    private UsagePartitions usagePartitions;
+
+    @Autowired
+    private DumpsterRepository dumpsterRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Dumpster dumpster;
+
+    @BeforeEach
+    void setUp() {
+        dumpster = dumpsterRepository.save(new Dumpster("D-PART-" + System.nanoTime() % 100_000, "Partition Street 48099", "48099", 1000.0));
+    }
+
+    @Test
+    @DisplayName("Readings are stored in the partition of their month")
+    void savesIntoMonthlyPartition() {
+        LocalDate date = LocalDate.now().minusMonths(14).withDayOfMonth(10);
+
+        usageRepository.save(new Usage(dumpster, date, FillLevel.GREEN, 12));
+
+        Integer rows = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + UsagePartitions.table(YearMonth.from(date))
+                + " WHERE dumpster_id = ?", Integer.class, dumpster.getDumpsterId());
+        assertEquals(1, rows);
+    }
+
+    @Test
+    @DisplayName("A date range spanning two months returns the readings of both, newest first")
+    void findsAcrossPartitions() {
+        LocalDate lastDay = LocalDate.now().minusMonths(13).withDayOfMonth(1).minusDays(1);
+        LocalDate firstDay = lastDay.plusDays(1);
+        usageRepository.save(new Usage(dumpster, lastDay, FillLevel.ORANGE, 300));
+        usageRepository.save(new Usage(dumpster, firstDay, FillLevel.RED, 900));
+        usageRepository.save(new Usage(dumpster, firstDay.plusDays(5), FillLevel.GREEN, 5));
+
+        List<Usage> usages = usageRepository.findByDateBetween(lastDay, firstDay).stream()
+                .filter(u -> u.getDumpster().getDumpsterId().equals(dumpster.getDumpsterId()))
+                .toList();
+
+        assertEquals(List.of(firstDay, lastDay), usages.stream().map(Usage::getDate).toList());
+        assertEquals(List.of(900, 300), usages.stream().map(Usage::getContainersCount).toList());
+        assertNotEquals(usages.get(0).getId(), usages.get(1).getId());
+    }
+
+    @Test
+    @DisplayName("Months older than the retention are dropped as whole partitions")
+    void dropsExpiredPartitions() {
+        LocalDate today = LocalDate.now();
+        LocalDate expired = today.minusYears(4);
+        LocalDate kept = today.minusYears(3).plusMonths(1);
+        usageRepository.save(new Usage(dumpster, expired, FillLevel.GREEN, 1));
+        usageRepository.save(new Usage(dumpster, kept, FillLevel.GREEN, 2));
+
+        usagePartitions.maintain(today);
+
+        assertFalse(usagePartitions.all().contains(YearMonth.from(expired)));
+        assertTrue(usagePartitions.all().contains(YearMonth.from(kept)));
+        assertTrue(usagePartitions.all().contains(YearMonth.from(today).plusMonths(1)));
+        assertTrue(usageRepository.findByDateBetween(expired, expired).isEmpty());
+        assertEquals(1, usageRepository.findByDumpsterDumpsterId(dumpster.getDumpsterId()).size());
+    }
+}
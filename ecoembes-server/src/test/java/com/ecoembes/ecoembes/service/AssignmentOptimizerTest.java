@@ -0,0 +1,98 @@
+package com.ecoembes.ecoembes.service;
+
+import com.ecoembes.ecoembes.domain.GeoPoint;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AssignmentOptimizerTest {
+
+    private static final Duration BUDGET = Duration.ofSeconds(5);
+
+    // Points along the parallel through Bilbao, about a kilometre apart
+    private static GeoPoint km(double east) {
+        return new GeoPoint(43.26, -2.935 + east / 81.05);
+    }
+
+    @Test
+    void solve_sendsEachDumpsterToTheClosestPlantWithRoom() {
+        int[] plantOf = new AssignmentOptimizer(List.of(km(1), km(9), km(2)), new long[]{10, 10, 10},
+                List.of(km(0), km(10)), new long[]{100, 100}).solve(BUDGET);
+
+        assertArrayEquals(new int[]{0, 1, 0}, plantOf);
+    }
+
+    @Test
+    void solve_respectsCapacityAndMovesTheDumpsterThatLosesLeast() {
+        // Both prefer plant 0, which only fits one; the one at 4 km loses less by going to plant 1
+        int[] plantOf = new AssignmentOptimizer(List.of(km(4), km(-1)), new long[]{10, 10},
+                List.of(km(0), km(10)), new long[]{10, 100}).solve(BUDGET);
+
+        assertArrayEquals(new int[]{1, 0}, plantOf);
+    }
+
+    @Test
+    void solve_leavesDumpstersThatFitNowhereUnassigned() {
+        int[] plantOf = new AssignmentOptimizer(List.of(km(1), km(2)), new long[]{50, 80},
+                List.of(km(0), km(10)), new long[]{60, 60}).solve(BUDGET);
+
+        assertEquals(0, plantOf[0]);
+        assertEquals(AssignmentOptimizer.UNASSIGNED, plantOf[1]);
+    }
+
+    @Test
+    void solve_placesDumpstersWithoutPositionWhereRoomIsLeft() {
+        List<GeoPoint> dumpsters = new ArrayList<>();
+        dumpsters.add(null);
+        dumpsters.add(km(1));
+        int[] plantOf = new AssignmentOptimizer(dumpsters, new long[]{30, 30},
+                List.of(km(0), km(10)), new long[]{40, 40}).solve(BUDGET);
+
+        assertArrayEquals(new int[]{1, 0}, plantOf);
+    }
+
+    @Test
+    void solve_withoutPlants_assignsNothing() {
+        int[] plantOf = new AssignmentOptimizer(List.of(km(1)), new long[]{1}, List.of(), new long[0]).solve(BUDGET);
+
+        assertArrayEquals(new int[]{AssignmentOptimizer.UNASSIGNED}, plantOf);
+    }
+
+    @Test
+    void solve_largeInstance_assignsEveryDumpsterWithinCapacity() {
+        SplittableRandom random = new SplittableRandom(42);
+        int dumpsters = 10_000;
+        int plants = 200;
+        List<GeoPoint> dumpsterPositions = new ArrayList<>();
+        long[] load = new long[dumpsters];
+        for (int d = 0; d < dumpsters; d++) {
+            dumpsterPositions.add(km(random.nextDouble(-10, 10)));
+            load[d] = random.nextInt(1, 1200);
+        }
+        List<GeoPoint> plantPositions = new ArrayList<>();
+        long[] capacity = new long[plants];
+        for (int p = 0; p < plants; p++) {
+            plantPositions.add(new GeoPoint(43.26 + random.nextDouble(-0.1, 0.1), -2.935 + random.nextDouble(-0.15, 0.15)));
+            capacity[p] = 40_000;
+        }
+
+        AssignmentOptimizer optimizer = new AssignmentOptimizer(dumpsterPositions, load, plantPositions, capacity);
+        int[] plantOf = optimizer.solve(BUDGET);
+
+        long[] used = new long[plants];
+        for (int d = 0; d < dumpsters; d++) {
+            assertNotEquals(AssignmentOptimizer.UNASSIGNED, plantOf[d]);
+            used[plantOf[d]] += load[d];
+        }
+        for (int p = 0; p < plants; p++) {
+            assertTrue(used[p] <= capacity[p], "plant " + p + " over capacity: " + used[p]);
+        }
+        assertEquals(Arrays.stream(load).sum(), Arrays.stream(used).sum());
+    }
+}
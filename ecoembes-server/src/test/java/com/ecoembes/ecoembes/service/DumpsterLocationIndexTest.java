@@ -0,0 +1,67 @@
+package com.ecoembes.ecoembes.service;
+
+import com.ecoembes.ecoembes.domain.GeoPoint;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DumpsterLocationIndexTest {
+
+    private DumpsterLocationIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new DumpsterLocationIndex(null);
+        index.put("D-1", new GeoPoint(43.2630, -2.9350));
+        index.put("D-2", new GeoPoint(43.2614, -2.9415));
+        index.put("D-3", new GeoPoint(43.2714, -2.9466));
+        index.put("D-4", new GeoPoint(40.4168, -3.7038));
+    }
+
+    @Test
+    void withinRadius_returnsNearestFirst() {
+        List<DumpsterLocationIndex.Hit> hits = index.withinRadius(new GeoPoint(43.2630, -2.9350), 1500);
+
+        assertEquals(List.of("D-1", "D-2", "D-3"), hits.stream().map(DumpsterLocationIndex.Hit::dumpsterId).toList());
+        assertEquals(0.0, hits.get(0).distanceMeters(), 1e-6);
+        assertTrue(hits.get(1).distanceMeters() < hits.get(2).distanceMeters());
+    }
+
+    @Test
+    void withinRadius_spanningManyCells_walksOccupiedCells() {
+        List<DumpsterLocationIndex.Hit> hits = index.withinRadius(new GeoPoint(42.0, -3.3), 400_000);
+
+        assertEquals(4, hits.size());
+    }
+
+    @Test
+    void withinPolygon_onlyReturnsPointsInside() {
+        List<GeoPoint> triangle = List.of(
+                new GeoPoint(43.26, -2.95), new GeoPoint(43.28, -2.95), new GeoPoint(43.28, -2.94));
+
+        List<DumpsterLocationIndex.Hit> hits = index.withinPolygon(triangle);
+
+        assertEquals(List.of("D-3"), hits.stream().map(DumpsterLocationIndex.Hit::dumpsterId).toList());
+    }
+
+    @Test
+    void withinPolygon_rejectsFewerThanThreeVertices() {
+        assertThrows(IllegalArgumentException.class,
+                () -> index.withinPolygon(List.of(new GeoPoint(0, 0), new GeoPoint(1, 1))));
+    }
+
+    @Test
+    void put_movesAndRemovesDumpsters() {
+        index.put("D-4", new GeoPoint(43.2631, -2.9351));
+        assertEquals(List.of("D-1", "D-4"), index.withinRadius(new GeoPoint(43.2630, -2.9350), 50).stream()
+                .map(DumpsterLocationIndex.Hit::dumpsterId).toList());
+
+        index.put("D-1", null);
+        assertEquals(List.of("D-4"), index.withinRadius(new GeoPoint(43.2630, -2.9350), 50).stream()
+                .map(DumpsterLocationIndex.Hit::dumpsterId).toList());
+        assertEquals(3, index.size());
+    }
+}
@@ -1,10 +1,12 @@
 package com.ecoembes.ecoembes.service;
 
 import com.ecoembes.ecoembes.domain.Dumpster;
+import com.ecoembes.ecoembes.domain.FillLevel;
 import com.ecoembes.ecoembes.domain.Usage;
 import com.ecoembes.ecoembes.dto.DumpsterStatusDTO;
 import com.ecoembes.ecoembes.dto.DumpsterUsageDTO;
 import com.ecoembes.ecoembes.repository.DumpsterRepository;
+import com.ecoembes.ecoembes.repository.UsageArchive;
 import com.ecoembes.ecoembes.repository.UsageRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -15,6 +17,7 @@ import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.time.LocalDate;
 import java.util.Arrays;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Optional;
 
@@ -31,6 +34,12 @@ class DumpsterServiceTest {
     @Mock
     private UsageRepository usageRepository;
 
+    @Mock
+    private UsageArchive usageArchive;
+
+    @Mock
+    private DumpsterLocationIndex locationIndex;
+
     @InjectMocks
     private DumpsterService dumpsterService;
 
@@ -44,7 +53,7 @@ class DumpsterServiceTest {
         assertNotNull(result);
         assertTrue(result.getDumpsterId().startsWith("D-"));
         assertEquals("Test Location 48001", result.getLocation());
-        assertEquals("green", result.getFillLevel());
+        assertEquals(FillLevel.GREEN, result.getFillLevel());
         assertEquals(0, result.getContainersNumber());
         verify(dumpsterRepository, times(1)).save(any(Dumpster.class));
     }
@@ -83,8 +92,8 @@ class DumpsterServiceTest {
         LocalDate end = LocalDate.now();
 
         Dumpster dumpster = new Dumpster("D-123", "Test Location", "48001", 100.0);
-        Usage u1 = new Usage(dumpster, LocalDate.now().minusDays(2), "green", 50);
-        Usage u2 = new Usage(dumpster, LocalDate.now().minusDays(1), "orange", 150);
+        Usage u1 = new Usage(dumpster, LocalDate.now().minusDays(2), FillLevel.GREEN, 50);
+        Usage u2 = new Usage(dumpster, LocalDate.now().minusDays(1), FillLevel.ORANGE, 150);
 
         when(usageRepository.findByDateBetween(start, end)).thenReturn(Arrays.asList(u1, u2));
 
@@ -95,6 +104,44 @@ class DumpsterServiceTest {
         verify(usageRepository, times(1)).findByDateBetween(start, end);
     }
 
+    @Test
+    void queryDumpsterUsage_mergesLiveAndArchivedHistory() {
+        LocalDate start = LocalDate.now().minusMonths(6);
+        LocalDate end = LocalDate.now();
+
+        Dumpster dumpster = new Dumpster("D-123", "Test Location", "48001", 100.0);
+        Usage recent = usage(dumpster, 30, LocalDate.now().minusDays(1));
+        Usage movedMeanwhile = usage(dumpster, 20, LocalDate.now().minusMonths(4));
+        Usage archived = usage(dumpster, 10, LocalDate.now().minusMonths(5));
+
+        when(usageRepository.findByDateBetween(start, end)).thenReturn(List.of(recent, movedMeanwhile));
+        when(usageArchive.findByDateBetween(start, end)).thenReturn(List.of(usage(dumpster, 20, movedMeanwhile.getDate()), archived));
+
+        List<Usage> result = dumpsterService.queryDumpsterUsage(start, end);
+
+        assertEquals(List.of(30L, 20L, 10L), result.stream().map(Usage::getId).toList());
+    }
+
+    @Test
+    void getDumpstersToCollect_queriesLevelsAtOrAboveThreshold() {
+        Dumpster red = new Dumpster("D-111", "Calle Mayor 1, 48001", "48001", 100.0);
+        red.updateStatus(FillLevel.RED, 90);
+        when(dumpsterRepository.findByFillLevelInAndPostalCodeIn(EnumSet.of(FillLevel.ORANGE, FillLevel.RED), List.of("48001")))
+                .thenReturn(List.of(red));
+
+        List<Dumpster> result = dumpsterService.getDumpstersToCollect(FillLevel.ORANGE, List.of("48001"));
+
+        assertEquals(List.of(red), result);
+        verify(dumpsterRepository, never()).findByFillLevelIn(any());
+    }
+
+    @Test
+    void getDumpstersToCollect_withoutPostalCodesSearchesEverywhere() {
+        dumpsterService.getDumpstersToCollect(FillLevel.RED, List.of());
+
+        verify(dumpsterRepository).findByFillLevelIn(EnumSet.of(FillLevel.RED));
+    }
+
     @Test
     void updateDumpsterStatus_updatesCorrectly() {
         Dumpster dumpster = new Dumpster("D-123", "Test Location", "48001", 100.0);
@@ -102,14 +149,20 @@ class DumpsterServiceTest {
         when(dumpsterRepository.save(any(Dumpster.class))).thenReturn(dumpster);
         when(usageRepository.save(any(Usage.class))).thenReturn(null);
 
-        Dumpster result = dumpsterService.updateDumpsterStatus("D-123", "orange", 250);
+        Dumpster result = dumpsterService.updateDumpsterStatus("D-123", FillLevel.ORANGE, 250);
 
         assertNotNull(result);
         assertEquals("D-123", result.getDumpsterId());
-        assertEquals("orange", result.getFillLevel());
+        assertEquals(FillLevel.ORANGE, result.getFillLevel());
         assertEquals(250, result.getContainersNumber());
         verify(dumpsterRepository, times(1)).findById("D-123");
         verify(dumpsterRepository, times(1)).save(any(Dumpster.class));
         verify(usageRepository, times(1)).save(any(Usage.class));
     }
+
+    private static Usage usage(Dumpster dumpster, long id, LocalDate date) {
+        Usage usage = new Usage(dumpster, date, FillLevel.GREEN, 1);
+        usage.setId(id);
+        return usage;
+    }
 }
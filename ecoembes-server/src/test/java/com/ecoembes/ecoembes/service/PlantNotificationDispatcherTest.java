@@ -0,0 +1,136 @@
+package com.ecoembes.ecoembes.service;
+
+import com.ecoembes.ecoembes.domain.Plant;
+import com.ecoembes.ecoembes.domain.PlantNotification;
+import com.ecoembes.ecoembes.repository.PlantNotificationRepository;
+import com.ecoembes.ecoembes.repository.PlantRepository;
+import com.ecoembes.ecoembes.service.remote.BatchedNotification;
+import com.ecoembes.ecoembes.service.remote.ServiceGateway;
+import com.ecoembes.ecoembes.service.remote.ServiceGatewayFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PlantNotificationDispatcherTest {
+
+    private static final LocalDate DATE = LocalDate.of(2025, 11, 5);
+
+    @Mock
+    private PlantNotificationRepository notificationRepository;
+
+    @Mock
+    private PlantRepository plantRepository;
+
+    @Mock
+    private ServiceGatewayFactory serviceGatewayFactory;
+
+    @Mock
+    private ServiceGateway serviceGateway;
+
+    private PlantNotificationDispatcher dispatcher;
+    private Plant plant;
+
+    @BeforeEach
+    void setUp() {
+        dispatcher = new PlantNotificationDispatcher(notificationRepository, plantRepository, serviceGatewayFactory,
+                100, Duration.ofSeconds(1), Duration.ofMinutes(5), 3, Duration.ofDays(1), Duration.ZERO);
+        plant = new Plant("PLASSB-01", "PlasSB Ltd.", 85.0, "PLASTIC", "PlasSB");
+    }
+
+    @AfterEach
+    void tearDown() {
+        dispatcher.destroy();
+    }
+
+    @Test
+    void deliversDueNotificationsWithIdempotencyKey() throws Exception {
+        PlantNotification notification = new PlantNotification("PLASSB-01", List.of("D-1", "D-2"), 150, DATE);
+        when(notificationRepository.findByStatusAndNextAttemptAtLessThanEqualOrderByIdAsc(eq(PlantNotification.PENDING), any(), any()))
+                .thenReturn(List.of(notification));
+        when(plantRepository.findById("PLASSB-01")).thenReturn(Optional.of(plant));
+        when(serviceGatewayFactory.getServiceGateway("PlasSB")).thenReturn(serviceGateway);
+
+        assertEquals(1, dispatcher.dispatchBatch());
+
+        verify(serviceGateway).notifyIncomingDumpsters(plant, List.of("D-1", "D-2"), 150, DATE, notification.getIdempotencyKey());
+        verify(notificationRepository).saveAll(List.of(notification));
+        assertEquals(PlantNotification.SENT, notification.getStatus());
+        assertEquals(1, notification.getAttempts());
+        assertNotNull(notification.getSentAt());
+    }
+
+    @Test
+    void failedDeliveryIsRetriedWithBackoffThenParked() throws Exception {
+        PlantNotification notification = new PlantNotification("PLASSB-01", List.of("D-1"), 50, DATE);
+        when(notificationRepository.findByStatusAndNextAttemptAtLessThanEqualOrderByIdAsc(eq(PlantNotification.PENDING), any(), any()))
+                .thenReturn(List.of(notification));
+        when(plantRepository.findById("PLASSB-01")).thenReturn(Optional.of(plant));
+        when(serviceGatewayFactory.getServiceGateway("PlasSB")).thenReturn(serviceGateway);
+        doThrow(new IOException("plant down")).when(serviceGateway)
+                .notifyIncomingDumpsters(any(), anyList(), anyInt(), any(), anyString());
+
+        LocalDateTime before = LocalDateTime.now();
+        dispatcher.dispatchBatch();
+        assertEquals(PlantNotification.PENDING, notification.getStatus());
+        assertEquals(1, notification.getAttempts());
+        assertEquals("plant down", notification.getLastError());
+        // First retry waits between half and all of the 1 s base backoff
+        assertFalse(notification.getNextAttemptAt().isBefore(before.plusNanos(500_000_000L)));
+
+        dispatcher.dispatchBatch();
+        dispatcher.dispatchBatch();
+        assertEquals(PlantNotification.FAILED, notification.getStatus());
+        assertEquals(3, notification.getAttempts());
+    }
+
+    @Test
+    void notificationsForSamePlantAndDateAreSentAsOneBatch() throws Exception {
+        PlantNotification first = new PlantNotification("PLASSB-01", List.of("D-1"), 50, DATE);
+        PlantNotification second = new PlantNotification("PLASSB-01", List.of("D-2", "D-3"), 120, DATE);
+        PlantNotification otherDate = new PlantNotification("PLASSB-01", List.of("D-4"), 30, DATE.plusDays(1));
+        when(notificationRepository.findByStatusAndNextAttemptAtLessThanEqualOrderByIdAsc(eq(PlantNotification.PENDING), any(), any()))
+                .thenReturn(List.of(first, otherDate, second));
+        when(plantRepository.findById("PLASSB-01")).thenReturn(Optional.of(plant));
+        when(serviceGatewayFactory.getServiceGateway("PlasSB")).thenReturn(serviceGateway);
+
+        assertEquals(3, dispatcher.dispatchBatch());
+
+        verify(serviceGateway).notifyIncomingDumpsterBatch(plant, DATE, List.of(
+                new BatchedNotification(first.getIdempotencyKey(), List.of("D-1"), 50),
+                new BatchedNotification(second.getIdempotencyKey(), List.of("D-2", "D-3"), 120)));
+        verify(serviceGateway).notifyIncomingDumpsters(plant, List.of("D-4"), 30, DATE.plusDays(1), otherDate.getIdempotencyKey());
+        verify(plantRepository, times(1)).findById("PLASSB-01");
+        assertEquals(PlantNotification.SENT, first.getStatus());
+        assertEquals(PlantNotification.SENT, second.getStatus());
+        assertEquals(PlantNotification.SENT, otherDate.getStatus());
+    }
+
+    @Test
+    void emptyOutboxDoesNothing() {
+        when(notificationRepository.findByStatusAndNextAttemptAtLessThanEqualOrderByIdAsc(eq(PlantNotification.PENDING), any(), any()))
+                .thenReturn(List.of());
+
+        assertEquals(0, dispatcher.dispatchBatch());
+
+        verifyNoInteractions(serviceGatewayFactory);
+        verify(notificationRepository, never()).saveAll(any());
+    }
+}
@@ -3,27 +3,42 @@ package com.ecoembes.ecoembes.service;
 import com.ecoembes.ecoembes.domain.Assignment;
 import com.ecoembes.ecoembes.domain.Dumpster;
 import com.ecoembes.ecoembes.domain.Employee;
+import com.ecoembes.ecoembes.domain.FillLevel;
+import com.ecoembes.ecoembes.domain.GeoPoint;
 import com.ecoembes.ecoembes.domain.Plant;
+import com.ecoembes.ecoembes.domain.PlantNotification;
+import com.ecoembes.ecoembes.exception.CapacityConflictException;
+import com.ecoembes.ecoembes.exception.PlantUnavailableException;
 import com.ecoembes.ecoembes.repository.AssignmentRepository;
 import com.ecoembes.ecoembes.repository.DumpsterRepository;
 import com.ecoembes.ecoembes.repository.EmployeeRepository;
+import com.ecoembes.ecoembes.repository.PlantNotificationRepository;
 import com.ecoembes.ecoembes.repository.PlantRepository;
+import com.ecoembes.ecoembes.service.remote.CapacityReservation;
+import com.ecoembes.ecoembes.service.remote.ServiceGateway;
 import com.ecoembes.ecoembes.service.remote.ServiceGatewayFactory;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 /**
@@ -48,6 +63,19 @@ class PlantServiceEdgeCasesTest {
     @Mock
     private ServiceGatewayFactory serviceGatewayFactory;
 
+    @Mock
+    private PlantNotificationRepository plantNotificationRepository;
+
+    @Mock
+    private PlantNotificationDispatcher notificationDispatcher;
+
+    // Runs the transaction callbacks for real; the transactions themselves do nothing
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private ServiceGateway serviceGateway;
+
     @InjectMocks
     private PlantService plantService;
 
@@ -108,61 +136,61 @@ class PlantServiceEdgeCasesTest {
 
         when(employeeRepository.findById("E001")).thenReturn(Optional.of(employee));
         when(plantRepository.findById("PLASSB-01")).thenReturn(Optional.of(plant));
-        when(plantRepository.save(any(Plant.class))).thenReturn(plant);
 
         List<Assignment> result = plantService.assignDumpsters("E001", "PLASSB-01",
             new ArrayList<>(), LocalDate.now());
 
         assertNotNull(result);
         assertTrue(result.isEmpty());
-        verify(plantRepository, times(1)).save(plant);
+        verify(plantRepository).addContainersReceived("PLASSB-01", 0);
         verifyNoInteractions(dumpsterRepository, assignmentRepository);
     }
 
     @Test
     @DisplayName("assignDumpsters - Should handle multiple dumpsters correctly")
-    void assignDumpsters_multipleDumpsters_shouldCreateMultipleAssignments() {
+    void assignDumpsters_multipleDumpsters_shouldCreateMultipleAssignments() throws Exception {
         Employee employee = new Employee("E001", "Admin", "admin@ecoembes.com", "pass");
         Plant plant = new Plant("PLASSB-01", "PlasSB", 100.0, "PLASTIC", "PlasSB");
 
         Dumpster d1 = new Dumpster("D-1", "Location 1", "48001", 100.0);
-        d1.updateStatus("green", 100);
+        d1.updateStatus(FillLevel.GREEN, 100);
         Dumpster d2 = new Dumpster("D-2", "Location 2", "48002", 200.0);
-        d2.updateStatus("orange", 200);
+        d2.updateStatus(FillLevel.ORANGE, 200);
         Dumpster d3 = new Dumpster("D-3", "Location 3", "48003", 300.0);
-        d3.updateStatus("red", 300);
+        d3.updateStatus(FillLevel.RED, 300);
 
         when(employeeRepository.findById("E001")).thenReturn(Optional.of(employee));
         when(plantRepository.findById("PLASSB-01")).thenReturn(Optional.of(plant));
         when(dumpsterRepository.findById("D-1")).thenReturn(Optional.of(d1));
         when(dumpsterRepository.findById("D-2")).thenReturn(Optional.of(d2));
         when(dumpsterRepository.findById("D-3")).thenReturn(Optional.of(d3));
+        when(serviceGatewayFactory.getServiceGateway("PlasSB")).thenReturn(serviceGateway);
+        when(serviceGateway.reserveCapacity(any(), any(), anyInt())).thenReturn(new CapacityReservation("reservation-1", 1));
         when(assignmentRepository.save(any(Assignment.class))).thenAnswer(inv -> inv.getArgument(0));
-        when(plantRepository.save(any(Plant.class))).thenReturn(plant);
 
         List<Assignment> result = plantService.assignDumpsters("E001", "PLASSB-01",
             List.of("D-1", "D-2", "D-3"), LocalDate.now());
 
         assertNotNull(result);
         assertEquals(3, result.size());
-        assertEquals(600, plant.getTotalContainersReceived()); // 100 + 200 + 300
+        verify(plantRepository).addContainersReceived("PLASSB-01", 600); // 100 + 200 + 300
         verify(assignmentRepository, times(3)).save(any(Assignment.class));
-        verify(plantRepository, times(1)).save(plant);
     }
 
     @Test
     @DisplayName("assignDumpsters - Should use today when date is null")
-    void assignDumpsters_nullDate_shouldUseToday() {
+    void assignDumpsters_nullDate_shouldUseToday() throws Exception {
         Employee employee = new Employee("E001", "Admin", "admin@ecoembes.com", "pass");
         Plant plant = new Plant("PLASSB-01", "PlasSB", 100.0, "PLASTIC", "PlasSB");
         Dumpster dumpster = new Dumpster("D-1", "Location 1", "48001", 100.0);
-        dumpster.updateStatus("green", 50);
+        dumpster.updateStatus(FillLevel.GREEN, 50);
 
         when(employeeRepository.findById("E001")).thenReturn(Optional.of(employee));
         when(plantRepository.findById("PLASSB-01")).thenReturn(Optional.of(plant));
         when(dumpsterRepository.findById("D-1")).thenReturn(Optional.of(dumpster));
+        when(serviceGatewayFactory.getServiceGateway("PlasSB")).thenReturn(serviceGateway);
+        when(serviceGateway.reserveCapacity(any(), any(), anyInt())).thenReturn(new CapacityReservation("reservation-1", 1));
         when(assignmentRepository.save(any(Assignment.class))).thenAnswer(inv -> inv.getArgument(0));
-        when(plantRepository.save(any(Plant.class))).thenReturn(plant);
 
         List<Assignment> result = plantService.assignDumpsters("E001", "PLASSB-01",
             List.of("D-1"), null);
@@ -184,7 +212,6 @@ class PlantServiceEdgeCasesTest {
         when(plantRepository.findById("PLASSB-01")).thenReturn(Optional.of(plant));
         when(dumpsterRepository.findById("D-1")).thenReturn(Optional.of(dumpster));
         when(assignmentRepository.save(any(Assignment.class))).thenAnswer(inv -> inv.getArgument(0));
-        when(plantRepository.save(any(Plant.class))).thenReturn(plant);
 
         List<Assignment> result = plantService.assignDumpsters("E001", "PLASSB-01",
             List.of("D-1"), LocalDate.now());
@@ -192,22 +219,23 @@ class PlantServiceEdgeCasesTest {
         assertNotNull(result);
         assertEquals(1, result.size());
         assertEquals(0, result.get(0).getAssignedContainers());
-        assertEquals(0, plant.getTotalContainersReceived());
+        verify(plantRepository).addContainersReceived("PLASSB-01", 0);
     }
 
     @Test
     @DisplayName("assignDumpsters - Should set status to PENDING")
-    void assignDumpsters_shouldSetStatusToPending() {
+    void assignDumpsters_shouldSetStatusToPending() throws Exception {
         Employee employee = new Employee("E001", "Admin", "admin@ecoembes.com", "pass");
         Plant plant = new Plant("PLASSB-01", "PlasSB", 100.0, "PLASTIC", "PlasSB");
         Dumpster dumpster = new Dumpster("D-1", "Location 1", "48001", 100.0);
-        dumpster.updateStatus("green", 50);
+        dumpster.updateStatus(FillLevel.GREEN, 50);
 
         when(employeeRepository.findById("E001")).thenReturn(Optional.of(employee));
         when(plantRepository.findById("PLASSB-01")).thenReturn(Optional.of(plant));
         when(dumpsterRepository.findById("D-1")).thenReturn(Optional.of(dumpster));
+        when(serviceGatewayFactory.getServiceGateway("PlasSB")).thenReturn(serviceGateway);
+        when(serviceGateway.reserveCapacity(any(), any(), anyInt())).thenReturn(new CapacityReservation("reservation-1", 1));
         when(assignmentRepository.save(any(Assignment.class))).thenAnswer(inv -> inv.getArgument(0));
-        when(plantRepository.save(any(Plant.class))).thenReturn(plant);
 
         List<Assignment> result = plantService.assignDumpsters("E001", "PLASSB-01",
             List.of("D-1"), LocalDate.now());
@@ -290,57 +318,178 @@ class PlantServiceEdgeCasesTest {
     }
 
     @Test
-    @DisplayName("assignDumpsters - Should continue even if notification fails")
-    void assignDumpsters_notificationFailure_shouldContinueAssignment() {
+    @DisplayName("assignDumpsters - Should reserve plant capacity and queue the notification that confirms it")
+    void assignDumpsters_shouldReserveCapacityAndQueueConfirmingNotification() throws Exception {
         Employee employee = new Employee("E001", "Admin", "admin@ecoembes.com", "pass");
         Plant plant = new Plant("PLASSB-01", "PlasSB", 100.0, "PLASTIC", "PlasSB");
         Dumpster dumpster = new Dumpster("D-1", "Location 1", "48001", 100.0);
-        dumpster.updateStatus("green", 50);
+        dumpster.updateStatus(FillLevel.GREEN, 50);
 
         when(employeeRepository.findById("E001")).thenReturn(Optional.of(employee));
         when(plantRepository.findById("PLASSB-01")).thenReturn(Optional.of(plant));
         when(dumpsterRepository.findById("D-1")).thenReturn(Optional.of(dumpster));
         when(assignmentRepository.save(any(Assignment.class))).thenAnswer(inv -> inv.getArgument(0));
-        when(plantRepository.save(any(Plant.class))).thenReturn(plant);
+        when(serviceGatewayFactory.getServiceGateway("PlasSB")).thenReturn(serviceGateway);
+        when(serviceGateway.reserveCapacity(plant, LocalDate.of(2025, 11, 5), 50))
+            .thenReturn(new CapacityReservation("reservation-1", 3));
 
-        // Simulate notification failure
-        when(serviceGatewayFactory.getServiceGateway(anyString()))
-            .thenThrow(new RuntimeException("Gateway error"));
-
-        // Should not throw exception - assignment should continue
         List<Assignment> result = plantService.assignDumpsters("E001", "PLASSB-01",
-            List.of("D-1"), LocalDate.now());
+            List.of("D-1"), LocalDate.of(2025, 11, 5));
 
         assertNotNull(result);
         assertEquals(1, result.size());
         verify(assignmentRepository, times(1)).save(any(Assignment.class));
-        verify(plantRepository, times(1)).save(plant);
+        verify(plantRepository).addContainersReceived("PLASSB-01", 50);
+
+        // The notification is written to the outbox in the same transaction and carries the reservation ID
+        ArgumentCaptor<PlantNotification> queued = ArgumentCaptor.forClass(PlantNotification.class);
+        verify(plantNotificationRepository).save(queued.capture());
+        assertEquals("PLASSB-01", queued.getValue().getPlantId());
+        assertEquals(List.of("D-1"), queued.getValue().getDumpsterIds());
+        assertEquals(50, queued.getValue().getTotalContainers());
+        assertEquals(LocalDate.of(2025, 11, 5), queued.getValue().getArrivalDate());
+        assertEquals(PlantNotification.PENDING, queued.getValue().getStatus());
+        assertEquals("reservation-1", queued.getValue().getIdempotencyKey());
+        verify(notificationDispatcher).wakeUpAfterCommit();
+        verify(serviceGateway, never()).notifyIncomingDumpsters(any(), any(), any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("assignDumpsters - Should fail with a conflict when the plant refuses the reservation")
+    void assignDumpsters_capacityConflict_shouldThrowWithoutQueuing() throws Exception {
+        Employee employee = new Employee("E001", "Admin", "admin@ecoembes.com", "pass");
+        Plant plant = new Plant("PLASSB-01", "PlasSB", 100.0, "PLASTIC", "PlasSB");
+        Dumpster dumpster = new Dumpster("D-1", "Location 1", "48001", 100.0);
+        dumpster.updateStatus(FillLevel.GREEN, 50);
+
+        when(employeeRepository.findById("E001")).thenReturn(Optional.of(employee));
+        when(plantRepository.findById("PLASSB-01")).thenReturn(Optional.of(plant));
+        when(dumpsterRepository.findById("D-1")).thenReturn(Optional.of(dumpster));
+        when(serviceGatewayFactory.getServiceGateway("PlasSB")).thenReturn(serviceGateway);
+        when(serviceGateway.reserveCapacity(any(), any(), anyInt()))
+            .thenThrow(new CapacityConflictException("Plant PLASSB-01 cannot take 50 containers"));
+
+        assertThrows(CapacityConflictException.class, () ->
+            plantService.assignDumpsters("E001", "PLASSB-01", List.of("D-1"), LocalDate.of(2025, 11, 5))
+        );
+
+        verify(plantRepository, never()).addContainersReceived(anyString(), anyInt());
+        verifyNoInteractions(assignmentRepository, plantNotificationRepository, notificationDispatcher, transactionManager);
+    }
+
+    @Test
+    @DisplayName("assignDumpsters - Should reserve before opening the transaction and release when the write fails")
+    void assignDumpsters_writeFails_shouldReleaseReservation() throws Exception {
+        Employee employee = new Employee("E001", "Admin", "admin@ecoembes.com", "pass");
+        Plant plant = new Plant("PLASSB-01", "PlasSB", 100.0, "PLASTIC", "PlasSB");
+        Dumpster dumpster = new Dumpster("D-1", "Location 1", "48001", 100.0);
+        dumpster.updateStatus(FillLevel.GREEN, 50);
+
+        when(employeeRepository.findById("E001")).thenReturn(Optional.of(employee));
+        when(plantRepository.findById("PLASSB-01")).thenReturn(Optional.of(plant));
+        when(dumpsterRepository.findById("D-1")).thenReturn(Optional.of(dumpster));
+        when(serviceGatewayFactory.getServiceGateway("PlasSB")).thenReturn(serviceGateway);
+        when(serviceGateway.reserveCapacity(plant, LocalDate.of(2025, 11, 5), 50))
+            .thenReturn(new CapacityReservation("reservation-1", 3));
+        when(assignmentRepository.save(any(Assignment.class))).thenThrow(new RuntimeException("Database unavailable"));
+
+        assertThrows(RuntimeException.class, () ->
+            plantService.assignDumpsters("E001", "PLASSB-01", List.of("D-1"), LocalDate.of(2025, 11, 5))
+        );
+
+        InOrder order = inOrder(serviceGateway, transactionManager);
+        order.verify(serviceGateway).reserveCapacity(plant, LocalDate.of(2025, 11, 5), 50);
+        order.verify(transactionManager).getTransaction(any());
+        order.verify(transactionManager).rollback(any());
+        order.verify(serviceGateway).releaseReservation(plant, "reservation-1");
+        verifyNoInteractions(plantNotificationRepository);
+    }
+
+    @Test
+    @DisplayName("assignDumpsters - Should fail without writing anything when the plant cannot reserve")
+    void assignDumpsters_plantUnreachable_shouldFailWithoutWriting() throws Exception {
+        Employee employee = new Employee("E001", "Admin", "admin@ecoembes.com", "pass");
+        Plant plant = new Plant("PLASSB-01", "PlasSB", 100.0, "PLASTIC", "PlasSB");
+        Dumpster dumpster = new Dumpster("D-1", "Location 1", "48001", 100.0);
+        dumpster.updateStatus(FillLevel.GREEN, 50);
+
+        when(employeeRepository.findById("E001")).thenReturn(Optional.of(employee));
+        when(plantRepository.findById("PLASSB-01")).thenReturn(Optional.of(plant));
+        when(dumpsterRepository.findById("D-1")).thenReturn(Optional.of(dumpster));
+        when(serviceGatewayFactory.getServiceGateway("PlasSB")).thenReturn(serviceGateway);
+        when(serviceGateway.reserveCapacity(any(), any(), anyInt())).thenThrow(new java.net.ConnectException("Connection refused"));
+
+        assertThrows(PlantUnavailableException.class, () ->
+            plantService.assignDumpsters("E001", "PLASSB-01", List.of("D-1"), LocalDate.of(2025, 11, 5))
+        );
+
+        verify(serviceGateway, never()).releaseReservation(any(), anyString());
+        verifyNoInteractions(assignmentRepository, plantNotificationRepository, transactionManager);
+    }
+
+    @Test
+    @DisplayName("assignOptimized - Should ask the plants concurrently and release every reservation when one plant refuses")
+    void assignOptimized_oneRefusal_shouldReleaseOtherReservations() throws Exception {
+        Employee employee = new Employee("E001", "Admin", "admin@ecoembes.com", "pass");
+        Plant near = new Plant("PLASSB-01", "PlasSB", 100.0, "PLASTIC", "PlasSB");
+        near.setPosition(new GeoPoint(43.27, -2.94));
+        Plant far = new Plant("PLASSB-02", "PlasSB Sur", 100.0, "PLASTIC", "PlasSB");
+        far.setPosition(new GeoPoint(43.24, -2.90));
+        Dumpster d1 = new Dumpster("D-1", "Location 1", "48001", 100.0);
+        d1.updateStatus(FillLevel.GREEN, 50);
+        d1.setPosition(new GeoPoint(43.271, -2.941));
+        Dumpster d2 = new Dumpster("D-2", "Location 2", "48002", 100.0);
+        d2.updateStatus(FillLevel.GREEN, 60);
+        d2.setPosition(new GeoPoint(43.241, -2.901));
+        LocalDate date = LocalDate.of(2025, 11, 5);
+
+        when(employeeRepository.findById("E001")).thenReturn(Optional.of(employee));
+        when(dumpsterRepository.findAllById(List.of("D-1", "D-2"))).thenReturn(List.of(d1, d2));
+        when(plantRepository.findAll()).thenReturn(List.of(near, far));
+        when(serviceGatewayFactory.getServiceGateway("PlasSB")).thenReturn(serviceGateway);
+        // Each capacity call waits for the other, so they only both answer if they are in flight together
+        CountDownLatch bothAsked = new CountDownLatch(2);
+        when(serviceGateway.getPlantCapacity(any(), eq(date))).thenAnswer(inv -> {
+            bothAsked.countDown();
+            return bothAsked.await(5, TimeUnit.SECONDS) ? 100.0 : 0.0;
+        });
+        when(serviceGateway.reserveCapacity(near, date, 50)).thenReturn(new CapacityReservation("reservation-1", 1));
+        when(serviceGateway.reserveCapacity(far, date, 60))
+            .thenThrow(new CapacityConflictException("Plant PLASSB-02 cannot take 60 containers"));
+
+        assertThrows(CapacityConflictException.class, () ->
+            plantService.assignOptimized("E001", List.of("D-1", "D-2"), date, null)
+        );
+
+        verify(serviceGateway).releaseReservation(near, "reservation-1");
+        verifyNoInteractions(assignmentRepository, plantNotificationRepository, transactionManager);
     }
 
     @Test
     @DisplayName("assignDumpsters - Should track correct container count per assignment")
-    void assignDumpsters_shouldTrackCorrectContainerCount() {
+    void assignDumpsters_shouldTrackCorrectContainerCount() throws Exception {
         Employee employee = new Employee("E001", "Admin", "admin@ecoembes.com", "pass");
         Plant plant = new Plant("PLASSB-01", "PlasSB", 100.0, "PLASTIC", "PlasSB");
 
         Dumpster d1 = new Dumpster("D-1", "Location 1", "48001", 100.0);
-        d1.updateStatus("green", 123);
+        d1.updateStatus(FillLevel.GREEN, 123);
         Dumpster d2 = new Dumpster("D-2", "Location 2", "48002", 200.0);
-        d2.updateStatus("orange", 456);
+        d2.updateStatus(FillLevel.ORANGE, 456);
 
         when(employeeRepository.findById("E001")).thenReturn(Optional.of(employee));
         when(plantRepository.findById("PLASSB-01")).thenReturn(Optional.of(plant));
         when(dumpsterRepository.findById("D-1")).thenReturn(Optional.of(d1));
         when(dumpsterRepository.findById("D-2")).thenReturn(Optional.of(d2));
+        when(serviceGatewayFactory.getServiceGateway("PlasSB")).thenReturn(serviceGateway);
+        when(serviceGateway.reserveCapacity(any(), any(), anyInt())).thenReturn(new CapacityReservation("reservation-1", 1));
         when(assignmentRepository.save(any(Assignment.class))).thenAnswer(inv -> inv.getArgument(0));
-        when(plantRepository.save(any(Plant.class))).thenReturn(plant);
 
         List<Assignment> result = plantService.assignDumpsters("E001", "PLASSB-01",
             List.of("D-1", "D-2"), LocalDate.now());
 
         assertEquals(123, result.get(0).getAssignedContainers());
         assertEquals(456, result.get(1).getAssignedContainers());
-        assertEquals(579, plant.getTotalContainersReceived()); // 123 + 456
+        verify(plantRepository).addContainersReceived("PLASSB-01", 579); // 123 + 456
     }
 }
 
@@ -3,13 +3,16 @@ package com.ecoembes.ecoembes.service;
 import com.ecoembes.ecoembes.domain.Assignment;
 import com.ecoembes.ecoembes.domain.Dumpster;
 import com.ecoembes.ecoembes.domain.Employee;
+import com.ecoembes.ecoembes.domain.FillLevel;
 import com.ecoembes.ecoembes.domain.Plant;
 import com.ecoembes.ecoembes.dto.AssignmentResponseDTO;
 import com.ecoembes.ecoembes.dto.PlantCapacityDTO;
 import com.ecoembes.ecoembes.repository.AssignmentRepository;
 import com.ecoembes.ecoembes.repository.DumpsterRepository;
 import com.ecoembes.ecoembes.repository.EmployeeRepository;
+import com.ecoembes.ecoembes.repository.PlantNotificationRepository;
 import com.ecoembes.ecoembes.repository.PlantRepository;
+import com.ecoembes.ecoembes.service.remote.CapacityReservation;
 import com.ecoembes.ecoembes.service.remote.ServiceGateway;
 import com.ecoembes.ecoembes.service.remote.ServiceGatewayFactory;
 import org.junit.jupiter.api.Test;
@@ -17,6 +20,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import java.time.LocalDate;
 import java.util.Arrays;
@@ -25,6 +29,7 @@ import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
 
@@ -46,6 +51,16 @@ class PlantServiceTest {
     @Mock
     private ServiceGatewayFactory serviceGatewayFactory;
 
+    @Mock
+    private PlantNotificationRepository plantNotificationRepository;
+
+    @Mock
+    private PlantNotificationDispatcher notificationDispatcher;
+
+    // Runs the transaction callbacks for real; the transactions themselves do nothing
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
     @InjectMocks
     private PlantService plantService;
 
@@ -123,20 +138,22 @@ class PlantServiceTest {
     }
 
     @Test
-    void assignDumpsters_createsAssignments() {
+    void assignDumpsters_createsAssignments() throws Exception {
         Employee employee = new Employee("E001", "Admin User", "admin@ecoembes.com", "password123");
         Plant plant = new Plant("PLASSB-01", "PlasSB Ltd.", 150.0, "PLASTIC", "PlasSB");
         Dumpster d1 = new Dumpster("D-1", "Location 1", "48001", 100.0);
-        d1.updateStatus("green", 50);
+        d1.updateStatus(FillLevel.GREEN, 50);
         Dumpster d2 = new Dumpster("D-2", "Location 2", "48001", 200.0);
-        d2.updateStatus("orange", 100);
+        d2.updateStatus(FillLevel.ORANGE, 100);
 
         when(employeeRepository.findById("E001")).thenReturn(Optional.of(employee));
         when(plantRepository.findById("PLASSB-01")).thenReturn(Optional.of(plant));
         when(dumpsterRepository.findById("D-1")).thenReturn(Optional.of(d1));
         when(dumpsterRepository.findById("D-2")).thenReturn(Optional.of(d2));
+        ServiceGateway serviceGateway = mock(ServiceGateway.class);
+        when(serviceGatewayFactory.getServiceGateway("PlasSB")).thenReturn(serviceGateway);
+        when(serviceGateway.reserveCapacity(any(), any(), anyInt())).thenReturn(new CapacityReservation("reservation-1", 1));
         when(assignmentRepository.save(any(Assignment.class))).thenAnswer(invocation -> invocation.getArgument(0));
-        when(plantRepository.save(any(Plant.class))).thenAnswer(invocation -> invocation.getArgument(0));
 
         List<Assignment> assignments = plantService.assignDumpsters("E001", "PLASSB-01", List.of("D-1", "D-2"), LocalDate.now());
 
@@ -147,8 +164,7 @@ class PlantServiceTest {
         assertEquals("PENDING", assignments.get(0).getStatus());
         assertEquals(50, assignments.get(0).getAssignedContainers());
         assertEquals(100, assignments.get(1).getAssignedContainers());
-        assertEquals(150, plant.getTotalContainersReceived()); // 50 + 100
+        verify(plantRepository).addContainersReceived("PLASSB-01", 150); // 50 + 100
         verify(assignmentRepository, times(2)).save(any(Assignment.class));
-        verify(plantRepository, times(1)).save(plant);
     }
 }
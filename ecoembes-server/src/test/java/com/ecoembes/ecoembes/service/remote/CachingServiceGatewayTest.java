@@ -0,0 +1,86 @@
+package com.ecoembes.ecoembes.service.remote;
+
+import com.ecoembes.ecoembes.domain.Plant;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CachingServiceGatewayTest {
+
+    private static final LocalDate DATE = LocalDate.of(2025, 11, 5);
+
+    private PlantCapacityView view;
+    private ServiceGateway delegate;
+    private CachingServiceGateway gateway;
+    private Plant plant;
+
+    @BeforeEach
+    void setUp() {
+        view = new PlantCapacityView();
+        delegate = mock(ServiceGateway.class);
+        gateway = new CachingServiceGateway(delegate, view);
+        plant = new Plant("PLASSB-01", "PlasSB Ltd.", 85.0, "PLASTIC", "PlasSB");
+    }
+
+    @Test
+    void pollsWhileStreamIsDown() throws Exception {
+        when(delegate.getPlantCapacity(plant, DATE)).thenReturn(80.0);
+
+        assertEquals(80.0, gateway.getPlantCapacity(plant, DATE));
+        assertEquals(80.0, gateway.getPlantCapacity(plant, DATE));
+
+        verify(delegate, times(2)).getPlantCapacity(plant, DATE);
+    }
+
+    @Test
+    void answersFromViewWhileStreamIsUp() throws Exception {
+        when(delegate.getPlantCapacity(plant, DATE)).thenReturn(80.0);
+        view.connected(List.of("PLASSB-01"));
+
+        assertEquals(80.0, gateway.getPlantCapacity(plant, DATE));
+        assertEquals(80.0, gateway.getPlantCapacity(plant, DATE));
+        verify(delegate, times(1)).getPlantCapacity(plant, DATE);
+
+        // Pushed changes replace the polled capacity, older ones are ignored
+        view.changed(new CapacityChange("PLASSB-01", DATE, 75.0, 3));
+        view.changed(new CapacityChange("PLASSB-01", DATE, 77.0, 2));
+        assertEquals(75.0, gateway.getPlantCapacity(plant, DATE));
+        view.changed(new CapacityChange("PLASSB-01", DATE.plusDays(1), 60.0, 1));
+        assertEquals(60.0, gateway.getPlantCapacity(plant, DATE.plusDays(1)));
+        verify(delegate, times(1)).getPlantCapacity(plant, DATE);
+    }
+
+    @Test
+    void pollsAgainAfterStreamDrops() throws Exception {
+        when(delegate.getPlantCapacity(plant, DATE)).thenReturn(70.0);
+        view.connected(List.of("PLASSB-01"));
+        view.changed(new CapacityChange("PLASSB-01", DATE, 75.0, 3));
+
+        view.disconnected(List.of("PLASSB-01"));
+        assertEquals(70.0, gateway.getPlantCapacity(plant, DATE));
+
+        // Changes missed while down are not served from before the reconnect
+        view.connected(List.of("PLASSB-01"));
+        assertEquals(70.0, gateway.getPlantCapacity(plant, DATE));
+        verify(delegate, times(2)).getPlantCapacity(plant, DATE);
+    }
+
+    @Test
+    void dropsPollThatRacedWithReconnect() {
+        view.connected(List.of("PLASSB-01"));
+        long connection = view.connection("PLASSB-01");
+        view.connected(List.of("PLASSB-01"));
+
+        view.polled("PLASSB-01", DATE, 80.0, connection);
+
+        assertEquals(null, view.get("PLASSB-01", DATE));
+    }
+}
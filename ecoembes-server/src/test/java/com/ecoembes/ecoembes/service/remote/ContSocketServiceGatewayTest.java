@@ -1,6 +1,12 @@
 package com.ecoembes.ecoembes.service.remote;
 
+import brave.Tracing;
 import com.ecoembes.ecoembes.domain.Plant;
+import com.ecoembes.ecoembes.exception.CapacityConflictException;
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.Tracer;
+import io.micrometer.tracing.brave.bridge.BraveCurrentTraceContext;
+import io.micrometer.tracing.brave.bridge.BraveTracer;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 
@@ -8,9 +14,17 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.net.Socket;
+import java.nio.ByteBuffer;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.when;
 
 class ContSocketServiceGatewayTest {
@@ -37,6 +51,200 @@ class ContSocketServiceGatewayTest {
 
         assertEquals(75.0, capacity);
         // PlantId is not sent to server - each server manages only one plant
-        assertEquals("GET_CAPACITY 2025-11-05" + System.lineSeparator(), outputStream.toString());
+        assertEquals("GET_CAPACITY 2025-11-05 plant=CONTSO-01" + System.lineSeparator(), outputStream.toString());
+    }
+
+    @Test
+    void textCommandsCarryTheTraceContextOfAClientSpan() throws Exception {
+        Plant plant = new Plant("CONTSO-01", "ContSocket Ltd.", 80.5, "GENERAL", "ContSocket");
+        plant.setHost("localhost");
+        plant.setPort(4444);
+
+        SocketFactory socketFactory = Mockito.mock(SocketFactory.class);
+        Socket socket = Mockito.mock(Socket.class);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        when(socketFactory.createSocket("localhost", 4444)).thenReturn(socket);
+        when(socket.getInputStream()).thenReturn(new ByteArrayInputStream("75.0".getBytes()));
+        when(socket.getOutputStream()).thenReturn(outputStream);
+
+        try (Tracing tracing = Tracing.newBuilder().traceId128Bit(true).build()) {
+            Tracer tracer = new BraveTracer(tracing.tracer(), new BraveCurrentTraceContext(tracing.currentTraceContext()));
+            ContSocketServiceGateway gateway = new ContSocketServiceGateway(socketFactory, tracer);
+            Span parent = tracer.nextSpan().name("assign").start();
+            try (Tracer.SpanInScope ignored = tracer.withSpan(parent)) {
+                gateway.getPlantCapacity(plant, LocalDate.of(2025, 11, 5));
+            } finally {
+                parent.end();
+            }
+
+            Matcher line = Pattern.compile("GET_CAPACITY 2025-11-05 plant=CONTSO-01 traceparent=00-([0-9a-f]{32})-([0-9a-f]{16})-01")
+                    .matcher(outputStream.toString().strip());
+            assertTrue(line.matches(), outputStream.toString());
+            assertEquals(parent.context().traceId(), line.group(1));
+            assertNotEquals(parent.context().spanId(), line.group(2), "The command runs in its own client span");
+        }
+    }
+
+    @Test
+    void notifyIncomingDumpsterBatch() throws Exception {
+        Plant plant = new Plant("CONTSO-01", "ContSocket Ltd.", 80.5, "GENERAL", "ContSocket");
+        plant.setHost("localhost");
+        plant.setPort(4444);
+
+        SocketFactory socketFactory = Mockito.mock(SocketFactory.class);
+        Socket socket = Mockito.mock(Socket.class);
+
+        ByteArrayInputStream inputStream = new ByteArrayInputStream("OK 2".getBytes());
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        when(socketFactory.createSocket("localhost", 4444)).thenReturn(socket);
+        when(socket.getInputStream()).thenReturn(inputStream);
+        when(socket.getOutputStream()).thenReturn(outputStream);
+
+        ContSocketServiceGateway gateway = new ContSocketServiceGateway(socketFactory);
+        gateway.notifyIncomingDumpsterBatch(plant, LocalDate.of(2025, 11, 5), List.of(
+                new BatchedNotification("key-1", List.of("D-1"), 50),
+                new BatchedNotification("key-2", List.of("D-2", "D-3"), 120)));
+
+        assertEquals("NOTIFY_BATCH 2025-11-05 key-1:1:50 key-2:2:120 plant=CONTSO-01" + System.lineSeparator(), outputStream.toString());
+    }
+
+    @Test
+    void reserveCapacity() throws Exception {
+        Plant plant = new Plant("CONTSO-01", "ContSocket Ltd.", 80.5, "GENERAL", "ContSocket");
+        plant.setHost("localhost");
+        plant.setPort(4444);
+
+        SocketFactory socketFactory = Mockito.mock(SocketFactory.class);
+        Socket socket = Mockito.mock(Socket.class);
+
+        ByteArrayInputStream inputStream = new ByteArrayInputStream("RESERVED res-1 4 76.5".getBytes());
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        when(socketFactory.createSocket("localhost", 4444)).thenReturn(socket);
+        when(socket.getInputStream()).thenReturn(inputStream);
+        when(socket.getOutputStream()).thenReturn(outputStream);
+
+        ContSocketServiceGateway gateway = new ContSocketServiceGateway(socketFactory);
+        CapacityReservation reservation = gateway.reserveCapacity(plant, LocalDate.of(2025, 11, 5), 4000);
+
+        assertEquals(new CapacityReservation("res-1", 4), reservation);
+        assertEquals("RESERVE 2025-11-05 4000 plant=CONTSO-01" + System.lineSeparator(), outputStream.toString());
+    }
+
+    @Test
+    void reserveCapacityConflict() throws Exception {
+        Plant plant = new Plant("CONTSO-01", "ContSocket Ltd.", 80.5, "GENERAL", "ContSocket");
+        plant.setHost("localhost");
+        plant.setPort(4444);
+
+        SocketFactory socketFactory = Mockito.mock(SocketFactory.class);
+        Socket socket = Mockito.mock(Socket.class);
+
+        when(socketFactory.createSocket("localhost", 4444)).thenReturn(socket);
+        when(socket.getInputStream()).thenReturn(new ByteArrayInputStream("CONFLICT 9 0.5".getBytes()));
+        when(socket.getOutputStream()).thenReturn(new ByteArrayOutputStream());
+
+        ContSocketServiceGateway gateway = new ContSocketServiceGateway(socketFactory);
+
+        assertThrows(CapacityConflictException.class,
+                () -> gateway.reserveCapacity(plant, LocalDate.of(2025, 11, 5), 4000));
+    }
+
+    @Test
+    void getPlantCapacityOverBinaryFraming() throws Exception {
+        Plant plant = new Plant("CONTSO-01", "ContSocket Ltd.", 80.5, "GENERAL", "ContSocket");
+        plant.setHost("localhost");
+        plant.setPort(4444);
+
+        SocketFactory socketFactory = Mockito.mock(SocketFactory.class);
+        Socket socket = Mockito.mock(Socket.class);
+
+        ByteBuffer response = ByteBuffer.allocate(1 + 4 + 1 + 8)
+                .put((byte) ContSocketBinaryProtocol.MAGIC).putInt(9).put(ContSocketBinaryProtocol.OK).putLong(76_250);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        when(socketFactory.createSocket("localhost", 4444)).thenReturn(socket);
+        when(socket.getInputStream()).thenReturn(new ByteArrayInputStream(response.array()));
+        when(socket.getOutputStream()).thenReturn(outputStream);
+
+        ContSocketServiceGateway gateway = new ContSocketServiceGateway(socketFactory, Tracer.NOOP, true);
+        Double capacity = gateway.getPlantCapacity(plant, LocalDate.of(2025, 11, 5));
+
+        assertEquals(76.25, capacity);
+        ByteBuffer request = ByteBuffer.wrap(outputStream.toByteArray());
+        assertEquals((byte) ContSocketBinaryProtocol.MAGIC, request.get());
+        assertEquals((byte) '\n', request.get());
+        assertEquals(1 + 2 + 9 + 4 + 2, request.getInt(), "Opcode, plant ID, epoch day and an empty trace context");
+        assertEquals(ContSocketBinaryProtocol.GET_CAPACITY | ContSocketBinaryProtocol.PLANT_FLAG, request.get() & 0xFF);
+        assertEquals("CONTSO-01", ContSocketBinaryProtocol.getString(request));
+        assertEquals(LocalDate.of(2025, 11, 5).toEpochDay(), request.getInt());
+        assertEquals(0, request.getShort());
+    }
+
+    @Test
+    void binaryFramingFallsBackToTextForPlantsThatDoNotSupportIt() throws Exception {
+        Plant plant = new Plant("CONTSO-01", "ContSocket Ltd.", 80.5, "GENERAL", "ContSocket");
+        plant.setHost("localhost");
+        plant.setPort(4444);
+
+        SocketFactory socketFactory = Mockito.mock(SocketFactory.class);
+        Socket textOnlyAnswer = Mockito.mock(Socket.class);
+        Socket textAnswer = Mockito.mock(Socket.class);
+        ByteArrayOutputStream textRequest = new ByteArrayOutputStream();
+
+        when(socketFactory.createSocket("localhost", 4444)).thenReturn(textOnlyAnswer, textAnswer);
+        when(textOnlyAnswer.getInputStream()).thenReturn(new ByteArrayInputStream("ERROR: Invalid command\n".getBytes()));
+        when(textOnlyAnswer.getOutputStream()).thenReturn(new ByteArrayOutputStream());
+        when(textAnswer.getInputStream()).thenReturn(new ByteArrayInputStream("80.5".getBytes()));
+        when(textAnswer.getOutputStream()).thenReturn(textRequest);
+
+        ContSocketServiceGateway gateway = new ContSocketServiceGateway(socketFactory, Tracer.NOOP, true);
+
+        assertEquals(80.5, gateway.getPlantCapacity(plant, LocalDate.of(2025, 11, 5)));
+        assertEquals("GET_CAPACITY 2025-11-05 plant=CONTSO-01" + System.lineSeparator(), textRequest.toString());
+    }
+
+    @Test
+    void streamCapacityChanges() throws Exception {
+        Plant first = new Plant("CONTSO-01", "ContSocket Ltd.", 80.5, "GENERAL", "ContSocket");
+        first.setHost("localhost");
+        first.setPort(4444);
+        Plant second = new Plant("CONTSO-02", "ContSocket Ltd.", 60.0, "GENERAL", "ContSocket");
+        second.setHost("localhost");
+        second.setPort(4444);
+
+        SocketFactory socketFactory = Mockito.mock(SocketFactory.class);
+        Socket socket = Mockito.mock(Socket.class);
+
+        String stream = "OK\nCAPACITY CONTSO-02 2025-11-05 58.0 1\nPING\nCAPACITY CONTSO-01 2025-11-06 80.0 4\n";
+        ByteArrayInputStream inputStream = new ByteArrayInputStream(stream.getBytes());
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        when(socketFactory.createSocket("localhost", 4444)).thenReturn(socket);
+        when(socket.getInputStream()).thenReturn(inputStream);
+        when(socket.getOutputStream()).thenReturn(outputStream);
+
+        List<CapacityChange> changes = new ArrayList<>();
+        boolean[] connected = new boolean[1];
+        ContSocketServiceGateway gateway = new ContSocketServiceGateway(socketFactory);
+        gateway.streamCapacityChanges(List.of(first, second), new CapacityListener() {
+            @Override
+            public void connected() {
+                connected[0] = true;
+            }
+
+            @Override
+            public void changed(CapacityChange change) {
+                changes.add(change);
+            }
+        });
+
+        assertEquals("SUBSCRIBE CONTSO-01 CONTSO-02" + System.lineSeparator(), outputStream.toString());
+        assertEquals(true, connected[0]);
+        assertEquals(List.of(
+                new CapacityChange("CONTSO-02", LocalDate.of(2025, 11, 5), 58.0, 1),
+                new CapacityChange("CONTSO-01", LocalDate.of(2025, 11, 6), 80.0, 4)), changes);
     }
 }
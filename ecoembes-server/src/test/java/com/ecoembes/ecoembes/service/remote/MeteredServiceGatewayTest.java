@@ -0,0 +1,82 @@
+package com.ecoembes.ecoembes.service.remote;
+
+import com.ecoembes.ecoembes.domain.Plant;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class MeteredServiceGatewayTest {
+
+    private SimpleMeterRegistry registry;
+    private ServiceGateway delegate;
+    private MeteredServiceGateway gateway;
+    private Plant plant;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        delegate = mock(ServiceGateway.class);
+        gateway = new MeteredServiceGateway(delegate, "PlasSB", registry);
+        plant = new Plant("PLASSB-01", "PlasSB Ltd.", 85.0, "PLASTIC", "PlasSB");
+    }
+
+    @Test
+    void successfulCapacityCallIsTimed() throws Exception {
+        LocalDate date = LocalDate.of(2025, 11, 5);
+        when(delegate.getPlantCapacity(plant, date)).thenReturn(80.5);
+
+        assertEquals(80.5, gateway.getPlantCapacity(plant, date));
+        assertEquals(80.5, gateway.getPlantCapacity(plant, date));
+
+        assertEquals(2, registry.get(MeteredServiceGateway.REQUESTS)
+                .tags("gateway", "PlasSB", "plant", "PLASSB-01", "operation", "capacity", "outcome", "success")
+                .timer().count());
+        assertEquals(0.0, registry.get(MeteredServiceGateway.FAILURES)
+                .tags("plant", "PLASSB-01", "operation", "capacity")
+                .counter().count());
+    }
+
+    @Test
+    void failedNotificationIsCountedAndRethrown() throws Exception {
+        List<String> dumpsterIds = List.of("D-1");
+        LocalDate date = LocalDate.of(2025, 11, 5);
+        doThrow(new IOException("plant down")).when(delegate).notifyIncomingDumpsters(plant, dumpsterIds, 10, date);
+
+        assertThrows(IOException.class, () -> gateway.notifyIncomingDumpsters(plant, dumpsterIds, 10, date));
+
+        assertEquals(1.0, registry.get(MeteredServiceGateway.FAILURES)
+                .tags("gateway", "PlasSB", "plant", "PLASSB-01", "operation", "notify")
+                .counter().count());
+        assertEquals(1, registry.get(MeteredServiceGateway.REQUESTS)
+                .tags("operation", "notify", "outcome", "failure")
+                .timer().count());
+    }
+
+    @Test
+    void releasesAreTimedLikeTheOtherPlantCalls() throws Exception {
+        doThrow(new IOException("plant down")).when(delegate).releaseReservation(plant, "reservation-2");
+
+        gateway.releaseReservation(plant, "reservation-1");
+        assertThrows(IOException.class, () -> gateway.releaseReservation(plant, "reservation-2"));
+
+        assertEquals(1, registry.get(MeteredServiceGateway.REQUESTS)
+                .tags("gateway", "PlasSB", "plant", "PLASSB-01", "operation", "release", "outcome", "success")
+                .timer().count());
+        assertEquals(1, registry.get(MeteredServiceGateway.REQUESTS)
+                .tags("operation", "release", "outcome", "failure")
+                .timer().count());
+        assertEquals(1.0, registry.get(MeteredServiceGateway.FAILURES)
+                .tags("plant", "PLASSB-01", "operation", "release")
+                .counter().count());
+    }
+}
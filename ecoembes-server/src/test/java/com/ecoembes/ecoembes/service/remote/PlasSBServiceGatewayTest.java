@@ -2,16 +2,26 @@ package com.ecoembes.ecoembes.service.remote;
 
 import com.ecoembes.ecoembes.domain.Plant;
 import com.ecoembes.ecoembes.dto.RemotePlantCapacityDTO;
+import com.ecoembes.ecoembes.exception.CapacityConflictException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.test.web.client.MockRestServiceServer;
 import org.springframework.web.client.RestTemplate;
 
 import java.time.LocalDate;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.jsonPath;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.method;
 import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withStatus;
 import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
 
 class PlasSBServiceGatewayTest {
@@ -45,4 +55,43 @@ class PlasSBServiceGatewayTest {
         assertEquals(80.5, capacity);
         mockServer.verify();
     }
+
+    @Test
+    void notifyIncomingDumpsterBatchPostsOneMessage() throws Exception {
+        Plant plant = new Plant("PLASSB-01", "PlasSB Ltd.", 150.0, "PLASTIC", "PlasSB");
+        plant.setHost("localhost");
+        plant.setPort(8080);
+
+        mockServer.expect(requestTo("http://localhost:8080/api/plants/PLASSB-01/notify/batch"))
+                .andExpect(method(HttpMethod.POST))
+                .andExpect(jsonPath("$.plantId").value("PLASSB-01"))
+                .andExpect(jsonPath("$.notifications.length()").value(2))
+                .andExpect(jsonPath("$.notifications[1].idempotencyKey").value("key-2"))
+                .andExpect(jsonPath("$.notifications[1].totalContainers").value(120))
+                .andRespond(withSuccess("Batch received", MediaType.TEXT_PLAIN));
+
+        gateway.notifyIncomingDumpsterBatch(plant, LocalDate.of(2025, 11, 5), List.of(
+                new BatchedNotification("key-1", List.of("D-1"), 50),
+                new BatchedNotification("key-2", List.of("D-2", "D-3"), 120)));
+        mockServer.verify();
+    }
+
+    @Test
+    void reserveCapacityConflictIsReportedAsCapacityConflict() {
+        Plant plant = new Plant("PLASSB-01", "PlasSB Ltd.", 150.0, "PLASTIC", "PlasSB");
+        plant.setHost("localhost");
+        plant.setPort(8080);
+
+        mockServer.expect(requestTo("http://localhost:8080/api/plants/PLASSB-01/reservations"))
+                .andExpect(method(HttpMethod.POST))
+                .andExpect(jsonPath("$.totalContainers").value(5000))
+                .andRespond(withStatus(HttpStatus.CONFLICT)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .body("{\"reserved\":false,\"plantId\":\"PLASSB-01\",\"version\":7,\"capacity\":2.5}"));
+
+        CapacityConflictException conflict = assertThrows(CapacityConflictException.class,
+                () -> gateway.reserveCapacity(plant, LocalDate.of(2025, 11, 5), 5000));
+        assertTrue(conflict.getMessage().contains("2.5 tons left"));
+        mockServer.verify();
+    }
 }
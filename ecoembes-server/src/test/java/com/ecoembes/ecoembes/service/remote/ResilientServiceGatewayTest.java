@@ -0,0 +1,121 @@
+package com.ecoembes.ecoembes.service.remote;
+
+import com.ecoembes.ecoembes.domain.Plant;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ResilientServiceGatewayTest {
+
+    private static final LocalDate DATE = LocalDate.of(2025, 11, 5);
+
+    private PlantResilience resilience;
+    private ServiceGateway delegate;
+    private ResilientServiceGateway gateway;
+    private Plant plant;
+
+    @BeforeEach
+    void setUp() {
+        resilience = new PlantResilience(
+                CircuitBreakerConfig.custom()
+                        .slidingWindowSize(4)
+                        .minimumNumberOfCalls(4)
+                        .failureRateThreshold(50)
+                        .waitDurationInOpenState(Duration.ofMinutes(1))
+                        .build(),
+                BulkheadConfig.custom()
+                        .maxConcurrentCalls(1)
+                        .maxWaitDuration(Duration.ZERO)
+                        .build(),
+                Duration.ofMillis(50), Duration.ofMillis(200));
+        delegate = mock(ServiceGateway.class);
+        gateway = new ResilientServiceGateway(delegate, resilience);
+        plant = new Plant("PLASSB-01", "PlasSB Ltd.", 85.0, "PLASTIC", "PlasSB");
+    }
+
+    @AfterEach
+    void tearDown() {
+        resilience.destroy();
+    }
+
+    @Test
+    void breakerOpensAfterFailuresAndFailsFast() throws Exception {
+        when(delegate.getPlantCapacity(plant, DATE)).thenThrow(new IOException("plant down"));
+
+        for (int i = 0; i < 4; i++) {
+            assertThrows(IOException.class, () -> gateway.getPlantCapacity(plant, DATE));
+        }
+        assertThrows(CallNotPermittedException.class, () -> gateway.getPlantCapacity(plant, DATE));
+
+        verify(delegate, times(4)).getPlantCapacity(plant, DATE);
+        PlantResilience.BreakerStatus status = resilience.status("PLASSB-01");
+        assertEquals("OPEN", status.state());
+        assertEquals(100.0f, status.failureRate());
+        assertEquals(1, status.notPermittedCalls());
+    }
+
+    @Test
+    void bulkheadRejectsCallsBeyondConcurrencyLimit() throws Exception {
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(delegate.getPlantCapacity(plant, DATE)).thenAnswer(invocation -> {
+            entered.countDown();
+            release.await(1, TimeUnit.SECONDS);
+            return 80.5;
+        });
+
+        CompletableFuture<Double> first = CompletableFuture.supplyAsync(() -> {
+            try {
+                return gateway.getPlantCapacity(plant, DATE);
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        assertTrue(entered.await(1, TimeUnit.SECONDS));
+
+        assertThrows(BulkheadFullException.class, () -> gateway.getPlantCapacity(plant, DATE));
+
+        release.countDown();
+        assertEquals(80.5, first.get(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void slowPlantTimesOutAndTimeoutAdaptsToLatency() throws Exception {
+        assertEquals(200, resilience.status("PLASSB-01").timeoutMillis());
+
+        when(delegate.getPlantCapacity(plant, DATE)).thenReturn(80.5);
+        for (int i = 0; i < 3; i++) {
+            assertEquals(80.5, gateway.getPlantCapacity(plant, DATE));
+        }
+        assertEquals(50, resilience.status("PLASSB-01").timeoutMillis());
+
+        when(delegate.getPlantCapacity(plant, DATE)).thenAnswer(invocation -> {
+            Thread.sleep(1000);
+            return 80.5;
+        });
+        long start = System.nanoTime();
+        assertThrows(TimeoutException.class, () -> gateway.getPlantCapacity(plant, DATE));
+        assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(500));
+        assertEquals(100, resilience.status("PLASSB-01").timeoutMillis());
+    }
+}
@@ -0,0 +1,82 @@
+package com.ecoembes.fass.plasb.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Capacity lookups on the plant ledgers, for the default plant and spread across many hosted plants, on one thread
+ * and with concurrent readers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PlantServiceBenchmark {
+
+    @Param({"1", "10000"})
+    public int hostedPlants;
+
+    private CapacityFeed feed;
+    private PlantService plantService;
+    private LocalDate date;
+    private String[] plantIds;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        feed = new CapacityFeed(Duration.ofSeconds(15));
+        plantService = new PlantService("PLASSB-01", 85.0, Duration.ofMinutes(10), List.of(), 64, feed);
+        date = LocalDate.now().plusDays(30);
+        // Power of two, so a lookup picks its plant with a mask
+        plantIds = new String[Integer.highestOneBit(hostedPlants)];
+        plantIds[0] = "PLASSB-01";
+        for (int i = 1; i < hostedPlants; i++) {
+            String plantId = "PLASSB-" + (100_000 + i);
+            plantService.registerPlant(plantId, 50.0);
+            if (i < plantIds.length) {
+                plantIds[i] = plantId;
+            }
+        }
+        for (String plantId : plantIds) {
+            plantService.addIncomingDumpsters(plantId, 1_000, date, null);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        feed.stop();
+    }
+
+    @Benchmark
+    public Double getCapacity() {
+        return plantService.getCapacity(date);
+    }
+
+    @Benchmark
+    public Double getCapacityOfHostedPlant(Cursor cursor) {
+        return plantService.getCapacity(plantIds[cursor.next++ & (plantIds.length - 1)], date);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Double getCapacityOfHostedPlantConcurrently(Cursor cursor) {
+        return plantService.getCapacity(plantIds[cursor.next++ & (plantIds.length - 1)], date);
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+    }
+}
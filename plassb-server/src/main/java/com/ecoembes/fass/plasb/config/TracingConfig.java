@@ -0,0 +1,19 @@
+package com.ecoembes.fass.plasb.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Path;
+
+@Configuration
+public class TracingConfig {
+
+    /**
+     * Exports finished spans to a local JSON-lines file for per-hop latency analysis.
+     */
+    @Bean
+    public FileSpanHandler fileSpanHandler(@Value("${tracing.span-file:logs/spans.jsonl}") String spanFile) {
+        return new FileSpanHandler(Path.of(spanFile));
+    }
+}
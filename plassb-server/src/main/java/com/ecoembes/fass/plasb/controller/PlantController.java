@@ -1,20 +1,33 @@
 package com.ecoembes.fass.plasb.controller;
 
-import com.ecoembes.fass.plasb.domain.Plant;
+import com.ecoembes.fass.plasb.dto.CapacityChangeDTO;
+import com.ecoembes.fass.plasb.dto.DumpsterBatchNotificationDTO;
 import com.ecoembes.fass.plasb.dto.DumpsterNotificationDTO;
 import com.ecoembes.fass.plasb.dto.PlantCapacityDTO;
+import com.ecoembes.fass.plasb.dto.ReservationDTO;
+import com.ecoembes.fass.plasb.dto.ReservationRequestDTO;
+import com.ecoembes.fass.plasb.service.CapacityFeed;
 import com.ecoembes.fass.plasb.service.PlantService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
 import java.time.LocalDate;
+import java.util.List;
 
 
 @RestController
 @RequestMapping("/api/plants")
 public class PlantController {
 
+    private static final Logger log = LoggerFactory.getLogger(PlantController.class);
+
     private final PlantService plantService;
 
     public PlantController(PlantService plantService) {
@@ -24,25 +37,146 @@ public class PlantController {
     @GetMapping("/capacity")
     public ResponseEntity<PlantCapacityDTO> getPlantCapacity(
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
-        // Each plant server manages only one plant, so no ID needed in URL
-        Plant plant = plantService.getPlant();
+        // Legacy single-plant endpoints are served by the default plant
+        return getPlantCapacity(plantService.getPlantId(), date);
+    }
+
+    @GetMapping("/{plantId}/capacity")
+    public ResponseEntity<PlantCapacityDTO> getPlantCapacity(
+            @PathVariable String plantId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        if (!plantService.hostsPlant(plantId)) {
+            return ResponseEntity.notFound().build();
+        }
         LocalDate effectiveDate = date != null ? date : LocalDate.now();
-        Double capacity = plantService.getCapacity(effectiveDate);
-        return ResponseEntity.ok(new PlantCapacityDTO(plant.getId(), capacity));
+        long version = plantService.getCapacityVersion(plantId, effectiveDate);
+        Double capacity = plantService.getCapacity(plantId, effectiveDate);
+        return ResponseEntity.ok(new PlantCapacityDTO(plantId, capacity, version));
+    }
+
+    /**
+     * Capacity of many hosted plants in one call: the plants in {@code ids}, or every hosted plant without it.
+     */
+    @GetMapping("/capacities")
+    public ResponseEntity<List<PlantCapacityDTO>> getPlantCapacities(
+            @RequestParam(required = false) List<String> ids,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        return ResponseEntity.ok(plantService.getCapacities(ids, date != null ? date : LocalDate.now()));
+    }
+
+    /**
+     * Server-sent stream of capacity changes of the plants in {@code ids}, or of every hosted plant without it.
+     * Each change is a {@code capacity} event carrying a {@link CapacityChangeDTO}; idle streams get a comment as
+     * heartbeat. The stream stays open until the client disconnects.
+     */
+    @GetMapping(value = "/capacity/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamCapacityChanges(@RequestParam(required = false) List<String> ids) {
+        SseEmitter emitter = new SseEmitter(0L);
+        CapacityFeed.Subscription subscription = plantService.subscribeToCapacityChanges(ids, new CapacityFeed.Sink() {
+            @Override
+            public void send(CapacityChangeDTO change) throws IOException {
+                emitter.send(SseEmitter.event().name("capacity").data(change, MediaType.APPLICATION_JSON));
+            }
+
+            @Override
+            public void heartbeat() throws IOException {
+                emitter.send(SseEmitter.event().comment("heartbeat"));
+            }
+
+            @Override
+            public void close() {
+                emitter.complete();
+            }
+        });
+        emitter.onCompletion(subscription::cancel);
+        emitter.onTimeout(subscription::cancel);
+        emitter.onError(error -> subscription.cancel());
+        return emitter;
+    }
+
+    @PutMapping("/{plantId}")
+    public ResponseEntity<PlantCapacityDTO> registerPlant(@PathVariable String plantId, @RequestBody PlantCapacityDTO plant) {
+        if (plant.getCapacity() == null || plant.getCapacity() <= 0) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (!plantService.registerPlant(plantId, plant.getCapacity())) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+        return ResponseEntity.status(HttpStatus.CREATED).body(new PlantCapacityDTO(plantId, plant.getCapacity()));
+    }
+
+    @PostMapping("/reservations")
+    public ResponseEntity<ReservationDTO> reserveCapacity(@RequestBody ReservationRequestDTO request) {
+        return reserveCapacity(plantService.getPlantId(), request);
+    }
+
+    @PostMapping("/{plantId}/reservations")
+    public ResponseEntity<ReservationDTO> reserveCapacity(@PathVariable String plantId, @RequestBody ReservationRequestDTO request) {
+        if (!plantService.hostsPlant(plantId)) {
+            return ResponseEntity.notFound().build();
+        }
+        if (request.totalContainers() == null || request.totalContainers() <= 0) {
+            return ResponseEntity.badRequest().build();
+        }
+        ReservationDTO reservation = plantService.reserveCapacity(
+                plantId, request.arrivalDate(), request.totalContainers(), request.expectedVersion());
+        // A conflict carries the current version and capacity so the caller can decide whether to retry
+        return ResponseEntity.status(reservation.reserved() ? HttpStatus.CREATED : HttpStatus.CONFLICT).body(reservation);
+    }
+
+    @DeleteMapping("/reservations/{reservationId}")
+    public ResponseEntity<Void> releaseReservation(@PathVariable String reservationId) {
+        return releaseReservation(plantService.getPlantId(), reservationId);
+    }
+
+    @DeleteMapping("/{plantId}/reservations/{reservationId}")
+    public ResponseEntity<Void> releaseReservation(@PathVariable String plantId, @PathVariable String reservationId) {
+        return plantService.hostsPlant(plantId) && plantService.releaseReservation(plantId, reservationId)
+                ? ResponseEntity.noContent().build()
+                : ResponseEntity.notFound().build();
     }
 
     @PostMapping("/notify")
     public ResponseEntity<String> notifyIncomingDumpsters(
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+            @RequestBody DumpsterNotificationDTO notification) {
+        return notifyIncomingDumpsters(plantService.getPlantId(), idempotencyKey, notification);
+    }
+
+    @PostMapping("/{plantId}/notify")
+    public ResponseEntity<String> notifyIncomingDumpsters(
+            @PathVariable String plantId,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
             @RequestBody DumpsterNotificationDTO notification) {
-        // Each plant server manages only one plant, so no ID needed in URL
-        System.out.println("Received notification for plant " + plantService.getPlantId());
-        System.out.println("Incoming dumpsters: " + notification.dumpsterIds());
-        System.out.println("Total containers: " + notification.totalContainers());
-        System.out.println("Expected arrival: " + notification.arrivalDate());
+        if (!plantService.hostsPlant(plantId)) {
+            return ResponseEntity.notFound().build();
+        }
+        log.debug("Notification for plant {}: dumpsters {}, {} containers arriving {}", plantId,
+                notification.dumpsterIds(), notification.totalContainers(), notification.arrivalDate());
 
-        // Update plant capacity based on incoming dumpsters
-        plantService.addIncomingDumpsters(notification.totalContainers(), notification.arrivalDate());
+        // Update plant capacity based on incoming dumpsters; a redelivered notification is acknowledged but not applied again
+        plantService.addIncomingDumpsters(plantId, notification.totalContainers(), notification.arrivalDate(), idempotencyKey);
 
         return ResponseEntity.ok("Notification received for " + notification.dumpsterIds().size() + " dumpsters");
     }
+
+    @PostMapping("/notify/batch")
+    public ResponseEntity<String> notifyIncomingDumpsterBatch(@RequestBody DumpsterBatchNotificationDTO batch) {
+        return notifyIncomingDumpsterBatch(plantService.getPlantId(), batch);
+    }
+
+    @PostMapping("/{plantId}/notify/batch")
+    public ResponseEntity<String> notifyIncomingDumpsterBatch(@PathVariable String plantId,
+                                                              @RequestBody DumpsterBatchNotificationDTO batch) {
+        if (!plantService.hostsPlant(plantId)) {
+            return ResponseEntity.notFound().build();
+        }
+        log.debug("Batch notification for plant {}: {} groups arriving {}", plantId,
+                batch.notifications().size(), batch.arrivalDate());
+
+        // Entries already applied under their idempotency key are acknowledged but skipped
+        int applied = plantService.addIncomingDumpsterBatch(plantId, batch.arrivalDate(), batch.notifications());
+
+        return ResponseEntity.ok("Batch received: " + applied + " of " + batch.notifications().size() + " notifications applied");
+    }
 }
@@ -0,0 +1,14 @@
+package com.ecoembes.fass.plasb.dto;
+
+import java.time.LocalDate;
+
+/**
+ * DTO pushed to capacity stream subscribers: a plant's remaining capacity for a date after a change, with the
+ * ledger version it was read at so subscribers can drop changes older than what they already hold
+ */
+public record CapacityChangeDTO(
+        String plantId,
+        LocalDate date,
+        double capacity,
+        long version
+) {}
@@ -0,0 +1,19 @@
+package com.ecoembes.fass.plasb.dto;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * DTO for notifying the plant of several incoming dumpster groups arriving on the same date
+ */
+public record DumpsterBatchNotificationDTO(
+        String plantId,
+        LocalDate arrivalDate,
+        List<Entry> notifications
+) {
+    public record Entry(
+            String idempotencyKey,
+            List<String> dumpsterIds,
+            Integer totalContainers
+    ) {}
+}
@@ -4,10 +4,19 @@ public class PlantCapacityDTO {
 
     private String id;
     private Double capacity;
+    private Long version;
+
+    public PlantCapacityDTO() {
+    }
 
     public PlantCapacityDTO(String id, Double capacity) {
+        this(id, capacity, null);
+    }
+
+    public PlantCapacityDTO(String id, Double capacity, Long version) {
         this.id = id;
         this.capacity = capacity;
+        this.version = version;
     }
 
     public String getId() {
@@ -25,4 +34,12 @@ public class PlantCapacityDTO {
     public void setCapacity(Double capacity) {
         this.capacity = capacity;
     }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
 }
@@ -0,0 +1,15 @@
+package com.ecoembes.fass.plasb.dto;
+
+import java.time.LocalDate;
+
+/**
+ * DTO describing the outcome of a reservation, with the ledger version and capacity left after it
+ */
+public record ReservationDTO(
+        boolean reserved,
+        String reservationId,
+        String plantId,
+        LocalDate arrivalDate,
+        long version,
+        double capacity
+) {}
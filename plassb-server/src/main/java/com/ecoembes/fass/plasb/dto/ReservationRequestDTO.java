@@ -0,0 +1,13 @@
+package com.ecoembes.fass.plasb.dto;
+
+import java.time.LocalDate;
+
+/**
+ * DTO for reserving capacity ahead of a notification. {@code expectedVersion} is optional; when set the
+ * reservation only succeeds if the date's ledger has not changed since the caller read that version.
+ */
+public record ReservationRequestDTO(
+        LocalDate arrivalDate,
+        Integer totalContainers,
+        Long expectedVersion
+) {}
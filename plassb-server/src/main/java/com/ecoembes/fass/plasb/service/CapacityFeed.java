@@ -0,0 +1,184 @@
+package com.ecoembes.fass.plasb.service;
+
+import com.ecoembes.fass.plasb.dto.CapacityChangeDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Fans capacity changes of the hosted plants out to stream subscribers. Publishing only records the latest change
+ * per plant and date in each subscription; delivery happens on a separate thread, so a slow subscriber never holds up
+ * a notification, and a subscriber that falls behind skips straight to the newest capacity of each date. A
+ * subscription is dropped as soon as writing to it fails. Open streams are closed on shutdown before the web server
+ * waits for active requests, which would otherwise include every stream.
+ */
+@Component
+public class CapacityFeed implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(CapacityFeed.class);
+
+    private final Set<Subscription> subscriptions = ConcurrentHashMap.newKeySet();
+    private final ExecutorService delivery = Executors.newCachedThreadPool(daemon("capacity-feed"));
+    private final ScheduledExecutorService heartbeats = Executors.newSingleThreadScheduledExecutor(daemon("capacity-feed-heartbeat"));
+    private volatile boolean running;
+
+    public CapacityFeed(@Value("${plants.capacity-stream.heartbeat:15s}") Duration heartbeat) {
+        // Heartbeats keep idle streams alive through proxies and let subscribers tell a quiet plant from a dead one
+        heartbeats.scheduleAtFixedRate(() -> subscriptions.forEach(Subscription::heartbeat),
+                heartbeat.toMillis(), heartbeat.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Starts delivering changes of the given plants, or of every hosted plant when {@code plantIds} is empty or null.
+     */
+    public Subscription subscribe(Collection<String> plantIds, Sink sink) {
+        Subscription subscription = new Subscription(plantIds == null || plantIds.isEmpty() ? null : Set.copyOf(plantIds), sink);
+        subscriptions.add(subscription);
+        log.debug("Capacity stream opened for {}", plantIds == null || plantIds.isEmpty() ? "all plants" : plantIds);
+        return subscription;
+    }
+
+    void publish(String plantId, LocalDate date, long version, double capacity) {
+        if (subscriptions.isEmpty()) {
+            return;
+        }
+        CapacityChangeDTO change = new CapacityChangeDTO(plantId, date, capacity, version);
+        for (Subscription subscription : subscriptions) {
+            subscription.offer(change);
+        }
+    }
+
+    int subscriberCount() {
+        return subscriptions.size();
+    }
+
+    @Override
+    public void start() {
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        heartbeats.shutdownNow();
+        delivery.shutdownNow();
+        for (Subscription subscription : subscriptions) {
+            subscription.cancel();
+            subscription.sink.close();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private static ThreadFactory daemon(String name) {
+        return runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Where a subscription's changes are written, e.g. an SSE connection.
+     */
+    public interface Sink {
+        void send(CapacityChangeDTO change) throws IOException;
+
+        void heartbeat() throws IOException;
+
+        void close();
+    }
+
+    public final class Subscription {
+
+        private final Set<String> plantIds;
+        private final Sink sink;
+        // Latest undelivered change per plant and date
+        private final Map<Key, CapacityChangeDTO> pending = new ConcurrentHashMap<>();
+        private final AtomicBoolean heartbeatDue = new AtomicBoolean();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private volatile boolean cancelled;
+
+        private Subscription(Set<String> plantIds, Sink sink) {
+            this.plantIds = plantIds;
+            this.sink = sink;
+        }
+
+        public void cancel() {
+            cancelled = true;
+            if (subscriptions.remove(this)) {
+                log.debug("Capacity stream closed");
+            }
+        }
+
+        private void offer(CapacityChangeDTO change) {
+            if (plantIds != null && !plantIds.contains(change.plantId())) {
+                return;
+            }
+            pending.merge(new Key(change.plantId(), change.date()), change,
+                    (queued, latest) -> latest.version() > queued.version() ? latest : queued);
+            schedule();
+        }
+
+        private void heartbeat() {
+            heartbeatDue.set(true);
+            schedule();
+        }
+
+        private void schedule() {
+            if (!cancelled && scheduled.compareAndSet(false, true)) {
+                try {
+                    delivery.execute(this::drain);
+                } catch (RuntimeException e) {
+                    // Shutting down
+                    scheduled.set(false);
+                }
+            }
+        }
+
+        private void drain() {
+            try {
+                do {
+                    Iterator<Key> keys = pending.keySet().iterator();
+                    while (keys.hasNext() && !cancelled) {
+                        CapacityChangeDTO change = pending.remove(keys.next());
+                        if (change != null) {
+                            sink.send(change);
+                        }
+                    }
+                    if (heartbeatDue.getAndSet(false)) {
+                        sink.heartbeat();
+                    }
+                    scheduled.set(false);
+                    // Changes offered while this run was finishing found it still scheduled, so pick them up here
+                } while (!cancelled && (!pending.isEmpty() || heartbeatDue.get()) && scheduled.compareAndSet(false, true));
+            } catch (IOException | RuntimeException e) {
+                log.debug("Capacity stream subscriber gone: {}", e.toString());
+                cancel();
+            }
+        }
+    }
+
+    private record Key(String plantId, LocalDate date) {
+    }
+}
@@ -0,0 +1,201 @@
+package com.ecoembes.fass.plasb.service;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-date container ledger updated with compare-and-set, so concurrent reservations never take a lock.
+ * Each date holds one {@code long}: the upper 32 bits are a version bumped on every change, the lower 32 bits
+ * the containers assigned. A reservation only succeeds if the containers still fit (and, when the caller
+ * passes one, the version it read is still current); otherwise it is reported as a conflict.
+ * Reservations are confirmed by the notification carrying their ID as idempotency key, or released
+ * when they expire unconfirmed. Every change is reported to a {@link Listener} with the new version and capacity.
+ */
+final class CapacityLedger {
+
+    private static final long CONTAINERS_MASK = 0xFFFF_FFFFL;
+    private static final int MAX_REMEMBERED_KEYS = 10_000;
+    private static final long SWEEP_INTERVAL_NANOS = Duration.ofSeconds(1).toNanos();
+
+    private final long capacityContainers;
+    private final long reservationTtlNanos;
+    private final Listener listener;
+    private final Map<LocalDate, AtomicLong> entries = new ConcurrentHashMap<>();
+    private final Map<String, PendingReservation> pending = new ConcurrentHashMap<>();
+    private final AtomicLong nextSweep = new AtomicLong(System.nanoTime());
+
+    // Recently applied notification keys, so redelivered notifications are not counted twice
+    private final Set<String> appliedKeys = ConcurrentHashMap.newKeySet();
+    private final Queue<String> appliedKeyOrder = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger appliedKeyCount = new AtomicInteger();
+
+    CapacityLedger(double capacityTons, Duration reservationTtl) {
+        this(capacityTons, reservationTtl, (date, version, available) -> {
+        });
+    }
+
+    CapacityLedger(double capacityTons, Duration reservationTtl, Listener listener) {
+        // Assume 1000 containers = 1 ton
+        this.capacityContainers = Math.round(capacityTons * 1000);
+        this.reservationTtlNanos = reservationTtl.toNanos();
+        this.listener = listener;
+    }
+
+    double available(LocalDate date) {
+        return availableTons(assigned(entry(date).get()));
+    }
+
+    long version(LocalDate date) {
+        return version(entry(date).get());
+    }
+
+    /**
+     * Reserves containers for a date. Returns the new version on success, or the current version with a null
+     * reservation ID when the containers do not fit or {@code expectedVersion} is stale.
+     * Throws {@link IllegalArgumentException} unless {@code containers} is positive, since a negative reservation
+     * would hand out capacity that does not exist.
+     */
+    Outcome reserve(LocalDate date, int containers, Long expectedVersion) {
+        if (containers <= 0) {
+            throw new IllegalArgumentException("Containers to reserve must be positive: " + containers);
+        }
+        expireReservations();
+        AtomicLong entry = entry(date);
+        while (true) {
+            long current = entry.get();
+            long version = version(current);
+            int assigned = assigned(current);
+            if ((expectedVersion != null && expectedVersion != version) || assigned + (long) containers > capacityContainers) {
+                return new Outcome(null, version, availableTons(assigned));
+            }
+            long updated = pack(version + 1, assigned + containers);
+            if (entry.compareAndSet(current, updated)) {
+                String reservationId = UUID.randomUUID().toString();
+                pending.put(reservationId, new PendingReservation(date, containers, System.nanoTime() + reservationTtlNanos));
+                listener.changed(date, version + 1, availableTons(assigned + containers));
+                return new Outcome(reservationId, version + 1, availableTons(assigned + containers));
+            }
+        }
+    }
+
+    /**
+     * Gives back the containers of an unconfirmed reservation. Returns false if it is unknown, confirmed or expired.
+     */
+    boolean release(String reservationId) {
+        PendingReservation reservation = pending.remove(reservationId);
+        if (reservation == null) {
+            return false;
+        }
+        add(reservation.date(), -reservation.containers());
+        return true;
+    }
+
+    /**
+     * Applies a notification once per key. A key matching a pending reservation confirms it without counting
+     * the containers again. Returns false if the key was already applied.
+     */
+    boolean apply(int containers, LocalDate date, String key) {
+        if (key == null) {
+            add(date, containers);
+            return true;
+        }
+        if (!rememberKey(key)) {
+            return false;
+        }
+        if (pending.remove(key) == null) {
+            add(date, containers);
+        }
+        return true;
+    }
+
+    int assignedContainers(LocalDate date) {
+        return assigned(entry(date).get());
+    }
+
+    private void add(LocalDate date, int containers) {
+        AtomicLong entry = entry(date);
+        long current;
+        long updated;
+        do {
+            current = entry.get();
+            updated = pack(version(current) + 1, assigned(current) + containers);
+        } while (!entry.compareAndSet(current, updated));
+        listener.changed(date, version(updated), availableTons(assigned(updated)));
+    }
+
+    private boolean rememberKey(String key) {
+        if (!appliedKeys.add(key)) {
+            return false;
+        }
+        appliedKeyOrder.add(key);
+        if (appliedKeyCount.incrementAndGet() > MAX_REMEMBERED_KEYS) {
+            String eldest = appliedKeyOrder.poll();
+            if (eldest != null) {
+                appliedKeys.remove(eldest);
+                appliedKeyCount.decrementAndGet();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Releases expired reservations, at most once per second and only on the thread that wins the sweep.
+     */
+    private void expireReservations() {
+        long now = System.nanoTime();
+        long sweepAt = nextSweep.get();
+        if (now - sweepAt < 0 || pending.isEmpty() || !nextSweep.compareAndSet(sweepAt, now + SWEEP_INTERVAL_NANOS)) {
+            return;
+        }
+        pending.forEach((id, reservation) -> {
+            if (now - reservation.expiresAtNanos() > 0) {
+                release(id);
+            }
+        });
+    }
+
+    private AtomicLong entry(LocalDate date) {
+        AtomicLong entry = entries.get(date);
+        return entry != null ? entry : entries.computeIfAbsent(date, d -> new AtomicLong());
+    }
+
+    private double availableTons(int assigned) {
+        return Math.max(0.0, (capacityContainers - assigned) / 1000.0); // Never return negative capacity
+    }
+
+    private static long pack(long version, int assigned) {
+        return (version << 32) | (assigned & CONTAINERS_MASK);
+    }
+
+    private static long version(long packed) {
+        return packed >>> 32;
+    }
+
+    private static int assigned(long packed) {
+        return (int) packed;
+    }
+
+    /**
+     * Receives every change of a date's entry. Called on the thread that made the change, after it was applied.
+     */
+    interface Listener {
+        void changed(LocalDate date, long version, double available);
+    }
+
+    record Outcome(String reservationId, long version, double available) {
+        boolean reserved() {
+            return reservationId != null;
+        }
+    }
+
+    private record PendingReservation(LocalDate date, int containers, long expiresAtNanos) {
+    }
+}
@@ -0,0 +1,96 @@
+package com.ecoembes.fass.plasb.service;
+
+import com.ecoembes.fass.plasb.domain.Plant;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Plants hosted by this server, sharded by plant ID across lock-striped segments. Looking up a plant only takes
+ * its segment's read lock, so registering plants never stalls traffic to plants in other segments; capacity changes
+ * then go through the plant's own ledger without any lock, and are published to the {@link CapacityFeed}.
+ */
+final class PlantRegistry {
+
+    private final Segment[] segments;
+    private final Duration reservationTtl;
+    private final CapacityFeed feed;
+
+    PlantRegistry(int segmentCount, Duration reservationTtl, CapacityFeed feed) {
+        int size = Integer.highestOneBit(Math.max(1, segmentCount - 1)) << 1;
+        this.segments = new Segment[size];
+        for (int i = 0; i < size; i++) {
+            segments[i] = new Segment();
+        }
+        this.reservationTtl = reservationTtl;
+        this.feed = feed;
+    }
+
+    /**
+     * Returns the plant, or null if it is not hosted here.
+     */
+    HostedPlant get(String plantId) {
+        Segment segment = segmentFor(plantId);
+        segment.lock.readLock().lock();
+        try {
+            return segment.plants.get(plantId);
+        } finally {
+            segment.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Starts hosting a plant. Returns false if a plant with that ID is already hosted.
+     */
+    boolean register(String plantId, double capacityTons) {
+        Segment segment = segmentFor(plantId);
+        segment.lock.writeLock().lock();
+        try {
+            if (segment.plants.containsKey(plantId)) {
+                return false;
+            }
+            segment.plants.put(plantId, new HostedPlant(new Plant(plantId, capacityTons),
+                    new CapacityLedger(capacityTons, reservationTtl,
+                            (date, version, available) -> feed.publish(plantId, date, version, available))));
+            return true;
+        } finally {
+            segment.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * All hosted plants, ordered by ID.
+     */
+    List<HostedPlant> all() {
+        List<HostedPlant> plants = new ArrayList<>();
+        for (Segment segment : segments) {
+            segment.lock.readLock().lock();
+            try {
+                plants.addAll(segment.plants.values());
+            } finally {
+                segment.lock.readLock().unlock();
+            }
+        }
+        plants.sort(Comparator.comparing(plant -> plant.plant().getId()));
+        return plants;
+    }
+
+    private Segment segmentFor(String plantId) {
+        int hash = plantId.hashCode();
+        return segments[(hash ^ (hash >>> 16)) & (segments.length - 1)];
+    }
+
+    private static final class Segment {
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+        private final Map<String, HostedPlant> plants = new HashMap<>();
+    }
+
+    record HostedPlant(Plant plant, CapacityLedger ledger) {
+    }
+}
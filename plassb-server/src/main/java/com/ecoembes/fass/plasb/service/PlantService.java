@@ -1,32 +1,89 @@
 package com.ecoembes.fass.plasb.service;
 
 import com.ecoembes.fass.plasb.domain.Plant;
+import com.ecoembes.fass.plasb.dto.DumpsterBatchNotificationDTO;
+import com.ecoembes.fass.plasb.dto.PlantCapacityDTO;
+import com.ecoembes.fass.plasb.dto.ReservationDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.time.LocalDate;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.TreeSet;
 
 @Service
 public class PlantService {
 
+    private static final Logger log = LoggerFactory.getLogger(PlantService.class);
+
+    // Plant served by the legacy single-plant endpoints
     private final String plantId;
-    private final Double plantCapacity;
 
-    // Track assigned containers per date
-    private final Map<LocalDate, Integer> assignedContainersByDate = new HashMap<>();
+    // Hosted plants, each with its own ledger of containers assigned and reserved per date
+    private final PlantRegistry plants;
+
+    // Pushes every capacity change to the stream subscribers
+    private final CapacityFeed capacityFeed;
 
     public PlantService(
             @Value("${plant.id:PLASSB-01}") String plantId,
-            @Value("${plant.capacity:85.0}") Double plantCapacity) {
+            @Value("${plant.capacity:85.0}") Double plantCapacity,
+            @Value("${plant.reservation-ttl:10m}") Duration reservationTtl,
+            @Value("${plants.hosted:}") List<String> hostedPlants,
+            @Value("${plants.segments:64}") int segments,
+            CapacityFeed capacityFeed) {
         this.plantId = plantId;
-        this.plantCapacity = plantCapacity;
+        this.capacityFeed = capacityFeed;
+        this.plants = new PlantRegistry(segments, reservationTtl, capacityFeed);
+        plants.register(plantId, plantCapacity);
+        // Additional plants as <plantId>=<capacity in tons>
+        for (String hosted : hostedPlants) {
+            int separator = hosted.indexOf('=');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("Invalid hosted plant, expected <plantId>=<capacity>: " + hosted);
+            }
+            registerPlant(hosted.substring(0, separator).strip(), Double.parseDouble(hosted.substring(separator + 1).strip()));
+        }
     }
 
     public Plant getPlant() {
-        // Each plant server represents only one plant
-        return new Plant(plantId, plantCapacity);
+        return getPlant(plantId);
+    }
+
+    /**
+     * Returns the hosted plant, or null if this server does not host it.
+     */
+    public Plant getPlant(String plantId) {
+        PlantRegistry.HostedPlant hosted = plants.get(plantId);
+        return hosted != null ? new Plant(hosted.plant().getId(), hosted.plant().getCapacity()) : null;
+    }
+
+    public boolean hostsPlant(String plantId) {
+        return plants.get(plantId) != null;
+    }
+
+    /**
+     * Starts hosting a plant. Returns false if it is already hosted.
+     */
+    public boolean registerPlant(String plantId, double capacity) {
+        boolean registered = plants.register(plantId, capacity);
+        if (registered) {
+            log.info("Hosting plant {} with base capacity {} tons", plantId, capacity);
+        }
+        return registered;
+    }
+
+    /**
+     * Streams capacity changes of the given plants, or of every hosted plant, until the subscription is cancelled.
+     */
+    public CapacityFeed.Subscription subscribeToCapacityChanges(Collection<String> plantIds, CapacityFeed.Sink sink) {
+        return capacityFeed.subscribe(plantIds, sink);
     }
 
     public Double getCapacity() {
@@ -34,24 +91,137 @@ public class PlantService {
     }
 
     public Double getCapacity(LocalDate date) {
-        // Calculate remaining capacity based on assigned containers for the date
-        int assignedContainers = assignedContainersByDate.getOrDefault(date, 0);
-        // Assume 1000 containers = 1 ton (adjust ratio as needed)
-        double usedCapacity = assignedContainers / 1000.0;
-        double availableCapacity = plantCapacity - usedCapacity;
-        return Math.max(0.0, availableCapacity); // Never return negative capacity
+        return getCapacity(plantId, date);
+    }
+
+    public Double getCapacity(String plantId, LocalDate date) {
+        // Remaining capacity based on containers assigned or reserved for the date
+        return ledger(plantId).available(date);
+    }
+
+    /**
+     * Version of the date's ledger entry; it changes whenever containers are reserved, released or applied.
+     */
+    public long getCapacityVersion(LocalDate date) {
+        return getCapacityVersion(plantId, date);
+    }
+
+    public long getCapacityVersion(String plantId, LocalDate date) {
+        return ledger(plantId).version(date);
+    }
+
+    /**
+     * Capacity and version of several hosted plants for one date, ordered by plant ID. Unknown plants are skipped;
+     * with no IDs every hosted plant is returned.
+     */
+    public List<PlantCapacityDTO> getCapacities(Collection<String> plantIds, LocalDate date) {
+        List<PlantCapacityDTO> capacities = new ArrayList<>();
+        if (plantIds == null || plantIds.isEmpty()) {
+            for (PlantRegistry.HostedPlant hosted : plants.all()) {
+                capacities.add(capacityOf(hosted, date));
+            }
+            return capacities;
+        }
+        for (String id : new TreeSet<>(plantIds)) {
+            PlantRegistry.HostedPlant hosted = plants.get(id);
+            if (hosted != null) {
+                capacities.add(capacityOf(hosted, date));
+            }
+        }
+        return capacities;
+    }
+
+    private static PlantCapacityDTO capacityOf(PlantRegistry.HostedPlant hosted, LocalDate date) {
+        // Version first: a capacity read after it is never older than the version reported
+        long version = hosted.ledger().version(date);
+        return new PlantCapacityDTO(hosted.plant().getId(), hosted.ledger().available(date), version);
     }
 
     public String getPlantId() {
         return plantId;
     }
 
-    public void addIncomingDumpsters(int totalContainers, LocalDate arrivalDate) {
+    public ReservationDTO reserveCapacity(LocalDate arrivalDate, int totalContainers, Long expectedVersion) {
+        return reserveCapacity(plantId, arrivalDate, totalContainers, expectedVersion);
+    }
+
+    /**
+     * Reserves capacity for incoming containers. Fails with a conflict if they no longer fit, or if
+     * {@code expectedVersion} is given and the ledger changed since the caller read it.
+     */
+    public ReservationDTO reserveCapacity(String plantId, LocalDate arrivalDate, int totalContainers, Long expectedVersion) {
+        LocalDate date = arrivalDate != null ? arrivalDate : LocalDate.now();
+        CapacityLedger.Outcome outcome = ledger(plantId).reserve(date, totalContainers, expectedVersion);
+        if (outcome.reserved()) {
+            log.info("Reserved {} containers at {} for {} as {} (available {} tons)",
+                    totalContainers, plantId, date, outcome.reservationId(), outcome.available());
+        } else {
+            log.info("Reservation conflict: {} containers at {} for {} (version {}, available {} tons)",
+                    totalContainers, plantId, date, outcome.version(), outcome.available());
+        }
+        return new ReservationDTO(outcome.reserved(), outcome.reservationId(), plantId, date, outcome.version(), outcome.available());
+    }
+
+    public boolean releaseReservation(String reservationId) {
+        return releaseReservation(plantId, reservationId);
+    }
+
+    /**
+     * Releases an unconfirmed reservation. Returns false if it is unknown, already confirmed or expired.
+     */
+    public boolean releaseReservation(String plantId, String reservationId) {
+        return ledger(plantId).release(reservationId);
+    }
+
+    public boolean addIncomingDumpsters(int totalContainers, LocalDate arrivalDate, String idempotencyKey) {
+        return addIncomingDumpsters(plantId, totalContainers, arrivalDate, idempotencyKey);
+    }
+
+    /**
+     * Applies a notification once per idempotency key. A key matching a pending reservation confirms it.
+     * Returns false if the key was already applied.
+     */
+    public boolean addIncomingDumpsters(String plantId, int totalContainers, LocalDate arrivalDate, String idempotencyKey) {
+        CapacityLedger ledger = ledger(plantId);
         LocalDate date = arrivalDate != null ? arrivalDate : LocalDate.now();
-        int currentAssigned = assignedContainersByDate.getOrDefault(date, 0);
-        assignedContainersByDate.put(date, currentAssigned + totalContainers);
-        System.out.println("Added " + totalContainers + " containers for date " + date);
-        System.out.println("Total assigned for " + date + ": " + assignedContainersByDate.get(date));
-        System.out.println("Available capacity for " + date + ": " + getCapacity(date) + " tons");
+        if (!ledger.apply(totalContainers, date, idempotencyKey)) {
+            log.debug("Ignoring duplicate notification {}", idempotencyKey);
+            return false;
+        }
+        if (log.isInfoEnabled()) {
+            log.info("Added {} containers to {} for {} (total assigned {}, available {} tons)",
+                    totalContainers, plantId, date, ledger.assignedContainers(date), ledger.available(date));
+        }
+        return true;
+    }
+
+    public int addIncomingDumpsterBatch(LocalDate arrivalDate, List<DumpsterBatchNotificationDTO.Entry> entries) {
+        return addIncomingDumpsterBatch(plantId, arrivalDate, entries);
+    }
+
+    /**
+     * Applies a batch of notifications for one arrival date.
+     * Entries whose idempotency key was already applied are skipped. Returns how many entries were applied.
+     */
+    public int addIncomingDumpsterBatch(String plantId, LocalDate arrivalDate, List<DumpsterBatchNotificationDTO.Entry> entries) {
+        int applied = 0;
+        for (DumpsterBatchNotificationDTO.Entry entry : entries) {
+            if (addIncomingDumpsters(plantId, entry.totalContainers(), arrivalDate, entry.idempotencyKey())) {
+                applied++;
+            }
+        }
+        return applied;
+    }
+
+    public void addIncomingDumpsters(int totalContainers, LocalDate arrivalDate) {
+        addIncomingDumpsters(totalContainers, arrivalDate, null);
+    }
+
+    private CapacityLedger ledger(String plantId) {
+        PlantRegistry.HostedPlant hosted = plants.get(plantId);
+        if (hosted == null) {
+            throw new NoSuchElementException("Plant " + plantId + " is not hosted here");
+        }
+        return hosted.ledger();
     }
 }
@@ -1,8 +1,11 @@
 package com.ecoembes.fass.plasb;
 
 import com.ecoembes.fass.plasb.controller.PlantController;
+import com.ecoembes.fass.plasb.dto.DumpsterBatchNotificationDTO;
 import com.ecoembes.fass.plasb.dto.DumpsterNotificationDTO;
 import com.ecoembes.fass.plasb.dto.PlantCapacityDTO;
+import com.ecoembes.fass.plasb.dto.ReservationDTO;
+import com.ecoembes.fass.plasb.dto.ReservationRequestDTO;
 import com.ecoembes.fass.plasb.service.PlantService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.*;
@@ -15,7 +18,14 @@ import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.hamcrest.Matchers.*;
 import static org.junit.jupiter.api.Assertions.*;
@@ -452,7 +462,7 @@ class PlantServerComprehensiveTest {
             testDate
         );
 
-        ResponseEntity<String> notifyResponse = plantController.notifyIncomingDumpsters(notification);
+        ResponseEntity<String> notifyResponse = plantController.notifyIncomingDumpsters(null, notification);
 
         assertEquals(200, notifyResponse.getStatusCodeValue());
         assertNotNull(notifyResponse.getBody());
@@ -462,7 +472,304 @@ class PlantServerComprehensiveTest {
         System.out.println("✓ Controller layer works correctly");
     }
 
-    // Helper method
+    @Test
+    @Order(11)
+    @DisplayName("11. Redelivered notification with same idempotency key - applied once")
+    void test11_duplicateNotificationAppliedOnce() throws Exception {
+        System.out.println("\n========== TEST 11: DUPLICATE NOTIFICATION ==========");
+
+        LocalDate testDate = today.plusDays(60);
+        double capacityBefore = getCapacityForDate(testDate);
+
+        DumpsterNotificationDTO notification = new DumpsterNotificationDTO(
+            "PLASSB-01",
+            List.of("D-DUP-1"),
+            3000,
+            testDate
+        );
+
+        for (int i = 0; i < 2; i++) {
+            mockMvc.perform(post("/api/plants/notify")
+                            .header("Idempotency-Key", "6f1c2a9e-0000-4000-8000-000000000011")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(notification)))
+                    .andExpect(status().isOk());
+        }
+
+        double capacityAfter = getCapacityForDate(testDate);
+        System.out.println("Before: " + capacityBefore + " tons, after two deliveries: " + capacityAfter + " tons");
+
+        assertEquals(3.0, capacityBefore - capacityAfter, 0.001,
+                "A redelivered notification must not reduce capacity twice");
+
+        System.out.println("✓ Duplicate notification ignored");
+    }
+
+    @Test
+    @Order(12)
+    @DisplayName("12. Batch notification - entries applied once each")
+    void test12_batchNotification() throws Exception {
+        System.out.println("\n========== TEST 12: BATCH NOTIFICATION ==========");
+
+        LocalDate testDate = today.plusDays(61);
+        double capacityBefore = getCapacityForDate(testDate);
+
+        DumpsterBatchNotificationDTO batch = new DumpsterBatchNotificationDTO(
+            "PLASSB-01",
+            testDate,
+            List.of(
+                new DumpsterBatchNotificationDTO.Entry("6f1c2a9e-0000-4000-8000-000000000121", List.of("D-B-1"), 1000),
+                new DumpsterBatchNotificationDTO.Entry("6f1c2a9e-0000-4000-8000-000000000122", List.of("D-B-2", "D-B-3"), 2000)
+            )
+        );
+
+        for (int i = 0; i < 2; i++) {
+            mockMvc.perform(post("/api/plants/notify/batch")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(batch)))
+                    .andExpect(status().isOk());
+        }
+
+        double capacityAfter = getCapacityForDate(testDate);
+        System.out.println("Before: " + capacityBefore + " tons, after two batch deliveries: " + capacityAfter + " tons");
+
+        assertEquals(3.0, capacityBefore - capacityAfter, 0.001,
+                "Each batch entry must reduce capacity exactly once");
+
+        System.out.println("✓ Batch notification applied once");
+    }
+
+    @Test
+    @Order(13)
+    @DisplayName("13. Reservation - reserved capacity is confirmed by its notification, stale versions conflict")
+    void test13_reservationProtocol() throws Exception {
+        System.out.println("\n========== TEST 13: RESERVATION PROTOCOL ==========");
+
+        LocalDate testDate = today.plusDays(62);
+        double capacityBefore = getCapacityForDate(testDate);
+        long versionBefore = plantService.getCapacityVersion(testDate);
+
+        MvcResult reserved = mockMvc.perform(post("/api/plants/reservations")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new ReservationRequestDTO(testDate, 4000, versionBefore))))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.reserved").value(true))
+                .andExpect(jsonPath("$.version").value(versionBefore + 1))
+                .andReturn();
+        ReservationDTO reservation = objectMapper.readValue(reserved.getResponse().getContentAsString(), ReservationDTO.class);
+        assertEquals(4.0, capacityBefore - getCapacityForDate(testDate), 0.001, "Reserved capacity is held at once");
+
+        // A planner that read the old version loses the race
+        mockMvc.perform(post("/api/plants/reservations")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new ReservationRequestDTO(testDate, 1000, versionBefore))))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.reserved").value(false))
+                .andExpect(jsonPath("$.version").value(versionBefore + 1));
+
+        // The notification carrying the reservation ID confirms it without counting the containers again
+        mockMvc.perform(post("/api/plants/notify")
+                        .header("Idempotency-Key", reservation.reservationId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new DumpsterNotificationDTO("PLASSB-01", List.of("D-R-1"), 4000, testDate))))
+                .andExpect(status().isOk());
+        assertEquals(4.0, capacityBefore - getCapacityForDate(testDate), 0.001, "Confirmation must not count twice");
+
+        // A confirmed reservation can no longer be released
+        mockMvc.perform(delete("/api/plants/reservations/" + reservation.reservationId()))
+                .andExpect(status().isNotFound());
+
+        // An unconfirmed one gives its capacity back
+        ReservationDTO second = plantService.reserveCapacity(testDate, 2000, null);
+        assertTrue(second.reserved());
+        mockMvc.perform(delete("/api/plants/reservations/" + second.reservationId()))
+                .andExpect(status().isNoContent());
+        assertEquals(4.0, capacityBefore - getCapacityForDate(testDate), 0.001, "Released capacity is available again");
+
+        System.out.println("✓ Reserve, confirm, conflict and release behave as expected");
+    }
+
+    @Test
+    @Order(14)
+    @DisplayName("14. Concurrent planners racing on one date - never overbooked")
+    void test14_concurrentReservationsNeverOverbook() throws Exception {
+        System.out.println("\n========== TEST 14: CONCURRENT RESERVATIONS ==========");
+
+        LocalDate testDate = today.plusDays(63);
+        int planners = 64;
+        int containersPerPlanner = 10_000; // 10 tons each, so only 8 fit into 85 tons
+
+        ExecutorService pool = Executors.newFixedThreadPool(16);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger reservedCount = new AtomicInteger();
+        AtomicInteger conflictCount = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < planners; i++) {
+            futures.add(pool.submit(() -> {
+                start.await();
+                // Optimistic planners: read the version, then reserve against it, retrying on a stale read
+                while (true) {
+                    long version = plantService.getCapacityVersion(testDate);
+                    ReservationDTO result = plantService.reserveCapacity(testDate, containersPerPlanner, version);
+                    if (result.reserved()) {
+                        reservedCount.incrementAndGet();
+                        return null;
+                    }
+                    if (result.capacity() * 1000 < containersPerPlanner) {
+                        conflictCount.incrementAndGet();
+                        return null;
+                    }
+                }
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+
+        double capacityAfter = getCapacityForDate(testDate);
+        System.out.println("Reserved: " + reservedCount.get() + ", conflicts: " + conflictCount.get()
+                + ", capacity left: " + capacityAfter + " tons");
+
+        assertEquals(8, reservedCount.get(), "Exactly as many planners as fit must succeed");
+        assertEquals(planners - 8, conflictCount.get(), "Every other planner must get a conflict");
+        assertEquals(5.0, capacityAfter, 0.001);
+        assertEquals(8, plantService.getCapacityVersion(testDate), "One version per successful reservation");
+
+        System.out.println("✓ No overbooking under contention");
+    }
+
+    @Test
+    @Order(15)
+    @DisplayName("15. Multiple plants - per-plant endpoints, bulk capacities and registration")
+    void test15_multiplePlants() throws Exception {
+        System.out.println("\n========== TEST 15: MULTIPLE PLANTS ==========");
+
+        LocalDate testDate = today.plusDays(64);
+
+        mockMvc.perform(get("/api/plants/PLASSB-02/capacity").param("date", testDate.toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value("PLASSB-02"))
+                .andExpect(jsonPath("$.capacity").value(70.0));
+
+        mockMvc.perform(post("/api/plants/PLASSB-02/notify")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new DumpsterNotificationDTO("PLASSB-02", List.of("D-M-1"), 5000, testDate))))
+                .andExpect(status().isOk());
+        mockMvc.perform(post("/api/plants/PLASSB-03/reservations")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new ReservationRequestDTO(testDate, 10_000, null))))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.plantId").value("PLASSB-03"));
+
+        assertEquals(baseCapacity, getCapacityForDate(testDate), 0.001, "Other plants are not affected");
+
+        // Newly registered plants are served right away
+        mockMvc.perform(put("/api/plants/PLASSB-99")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"capacity\": 12.5}"))
+                .andExpect(status().isCreated());
+        mockMvc.perform(put("/api/plants/PLASSB-99")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"capacity\": 12.5}"))
+                .andExpect(status().isConflict());
+
+        mockMvc.perform(get("/api/plants/capacities")
+                        .param("ids", "PLASSB-03", "PLASSB-02", "PLASSB-99", "UNKNOWN")
+                        .param("date", testDate.toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(3)))
+                .andExpect(jsonPath("$[0].id").value("PLASSB-02"))
+                .andExpect(jsonPath("$[0].capacity").value(65.0))
+                .andExpect(jsonPath("$[1].capacity").value(50.0))
+                .andExpect(jsonPath("$[2].capacity").value(12.5));
+
+        mockMvc.perform(get("/api/plants/capacities").param("date", testDate.toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].id", hasItems("PLASSB-01", "PLASSB-02", "PLASSB-03", "PLASSB-99")));
+
+        mockMvc.perform(get("/api/plants/UNKNOWN/capacity"))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(post("/api/plants/UNKNOWN/reservations")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new ReservationRequestDTO(testDate, 1000, null))))
+                .andExpect(status().isNotFound());
+
+        System.out.println("✓ One server hosts several isolated plants");
+    }
+
+    @Test
+    @Order(16)
+    @DisplayName("16. Capacity stream - changes are pushed to subscribers of the plant")
+    void test16_capacityStream() throws Exception {
+        System.out.println("\n========== TEST 16: CAPACITY STREAM ==========");
+
+        LocalDate testDate = today.plusDays(66);
+
+        MvcResult stream = mockMvc.perform(get("/api/plants/capacity/stream").param("ids", "PLASSB-02"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(post("/api/plants/PLASSB-03/notify")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new DumpsterNotificationDTO("PLASSB-03", List.of("D-S-1"), 1000, testDate))))
+                .andExpect(status().isOk());
+        mockMvc.perform(post("/api/plants/PLASSB-02/notify")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new DumpsterNotificationDTO("PLASSB-02", List.of("D-S-2"), 2500, testDate))))
+                .andExpect(status().isOk());
+
+        String events = awaitStreamContent(stream, "\"plantId\":\"PLASSB-02\"");
+        System.out.println("Stream: " + events.strip());
+        assertTrue(stream.getResponse().getContentType().startsWith(MediaType.TEXT_EVENT_STREAM_VALUE));
+        assertTrue(events.contains("event:capacity"), "Changes are sent as capacity events");
+        assertTrue(events.contains("\"date\":\"" + testDate + "\""));
+        assertTrue(events.contains("\"capacity\":67.5"), "The event carries the capacity left after the change");
+        assertTrue(events.contains("\"version\":1"));
+        assertFalse(events.contains("PLASSB-03"), "Plants not subscribed to are filtered out");
+
+        System.out.println("✓ Capacity changes are pushed without polling");
+    }
+
+    @Test
+    @Order(17)
+    @DisplayName("17. Reservation - missing, zero and negative container counts are rejected")
+    void test17_reservationRejectsNonPositiveContainers() throws Exception {
+        System.out.println("\n========== TEST 17: INVALID RESERVATIONS ==========");
+
+        LocalDate testDate = today.plusDays(67);
+        double capacityBefore = getCapacityForDate(testDate);
+        long versionBefore = plantService.getCapacityVersion(testDate);
+
+        for (String body : List.of(
+                objectMapper.writeValueAsString(new ReservationRequestDTO(testDate, -100_000, null)),
+                objectMapper.writeValueAsString(new ReservationRequestDTO(testDate, 0, null)),
+                "{\"arrivalDate\": \"" + testDate + "\"}")) {
+            mockMvc.perform(post("/api/plants/reservations")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(body))
+                    .andExpect(status().isBadRequest());
+        }
+        assertThrows(IllegalArgumentException.class, () -> plantService.reserveCapacity(testDate, -1, null));
+
+        assertEquals(capacityBefore, getCapacityForDate(testDate), 0.001, "Rejected reservations must not add capacity");
+        assertEquals(versionBefore, plantService.getCapacityVersion(testDate));
+
+        System.out.println("✓ Only positive container counts can be reserved");
+    }
+
+    // Helper methods
+    private String awaitStreamContent(MvcResult stream, String expected) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        String content = stream.getResponse().getContentAsString();
+        while (!content.contains(expected) && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+            content = stream.getResponse().getContentAsString();
+        }
+        return content;
+    }
+
     private double getCapacityForDate(LocalDate date) throws Exception {
         MvcResult result = mockMvc.perform(get("/api/plants/capacity")
                         .param("date", date.toString()))
@@ -1,10 +1,14 @@
 package com.ecoembes.webclient.controller;
 
 import com.ecoembes.webclient.model.Model;
-import com.ecoembes.webclient.proxy.IServiceProxy;
+import com.ecoembes.webclient.proxy.IReactiveServiceProxy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.aop.scope.ScopedObject;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.ModelMap;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
 
 import java.time.LocalDate;
 import java.util.HashMap;
@@ -14,14 +18,18 @@ import java.util.Map;
 /**
  * Web Client Controller - handles HTTP requests from the browser
  * and delegates business logic to the Service Proxy.
+ * Backend calls are composed as {@link Mono}s so no servlet thread waits on them;
+ * session state is read on the request thread before the pipeline is built.
  */
 @Controller
 public class WebClientController {
 
-    private final IServiceProxy serviceProxy;
+    private static final Logger log = LoggerFactory.getLogger(WebClientController.class);
+
+    private final IReactiveServiceProxy serviceProxy;
     private final Model sessionModel;
 
-    public WebClientController(IServiceProxy serviceProxy, Model sessionModel) {
+    public WebClientController(IReactiveServiceProxy serviceProxy, Model sessionModel) {
         this.serviceProxy = serviceProxy;
         this.sessionModel = sessionModel;
     }
@@ -42,44 +50,46 @@ public class WebClientController {
     }
 
     @PostMapping("/login")
-    public String login(@RequestParam String email,
-                       @RequestParam String password,
-                       ModelMap model) {
-        try {
-            System.out.println("[CONTROLLER] Login attempt for: " + email);
-            String token = serviceProxy.login(email, password);
-            System.out.println("[CONTROLLER] Token received: " + token);
-
-            if (token == null || token.isEmpty()) {
-                System.err.println("[CONTROLLER] Token is null or empty!");
-                model.addAttribute("error", "Invalid email or password");
-                return "login";
-            }
-
-            sessionModel.setToken(token);
-            sessionModel.setCurrentURL("/home");
-            System.out.println("[CONTROLLER] Login successful, redirecting to /home");
-            return "redirect:/home";
-        } catch (Exception e) {
-            System.err.println("[CONTROLLER] Login failed with exception: " + e.getMessage());
-            e.printStackTrace();
-            model.addAttribute("error", "Invalid email or password: " + e.getMessage());
-            return "login";
-        }
+    public Mono<String> login(@RequestParam String email,
+                              @RequestParam String password,
+                              ModelMap model) {
+        // The session-scoped proxy only resolves on the request thread, so capture the session's instance now
+        Model session = (Model) ((ScopedObject) sessionModel).getTargetObject();
+        return serviceProxy.login(email, password)
+                .filter(token -> !token.isEmpty())
+                .map(token -> {
+                    session.setToken(token);
+                    session.setCurrentURL("/home");
+                    log.debug("Login successful for {}, redirecting to /home", email);
+                    return "redirect:/home";
+                })
+                .switchIfEmpty(Mono.fromSupplier(() -> {
+                    log.warn("Login for {} returned no token", email);
+                    model.addAttribute("error", "Invalid email or password");
+                    return "login";
+                }))
+                .onErrorResume(e -> {
+                    log.warn("Login failed for {}", email, e);
+                    model.addAttribute("error", "Invalid email or password: " + e.getMessage());
+                    return Mono.just("login");
+                });
     }
 
     @GetMapping("/logout")
-    public String logout() {
-        try {
-            if (sessionModel.isAuthenticated()) {
-                serviceProxy.logout(sessionModel.getToken());
-            }
-        } catch (Exception e) {
-            // Log error but continue with logout
-        }
+    public Mono<String> logout() {
+        String token = sessionModel.getToken();
+        boolean authenticated = sessionModel.isAuthenticated();
         sessionModel.setToken(null);
         sessionModel.setCurrentURL(null);
-        return "redirect:/login";
+        if (!authenticated) {
+            return Mono.just("redirect:/login");
+        }
+        return serviceProxy.logout(token)
+                .onErrorResume(e -> {
+                    log.debug("Backend logout failed, clearing local session anyway: {}", e.getMessage());
+                    return Mono.empty();
+                })
+                .thenReturn("redirect:/login");
     }
 
     // ========== Home ==========
@@ -105,26 +115,27 @@ public class WebClientController {
     }
 
     @PostMapping("/dumpsters/create")
-    public String createDumpster(@RequestParam String location,
-                                 @RequestParam Double initialCapacity,
-                                 ModelMap model) {
+    public Mono<String> createDumpster(@RequestParam String location,
+                                       @RequestParam Double initialCapacity,
+                                       ModelMap model) {
         if (!sessionModel.isAuthenticated()) {
-            return "redirect:/login";
+            return Mono.just("redirect:/login");
         }
 
-        try {
-            Map<String, Object> dumpsterData = new HashMap<>();
-            dumpsterData.put("location", location);
-            dumpsterData.put("initialCapacity", initialCapacity);
-
-            Map<String, Object> result = serviceProxy.createDumpster(sessionModel.getToken(), dumpsterData);
-            model.addAttribute("success", "Dumpster created successfully!");
-            model.addAttribute("dumpster", result);
-            return "dumpsters/create-success";
-        } catch (Exception e) {
-            model.addAttribute("error", "Failed to create dumpster: " + e.getMessage());
-            return "dumpsters/create";
-        }
+        Map<String, Object> dumpsterData = new HashMap<>();
+        dumpsterData.put("location", location);
+        dumpsterData.put("initialCapacity", initialCapacity);
+
+        return serviceProxy.createDumpster(sessionModel.getToken(), dumpsterData)
+                .map(result -> {
+                    model.addAttribute("success", "Dumpster created successfully!");
+                    model.addAttribute("dumpster", result);
+                    return "dumpsters/create-success";
+                })
+                .onErrorResume(e -> {
+                    model.addAttribute("error", "Failed to create dumpster: " + e.getMessage());
+                    return Mono.just("dumpsters/create");
+                });
     }
 
     @GetMapping("/dumpsters/query")
@@ -137,25 +148,25 @@ public class WebClientController {
     }
 
     @PostMapping("/dumpsters/query")
-    public String queryDumpsters(@RequestParam String startDate,
-                                 @RequestParam String endDate,
-                                 ModelMap model) {
+    public Mono<String> queryDumpsters(@RequestParam String startDate,
+                                       @RequestParam String endDate,
+                                       ModelMap model) {
         if (!sessionModel.isAuthenticated()) {
-            return "redirect:/login";
+            return Mono.just("redirect:/login");
         }
 
-        try {
-            LocalDate start = LocalDate.parse(startDate);
-            LocalDate end = LocalDate.parse(endDate);
-            List<Map<String, Object>> usage = serviceProxy.queryDumpsterUsage(sessionModel.getToken(), start, end);
-            model.addAttribute("usageData", usage);
-            model.addAttribute("startDate", startDate);
-            model.addAttribute("endDate", endDate);
-            return "dumpsters/query-results";
-        } catch (Exception e) {
-            model.addAttribute("error", "Failed to query dumpsters: " + e.getMessage());
-            return "dumpsters/query";
-        }
+        String token = sessionModel.getToken();
+        return Mono.defer(() -> serviceProxy.queryDumpsterUsage(token, LocalDate.parse(startDate), LocalDate.parse(endDate)))
+                .map(usage -> {
+                    model.addAttribute("usageData", usage);
+                    model.addAttribute("startDate", startDate);
+                    model.addAttribute("endDate", endDate);
+                    return "dumpsters/query-results";
+                })
+                .onErrorResume(e -> {
+                    model.addAttribute("error", "Failed to query dumpsters: " + e.getMessage());
+                    return Mono.just("dumpsters/query");
+                });
     }
 
     @GetMapping("/dumpsters/status")
@@ -168,136 +179,122 @@ public class WebClientController {
     }
 
     @PostMapping("/dumpsters/status")
-    public String dumpsterStatus(@RequestParam String postalCode,
-                                 @RequestParam String date,
-                                 ModelMap model) {
+    public Mono<String> dumpsterStatus(@RequestParam String postalCode,
+                                       @RequestParam String date,
+                                       ModelMap model) {
         if (!sessionModel.isAuthenticated()) {
-            return "redirect:/login";
+            return Mono.just("redirect:/login");
         }
 
-        try {
-            LocalDate queryDate = LocalDate.parse(date);
-            List<Map<String, Object>> status = serviceProxy.getDumpsterStatus(
-                    sessionModel.getToken(), postalCode, queryDate);
-            model.addAttribute("statusData", status);
-            model.addAttribute("postalCode", postalCode);
-            model.addAttribute("date", date);
-            return "dumpsters/status-results";
-        } catch (Exception e) {
-            model.addAttribute("error", "Failed to get dumpster status: " + e.getMessage());
-            return "dumpsters/status";
-        }
+        String token = sessionModel.getToken();
+        return Mono.defer(() -> serviceProxy.getDumpsterStatus(token, postalCode, LocalDate.parse(date)))
+                .map(status -> {
+                    model.addAttribute("statusData", status);
+                    model.addAttribute("postalCode", postalCode);
+                    model.addAttribute("date", date);
+                    return "dumpsters/status-results";
+                })
+                .onErrorResume(e -> {
+                    model.addAttribute("error", "Failed to get dumpster status: " + e.getMessage());
+                    return Mono.just("dumpsters/status");
+                });
     }
 
     // ========== Plants ==========
 
     @GetMapping("/plants")
-    public String plantsPage(ModelMap model) {
-        if (!sessionModel.isAuthenticated()) {
-            return "redirect:/login";
-        }
-
-        try {
-            List<Map<String, Object>> plants = serviceProxy.getAllPlants(sessionModel.getToken());
-            model.addAttribute("plants", plants);
-            sessionModel.setCurrentURL("/plants");
-            return "plants/list";
-        } catch (Exception e) {
-            model.addAttribute("error", "Failed to load plants: " + e.getMessage());
-            return "plants/list";
-        }
+    public Mono<String> plantsPage(ModelMap model) {
+        return plantListPage("/plants", "plants/list", model);
     }
 
     @GetMapping("/plants/capacity")
-    public String plantCapacityPage(ModelMap model) {
-        if (!sessionModel.isAuthenticated()) {
-            return "redirect:/login";
-        }
-
-        try {
-            List<Map<String, Object>> plants = serviceProxy.getAllPlants(sessionModel.getToken());
-            model.addAttribute("plants", plants);
-            sessionModel.setCurrentURL("/plants/capacity");
-            return "plants/capacity";
-        } catch (Exception e) {
-            model.addAttribute("error", "Failed to load plants: " + e.getMessage());
-            return "plants/capacity";
-        }
+    public Mono<String> plantCapacityPage(ModelMap model) {
+        return plantListPage("/plants/capacity", "plants/capacity", model);
     }
 
     @PostMapping("/plants/capacity")
-    public String plantCapacity(@RequestParam String date,
-                                @RequestParam(required = false) String plantId,
-                                ModelMap model) {
+    public Mono<String> plantCapacity(@RequestParam String date,
+                                      @RequestParam(required = false) String plantId,
+                                      ModelMap model) {
         if (!sessionModel.isAuthenticated()) {
-            return "redirect:/login";
+            return Mono.just("redirect:/login");
         }
 
-        try {
-            LocalDate queryDate = LocalDate.parse(date);
-            List<Map<String, Object>> capacities = serviceProxy.getPlantCapacity(
-                    sessionModel.getToken(), queryDate, plantId);
-            model.addAttribute("capacities", capacities);
-            model.addAttribute("date", date);
-            model.addAttribute("plantId", plantId);
-            return "plants/capacity-results";
-        } catch (Exception e) {
-            model.addAttribute("error", "Failed to check plant capacity: " + e.getMessage());
-            return "plants/capacity";
-        }
+        String token = sessionModel.getToken();
+        return Mono.defer(() -> serviceProxy.getPlantCapacity(token, LocalDate.parse(date), plantId))
+                .map(capacities -> {
+                    model.addAttribute("capacities", capacities);
+                    model.addAttribute("date", date);
+                    model.addAttribute("plantId", plantId);
+                    return "plants/capacity-results";
+                })
+                .onErrorResume(e -> {
+                    model.addAttribute("error", "Failed to check plant capacity: " + e.getMessage());
+                    return Mono.just("plants/capacity");
+                });
     }
 
     // ========== Assignments ==========
 
     @GetMapping("/assignments/create")
-    public String createAssignmentPage(ModelMap model) {
+    public Mono<String> createAssignmentPage(ModelMap model) {
+        return plantListPage("/assignments/create", "assignments/create", model);
+    }
+
+    @PostMapping("/assignments/create")
+    public Mono<String> createAssignment(@RequestParam String plantId,
+                                         @RequestParam String dumpsterIds,
+                                         @RequestParam String date,
+                                         ModelMap model) {
         if (!sessionModel.isAuthenticated()) {
-            return "redirect:/login";
+            return Mono.just("redirect:/login");
         }
 
-        try {
-            List<Map<String, Object>> plants = serviceProxy.getAllPlants(sessionModel.getToken());
-            model.addAttribute("plants", plants);
-            sessionModel.setCurrentURL("/assignments/create");
-            return "assignments/create";
-        } catch (Exception e) {
-            model.addAttribute("error", "Failed to load plants: " + e.getMessage());
-            return "assignments/create";
-        }
+        // Split and trim dumpster IDs
+        List<String> dumpsterIdList = List.of(dumpsterIds.split(","))
+                .stream()
+                .map(String::trim)
+                .toList();
+
+        Map<String, Object> assignmentData = new HashMap<>();
+        assignmentData.put("plantID", plantId);  // Note: plantID not plantId
+        assignmentData.put("dumpsterIDs", dumpsterIdList);  // Note: dumpsterIDs not dumpsterIds
+        assignmentData.put("date", date);
+
+        String token = sessionModel.getToken();
+        return serviceProxy.assignDumpstersToPlant(token, assignmentData)
+                .map(result -> {
+                    model.addAttribute("success", "Assignment created successfully!");
+                    model.addAttribute("assignment", result);
+                    return "assignments/create-success";
+                })
+                .onErrorResume(e -> {
+                    model.addAttribute("error", "Failed to create assignment: " + e.getMessage());
+                    // Reload the plant list for the form without parking a thread on it
+                    return serviceProxy.getAllPlants(token)
+                            .doOnNext(plants -> model.addAttribute("plants", plants))
+                            .onErrorResume(ignored -> Mono.empty())
+                            .thenReturn("assignments/create");
+                });
     }
 
-    @PostMapping("/assignments/create")
-    public String createAssignment(@RequestParam String plantId,
-                                   @RequestParam String dumpsterIds,
-                                   @RequestParam String date,
-                                   ModelMap model) {
+    /**
+     * Renders a page whose only backend data is the plant list.
+     */
+    private Mono<String> plantListPage(String url, String view, ModelMap model) {
         if (!sessionModel.isAuthenticated()) {
-            return "redirect:/login";
+            return Mono.just("redirect:/login");
         }
 
-        try {
-            // Split and trim dumpster IDs
-            List<String> dumpsterIdList = List.of(dumpsterIds.split(","))
-                    .stream()
-                    .map(String::trim)
-                    .toList();
-
-            Map<String, Object> assignmentData = new HashMap<>();
-            assignmentData.put("plantID", plantId);  // Note: plantID not plantId
-            assignmentData.put("dumpsterIDs", dumpsterIdList);  // Note: dumpsterIDs not dumpsterIds
-            assignmentData.put("date", date);
-
-            Map<String, Object> result = serviceProxy.assignDumpstersToPlant(
-                    sessionModel.getToken(), assignmentData);
-            model.addAttribute("success", "Assignment created successfully!");
-            model.addAttribute("assignment", result);
-            return "assignments/create-success";
-        } catch (Exception e) {
-            model.addAttribute("error", "Failed to create assignment: " + e.getMessage());
-            List<Map<String, Object>> plants = serviceProxy.getAllPlants(sessionModel.getToken());
-            model.addAttribute("plants", plants);
-            return "assignments/create";
-        }
+        sessionModel.setCurrentURL(url);
+        return serviceProxy.getAllPlants(sessionModel.getToken())
+                .map(plants -> {
+                    model.addAttribute("plants", plants);
+                    return view;
+                })
+                .onErrorResume(e -> {
+                    model.addAttribute("error", "Failed to load plants: " + e.getMessage());
+                    return Mono.just(view);
+                });
     }
 }
-
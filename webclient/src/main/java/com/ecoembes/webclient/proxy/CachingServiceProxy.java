@@ -0,0 +1,127 @@
+package com.ecoembes.webclient.proxy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Caching layer in front of {@link ReactiveHTTPServiceProxy} for the plant list and plant capacities.
+ * Entries are scoped to the session token and live for a short TTL. Concurrent identical requests
+ * share one in-flight call, failed calls are never cached, and a token's entries are dropped when
+ * it submits an assignment or logs out.
+ */
+@Primary
+@Component
+public class CachingServiceProxy implements IReactiveServiceProxy {
+
+    private static final Logger log = LoggerFactory.getLogger(CachingServiceProxy.class);
+
+    /** Above this many entries, expired ones are swept on the next insert. */
+    private static final int SWEEP_THRESHOLD = 1024;
+
+    private final IReactiveServiceProxy delegate;
+    private final long ttlNanos;
+    private final Map<Key, Entry> entries = new ConcurrentHashMap<>();
+
+    public CachingServiceProxy(@Qualifier("reactiveHTTPServiceProxy") IReactiveServiceProxy delegate,
+                               @Value("${webclient.cache.ttl:10s}") Duration ttl) {
+        this.delegate = delegate;
+        this.ttlNanos = ttl.toNanos();
+    }
+
+    @Override
+    public Mono<String> login(String email, String password) {
+        return delegate.login(email, password);
+    }
+
+    @Override
+    public Mono<Void> logout(String token) {
+        return delegate.logout(token).doFinally(signal -> invalidate(token));
+    }
+
+    @Override
+    public Mono<Map<String, Object>> createDumpster(String token, Map<String, Object> dumpsterData) {
+        return delegate.createDumpster(token, dumpsterData);
+    }
+
+    @Override
+    public Mono<List<Map<String, Object>>> queryDumpsterUsage(String token, LocalDate startDate, LocalDate endDate) {
+        return delegate.queryDumpsterUsage(token, startDate, endDate);
+    }
+
+    @Override
+    public Mono<List<Map<String, Object>>> getDumpsterStatus(String token, String postalCode, LocalDate date) {
+        return delegate.getDumpsterStatus(token, postalCode, date);
+    }
+
+    @Override
+    public Mono<List<Map<String, Object>>> getAllPlants(String token) {
+        return cached(new Key(token, "plants", null, null), () -> delegate.getAllPlants(token));
+    }
+
+    @Override
+    public Mono<List<Map<String, Object>>> getPlantCapacity(String token, LocalDate date, String plantId) {
+        String plant = plantId == null || plantId.isEmpty() ? null : plantId;
+        return cached(new Key(token, "capacity", date, plant), () -> delegate.getPlantCapacity(token, date, plant));
+    }
+
+    @Override
+    public Mono<Map<String, Object>> assignDumpstersToPlant(String token, Map<String, Object> assignmentData) {
+        // Drop the token's entries whatever the outcome: a failed submit may still have reserved capacity
+        return delegate.assignDumpstersToPlant(token, assignmentData).doFinally(signal -> invalidate(token));
+    }
+
+    /**
+     * Drops every cached entry belonging to the given token.
+     */
+    public void invalidate(String token) {
+        entries.keySet().removeIf(key -> key.token().equals(token));
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> Mono<T> cached(Key key, Supplier<Mono<T>> loader) {
+        return Mono.defer(() -> {
+            long now = System.nanoTime();
+            Entry entry = entries.compute(key, (k, existing) -> {
+                if (existing != null && existing.expiresAt - now > 0) {
+                    return existing;
+                }
+                return new Entry(k, loader.get(), now + ttlNanos);
+            });
+            if (entries.size() > SWEEP_THRESHOLD) {
+                entries.values().removeIf(e -> e.expiresAt - now <= 0);
+            }
+            return (Mono<T>) entry.value;
+        });
+    }
+
+    private record Key(String token, String operation, LocalDate date, String plantId) {
+    }
+
+    private final class Entry {
+        final Mono<?> value;
+        final long expiresAt;
+
+        Entry(Key key, Mono<?> source, long expiresAt) {
+            this.expiresAt = expiresAt;
+            // cache() shares the single upstream subscription between everyone who asks while it is in flight
+            this.value = source
+                    .doOnError(e -> {
+                        log.debug("Not caching failed {} call: {}", key.operation(), e.getMessage());
+                        entries.remove(key, this);
+                    })
+                    .cache();
+        }
+    }
+}
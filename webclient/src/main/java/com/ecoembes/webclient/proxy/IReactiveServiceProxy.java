@@ -0,0 +1,30 @@
+package com.ecoembes.webclient.proxy;
+
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Non-blocking variant of {@link IServiceProxy}.
+ * Every operation returns a lazy {@link Mono}; nothing is sent until it is subscribed.
+ */
+public interface IReactiveServiceProxy {
+
+    // Authentication operations
+    Mono<String> login(String email, String password);
+    Mono<Void> logout(String token);
+
+    // Dumpster operations
+    Mono<Map<String, Object>> createDumpster(String token, Map<String, Object> dumpsterData);
+    Mono<List<Map<String, Object>>> queryDumpsterUsage(String token, LocalDate startDate, LocalDate endDate);
+    Mono<List<Map<String, Object>>> getDumpsterStatus(String token, String postalCode, LocalDate date);
+
+    // Plant operations
+    Mono<List<Map<String, Object>>> getAllPlants(String token);
+    Mono<List<Map<String, Object>>> getPlantCapacity(String token, LocalDate date, String plantId);
+
+    // Assignment operations
+    Mono<Map<String, Object>> assignDumpstersToPlant(String token, Map<String, Object> assignmentData);
+}
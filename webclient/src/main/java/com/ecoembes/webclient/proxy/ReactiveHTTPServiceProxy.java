@@ -0,0 +1,151 @@
+package com.ecoembes.webclient.proxy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Non-blocking HTTP Service Proxy implementation.
+ * Communicates with the Ecoembes backend API without tying up a thread per call.
+ */
+@Component
+public class ReactiveHTTPServiceProxy implements IReactiveServiceProxy {
+
+    private static final Logger log = LoggerFactory.getLogger(ReactiveHTTPServiceProxy.class);
+
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ISO_LOCAL_DATE;
+    private static final ParameterizedTypeReference<Map<String, Object>> OBJECT = new ParameterizedTypeReference<>() {};
+    private static final ParameterizedTypeReference<List<Map<String, Object>>> OBJECT_LIST = new ParameterizedTypeReference<>() {};
+
+    private final WebClient webClient;
+
+    /**
+     * Uses the Boot-managed builder so every backend call carries the current trace context.
+     */
+    public ReactiveHTTPServiceProxy(WebClient.Builder webClientBuilder, @Value("${ecoembes.api.base-url}") String baseUrl) {
+        this.webClient = webClientBuilder
+                .baseUrl(baseUrl)
+                .defaultHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .build();
+    }
+
+    @Override
+    public Mono<String> login(String email, String password) {
+        Map<String, String> credentials = new HashMap<>();
+        credentials.put("email", email);
+        credentials.put("password", password);
+
+        return webClient.post()
+                .uri("/api/v1/login")
+                .bodyValue(credentials)
+                .retrieve()
+                .bodyToMono(new ParameterizedTypeReference<Map<String, String>>() {})
+                .doOnSubscribe(s -> log.debug("Sending login request for {}", email))
+                .mapNotNull(response -> response.get("token"))
+                .onErrorMap(WebClientResponseException.class, e -> {
+                    log.warn("Login failed with status {}: {}", e.getStatusCode(), e.getResponseBodyAsString());
+                    return new RuntimeException("Login failed: " + e.getMessage(), e);
+                });
+    }
+
+    @Override
+    public Mono<Void> logout(String token) {
+        return webClient.post()
+                .uri("/api/v1/logout")
+                .header("Authorization", token)
+                .retrieve()
+                .bodyToMono(Void.class)
+                .onErrorMap(WebClientResponseException.class, e -> new RuntimeException("Logout failed: " + e.getMessage(), e));
+    }
+
+    @Override
+    public Mono<Map<String, Object>> createDumpster(String token, Map<String, Object> dumpsterData) {
+        return webClient.post()
+                .uri("/api/v1/dumpsters")
+                .header("Authorization", token)
+                .bodyValue(dumpsterData)
+                .retrieve()
+                .bodyToMono(OBJECT)
+                .onErrorMap(WebClientResponseException.class, e -> new RuntimeException("Failed to create dumpster: " + e.getMessage(), e));
+    }
+
+    @Override
+    public Mono<List<Map<String, Object>>> queryDumpsterUsage(String token, LocalDate startDate, LocalDate endDate) {
+        return webClient.get()
+                .uri(uriBuilder -> uriBuilder
+                        .path("/api/v1/dumpsters/usage")
+                        .queryParam("startDate", startDate.format(DATE_FORMATTER))
+                        .queryParam("endDate", endDate.format(DATE_FORMATTER))
+                        .build())
+                .header("Authorization", token)
+                .retrieve()
+                .bodyToMono(OBJECT_LIST)
+                .onErrorMap(WebClientResponseException.class, e -> new RuntimeException("Failed to query dumpster usage: " + e.getMessage(), e));
+    }
+
+    @Override
+    public Mono<List<Map<String, Object>>> getDumpsterStatus(String token, String postalCode, LocalDate date) {
+        return webClient.get()
+                .uri(uriBuilder -> uriBuilder
+                        .path("/api/v1/dumpsters/status")
+                        .queryParam("postalCode", postalCode)
+                        .queryParam("date", date.format(DATE_FORMATTER))
+                        .build())
+                .header("Authorization", token)
+                .retrieve()
+                .bodyToMono(OBJECT_LIST)
+                .onErrorMap(WebClientResponseException.class, e -> new RuntimeException("Failed to get dumpster status: " + e.getMessage(), e));
+    }
+
+    @Override
+    public Mono<List<Map<String, Object>>> getAllPlants(String token) {
+        return webClient.get()
+                .uri("/api/v1/plants")
+                .header("Authorization", token)
+                .retrieve()
+                .bodyToMono(OBJECT_LIST)
+                .onErrorMap(WebClientResponseException.class, e -> new RuntimeException("Failed to get plants: " + e.getMessage(), e));
+    }
+
+    @Override
+    public Mono<List<Map<String, Object>>> getPlantCapacity(String token, LocalDate date, String plantId) {
+        return webClient.get()
+                .uri(uriBuilder -> {
+                    var builder = uriBuilder
+                            .path("/api/v1/plants/capacity")
+                            .queryParam("date", date.format(DATE_FORMATTER));
+                    if (plantId != null && !plantId.isEmpty()) {
+                        builder.queryParam("plantId", plantId);
+                    }
+                    return builder.build();
+                })
+                .header("Authorization", token)
+                .retrieve()
+                .bodyToMono(OBJECT_LIST)
+                .onErrorMap(WebClientResponseException.class, e -> new RuntimeException("Failed to get plant capacity: " + e.getMessage(), e));
+    }
+
+    @Override
+    public Mono<Map<String, Object>> assignDumpstersToPlant(String token, Map<String, Object> assignmentData) {
+        return webClient.post()
+                .uri("/api/v1/plants/assign")
+                .header("Authorization", token)
+                .bodyValue(assignmentData)
+                .retrieve()
+                .bodyToMono(OBJECT)
+                .onErrorMap(WebClientResponseException.class, e -> new RuntimeException("Failed to assign dumpsters: " + e.getMessage(), e));
+    }
+}
@@ -0,0 +1,131 @@
+package com.ecoembes.webclient.controller;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseCookie;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.reactive.function.BodyInserters;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Drives the web client over HTTP against a stub Ecoembes backend, through the real
+ * reactive proxy and its cache.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "tracing.span-file=build/spans-webclient-test.jsonl")
+class WebClientControllerTest {
+
+    private static final String TOKEN = "T-1";
+
+    private static final HttpServer backend;
+    private static final List<String> authorizations = new CopyOnWriteArrayList<>();
+    private static final List<String> capacityQueries = new CopyOnWriteArrayList<>();
+
+    static {
+        try {
+            backend = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        } catch (IOException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+        backend.createContext("/api/v1/login", exchange ->
+                respond(exchange, "{\"token\":\"" + TOKEN + "\"}"));
+        backend.createContext("/api/v1/plants/capacity", exchange -> {
+            capacityQueries.add(exchange.getRequestURI().getQuery());
+            respond(exchange, "[]");
+        });
+        backend.createContext("/api/v1/plants", exchange -> {
+            authorizations.add(exchange.getRequestHeaders().getFirst("Authorization"));
+            respond(exchange, "[{\"plantID\":\"P-1\",\"plantName\":\"Plant One\",\"availableCapacityTons\":10.0}]");
+        });
+        backend.start();
+    }
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @DynamicPropertySource
+    static void backendUrl(DynamicPropertyRegistry registry) {
+        registry.add("ecoembes.api.base-url", () -> "http://localhost:" + backend.getAddress().getPort());
+    }
+
+    @AfterAll
+    static void stopBackend() {
+        backend.stop(0);
+    }
+
+    @BeforeEach
+    void reset() {
+        authorizations.clear();
+        capacityQueries.clear();
+    }
+
+    @Test
+    void assignmentPageLoadsThePlantListOnce() {
+        String session = login();
+
+        String page = assignmentPage(session);
+        assertNotNull(page);
+        assertTrue(page.contains("P-1 - Plant One (Capacity: 10.0 tons)"), page);
+
+        // Shown again within the cache's TTL, the page reuses the list
+        assertEquals(page, assignmentPage(session));
+        assertEquals(List.of(TOKEN), authorizations);
+        assertEquals(List.of(), capacityQueries, "The page only needs the plant list");
+    }
+
+    @Test
+    void pagesRedirectToLoginWithoutASession() {
+        webTestClient.get()
+                .uri("/assignments/create")
+                .exchange()
+                .expectStatus().is3xxRedirection()
+                .expectHeader().value(HttpHeaders.LOCATION, location -> assertTrue(location.contains("/login"), location));
+    }
+
+    private String assignmentPage(String session) {
+        return webTestClient.get()
+                .uri("/assignments/create")
+                .cookie("JSESSIONID", session)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class)
+                .returnResult()
+                .getResponseBody();
+    }
+
+    private String login() {
+        ResponseCookie session = webTestClient.post()
+                .uri("/login")
+                .body(BodyInserters.fromFormData("email", "user@ecoembes.com").with("password", "secret"))
+                .exchange()
+                .expectStatus().is3xxRedirection()
+                .returnResult(Void.class)
+                .getResponseCookies()
+                .getFirst("JSESSIONID");
+        assertNotNull(session, "Login did not start a session");
+        return session.getValue();
+    }
+
+    private static void respond(HttpExchange exchange, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        exchange.getResponseBody().write(body);
+        exchange.close();
+    }
+}
@@ -0,0 +1,179 @@
+package com.ecoembes.webclient.proxy;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CachingServiceProxyTest {
+
+    private static final LocalDate DATE = LocalDate.of(2025, 11, 5);
+    private static final List<Map<String, Object>> PLANTS = List.of(Map.of("plantID", "P-1"));
+
+    private final StubProxy backend = new StubProxy();
+    private final CachingServiceProxy proxy = new CachingServiceProxy(backend, Duration.ofMinutes(1));
+
+    @Test
+    void concurrentIdenticalCallsShareOneBackendCall() throws Exception {
+        // Slow enough that every caller asks while the first call is still in flight
+        backend.plants = () -> Mono.delay(Duration.ofMillis(200)).thenReturn(PLANTS);
+        int callers = 8;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(callers);
+        try {
+            List<Future<List<Map<String, Object>>>> results = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                results.add(pool.submit(() -> {
+                    start.await();
+                    return proxy.getAllPlants("token").block();
+                }));
+            }
+            start.countDown();
+            for (Future<List<Map<String, Object>>> result : results) {
+                assertEquals(PLANTS, result.get());
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals(1, backend.plantCalls.get());
+    }
+
+    @Test
+    void repeatedCallsAreServedFromTheCacheUntilTheTtlExpires() {
+        proxy.getAllPlants("token").block();
+        proxy.getAllPlants("token").block();
+        assertEquals(1, backend.plantCalls.get());
+
+        CachingServiceProxy expired = new CachingServiceProxy(backend, Duration.ZERO);
+        expired.getAllPlants("token").block();
+        expired.getAllPlants("token").block();
+        assertEquals(3, backend.plantCalls.get());
+    }
+
+    @Test
+    void entriesAreScopedToTokenDateAndPlant() {
+        proxy.getPlantCapacity("token", DATE, null).block();
+        proxy.getPlantCapacity("token", DATE, "").block();
+        assertEquals(1, backend.capacityCalls.get(), "No plant and an empty plant are the same query");
+
+        proxy.getPlantCapacity("other", DATE, null).block();
+        proxy.getPlantCapacity("token", DATE.plusDays(1), null).block();
+        proxy.getPlantCapacity("token", DATE, "P-1").block();
+        assertEquals(4, backend.capacityCalls.get());
+    }
+
+    @Test
+    void failedCallsAreNotCached() {
+        backend.plants = () -> Mono.error(new RuntimeException("backend down"));
+        assertThrows(RuntimeException.class, () -> proxy.getAllPlants("token").block());
+
+        backend.plants = () -> Mono.just(PLANTS);
+        assertEquals(PLANTS, proxy.getAllPlants("token").block());
+        assertEquals(2, backend.plantCalls.get());
+    }
+
+    @Test
+    void submittingAnAssignmentDropsTheTokensEntries() {
+        proxy.getAllPlants("token").block();
+        proxy.getPlantCapacity("token", DATE, null).block();
+        proxy.getAllPlants("other").block();
+
+        proxy.assignDumpstersToPlant("token", Map.of()).block();
+
+        proxy.getAllPlants("token").block();
+        proxy.getPlantCapacity("token", DATE, null).block();
+        proxy.getAllPlants("other").block();
+        assertEquals(3, backend.plantCalls.get(), "Only the submitting token's plant list is reloaded");
+        assertEquals(2, backend.capacityCalls.get());
+    }
+
+    @Test
+    void failedAssignmentsAlsoDropTheTokensEntries() {
+        backend.assignment = () -> Mono.error(new RuntimeException("conflict"));
+        proxy.getAllPlants("token").block();
+
+        assertThrows(RuntimeException.class, () -> proxy.assignDumpstersToPlant("token", Map.of()).block());
+
+        proxy.getAllPlants("token").block();
+        assertEquals(2, backend.plantCalls.get());
+    }
+
+    @Test
+    void loggingOutDropsTheTokensEntries() {
+        proxy.getAllPlants("token").block();
+
+        proxy.logout("token").block();
+
+        proxy.getAllPlants("token").block();
+        assertEquals(2, backend.plantCalls.get());
+    }
+
+    /**
+     * Counts the calls that reach the backend; each call's result comes from a replaceable supplier.
+     */
+    private static final class StubProxy implements IReactiveServiceProxy {
+
+        final AtomicInteger plantCalls = new AtomicInteger();
+        final AtomicInteger capacityCalls = new AtomicInteger();
+        volatile Supplier<Mono<List<Map<String, Object>>>> plants = () -> Mono.just(PLANTS);
+        volatile Supplier<Mono<Map<String, Object>>> assignment = () -> Mono.just(Map.of());
+
+        @Override
+        public Mono<String> login(String email, String password) {
+            return Mono.just("token");
+        }
+
+        @Override
+        public Mono<Void> logout(String token) {
+            return Mono.empty();
+        }
+
+        @Override
+        public Mono<Map<String, Object>> createDumpster(String token, Map<String, Object> dumpsterData) {
+            return Mono.just(dumpsterData);
+        }
+
+        @Override
+        public Mono<List<Map<String, Object>>> queryDumpsterUsage(String token, LocalDate startDate, LocalDate endDate) {
+            return Mono.just(List.of());
+        }
+
+        @Override
+        public Mono<List<Map<String, Object>>> getDumpsterStatus(String token, String postalCode, LocalDate date) {
+            return Mono.just(List.of());
+        }
+
+        @Override
+        public Mono<List<Map<String, Object>>> getAllPlants(String token) {
+            return Mono.defer(() -> {
+                plantCalls.incrementAndGet();
+                return plants.get();
+            });
+        }
+
+        @Override
+        public Mono<List<Map<String, Object>>> getPlantCapacity(String token, LocalDate date, String plantId) {
+            return Mono.defer(() -> {
+                capacityCalls.incrementAndGet();
+                return Mono.just(List.of(Map.<String, Object>of("plantID", plantId == null ? "all" : plantId)));
+            });
+        }
+
+        @Override
+        public Mono<Map<String, Object>> assignDumpstersToPlant(String token, Map<String, Object> assignmentData) {
+            return Mono.defer(() -> assignment.get());
+        }
+    }
+}